@@ -0,0 +1,84 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import uga.menik.cs4370.App;
+import uga.menik.cs4370.services.UserService;
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Starts the application once per benchmark JVM, against the embedded
+ * database of the "test" profile seeded with enough data that pages are
+ * full and queries have real work to do.
+ */
+public final class BenchmarkApp {
+
+    /** Number of sample users. Each follows TestDatabase.FOLLOWS_PER_USER others. */
+    public static final int USERS = 1000;
+
+    /** Number of posts of each sample user. */
+    public static final int POSTS_PER_USER = 50;
+
+    /** Total number of sample posts, with IDs 1 to POSTS. */
+    public static final int POSTS = USERS * POSTS_PER_USER;
+
+    private static ConfigurableApplicationContext context;
+
+    private BenchmarkApp() {
+    }
+
+    /**
+     * Returns the running application, starting and seeding it on first use.
+     */
+    public static synchronized ConfigurableApplicationContext context() throws Exception {
+        if (context == null) {
+            context = SpringApplication.run(App.class,
+                    "--spring.profiles.active=test",
+                    "--spring.main.banner-mode=off",
+                    "--server.port=0",
+                    "--logging.level.root=WARN");
+            TestDatabase.ensureSeeded(context.getBean(DataSource.class), USERS, POSTS_PER_USER);
+        }
+        return context;
+    }
+
+    /**
+     * Stops the application, so that the benchmark JVM can exit.
+     */
+    public static synchronized void close() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    /**
+     * Binds a request with its own session to the current thread and logs
+     * in a sample user there, so that session scoped services see them as
+     * the logged-in user for the rest of the thread's work.
+     *
+     * @param userIndex which sample user to log in, counting from 1
+     */
+    public static void logInOnCurrentThread(int userIndex) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setSession(new MockHttpSession());
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        boolean isAuthenticated = context().getBean(UserService.class)
+                .authenticate(TestDatabase.username(userIndex), TestDatabase.PASSWORD);
+        if (!isAuthenticated) {
+            throw new IllegalStateException("Could not log in " + TestDatabase.username(userIndex) + ".");
+        }
+    }
+}
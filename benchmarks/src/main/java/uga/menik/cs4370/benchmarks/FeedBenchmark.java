@@ -0,0 +1,98 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import uga.menik.cs4370.models.Page;
+import uga.menik.cs4370.models.PageCursor;
+import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.services.FeedService;
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Measures assembling the home feed: a page from FeedService, both the
+ * first page and one far down, and the whole home page as HomeController
+ * builds and renders it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FeedBenchmark {
+
+    /** How many pages down the deep page is. */
+    private static final int DEEP_PAGE = 20;
+
+    private static final int VIEWER_ID = 1;
+
+    private FeedService feedService;
+    private PageCursor deepCursor;
+    private MockMvc mockMvc;
+    private MockHttpSession session;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ConfigurableApplicationContext context = BenchmarkApp.context();
+        feedService = context.getBean(FeedService.class);
+
+        Page<Post> page = feedService.getFeedPage(VIEWER_ID, null, FeedService.PAGE_SIZE);
+        for (int i = 1; i < DEEP_PAGE && page.hasMore(); i++) {
+            page = feedService.getFeedPage(VIEWER_ID, page.getNextCursor(), FeedService.PAGE_SIZE);
+        }
+        deepCursor = page.getNextCursor();
+
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        session = new MockHttpSession();
+        mockMvc.perform(post("/login").session(session)
+                .param("username", TestDatabase.username(1))
+                .param("password", TestDatabase.PASSWORD));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkApp.close();
+    }
+
+    @Benchmark
+    public Page<Post> firstPage() throws Exception {
+        return feedService.getFeedPage(VIEWER_ID, null, FeedService.PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Post> deepPage() throws Exception {
+        return feedService.getFeedPage(VIEWER_ID, deepCursor, FeedService.PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MvcResult homePage() throws Exception {
+        return mockMvc.perform(get("/").session(session)).andReturn();
+    }
+}
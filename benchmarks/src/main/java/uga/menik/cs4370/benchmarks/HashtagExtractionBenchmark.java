@@ -0,0 +1,60 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uga.menik.cs4370.services.PostCreationService;
+
+/**
+ * Measures finding the hashtags of a new post with PostCreationService's
+ * hashtag pattern, for post texts with different numbers of hashtags.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HashtagExtractionBenchmark {
+
+    @Param({ "0", "3", "20" })
+    private int hashTagCount;
+
+    private String postText;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder text = new StringBuilder("Spent the afternoon walking around the lake and taking pictures.");
+        for (int i = 0; i < hashTagCount; i++) {
+            text.append(" #tag").append(i);
+        }
+        // Pad every variant to the same length, close to the 500 character limit.
+        while (text.length() < 480) {
+            text.append(" and more words");
+        }
+        postText = text.toString();
+    }
+
+    @Benchmark
+    public Set<String> extractHashTags() {
+        return PostCreationService.extractHashTags(postText);
+    }
+}
@@ -0,0 +1,369 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import uga.menik.cs4370.utility.LatencyHistogram;
+
+/**
+ * Drives a running instance of the application over HTTP the way many
+ * users at once would, and reports latency percentiles and throughput
+ * per endpoint. Start the app against a database filled with
+ * --generate-dataset, then run for example:
+ *
+ *   mvn -B -f benchmarks/pom.xml package exec:exec@load-test -Dload.args="--rate=200 --duration=120"
+ *
+ * Every synthetic user logs in through /login first and keeps its session
+ * cookie. Requests are then started at a fixed rate whatever the response
+ * times, and each latency is measured from when its request was due rather
+ * than from when it was sent, so that a server that falls behind shows in
+ * the percentiles instead of slowing the load down.
+ *
+ * Options, with their defaults:
+ *   --url=http://localhost:8080     where the app runs
+ *   --users=100                     number of users to log in
+ *   --first-user-id=1               users are logged in from this userId up
+ *   --username-prefix=gen           usernames are this prefix and the userId
+ *   --password=password
+ *   --max-user-id=10000             profiles and follows pick userIds up to this
+ *   --max-post-id=200000            posts, hearts and bookmarks pick postIds up to this
+ *   --hashtag-prefix=topic          hashtags searched are this prefix and a number
+ *   --hashtags=50000                number of distinct hashtags
+ *   --rate=50                       requests started per second
+ *   --duration=60                   seconds measured
+ *   --warmup=10                     seconds run before measuring
+ *   --max-in-flight=500             requests waiting for a response at most
+ *   --mix=home=35,profile=12,...    relative weight of each operation
+ * The defaults match the users, posts and hashtags --generate-dataset makes
+ * with its own defaults.
+ */
+public final class LoadTestDriver {
+
+    /**
+     * One kind of request that users make, and how often they make it.
+     */
+    private static final class Operation {
+        final String name;
+        final String endpoint;
+        int weight;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+
+        Operation(String name, String endpoint, int weight) {
+            this.name = name;
+            this.endpoint = endpoint;
+            this.weight = weight;
+        }
+    }
+
+    private final Map<String, String> options;
+    private final String baseUrl;
+    private final int maxUserId;
+    private final int maxPostId;
+    private final String hashtagPrefix;
+    private final int hashtags;
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+    private final HttpClient client;
+
+    // Session cookie of each logged-in user.
+    private final List<String> sessions = new ArrayList<>();
+
+    private LoadTestDriver(Map<String, String> options) {
+        this.options = options;
+        this.baseUrl = option("url", "http://localhost:8080");
+        this.maxUserId = Integer.parseInt(option("max-user-id", "10000"));
+        this.maxPostId = Integer.parseInt(option("max-post-id", "200000"));
+        this.hashtagPrefix = option("hashtag-prefix", "topic");
+        this.hashtags = Integer.parseInt(option("hashtags", "50000"));
+        // Redirects are not followed, so each sample times one request.
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        addOperation("home", "GET /", 35);
+        addOperation("profile", "GET /profile/{userId}", 12);
+        addOperation("post", "GET /post/{postId}", 20);
+        addOperation("hashtagsearch", "GET /hashtagsearch", 8);
+        addOperation("people", "GET /people", 5);
+        addOperation("createpost", "POST /createpost", 3);
+        addOperation("heart", "GET /post/{postId}/heart/{isAdd}", 9);
+        addOperation("bookmark", "GET /post/{postId}/bookmark/{isAdd}", 5);
+        addOperation("follow", "GET /people/{userId}/follow/{isFollow}", 3);
+        for (String weight : option("mix", "").split(",")) {
+            if (weight.isBlank()) {
+                continue;
+            }
+            String[] parts = weight.split("=");
+            Operation operation = operations.get(parts[0].trim());
+            if (operation == null || parts.length != 2) {
+                throw new IllegalArgumentException("Unknown operation in --mix: " + weight
+                        + ". Operations are " + operations.keySet() + ".");
+            }
+            operation.weight = Integer.parseInt(parts[1].trim());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options look like --name=value, not " + arg + ".");
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        LoadTestDriver driver = new LoadTestDriver(options);
+        driver.logIn();
+        driver.run();
+        System.out.println(driver.report());
+    }
+
+    /**
+     * Logs in every synthetic user and keeps its session cookie.
+     */
+    private void logIn() throws Exception {
+        int users = Integer.parseInt(option("users", "100"));
+        int firstUserId = Integer.parseInt(option("first-user-id", "1"));
+        String prefix = option("username-prefix", "gen");
+        String password = option("password", "password");
+        System.out.println("Logging in " + users + " users at " + baseUrl + ".");
+        for (int userId = firstUserId; userId < firstUserId + users; userId++) {
+            String form = "username=" + URLEncoder.encode(prefix + userId, StandardCharsets.UTF_8)
+                    + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(form))
+                    .build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            String location = response.headers().firstValue("Location").orElse("");
+            String cookie = response.headers().allValues("Set-Cookie").stream()
+                    .filter(header -> header.startsWith("JSESSIONID="))
+                    .map(header -> header.split(";", 2)[0])
+                    .findFirst().orElse(null);
+            if (response.statusCode() != 302 || location.contains("error=") || cookie == null) {
+                throw new IllegalStateException("Could not log in " + prefix + userId + ": status "
+                        + response.statusCode() + ", redirected to " + location + ".");
+            }
+            sessions.add(cookie);
+        }
+    }
+
+    /**
+     * Starts requests at the target rate for the warmup and the measured
+     * duration, then waits for the last responses.
+     */
+    private void run() throws InterruptedException {
+        double rate = Double.parseDouble(option("rate", "50"));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option("warmup", "10")));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option("duration", "60")));
+        int maxInFlight = Integer.parseInt(option("max-in-flight", "500"));
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        int totalWeight = 0;
+        for (Operation operation : operations.values()) {
+            totalWeight += operation.weight;
+        }
+
+        System.out.println("Running " + rate + " requests per second for " + option("warmup", "10")
+                + " s of warmup and " + option("duration", "60") + " s measured.");
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + warmupNanos;
+        long endNanos = measureFromNanos + durationNanos;
+        long nextReportNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(10);
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        for (long dueNanos = startNanos; dueNanos < endNanos; dueNanos += intervalNanos) {
+            long waitNanos = dueNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+            if (dueNanos >= nextReportNanos) {
+                System.out.println(progress(dueNanos - measureFromNanos));
+                nextReportNanos += TimeUnit.SECONDS.toNanos(10);
+            }
+            // Waiting here still counts toward the latency of this request.
+            inFlight.acquire();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Operation operation = pick(random.nextInt(totalWeight));
+            String session = sessions.get(random.nextInt(sessions.size()));
+            boolean isMeasured = dueNanos >= measureFromNanos;
+            long due = dueNanos;
+            CompletableFuture<?> response = client.sendAsync(request(operation, session, random),
+                    HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((result, error) -> {
+                        inFlight.release();
+                        if (isMeasured) {
+                            operation.latency.record(System.nanoTime() - due);
+                            if (error != null || isFailed(result)) {
+                                operation.errors.increment();
+                            }
+                        }
+                    });
+            pending.add(response);
+            pending.removeIf(CompletableFuture::isDone);
+        }
+        for (CompletableFuture<?> response : pending) {
+            try {
+                response.join();
+            } catch (RuntimeException e) {
+                // Counted as an error already.
+            }
+        }
+    }
+
+    /**
+     * Builds the request of an operation for a user, with random targets.
+     */
+    private HttpRequest request(Operation operation, String session, ThreadLocalRandom random) {
+        int userId = 1 + random.nextInt(maxUserId);
+        int postId = recentPostId(random);
+        boolean isAdd = random.nextBoolean();
+        HttpRequest.Builder request;
+        switch (operation.name) {
+            case "home":
+                request = get("/");
+                break;
+            case "profile":
+                request = get("/profile/" + userId);
+                break;
+            case "post":
+                request = get("/post/" + postId);
+                break;
+            case "hashtagsearch":
+                // Like hashtag use, searches favor the few most popular tags.
+                int rank = (int) (hashtags * Math.pow(random.nextDouble(), 4));
+                request = get("/hashtagsearch?hashtags="
+                        + URLEncoder.encode("#" + hashtagPrefix + rank, StandardCharsets.UTF_8));
+                break;
+            case "people":
+                request = get("/people");
+                break;
+            case "createpost":
+                String postText = "Load test post " + random.nextInt(1_000_000)
+                        + " #" + hashtagPrefix + random.nextInt(Math.max(1, hashtags));
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/createpost"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "posttext=" + URLEncoder.encode(postText, StandardCharsets.UTF_8)));
+                break;
+            case "heart":
+                request = get("/post/" + postId + "/heart/" + isAdd);
+                break;
+            case "bookmark":
+                request = get("/post/" + postId + "/bookmark/" + isAdd);
+                break;
+            case "follow":
+                request = get("/people/" + userId + "/follow/" + isAdd);
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation.name + ".");
+        }
+        return request.header("Cookie", session).timeout(Duration.ofSeconds(30)).build();
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+    }
+
+    /**
+     * Returns a postId that is more likely the more recent the post is,
+     * as people mostly open posts from their feed.
+     */
+    private int recentPostId(ThreadLocalRandom random) {
+        return maxPostId - (int) ((maxPostId - 1) * Math.pow(random.nextDouble(), 3));
+    }
+
+    /**
+     * Returns whether a response shows that the request failed. The app
+     * reports most failures by redirecting with an error parameter, and
+     * sends lost sessions back to the login page.
+     */
+    private static boolean isFailed(HttpResponse<?> response) {
+        if (response.statusCode() >= 400) {
+            return true;
+        }
+        String location = response.headers().firstValue("Location").orElse("");
+        return location.contains("error=") || location.contains("/login");
+    }
+
+    private Operation pick(int weight) {
+        for (Operation operation : operations.values()) {
+            weight -= operation.weight;
+            if (weight < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("Weights do not add up.");
+    }
+
+    private void addOperation(String name, String endpoint, int weight) {
+        operations.put(name, new Operation(name, endpoint, weight));
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private String progress(long measuredNanos) {
+        long requests = 0;
+        long errors = 0;
+        for (Operation operation : operations.values()) {
+            requests += operation.latency.getCount();
+            errors += operation.errors.sum();
+        }
+        return String.format(Locale.ROOT, "%d s: %d requests, %d errors",
+                TimeUnit.NANOSECONDS.toSeconds(measuredNanos), requests, errors);
+    }
+
+    /**
+     * Returns a table of the latency percentiles and throughput of every
+     * endpoint over the measured duration, and of all of them together.
+     */
+    private String report() {
+        double seconds = Double.parseDouble(option("duration", "60"));
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%-42s %8s %7s %8s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        LatencyHistogram all = new LatencyHistogram();
+        long allErrors = 0;
+        for (Operation operation : operations.values()) {
+            if (operation.latency.getCount() == 0) {
+                continue;
+            }
+            all.add(operation.latency);
+            allErrors += operation.errors.sum();
+            appendRow(report, operation.endpoint, operation.latency, operation.errors.sum(), seconds);
+        }
+        appendRow(report, "all", all, allErrors, seconds);
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, String endpoint, LatencyHistogram latency,
+            long errors, double seconds) {
+        report.append(String.format(Locale.ROOT, "%-42s %8d %7d %8.1f %9.2f %9.2f %9.2f %9.2f%n",
+                endpoint, latency.getCount(), errors, latency.getCount() / seconds,
+                latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(95) / 1e6,
+                latency.getValueAtPercentile(99) / 1e6, latency.getMax() / 1e6));
+    }
+}
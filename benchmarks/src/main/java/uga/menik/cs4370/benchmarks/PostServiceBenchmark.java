@@ -0,0 +1,69 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.services.PostService;
+
+/**
+ * Measures PostService.getPostsFromIds, which every page of posts goes
+ * through, with IN lists of different sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PostServiceBenchmark {
+
+    @Param({ "1", "20", "200", "2000" })
+    private int postCount;
+
+    private PostService postService;
+    private List<Integer> postIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postService = BenchmarkApp.context().getBean(PostService.class);
+        BenchmarkApp.logInOnCurrentThread(1);
+
+        // Spread the posts over the whole table, like a page of search results.
+        postIds = new ArrayList<>(postCount);
+        int step = BenchmarkApp.POSTS / postCount;
+        for (int i = 0; i < postCount; i++) {
+            postIds.add(1 + i * step);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkApp.close();
+    }
+
+    @Benchmark
+    public List<Post> getPostsFromIds() {
+        return postService.getPostsFromIds(postIds);
+    }
+}
@@ -0,0 +1,80 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+
+import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.models.User;
+
+/**
+ * Measures rendering the posts_page template with the application's
+ * Mustache compiler, for pages of different sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PostsPageRenderBenchmark {
+
+    @Param({ "20", "200", "2000" })
+    private int postCount;
+
+    private Template template;
+    private Map<String, Object> model;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Mustache.Compiler compiler = BenchmarkApp.context().getBean(Mustache.Compiler.class);
+        template = compiler.loadTemplate("posts_page");
+
+        List<Post> posts = new ArrayList<>(postCount);
+        for (int i = 1; i <= postCount; i++) {
+            User user = new User(i % 100 + 1, "First" + i, "Last" + i);
+            // Mar 10, 2024, 08:15 PM UTC.
+            posts.add(new Post(i, "Sample post " + i + " about #tag" + i % 10,
+                    1710101700000L, user, i % 7, i % 5, i % 2 == 0, i % 3 == 0));
+        }
+        model = new HashMap<>();
+        model.put("posts", posts);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkApp.close();
+    }
+
+    @Benchmark
+    public int render() {
+        StringWriter out = new StringWriter(1024 * postCount);
+        template.execute(model, out);
+        return out.getBuffer().length();
+    }
+}
@@ -85,4 +85,38 @@ CREATE TABLE IF NOT EXISTS follow (
     FOREIGN KEY (followeeUserId) REFERENCES user(userId)
         ON UPDATE CASCADE
         ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+-- Materialized home timelines. Each post is pushed into the timeline of
+-- every follower of its author when the post is created.
+-- Existing data is copied in by migration V6 when the app first starts.
+CREATE TABLE IF NOT EXISTS timeline (
+    userId int NOT NULL,
+    postId int NOT NULL,
+    postDate datetime NOT NULL,
+    PRIMARY KEY (userId, postDate, postId),
+    FOREIGN KEY (userId) REFERENCES user(userId)
+        ON UPDATE CASCADE
+        ON DELETE CASCADE,
+    FOREIGN KEY (postId) REFERENCES post(postId)
+        ON DELETE CASCADE
+);
+
+
+-- Hearts and comments counters of every post. Hearts are counted in the same
+-- transaction as each heart, and comments from the outbox right after.
+-- Existing data is counted by migration V6 when the app first starts.
+CREATE TABLE IF NOT EXISTS post_stats (
+    postId int NOT NULL,
+    heartsCount int NOT NULL DEFAULT 0,
+    commentsCount int NOT NULL DEFAULT 0,
+    lastActivityDate datetime NOT NULL,
+    PRIMARY KEY (postId),
+    FOREIGN KEY (postId) REFERENCES post(postId)
+        ON DELETE CASCADE
+);
+
+-- Later changes to the schema, including every index added since, are
+-- migrations in src/main/resources/db/migration. The app runs the ones that
+-- have not run yet when it starts, and records them in the schema_history
+-- table. See MigrationRunner.
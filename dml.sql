@@ -1,93 +1,241 @@
--- USed in HomeController to retrieve all posts by users the logged-in user follows.
--- URL: http://localhost:8081/
--- The "?" is replaced with the  logged-in user's userId.
-SELECT p.postId, p.postText, p.postDate, p.userId, u.firstName, u.lastName FROM post p JOIN follow f ON p.userId = f.followeeUserId JOIN user u ON p.userId = u.userId WHERE f.followerUserId = ? ORDER BY p.postDate DESC;
-
--- Used in HomeController to implement creating posts.
+-- Used in FeedService to retrieve one page of posts by users the logged-in user follows, from the logged-in user's materialized timeline joined to post_stats.
+-- URL: http://localhost:8081/ and http://localhost:8081/?cursor=...
+-- The first two "?"s are replaced with the logged-in user's userId.
+-- When the in-memory timeline (TimelineService) knows the post IDs of the page, the inner query reads those posts by ID.
+-- The "?"s of the IN list are replaced with up to the page size plus one post IDs.
+SELECT pg.postId, pg.postText, pg.postDate, pg.userId, u.firstName, u.lastName, COALESCE(s.heartsCount, 0) AS heartsCount, COALESCE(s.commentsCount, 0) AS commentsCount, EXISTS (SELECT 1 FROM heart h WHERE h.postId = pg.postId AND h.userId = ?) AS isHearted, EXISTS (SELECT 1 FROM bookmark b WHERE b.postId = pg.postId AND b.userId = ?) AS isBookmarked FROM (SELECT p.postId, p.postText, p.postDate, p.userId FROM post p WHERE p.postId IN (?, ?, ?)) pg JOIN user u ON u.userId = pg.userId LEFT JOIN post_stats s ON s.postId = pg.postId ORDER BY pg.postDate DESC, pg.postId DESC;
+-- Otherwise the inner query scans the user's timeline table from the cursor onwards. Its first "?" is replaced with the logged-in user's userId.
+-- "<CURSOR>" is removed for the first page. For later pages it is replaced with
+-- "AND (t.postDate < ? OR (t.postDate = ? AND t.postId < ?))" using the date and postId of the last post on the previous page.
+-- The final "?" is replaced with the page size plus one, which tells whether another page exists.
+SELECT pg.postId, pg.postText, pg.postDate, pg.userId, u.firstName, u.lastName, COALESCE(s.heartsCount, 0) AS heartsCount, COALESCE(s.commentsCount, 0) AS commentsCount, EXISTS (SELECT 1 FROM heart h WHERE h.postId = pg.postId AND h.userId = ?) AS isHearted, EXISTS (SELECT 1 FROM bookmark b WHERE b.postId = pg.postId AND b.userId = ?) AS isBookmarked FROM (SELECT p.postId, p.postText, p.postDate, p.userId FROM timeline t JOIN post p ON p.postId = t.postId WHERE t.userId = ? <CURSOR> ORDER BY t.postDate DESC, t.postId DESC LIMIT ?) pg JOIN user u ON u.userId = pg.userId LEFT JOIN post_stats s ON s.postId = pg.postId ORDER BY pg.postDate DESC, pg.postId DESC;
+
+-- Used in PostCreationService to implement creating posts.
 -- URL: http://localhost:8081
 -- The three "?"s are replaced with data provided by the user when creating a post.
+-- The post, its post_stats row, its hashtags and its outbox event are written in one transaction.
 INSERT INTO post (userId, postDate, postText) VALUES (?, ?, ?);
 
--- Used in HomeController to create hashtags when creating posts.
+-- Used in PostCreationService to create hashtags when creating posts.
 -- URL: http://localhost:8081
 -- The two "?"s are replaced with a hashtag in the created post and the created post's postId, respectively.
+-- Every hashtag of the post is added to one batch, which the MySQL driver rewrites into a
+-- single multi-row insert since the connection URL sets rewriteBatchedStatements=true.
 INSERT INTO hashtag (hashTag, postId) VALUES (?, ?);
 
--- Used in HomeController to count the hearts associated with one post.
--- URL: http://localhost:8081
--- The "?" is replaced with the postId of the aforementioned post.
-SELECT COUNT(*) AS heartsCount FROM heart WHERE postId = ?;
+-- Used in HashtagIndexService to stream every hashtag into the in-memory hashtag index once the event bus starts.
+-- Rows are read in primary key order so the rows of each hashtag arrive together.
+SELECT hashTag, postId FROM hashtag ORDER BY hashTag, postId;
 
--- Used in HomeController to count the comments associated with one post.
--- URL: http://localhost:8081
--- The "?" is replaced with the postId of the aforementioned post.
-SELECT COUNT(*) AS commentsCount FROM comment WHERE postId = ?;
+-- Used in TrendingService to replay the hashtags of the last day into the trending counts once the event bus starts.
+-- Rows are read in postId order so that a post also delivered as an event is counted once. The "?" is replaced with the time one day ago.
+SELECT p.postId, h.hashTag, p.postDate FROM post p JOIN hashtag h ON h.postId = p.postId WHERE p.postDate >= ? ORDER BY p.postId;
 
--- Used in HomeController and in PostController to determine is a post is liked by the logged-in user.
--- URLs: http://localhost:8081, http://localhost:8081/{postId}/heart/{isAdd}
--- The "?"s are replaced with the postId of the aforementioned post and the logged-in user's userId, respectively.
-SELECT 1 FROM heart WHERE postId = ? AND userId = ?;
+-- Used in PostSearchService to load every existing post into the in-memory search index once the event bus starts.
+SELECT postId, postDate, postText FROM post ORDER BY postId;
 
--- Used in HomeController, PostController, and UserService to determine is a post is bookmarked by the logged-in user.
--- URL: http://localhost:8081, http://localhost:8081/{postId}/bookmark/{isAdd}
--- The "?"s are replaced with the postId of the aforementioned post and the logged-in user's userId, respectively.
-SELECT 1 FROM bookmark WHERE postId = ? AND userId = ?;
+-- Used in HashtagSearchController to find the newest posts having all of the searched hashtags while the hashtag index is loading.
+-- URL: http://localhost:8081/hashtagsearch?hashtags={hashtags}
+-- "<PLACEHOLDER>" replaced with one "?" per hashtag, each replaced with a hashtag without the "#".
+-- The next "?" is replaced with the number of hashtags and the final "?" with the maximum number of posts.
+SELECT h.postId FROM hashtag h WHERE h.hashTag IN (<PLACEHOLDER>) GROUP BY h.postId HAVING COUNT(h.hashTag) = ? ORDER BY h.postId DESC LIMIT ?;
 
--- Used in PostController to like and unlike posts.
+-- Used in EngagementService to write pending likes and unlikes as one batch per flush.
 -- URL: http://localhost:8081/{postId}/heart/{isAdd}
--- The "?"s in both statements are replaced with the postId of the aforementioned post and the logged-in user's userId, respectively.
-INSERT INTO heart (postId, userId) VALUES (?, ?);
+-- The "?"s in both statements are replaced with the postId of the aforementioned post and the liking user's userId, respectively.
+INSERT IGNORE INTO heart (postId, userId) VALUES (?, ?);
 DELETE FROM heart WHERE postId = ? AND userId = ?;
 
--- Used in PostController, ProfileController, and UserService to bookmark and unbookmark posts.
--- URL: http://localhost:8081/{postId}/bookmark/{isAdd}
--- The "?"s in both statements are replaced with the postId of the aforementioned post and the logged-in user's userId, respectively.
-INSERT INTO bookmark (userId, postId) VALUES (?, ?);
-DELETE FROM bookmark WHERE userId = ? AND postId = ?;
+-- Used in InteractionService to read the stored hearts count of a post and whether the logged-in user hearted it, before a heart through the API.
+-- URL: http://localhost:8081/api/posts/{postId}/heart (POST or DELETE)
+-- The "?"s are replaced with the logged-in user's userId and the postId, respectively.
+SELECT COALESCE(s.heartsCount, 0) AS heartsCount, EXISTS (SELECT 1 FROM heart h WHERE h.postId = p.postId AND h.userId = ?) AS isHearted FROM post p LEFT JOIN post_stats s ON s.postId = p.postId WHERE p.postId = ?;
 
--- Used in PeopleService and UserService to check if the logged-in user follows the given user.
--- URL: http://localhost:8081/people
--- The "?"s are replaced with the logged-in user's userId and the given user's userId, respectively.
-SELECT 1 FROM follow WHERE followerUserId = ? AND followeeUserId = ?;
+-- Used in InteractionService to bookmark and unbookmark posts. Running either statement again changes nothing.
+-- URL: http://localhost:8081/post/{postId}/bookmark/{isAdd}, http://localhost:8081/profile/{postId}/bookmark/{isAdd} and http://localhost:8081/api/posts/{postId}/bookmark (POST or DELETE)
+-- The "?"s in both statements are replaced with the logged-in user's userId and the postId of the aforementioned post, respectively.
+-- The bookmark copies the date of the post, which orders the bookmarks page.
+INSERT IGNORE INTO bookmark (userId, postId, postDate) SELECT ?, postId, postDate FROM post WHERE postId = ?;
+DELETE FROM bookmark WHERE userId = ? AND postId = ?;
+-- When neither statement changed a row, checks that the post exists, since INSERT IGNORE also skips a missing post. The "?" is replaced with the postId.
+SELECT 1 FROM post WHERE postId = ?;
+-- Run the app with --backfill-bookmark-dates, once every instance runs the version with migration V3, to date the bookmarks that the previous version added during the rollout with the column's default date.
+UPDATE bookmark SET postDate = (SELECT p.postDate FROM post p WHERE p.postId = bookmark.postId) WHERE postDate = '1970-01-01 00:00:00';
 
--- Used in UserService to (un)follow accounts.
--- URL: http://localhost:8081/
+-- Used in InteractionService to (un)follow accounts. Running either statement again changes nothing.
+-- URL: http://localhost:8081/people/{userId}/follow/{isFollow} and http://localhost:8081/api/users/{userId}/follow (POST or DELETE)
 -- The "?"s in both statements are replaced with the userId of the following user and the followee user's userId, respectively.
-INSERT INTO follow (followerUserId, followeeUserId) VALUES (?, ?);
+INSERT IGNORE INTO follow (followerUserId, followeeUserId) VALUES (?, ?);
 DELETE FROM follow WHERE followerUserId = ? AND followeeUserId = ?;
-
--- Used in PeopleService to retrieve all users to later check if they are followed by the logged-in user.
--- URL: http://localhost:8081/people
--- The "?" is replaced with the logged-in user's userId.
-SELECT u.userId, u.firstName, u.lastName FROM user u WHERE u.userId != ?;
+-- When neither statement changed a row, checks that the followee exists, since INSERT IGNORE also ignores the failed foreign key. The "?" is replaced with the followee's userId.
+SELECT 1 FROM user WHERE userId = ?;
+
+-- Used in PeopleService to retrieve one page of the people directory with each user's follow status and last post date.
+-- URL: http://localhost:8081/people?after={userId}
+-- The first two "?"s are replaced with the logged-in user's userId.
+-- The third "?" is replaced with the last userId of the previous page, or 0 for the first page.
+-- The final "?" is replaced with the page size plus one, so the extra user tells whether there is another page.
+SELECT u.userId, u.firstName, u.lastName, EXISTS (SELECT 1 FROM follow f WHERE f.followerUserId = ? AND f.followeeUserId = u.userId) AS isFollowed, (SELECT MAX(p.postDate) FROM post p WHERE p.userId = u.userId) AS lastPostDate FROM user u WHERE u.userId != ? AND u.userId > ? ORDER BY u.userId ASC LIMIT ?;
+-- Same as above, restricted to users whose username, first name, or last name starts with a prefix.
+-- URL: http://localhost:8081/people?q={prefix}&after={userId}
+-- The second, third, and fourth "?"s are replaced with the prefix followed by "%", with "%" and "_" in the prefix escaped.
+SELECT u.userId, u.firstName, u.lastName, EXISTS (SELECT 1 FROM follow f WHERE f.followerUserId = ? AND f.followeeUserId = u.userId) AS isFollowed, (SELECT MAX(p.postDate) FROM post p WHERE p.userId = u.userId) AS lastPostDate FROM (SELECT userId FROM user WHERE username LIKE ? UNION SELECT userId FROM user WHERE firstName LIKE ? UNION SELECT userId FROM user WHERE lastName LIKE ?) m JOIN user u ON u.userId = m.userId WHERE u.userId != ? AND u.userId > ? ORDER BY u.userId ASC LIMIT ?;
 
 -- Used in PostService to get and create posts given a list of postIds.
 -- URLs: 
 -- "<PLACEHOLDER>" replaced with a variable number (n) of substitutions (e.g., "?, ?" or "?" or "?, ?, ?", etc.)
 -- Each of these "?"s replaced with a hashtag
 -- The final "?" replaced with the number n (see above)
-SELECT p.postId, p.postText AS content, p.postDate, u.userId, (SELECT COUNT(userId) FROM heart WHERE postId = p.postId) AS heartsCount, (SELECT COUNT(userId) FROM comment WHERE postId = p.postId) AS commentsCount, ((p.postId, ?) IN (SELECT * FROM heart)) AS isHearted, ((p.postId, ?) IN (SELECT * FROM bookmark)) AS isBookmarked FROM post p, user u WHERE p.userId = u.userId AND p.postId IN (<PLACEHOLDER>) ORDER BY p.postDate DESC;
+SELECT p.postId, p.postText, p.postDate, u.userId, u.firstName, u.lastName, COALESCE(s.heartsCount, 0) AS heartsCount, COALESCE(s.commentsCount, 0) AS commentsCount, EXISTS (SELECT 1 FROM heart h WHERE h.postId = p.postId AND h.userId = ?) AS isHearted, EXISTS (SELECT 1 FROM bookmark b WHERE b.postId = p.postId AND b.userId = ?) AS isBookmarked FROM post p JOIN user u ON u.userId = p.userId LEFT JOIN post_stats s ON s.postId = p.postId WHERE p.postId IN (<PLACEHOLDER>) ORDER BY p.postDate DESC;
 
--- Used in PostService to get all comments associated with a post.
--- URL: http://localhost:8081/post/{postId}
--- The "?" is replaced with the aforementioned postId.
-SELECT commentId, userId, commentDate, commentText FROM comment WHERE postId = ? ORDER BY commentDate ASC;
-
--- Used in PostService to get all postIds bookmarked by the current user.
--- URL: http://localhost:8081/bookmarks
--- The "?" is replaced with the logged-in user's userId.
-SELECT postId FROM bookmark WHERE userId = ?;
+-- Used in UserLoader, through PeopleService, to resolve every author needed by a page with one query.
+-- URLs: http://localhost:8081/post/{postId}, http://localhost:8081/profile/{userId}
+-- "<PLACEHOLDER>" replaced with one "?" per distinct userId.
+SELECT userId, firstName, lastName FROM user WHERE userId IN (<PLACEHOLDER>);
 
--- Used in PostService to get all posts by a single user.
--- URLs: http://localhost:8081/profile/{userId}
--- The "?" is replaced with the aforementioned user's userId.
-SELECT postId FROM post WHERE userId = ?;
-
--- Used in PostService to add a comment to a post.
+-- Used in PostService to get the first page of comments of every post on the page with one query.
+-- URL: http://localhost:8081/post/{postId}
+-- "<PLACEHOLDER>" replaced with one "?" per postId.
+-- The final "?" is replaced with the page size plus one, so the extra comment tells whether there is another page.
+SELECT c.postId, c.commentId, c.userId, c.commentDate, c.commentText FROM (SELECT postId, commentId, userId, commentDate, commentText, ROW_NUMBER() OVER (PARTITION BY postId ORDER BY commentDate ASC, commentId ASC) AS commentNumber FROM comment WHERE postId IN (<PLACEHOLDER>)) c WHERE c.commentNumber <= ? ORDER BY c.postId, c.commentDate ASC, c.commentId ASC;
+
+-- Used in PostService to get the next page of comments of a post.
+-- URL: http://localhost:8081/post/{postId}/comments?cursor={cursor}
+-- The first "?" is replaced with the postId.
+-- The next three "?"s are replaced with the date, date, and commentId of the last comment already shown.
+-- The final "?" is replaced with the page size plus one.
+SELECT commentId, userId, commentDate, commentText FROM comment WHERE postId = ? AND (commentDate > ? OR (commentDate = ? AND commentId > ?)) ORDER BY commentDate ASC, commentId ASC LIMIT ?;
+
+-- Used in PostService to retrieve one page of the posts bookmarked by the logged-in user, newest post first.
+-- URL: http://localhost:8081/bookmarks and http://localhost:8081/bookmarks?cursor=...
+-- The first three "?"s are replaced with the logged-in user's userId.
+-- "<CURSOR>" is removed for the first page. For later pages it is replaced with
+-- "AND (b.postDate < ? OR (b.postDate = ? AND b.postId < ?))" using the date and postId of the last post on the previous page.
+-- The final "?" is replaced with the page size plus one, which tells whether another page exists.
+SELECT pg.postId, pg.postText, pg.postDate, pg.userId, u.firstName, u.lastName, COALESCE(s.heartsCount, 0) AS heartsCount, COALESCE(s.commentsCount, 0) AS commentsCount, EXISTS (SELECT 1 FROM heart h WHERE h.postId = pg.postId AND h.userId = ?) AS isHearted, EXISTS (SELECT 1 FROM bookmark b WHERE b.postId = pg.postId AND b.userId = ?) AS isBookmarked FROM (SELECT p.postId, p.postText, p.postDate, p.userId FROM bookmark b JOIN post p ON p.postId = b.postId WHERE b.userId = ? <CURSOR> ORDER BY b.postDate DESC, b.postId DESC LIMIT ?) pg JOIN user u ON u.userId = pg.userId LEFT JOIN post_stats s ON s.postId = pg.postId ORDER BY pg.postDate DESC, pg.postId DESC;
+
+-- Used in PostService to retrieve one page of the posts by a single user, newest first.
+-- URLs: http://localhost:8081/profile, http://localhost:8081/profile/{userId} and http://localhost:8081/profile/{userId}?cursor=...
+-- The first two "?"s are replaced with the logged-in user's userId, and the third with the aforementioned user's userId.
+-- "<CURSOR>" is removed for the first page. For later pages it is replaced with
+-- "AND (p.postDate < ? OR (p.postDate = ? AND p.postId < ?))" using the date and postId of the last post on the previous page.
+-- The final "?" is replaced with the page size plus one, which tells whether another page exists.
+SELECT pg.postId, pg.postText, pg.postDate, pg.userId, u.firstName, u.lastName, COALESCE(s.heartsCount, 0) AS heartsCount, COALESCE(s.commentsCount, 0) AS commentsCount, EXISTS (SELECT 1 FROM heart h WHERE h.postId = pg.postId AND h.userId = ?) AS isHearted, EXISTS (SELECT 1 FROM bookmark b WHERE b.postId = pg.postId AND b.userId = ?) AS isBookmarked FROM (SELECT p.postId, p.postText, p.postDate, p.userId FROM post p WHERE p.userId = ? <CURSOR> ORDER BY p.postDate DESC, p.postId DESC LIMIT ?) pg JOIN user u ON u.userId = pg.userId LEFT JOIN post_stats s ON s.postId = pg.postId ORDER BY pg.postDate DESC, pg.postId DESC;
+
+-- Used in PostService to add a comment to a post. The comment and its outbox event are written in one transaction.
 -- URL: http://localhost:8081/post/{postId}
 -- The "?"s are replaced with data provided by the user and retrieved from the app's state when the statement is executed.
 INSERT INTO comment (postId, userId, commentDate, commentText) VALUES (?, ?, ?, ?);
 
 -- The following SQL statements were included with the project and are used for login, registration, and authentication.
 select * from user where username = ?;
-insert into user (username, password, firstName, lastName) values (?, ?, ?, ?);
\ No newline at end of file
+insert into user (username, password, firstName, lastName) values (?, ?, ?, ?);
+
+-- Used in TimelineService to push a new post into the timelines of the author's followers, when its outbox event is delivered.
+-- URL: http://localhost:8081/createpost
+-- The "?"s are replaced with the new post's postId, its postDate, and the author's userId, respectively.
+INSERT IGNORE INTO timeline (userId, postId, postDate) SELECT f.followerUserId, ?, ? FROM follow f WHERE f.followeeUserId = ?;
+SELECT followerUserId FROM follow WHERE followeeUserId = ?;
+
+-- Used in TimelineService to load the newest entries of a user's timeline into memory.
+-- URL: http://localhost:8081/
+-- The "?"s are replaced with the logged-in user's userId and the number of entries to keep, respectively.
+SELECT postId, postDate FROM timeline WHERE userId = ? ORDER BY postDate DESC, postId DESC LIMIT ?;
+
+-- Used in TimelineService to add or remove the posts of a user when the outbox event of a follow or unfollow is delivered.
+-- URL: http://localhost:8081/people/{userId}/follow/{isFollow}
+-- The "?"s are replaced with the follower's userId and the followee's userId, respectively.
+INSERT IGNORE INTO timeline (userId, postId, postDate) SELECT ?, p.postId, p.postDate FROM post p WHERE p.userId = ?;
+DELETE FROM timeline WHERE userId = ? AND postId IN (SELECT p.postId FROM post p WHERE p.userId = ?);
+
+-- Used in TimelineService to rebuild every timeline. Run the app with --rebuild-timelines.
+DELETE FROM timeline;
+INSERT INTO timeline (userId, postId, postDate) SELECT f.followerUserId, p.postId, p.postDate FROM follow f JOIN post p ON p.userId = f.followeeUserId;
+
+
+-- Used in PostStatsService to create, update, and rebuild the hearts and comments counters of posts.
+-- URLs: http://localhost:8081/createpost, http://localhost:8081/post/{postId}/heart/{isAdd}, http://localhost:8081/post/{postId}/comment
+-- The "?"s are replaced with the change to the counter, the date of the activity, and the postId, respectively.
+INSERT INTO post_stats (postId, heartsCount, commentsCount, lastActivityDate) VALUES (?, 0, 0, ?);
+UPDATE post_stats SET heartsCount = heartsCount + ?, lastActivityDate = GREATEST(lastActivityDate, ?) WHERE postId = ?;
+UPDATE post_stats SET commentsCount = commentsCount + ?, lastActivityDate = GREATEST(lastActivityDate, ?) WHERE postId = ?;
+-- Creates missing counters from the heart and comment tables. The "?"s are replaced with the activity date and the postId.
+INSERT IGNORE INTO post_stats (postId, heartsCount, commentsCount, lastActivityDate) SELECT p.postId, (SELECT COUNT(*) FROM heart h WHERE h.postId = p.postId), (SELECT COUNT(*) FROM comment c WHERE c.postId = p.postId), ? FROM post p WHERE p.postId = ?;
+-- Used in EngagementService when the driver does not report how many heart rows a batch changed.
+-- The "?"s are replaced with the postId, the date of the activity, and the postId again.
+UPDATE post_stats SET heartsCount = (SELECT COUNT(*) FROM heart h WHERE h.postId = ?), lastActivityDate = GREATEST(lastActivityDate, ?) WHERE postId = ?;
+-- Used in PostStatsService to recount the comments of each post commented on in a batch of outbox events.
+-- The "?"s are replaced with the postId, the date of the latest comment in the batch, and the postId again.
+UPDATE post_stats SET commentsCount = (SELECT COUNT(*) FROM comment c WHERE c.postId = ?), lastActivityDate = GREATEST(lastActivityDate, ?) WHERE postId = ?;
+-- Run the app with --rebuild-post-stats to recount every post.
+DELETE FROM post_stats;
+INSERT INTO post_stats (postId, heartsCount, commentsCount, lastActivityDate) SELECT p.postId, (SELECT COUNT(*) FROM heart h WHERE h.postId = p.postId), (SELECT COUNT(*) FROM comment c WHERE c.postId = p.postId), COALESCE((SELECT MAX(c.commentDate) FROM comment c WHERE c.postId = p.postId), p.postDate) FROM post p;
+
+-- Run once by migration V6 when the app first starts, to fill the timelines and counters for existing data. Rows that are already there are kept.
+INSERT IGNORE INTO timeline (userId, postId, postDate) SELECT f.followerUserId, p.postId, p.postDate FROM follow f JOIN post p ON p.userId = f.followeeUserId;
+INSERT IGNORE INTO post_stats (postId, heartsCount, commentsCount, lastActivityDate) SELECT p.postId, (SELECT COUNT(*) FROM heart h WHERE h.postId = p.postId), (SELECT COUNT(*) FROM comment c WHERE c.postId = p.postId), COALESCE((SELECT MAX(c.commentDate) FROM comment c WHERE c.postId = p.postId), p.postDate) FROM post p;
+
+-- Used in DatasetGenerator to add synthetic data. Run the app with --generate-dataset.
+-- Generated users and posts get IDs after the largest existing ones. Users are drawn from the existing IDs, which may have gaps, and the generated ones.
+SELECT userId FROM user ORDER BY userId;
+SELECT COALESCE(MAX(postId), 0) FROM post;
+-- Rows are written many per statement; "(?, ...), (?, ...)" stands for one group of "?"s per row.
+-- On MySQL, foreign key and unique checks are off while a connection writes, and back on before it is returned.
+SET foreign_key_checks = 0, unique_checks = 0;
+INSERT INTO user (userId, username, password, firstName, lastName) VALUES (?, ?, ?, ?, ?), (?, ?, ?, ?, ?);
+INSERT INTO follow (followerUserId, followeeUserId) VALUES (?, ?), (?, ?);
+INSERT INTO post (postId, userId, postDate, postText) VALUES (?, ?, ?, ?), (?, ?, ?, ?);
+INSERT INTO hashtag (hashTag, postId) VALUES (?, ?), (?, ?);
+INSERT INTO heart (postId, userId) VALUES (?, ?), (?, ?);
+INSERT INTO comment (postId, userId, commentDate, commentText) VALUES (?, ?, ?, ?), (?, ?, ?, ?);
+INSERT INTO bookmark (postId, userId, postDate) VALUES (?, ?, ?), (?, ?, ?);
+INSERT INTO post_stats (postId, heartsCount, commentsCount, lastActivityDate) VALUES (?, ?, ?, ?), (?, ?, ?, ?);
+SET foreign_key_checks = 1, unique_checks = 1;
+
+-- Used in MigrationRunner to run the migrations in db/migration that have not run yet, when the app starts.
+-- On MySQL the migrations run under a named lock, so that instances starting at once do not run them twice.
+-- The "?"s are replaced with the lock name, schema_migrations, and how many seconds to wait for it.
+SELECT GET_LOCK(?, ?);
+SELECT RELEASE_LOCK(?);
+-- The "?"s are replaced with the version, description, file name, and checksum of the migration, the current date, and how long it took.
+CREATE TABLE IF NOT EXISTS schema_history (version int NOT NULL, description varchar(200) NOT NULL, script varchar(255) NOT NULL, checksum bigint NOT NULL, installedOn datetime NOT NULL, executionMs int NOT NULL, PRIMARY KEY (version));
+SELECT version, script, checksum FROM schema_history;
+INSERT INTO schema_history (version, description, script, checksum, installedOn, executionMs) VALUES (?, ?, ?, ?, ?, ?);
+
+-- Used in PostCreationService, PostService, and InteractionService to record a new post, comment, follow or unfollow in the outbox, in the same transaction as the write.
+-- The "?"s are replaced with the event type, the postId or followed userId, the userId who wrote, the post text for new posts, and the date.
+INSERT INTO outbox_event (eventType, aggregateId, userId, payload, createdAt) VALUES (?, ?, ?, ?, ?);
+
+-- Used in OutboxRelay to publish the committed events after the last one published, in order.
+-- The first query finds where consumers without a saved offset start.
+-- The "?"s are replaced with the last eventId published and the batch size, respectively.
+SELECT COALESCE(MIN(eventId), 1) AS oldestEventId FROM outbox_event;
+SELECT eventId, eventType, aggregateId, userId, payload, createdAt FROM outbox_event WHERE eventId > ? ORDER BY eventId LIMIT ?;
+-- Looks up events that were missing when later ones were read, because their transactions had not committed yet.
+-- The "?"s are replaced with the missing eventIds, up to the batch size.
+SELECT eventId, eventType, aggregateId, userId, payload, createdAt FROM outbox_event WHERE eventId IN (?, ?, ?) ORDER BY eventId;
+-- Deletes the events that every consumer has handled. The "?" is replaced with the lowest of this instance's oldest consumer offset, the relay's watermark, and the oldest offset of any live instance.
+DELETE FROM outbox_event WHERE eventId <= ?;
+
+-- Used in EventBus to load and save the offsets of the consumers of this instance.
+-- The "?"s are replaced with the instance ID, the consumer name, the last eventId it handled, and the current date, in the order they appear.
+SELECT lastEventId FROM outbox_consumer_offset WHERE instanceId = ? AND consumer = ?;
+INSERT INTO outbox_consumer_offset (instanceId, consumer, lastEventId, updatedAt) VALUES (?, ?, ?, ?);
+UPDATE outbox_consumer_offset SET lastEventId = ?, updatedAt = ? WHERE instanceId = ? AND consumer = ?;
+-- Before each trim, marks this instance as live and finds the oldest offset of any instance that was live within app.events.offset-expiry-ms.
+-- The "?"s are replaced with the current date and the instance ID, then with the current date minus the expiry.
+UPDATE outbox_consumer_offset SET updatedAt = ? WHERE instanceId = ?;
+SELECT MIN(lastEventId) AS oldestEventId FROM outbox_consumer_offset WHERE updatedAt >= ?;
+-- Records an event a consumer gave up on after app.events.max-attempts failed attempts.
+-- The "?"s are replaced with the consumer name, the event's columns, the error, and the current date.
+INSERT IGNORE INTO outbox_dead_letter (consumer, eventId, eventType, aggregateId, userId, payload, createdAt, error, failedAt) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);
+
+-- Used in ExportService to stream a table as newline-delimited JSON, in primary key order, from a checkpoint.
+-- The first query of each table starts at its first row; the second continues after the key of the last row exported.
+-- The "?"s are replaced with the checkpoint's key values, as the conditions list them, and the maximum number of rows.
+SELECT postId, userId, postDate, postText FROM post ORDER BY postId LIMIT ?;
+SELECT postId, userId, postDate, postText FROM post WHERE (postId > ?) ORDER BY postId LIMIT ?;
+SELECT commentId, postId, userId, commentDate, commentText FROM comment WHERE (commentId > ?) ORDER BY commentId LIMIT ?;
+SELECT postId, userId FROM heart WHERE (postId > ? OR (postId = ? AND userId > ?)) ORDER BY postId, userId LIMIT ?;
+SELECT hashTag, postId FROM hashtag WHERE (hashTag > ? OR (hashTag = ? AND postId > ?)) ORDER BY hashTag, postId LIMIT ?;
+SELECT followerUserId, followeeUserId FROM follow WHERE (followerUserId > ? OR (followerUserId = ? AND followeeUserId > ?)) ORDER BY followerUserId, followeeUserId LIMIT ?;
@@ -46,6 +46,11 @@ public class AuthInterceptor implements HandlerInterceptor {
     public boolean preHandle(HttpServletRequest request,
             HttpServletResponse response, Object handler) throws Exception {
         if (!userService.isAuthenticated()) {
+            if (request.getRequestURI().startsWith("/api/")) {
+                // Scripts calling the API get an error instead of the login page.
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+                return false;
+            }
             // Redirect the user to login.
             response.sendRedirect("/login");
             return false;
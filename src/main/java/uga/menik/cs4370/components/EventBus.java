@@ -0,0 +1,589 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Delivers the events of the outbox to the consumers that keep data
+ * derived from them, off the request threads.
+ *
+ * Each consumer has its own thread and a queue of at most
+ * app.events.queue-capacity batches. When a queue stays full for
+ * app.events.offer-timeout-ms the consumer is marked as lagging and the
+ * relay stops queueing for it, so one slow consumer does not hold back the
+ * others. Once it has emptied its queue, a lagging consumer reads the
+ * events it missed from the outbox_event table itself, which keeps them
+ * until every consumer has handled them, and then rejoins the relay.
+ *
+ * A consumer sees the events a batch at a time, in eventId order within a
+ * batch, except that an event whose transaction committed late comes
+ * after higher ones. A batch that fails is retried, with a growing delay,
+ * up to app.events.max-attempts times. After that each of its events is
+ * tried once more on its own, and the ones that still fail are written to
+ * the outbox_dead_letter table and skipped. Handlers must cope with seeing
+ * an event twice, which happens after a retry or while catching up.
+ *
+ * A consumer's offset is the relay's watermark as of the last batch it
+ * handled: every event up to it has been handled. Every instance of the
+ * application runs every consumer, so offsets are kept in the
+ * outbox_consumer_offset table per app.instance-id and consumer, and
+ * saved after each batch. A durable consumer picks up from its saved
+ * offset after a restart, so a crash redelivers at most one batch. The
+ * relay only deletes events that every consumer of every live instance
+ * has handled; an instance whose offsets have not been touched for
+ * app.events.offset-expiry-ms is taken to be gone.
+ * A durable consumer seen for the first time starts from the oldest event
+ * still in the outbox; data from before that is filled in by a
+ * maintenance command.
+ *
+ * The other consumers keep data in memory that a loader reads from the
+ * tables. The loader runs on the consumer's thread once the bus has
+ * started, before any event is handed over, and the consumer starts from
+ * the oldest offset of the durable ones. Every event up to that offset
+ * committed before the loader read, so each change is either read by the
+ * loader or delivered afterwards. Some are both, and the handler skips
+ * them like any other event it sees twice.
+ */
+@Component
+public class EventBus {
+
+    /**
+     * Handles a batch of events, in outbox order.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void handle(List<OutboxEvent> events) throws Exception;
+    }
+
+    /**
+     * Events to hand to a consumer, and the relay's watermark once they are
+     * handled.
+     */
+    private static final class Batch {
+        final List<OutboxEvent> events;
+        final long watermark;
+
+        Batch(List<OutboxEvent> events, long watermark) {
+            this.events = events;
+            this.watermark = watermark;
+        }
+    }
+
+    /**
+     * A consumer and its position in the outbox.
+     */
+    private final class Subscription {
+        final String consumer;
+        final boolean isDurable;
+        final Handler handler;
+        final Runnable loader;
+        final BlockingQueue<Batch> queue;
+        final LongAdder handled = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder deadLettered = new LongAdder();
+
+        /** Every event up to this one has been handled. */
+        volatile long offset;
+
+        /** Whether the relay has stopped queueing for this consumer until it catches up. */
+        volatile boolean isLagging;
+
+        Thread thread;
+
+        Subscription(String consumer, boolean isDurable, Handler handler, Runnable loader) {
+            this.consumer = consumer;
+            this.isDurable = isDurable;
+            this.handler = handler;
+            this.loader = loader;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+
+    // Events a lagging consumer reads from the outbox table at a time.
+    private static final int CATCH_UP_BATCH_SIZE = 500;
+
+    private final DataSource dataSource;
+    private final Outbox outbox;
+    private final String instanceId;
+    private final long offsetExpiryMs;
+    private final int queueCapacity;
+    private final long offerTimeoutMs;
+    private final int maxAttempts;
+    private final long maxRetryDelayMs;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private volatile boolean isStarted = false;
+
+    // What the relay has published so far, guarded by publishLock. A
+    // lagging consumer rejoins once it has read everything published.
+    private final Object publishLock = new Object();
+    private long publishedBatches = 0;
+    private long publishedPosition = -1;
+    private long publishedWatermark = -1;
+
+    @Autowired
+    public EventBus(DataSource dataSource, Outbox outbox,
+            @Value("${app.instance-id:}") String instanceId,
+            @Value("${app.events.offset-expiry-ms:3600000}") long offsetExpiryMs,
+            @Value("${app.events.queue-capacity:16}") int queueCapacity,
+            @Value("${app.events.offer-timeout-ms:1000}") long offerTimeoutMs,
+            @Value("${app.events.max-attempts:10}") int maxAttempts,
+            @Value("${app.events.max-retry-delay-ms:30000}") long maxRetryDelayMs) {
+        this.dataSource = dataSource;
+        this.outbox = outbox;
+        this.instanceId = instanceId.isBlank() ? hostName() : instanceId;
+        this.offsetExpiryMs = offsetExpiryMs;
+        this.queueCapacity = queueCapacity;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.maxRetryDelayMs = maxRetryDelayMs;
+    }
+
+    /**
+     * Adds a consumer. Consumers subscribe while the application starts,
+     * before the relay starts the bus.
+     *
+     * @param consumer  a name that stays the same across restarts
+     * @param isDurable whether the consumer resumes from its saved offset after a restart
+     */
+    public void subscribe(String consumer, boolean isDurable, Handler handler) {
+        subscribe(consumer, isDurable, handler, null);
+    }
+
+    /**
+     * Adds a consumer that keeps data loaded from the tables. The loader
+     * runs on the consumer's thread once the bus has started, and events
+     * are handed to the consumer after it returns.
+     *
+     * @param consumer a name that stays the same across restarts
+     * @param loader   reads the data the events keep up to date, or null to start without it
+     */
+    public synchronized void subscribe(String consumer, boolean isDurable, Handler handler, Runnable loader) {
+        if (isStarted) {
+            throw new IllegalStateException("Consumer " + consumer + " subscribed after the event bus started.");
+        }
+        for (Subscription subscription : subscriptions) {
+            if (subscription.consumer.equals(consumer)) {
+                throw new IllegalStateException("Consumer " + consumer + " subscribed twice.");
+            }
+        }
+        subscriptions.add(new Subscription(consumer, isDurable, handler, loader));
+    }
+
+    /**
+     * Loads the offsets of the consumers and starts delivering events.
+     * Returns the event after which the relay should start reading, which
+     * is the oldest offset of any consumer.
+     *
+     * @param firstStartEventId where durable consumers without a saved offset start; every event up
+     *                          to it has been handled or given up
+     */
+    synchronized long start(long firstStartEventId) throws SQLException {
+        final String selectSql = "SELECT lastEventId FROM outbox_consumer_offset WHERE instanceId = ? AND consumer = ?";
+        final String insertSql = "INSERT INTO outbox_consumer_offset (instanceId, consumer, lastEventId, updatedAt)"
+                + " VALUES (?, ?, ?, ?)";
+
+        if (isStarted) {
+            throw new IllegalStateException("The event bus is already started.");
+        }
+        long startEventId = Long.MAX_VALUE;
+        try (Connection conn = dataSource.getConnection()) {
+            for (Subscription subscription : subscriptions) {
+                Long saved = null;
+                try (PreparedStatement pstmt = conn.prepareStatement(selectSql)) {
+                    pstmt.setString(1, instanceId);
+                    pstmt.setString(2, subscription.consumer);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) {
+                            saved = rs.getLong("lastEventId");
+                        }
+                    }
+                }
+                if (saved == null) {
+                    saved = firstStartEventId;
+                    try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+                        pstmt.setString(1, instanceId);
+                        pstmt.setString(2, subscription.consumer);
+                        pstmt.setLong(3, firstStartEventId);
+                        pstmt.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                        pstmt.executeUpdate();
+                    }
+                }
+                if (subscription.isDurable) {
+                    subscription.offset = saved;
+                    startEventId = Math.min(startEventId, saved);
+                }
+            }
+            if (startEventId == Long.MAX_VALUE) {
+                startEventId = firstStartEventId;
+            }
+            for (Subscription subscription : subscriptions) {
+                if (!subscription.isDurable) {
+                    subscription.offset = startEventId;
+                    saveOffset(conn, subscription.consumer, startEventId);
+                }
+            }
+        }
+
+        synchronized (publishLock) {
+            publishedPosition = startEventId;
+            publishedWatermark = startEventId;
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.thread = new Thread(() -> consume(subscription), "event-consumer-" + subscription.consumer);
+            subscription.thread.setDaemon(true);
+            subscription.thread.start();
+        }
+        isStarted = true;
+        System.out.println("Started the event bus for instance " + instanceId + " with " + subscriptions.size()
+                + " consumers at event " + startEventId + ".");
+        return startEventId;
+    }
+
+    /**
+     * Queues a batch of events, in eventId order, for every consumer that
+     * has not handled them yet. Waits up to app.events.offer-timeout-ms for
+     * room in a consumer's queue, then leaves that consumer to catch up
+     * from the outbox table.
+     *
+     * @param watermark every event up to this one is in this or an earlier batch, or was given up
+     */
+    void publish(List<OutboxEvent> events, long watermark) throws InterruptedException {
+        Batch batch = new Batch(events, watermark);
+        synchronized (publishLock) {
+            for (Subscription subscription : subscriptions) {
+                if (subscription.isLagging
+                        || (watermark <= subscription.offset && !hasEventsAfter(events, subscription.offset))) {
+                    continue;
+                }
+                if (!subscription.queue.offer(batch, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    subscription.isLagging = true;
+                    System.out.println("Consumer " + subscription.consumer
+                            + " fell behind; it will catch up from the outbox table.");
+                }
+            }
+            publishedBatches++;
+            if (!events.isEmpty()) {
+                publishedPosition = Math.max(publishedPosition,
+                        events.get(events.size() - 1).getEventId());
+            }
+            publishedWatermark = watermark;
+        }
+    }
+
+    private static boolean hasEventsAfter(List<OutboxEvent> events, long offset) {
+        return !events.isEmpty() && events.get(events.size() - 1).getEventId() > offset;
+    }
+
+    /**
+     * Returns the oldest offset of any consumer. Every event up to it has
+     * been handled by every consumer.
+     */
+    long getOldestOffset() {
+        long oldest = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            oldest = Math.min(oldest, subscription.offset);
+        }
+        return oldest;
+    }
+
+    /**
+     * Marks the offsets of this instance as live and returns the oldest
+     * offset of any consumer of any live instance, or Long.MAX_VALUE if
+     * there are none. The relay deletes no event past it.
+     */
+    long getOldestLiveOffset() throws SQLException {
+        final String touchSql = "UPDATE outbox_consumer_offset SET updatedAt = ? WHERE instanceId = ?";
+        final String oldestSql = "SELECT MIN(lastEventId) AS oldestEventId FROM outbox_consumer_offset"
+                + " WHERE updatedAt >= ?";
+
+        long now = System.currentTimeMillis();
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(touchSql)) {
+                pstmt.setTimestamp(1, new Timestamp(now));
+                pstmt.setString(2, instanceId);
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(oldestSql)) {
+                pstmt.setTimestamp(1, new Timestamp(now - offsetExpiryMs));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    long oldest = rs.getLong("oldestEventId");
+                    return rs.wasNull() ? Long.MAX_VALUE : oldest;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether every consumer has handled the given event.
+     */
+    public boolean isHandled(long eventId) {
+        return isStarted && getOldestOffset() >= eventId;
+    }
+
+    /**
+     * Returns the position, queue length and counts of every consumer as
+     * plain text.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append("Consumers of instance ").append(instanceId).append(":\n");
+        for (Subscription subscription : subscriptions) {
+            report.append(String.format(Locale.ROOT,
+                    "  %-16s durable=%b offset=%d lagging=%b queued-batches=%d handled=%d failed-attempts=%d"
+                            + " dead-lettered=%d%n",
+                    subscription.consumer, subscription.isDurable, subscription.offset, subscription.isLagging,
+                    subscription.queue.size(), subscription.handled.sum(), subscription.failures.sum(),
+                    subscription.deadLettered.sum()));
+        }
+        return report.toString();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.thread != null) {
+                subscription.thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs the loader of one consumer, then hands its batches to its
+     * handler until the application stops, catching up from the outbox table whenever the
+     * consumer has fallen behind.
+     */
+    private void consume(Subscription subscription) {
+        if (subscription.loader != null) {
+            try {
+                subscription.loader.run();
+            } catch (RuntimeException e) {
+                System.err.println("Consumer " + subscription.consumer + " failed to load its data.");
+                e.printStackTrace();
+            }
+        }
+        try {
+            while (true) {
+                Batch batch = subscription.queue.poll(1, TimeUnit.SECONDS);
+                if (batch != null) {
+                    deliver(subscription, batch.events);
+                    advance(subscription, batch.watermark);
+                } else if (subscription.isLagging) {
+                    catchUp(subscription);
+                }
+            }
+        } catch (InterruptedException e) {
+            // The application is stopping.
+        }
+    }
+
+    /**
+     * Reads the events a lagging consumer missed from the outbox table and
+     * hands them to it, until it has everything the relay has published.
+     * Then the relay queues for it again.
+     */
+    private void catchUp(Subscription subscription) throws InterruptedException {
+        long retryDelayMs = 100;
+        while (true) {
+            long batches;
+            long position;
+            long watermark;
+            synchronized (publishLock) {
+                batches = publishedBatches;
+                position = publishedPosition;
+                watermark = publishedWatermark;
+            }
+            try {
+                // Every event the relay has published up to the position is
+                // committed, so reading up to it finds them all.
+                long after = subscription.offset;
+                while (after < position) {
+                    List<OutboxEvent> chunk;
+                    try (Connection conn = dataSource.getConnection()) {
+                        chunk = outbox.readAfter(conn, after, CATCH_UP_BATCH_SIZE);
+                    }
+                    List<OutboxEvent> events = new ArrayList<>(chunk.size());
+                    for (OutboxEvent event : chunk) {
+                        if (event.getEventId() <= position) {
+                            events.add(event);
+                        }
+                    }
+                    if (events.isEmpty()) {
+                        break;
+                    }
+                    deliver(subscription, events);
+                    after = events.get(events.size() - 1).getEventId();
+                    advance(subscription, Math.min(after, watermark));
+                }
+                advance(subscription, watermark);
+            } catch (SQLException sqle) {
+                System.err.println("Consumer " + subscription.consumer + " cannot read the outbox to catch up: "
+                        + sqle.getMessage());
+                Thread.sleep(retryDelayMs);
+                retryDelayMs = Math.min(retryDelayMs * 2, maxRetryDelayMs);
+                continue;
+            }
+            synchronized (publishLock) {
+                if (publishedBatches == batches) {
+                    subscription.isLagging = false;
+                    System.out.println("Consumer " + subscription.consumer + " has caught up.");
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands events to a consumer, retrying with a growing delay. After
+     * app.events.max-attempts failures each event is tried once more on its
+     * own, and those that still fail are dead-lettered.
+     */
+    private void deliver(Subscription subscription, List<OutboxEvent> batch) throws InterruptedException {
+        List<OutboxEvent> events = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            // Skips what the consumer handled before a restart.
+            if (event.getEventId() > subscription.offset) {
+                events.add(event);
+            }
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        long retryDelayMs = 100;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                subscription.handler.handle(events);
+                subscription.handled.add(events.size());
+                return;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                subscription.failures.increment();
+                System.err.println("Consumer " + subscription.consumer + " failed to handle events "
+                        + events.get(0).getEventId() + " to " + events.get(events.size() - 1).getEventId()
+                        + " (attempt " + attempt + " of " + maxAttempts + ").");
+                e.printStackTrace();
+                if (attempt < maxAttempts) {
+                    Thread.sleep(retryDelayMs);
+                    retryDelayMs = Math.min(retryDelayMs * 2, maxRetryDelayMs);
+                }
+            }
+        }
+
+        // Keeps one bad event from holding back the rest of the batch.
+        for (OutboxEvent event : events) {
+            try {
+                subscription.handler.handle(List.of(event));
+                subscription.handled.increment();
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                subscription.failures.increment();
+                subscription.deadLettered.increment();
+                deadLetter(subscription.consumer, event, e);
+            }
+        }
+    }
+
+    /**
+     * Records an event that a consumer gave up on. If even that fails the
+     * event is only logged.
+     */
+    private void deadLetter(String consumer, OutboxEvent event, Exception error) {
+        final String insertSql = "INSERT IGNORE INTO outbox_dead_letter (consumer, eventId, eventType, aggregateId,"
+                + " userId, payload, createdAt, error, failedAt) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        String message = String.valueOf(error);
+        System.err.println("Consumer " + consumer + " skipped event " + event.getEventId() + " ("
+                + event.getEventType() + "): " + message);
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+            pstmt.setString(1, consumer);
+            pstmt.setLong(2, event.getEventId());
+            pstmt.setString(3, event.getEventType());
+            pstmt.setInt(4, event.getAggregateId());
+            pstmt.setInt(5, event.getUserId());
+            pstmt.setString(6, event.getPayload());
+            pstmt.setTimestamp(7, event.getCreatedAt());
+            pstmt.setString(8, message.length() > 500 ? message.substring(0, 500) : message);
+            pstmt.setTimestamp(9, new Timestamp(System.currentTimeMillis()));
+            pstmt.executeUpdate();
+        } catch (SQLException sqle) {
+            System.err.println("Failed to dead-letter event " + event.getEventId() + " of consumer " + consumer
+                    + ": " + sqle.getMessage());
+        }
+    }
+
+    /**
+     * Moves a consumer's offset up to the watermark of the batch it handled.
+     */
+    private void advance(Subscription subscription, long watermark) {
+        if (watermark <= subscription.offset) {
+            return;
+        }
+        try (Connection conn = dataSource.getConnection()) {
+            saveOffset(conn, subscription.consumer, watermark);
+        } catch (SQLException sqle) {
+            System.err.println("Failed to save the offset of consumer " + subscription.consumer + ": "
+                    + sqle.getMessage());
+        }
+        subscription.offset = watermark;
+    }
+
+    /**
+     * Saves the offset of a consumer of this instance. If this fails a
+     * durable consumer handles the batch again after a restart.
+     */
+    private void saveOffset(Connection conn, String consumer, long offset) throws SQLException {
+        final String updateSql = "UPDATE outbox_consumer_offset SET lastEventId = ?, updatedAt = ?"
+                + " WHERE instanceId = ? AND consumer = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(updateSql)) {
+            pstmt.setLong(1, offset);
+            pstmt.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            pstmt.setString(3, instanceId);
+            pstmt.setString(4, consumer);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Returns the name of this host, the default instance ID.
+     */
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
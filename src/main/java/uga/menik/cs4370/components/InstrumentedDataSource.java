@@ -0,0 +1,253 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import uga.menik.cs4370.components.JdbcMetrics.StatementStats;
+
+/**
+ * Wraps the application's DataSource so every connection, statement and
+ * result set it hands out reports to JdbcMetrics.
+ * The code using the DataSource does not change: connections, statements
+ * and result sets are proxies that time executions and count rows, and
+ * pass every other call straight through.
+ * Closing it closes the wrapped DataSource, so that Spring still shuts
+ * down the connection pool when the application stops.
+ */
+public class InstrumentedDataSource implements DataSource, AutoCloseable {
+
+    private final DataSource delegate;
+    private final JdbcMetrics metrics;
+
+    public InstrumentedDataSource(DataSource delegate, JdbcMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection conn = delegate.getConnection();
+        metrics.recordCheckout(System.nanoTime() - start);
+        return wrap(conn);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        Connection conn = delegate.getConnection(username, password);
+        metrics.recordCheckout(System.nanoTime() - start);
+        return wrap(conn);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    /**
+     * Returns the DataSource this one wraps.
+     */
+    public DataSource getDelegate() {
+        return delegate;
+    }
+
+    private Connection wrap(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new ConnectionHandler(conn));
+    }
+
+    /**
+     * Calls a method on the real object, rethrowing what it throws as is.
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ite) {
+            throw ite.getCause();
+        }
+    }
+
+    /**
+     * Hands out statements that know the shape of their SQL.
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection conn;
+
+        ConnectionHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDataSource.invoke(conn, method, args);
+            if (result instanceof Statement) {
+                String name = method.getName();
+                // createStatement gets its SQL with each execution instead.
+                StatementStats stats = name.equals("prepareStatement") || name.equals("prepareCall")
+                        ? metrics.statsFor((String) args[0]) : null;
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[] { method.getReturnType() }, new StatementHandler((Statement) result, stats));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Times executions and hands out result sets that count their rows.
+     */
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement stmt;
+        private final StatementStats preparedStats;
+
+        StatementHandler(Statement stmt, StatementStats preparedStats) {
+            this.stmt = stmt;
+            this.preparedStats = preparedStats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                StatementStats stats = args != null && args.length > 0 && args[0] instanceof String sql
+                        ? metrics.statsFor(sql) : preparedStats;
+                if (stats == null) {
+                    // A batch of plain statements has no single shape.
+                    stats = metrics.statsFor(name);
+                }
+                long start = System.nanoTime();
+                boolean isFailed = true;
+                try {
+                    Object result = InstrumentedDataSource.invoke(stmt, method, args);
+                    isFailed = false;
+                    return countRows(result, stats);
+                } finally {
+                    metrics.recordExecution(stats, System.nanoTime() - start, isFailed);
+                }
+            }
+            Object result = InstrumentedDataSource.invoke(stmt, method, args);
+            if (result instanceof ResultSet rs && name.equals("getResultSet")) {
+                return wrap(rs, preparedStats == null ? metrics.statsFor("getResultSet") : preparedStats);
+            }
+            return result;
+        }
+
+        private Object countRows(Object result, StatementStats stats) {
+            if (result instanceof ResultSet rs) {
+                return wrap(rs, stats);
+            }
+            if (result instanceof Integer updated) {
+                stats.addRows(Math.max(0, updated));
+            } else if (result instanceof Long updated) {
+                stats.addRows(Math.max(0, updated));
+            } else if (result instanceof int[] batch) {
+                for (int updated : batch) {
+                    stats.addRows(Math.max(0, updated));
+                }
+            }
+            return result;
+        }
+
+        private ResultSet wrap(ResultSet rs, StatementStats stats) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class }, new ResultSetHandler(rs, stats));
+        }
+    }
+
+    /**
+     * Counts the rows read from a result set and adds them to the stats of
+     * its statement once the rows run out or the result set is closed.
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet rs;
+        private final StatementStats stats;
+        private long rows;
+        private boolean isCounted;
+
+        ResultSetHandler(ResultSet rs, StatementStats stats) {
+            this.rs = rs;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDataSource.invoke(rs, method, args);
+            String name = method.getName();
+            if (name.equals("next")) {
+                if ((Boolean) result) {
+                    rows++;
+                } else {
+                    addRows();
+                }
+            } else if (name.equals("close")) {
+                addRows();
+            }
+            return result;
+        }
+
+        private void addRows() {
+            if (!isCounted) {
+                isCounted = true;
+                stats.addRows(rows);
+            }
+        }
+    }
+}
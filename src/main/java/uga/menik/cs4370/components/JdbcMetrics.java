@@ -0,0 +1,352 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import uga.menik.cs4370.utility.LatencyHistogram;
+
+/**
+ * Collects what the application does with the database: latency and rows
+ * per statement shape, connection checkout wait time, and the number of
+ * statements and connection checkouts each endpoint needs per request.
+ * Statements slower than app.jdbc.slow-query-ms are logged with the
+ * endpoint that ran them.
+ * Recording only reads the clock and updates lock-free counters, so it
+ * stays on in production. See InstrumentedDataSource.
+ */
+@Component
+public class JdbcMetrics {
+
+    /** Statements run outside of a request, such as by background loaders. */
+    public static final String BACKGROUND = "background";
+
+    /** Raw SQL strings remembered with their shape, to skip normalizing them again. */
+    private static final int MAX_CACHED_SHAPES = 5000;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'[^']*+(?:''[^']*+)*+'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern IN_LIST_START = Pattern.compile("(?i)\\bIN ?\\( ?\\?");
+
+    /**
+     * What is known about one statement shape.
+     */
+    public static class StatementStats {
+        private final String shape;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        StatementStats(String shape) {
+            this.shape = shape;
+        }
+
+        /**
+         * Returns the SQL with literals and parameter lists collapsed.
+         */
+        public String getShape() {
+            return shape;
+        }
+
+        /**
+         * Returns the execution times in nanoseconds.
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Returns the number of rows read from result sets, plus the
+         * number of rows changed by updates.
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+        /**
+         * Returns the number of executions that threw.
+         */
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public void addRows(long count) {
+            rows.add(count);
+        }
+    }
+
+    /**
+     * The request being served by the current thread. Queries that the
+     * request runs in parallel share it, so the counts are atomic.
+     */
+    private static final class RequestScope {
+        final String endpoint;
+        final AtomicInteger statements = new AtomicInteger();
+        final AtomicInteger checkouts = new AtomicInteger();
+
+        RequestScope(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private static final ThreadLocal<RequestScope> currentRequest = new ThreadLocal<>();
+
+    private final long slowQueryNanos;
+    private final Map<String, StatementStats> statsByShape = new ConcurrentHashMap<>();
+    private final Map<String, StatementStats> statsBySql = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> statementsPerRequest = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> checkoutsPerRequest = new ConcurrentHashMap<>();
+    private final LatencyHistogram checkoutWait = new LatencyHistogram();
+    private final LongAdder statementCount = new LongAdder();
+
+    public JdbcMetrics(@Value("${app.jdbc.slow-query-ms:250}") long slowQueryMillis) {
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+    }
+
+    /**
+     * Returns the stats of the shape the given SQL has.
+     */
+    public StatementStats statsFor(String sql) {
+        StatementStats stats = statsBySql.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        String shape = shapeOf(sql);
+        stats = statsByShape.computeIfAbsent(shape, StatementStats::new);
+        // SQL built with a varying number of parameters has many strings per shape.
+        if (statsBySql.size() < MAX_CACHED_SHAPES) {
+            statsBySql.put(sql, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Records how long it took to get a connection from the pool.
+     */
+    public void recordCheckout(long nanos) {
+        checkoutWait.record(nanos);
+        RequestScope scope = currentRequest.get();
+        if (scope != null) {
+            scope.checkouts.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records one execution of a statement.
+     */
+    public void recordExecution(StatementStats stats, long nanos, boolean isFailed) {
+        stats.latency.record(nanos);
+        if (isFailed) {
+            stats.errors.increment();
+        }
+        statementCount.increment();
+        RequestScope scope = currentRequest.get();
+        if (scope != null) {
+            scope.statements.incrementAndGet();
+        }
+        if (nanos >= slowQueryNanos) {
+            String endpoint = scope == null ? BACKGROUND + " (" + Thread.currentThread().getName() + ")" : scope.endpoint;
+            System.out.println("Slow query: " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms on "
+                    + endpoint + ": " + stats.shape);
+        }
+    }
+
+    /**
+     * Starts counting the statements the current thread runs for an endpoint.
+     *
+     * @param endpoint the request method and matched URL pattern, like "GET /post/{postId}"
+     */
+    public void beginRequest(String endpoint) {
+        currentRequest.set(new RequestScope(endpoint));
+    }
+
+    /**
+     * Stops counting statements for the current thread and records how many
+     * ran, and how many connections were checked out, for its endpoint.
+     */
+    public void endRequest() {
+        RequestScope scope = currentRequest.get();
+        if (scope == null) {
+            return;
+        }
+        currentRequest.remove();
+        // Checkouts first, so that an endpoint listed in statementsPerRequest is always in both.
+        checkoutsPerRequest.computeIfAbsent(scope.endpoint, endpoint -> new LatencyHistogram())
+                .record(scope.checkouts.get());
+        statementsPerRequest.computeIfAbsent(scope.endpoint, endpoint -> new LatencyHistogram())
+                .record(scope.statements.get());
+    }
+
+    /**
+     * Returns the number of statements run by the current thread since its
+     * request began, or -1 outside of a request.
+     */
+    public int getRequestStatementCount() {
+        RequestScope scope = currentRequest.get();
+        return scope == null ? -1 : scope.statements.get();
+    }
+
+    /**
+     * Returns a task that counts the statements it runs toward the request
+     * of the current thread, whichever thread it later runs on.
+     */
+    public <T> Callable<T> inCurrentRequest(Callable<T> task) {
+        RequestScope scope = currentRequest.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            RequestScope previous = currentRequest.get();
+            currentRequest.set(scope);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    currentRequest.remove();
+                } else {
+                    currentRequest.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the number of statements each request to an endpoint ran,
+     * or null if the endpoint has not been requested.
+     */
+    public LatencyHistogram getStatementsPerRequest(String endpoint) {
+        return statementsPerRequest.get(endpoint);
+    }
+
+    /**
+     * Returns the number of connections each request to an endpoint checked
+     * out, or null if the endpoint has not been requested.
+     */
+    public LatencyHistogram getCheckoutsPerRequest(String endpoint) {
+        return checkoutsPerRequest.get(endpoint);
+    }
+
+    /**
+     * Returns the total number of statements executed.
+     */
+    public long getStatementCount() {
+        return statementCount.sum();
+    }
+
+    /**
+     * Returns the connection checkout wait times in nanoseconds.
+     */
+    public LatencyHistogram getCheckoutWait() {
+        return checkoutWait;
+    }
+
+    /**
+     * Returns the stats of every statement shape seen so far.
+     */
+    public List<StatementStats> getStatementStats() {
+        return new ArrayList<>(statsByShape.values());
+    }
+
+    /**
+     * Returns a plain text report of everything recorded, with the
+     * statements that took the most total time first.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append("Connection checkouts: ").append(checkoutWait.getCount())
+                .append(", wait ").append(timings(checkoutWait)).append("\n\n");
+
+        report.append("Statements and connection checkouts per request:\n");
+        List<String> endpoints = new ArrayList<>(statementsPerRequest.keySet());
+        endpoints.sort(null);
+        for (String endpoint : endpoints) {
+            LatencyHistogram statements = statementsPerRequest.get(endpoint);
+            LatencyHistogram checkouts = checkoutsPerRequest.get(endpoint);
+            report.append(String.format(Locale.ROOT,
+                    "  %-40s requests=%d statements mean=%.1f max=%d, checkouts mean=%.1f max=%d%n",
+                    endpoint, statements.getCount(), statements.getMean(), statements.getMax(),
+                    checkouts.getMean(), checkouts.getMax()));
+        }
+
+        report.append("\nStatements by total time:\n");
+        List<StatementStats> statements = getStatementStats();
+        statements.sort(Comparator.comparingLong((StatementStats stats) -> stats.latency.getSum()).reversed());
+        for (StatementStats stats : statements) {
+            report.append(String.format(Locale.ROOT, "  count=%d rows=%d errors=%d total=%.1fms %s%n    %s%n",
+                    stats.latency.getCount(), stats.getRows(), stats.getErrors(),
+                    stats.latency.getSum() / 1e6, timings(stats.latency), stats.shape));
+        }
+        return report.toString();
+    }
+
+    private static String timings(LatencyHistogram histogram) {
+        return String.format(Locale.ROOT, "p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms",
+                histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(95) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6, histogram.getMax() / 1e6);
+    }
+
+    /**
+     * Reduces SQL to its shape, so that statements that differ only in
+     * literal values or in the length of an IN list are counted together.
+     */
+    static String shapeOf(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return collapseInLists(shape);
+    }
+
+    /**
+     * Replaces every IN list made only of parameters with "IN (?, ...)".
+     * The list is scanned by hand because a regular expression repeating
+     * ", ?" recurses once per parameter and overflows the stack on the
+     * lists of thousands that large pages produce.
+     */
+    private static String collapseInLists(String shape) {
+        Matcher start = IN_LIST_START.matcher(shape);
+        StringBuilder collapsed = new StringBuilder(shape.length());
+        int copied = 0;
+        while (start.find()) {
+            int end = start.end();
+            while (true) {
+                int i = skipSpace(shape, end);
+                if (i >= shape.length() || shape.charAt(i) != ',') {
+                    break;
+                }
+                i = skipSpace(shape, i + 1);
+                if (i >= shape.length() || shape.charAt(i) != '?') {
+                    break;
+                }
+                end = i + 1;
+            }
+            end = skipSpace(shape, end);
+            if (end < shape.length() && shape.charAt(end) == ')') {
+                collapsed.append(shape, copied, start.start()).append("IN (?, ...)");
+                copied = end + 1;
+            }
+        }
+        return collapsed.append(shape, copied, shape.length()).toString();
+    }
+
+    private static int skipSpace(String shape, int i) {
+        return i < shape.length() && shape.charAt(i) == ' ' ? i + 1 : i;
+    }
+}
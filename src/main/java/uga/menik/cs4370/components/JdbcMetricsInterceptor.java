@@ -0,0 +1,64 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Tags the statements run while handling a request with the request's
+ * endpoint, so JdbcMetrics can count them per endpoint and name the
+ * endpoint in the slow query log.
+ * The endpoint is the URL pattern that matched, like /post/{postId},
+ * so every post page is counted together.
+ * A request whose handler continues asynchronously, like an export, is
+ * counted when the request thread lets go of it, and the later dispatch
+ * that completes it is not counted again.
+ */
+@Component
+public class JdbcMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private final JdbcMetrics jdbcMetrics;
+
+    @Autowired
+    public JdbcMetricsInterceptor(JdbcMetrics jdbcMetrics) {
+        this.jdbcMetrics = jdbcMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+            HttpServletResponse response, Object handler) throws Exception {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String path = pattern != null ? pattern.toString() : request.getRequestURI();
+        jdbcMetrics.beginRequest(request.getMethod() + " " + path);
+        return true;
+    }
+
+    /**
+     * Ends the request on the request thread, which goes on to serve other
+     * requests while the handler continues elsewhere.
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request,
+            HttpServletResponse response, Object handler) throws Exception {
+        jdbcMetrics.endRequest();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request,
+            HttpServletResponse response, Object handler, Exception ex) throws Exception {
+        jdbcMetrics.endRequest();
+    }
+}
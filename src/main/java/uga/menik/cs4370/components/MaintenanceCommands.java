@@ -0,0 +1,116 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import uga.menik.cs4370.services.DatasetGenerator;
+import uga.menik.cs4370.services.InteractionService;
+import uga.menik.cs4370.services.PostStatsService;
+import uga.menik.cs4370.services.TimelineService;
+
+/**
+ * Runs one-shot maintenance commands given as command line options
+ * when the application starts. For example:
+ * mvn spring-boot:run -Dspring-boot.run.arguments=--rebuild-timelines
+ *
+ * --generate-dataset adds synthetic users and posts before any rebuild runs,
+ * sized by --dataset-users, --dataset-posts, --dataset-follows,
+ * --dataset-hearts, --dataset-comments, --dataset-hashtags, --dataset-days,
+ * --dataset-threads, --dataset-rows-per-insert and --dataset-seed.
+ * For example, a million users with fifty million posts and their timelines:
+ * mvn spring-boot:run -Dspring-boot.run.arguments="--generate-dataset
+ * --dataset-users=1000000 --dataset-posts=50000000 --rebuild-timelines"
+ *
+ * --backfill-bookmark-dates dates the bookmarks that instances of the
+ * previous version added while migration V3 rolled out.
+ */
+@Component
+public class MaintenanceCommands implements ApplicationRunner {
+
+    private final TimelineService timelineService;
+    private final PostStatsService postStatsService;
+    private final DatasetGenerator datasetGenerator;
+    private final InteractionService interactionService;
+
+    @Autowired
+    public MaintenanceCommands(TimelineService timelineService, PostStatsService postStatsService,
+            DatasetGenerator datasetGenerator, InteractionService interactionService) {
+        this.timelineService = timelineService;
+        this.postStatsService = postStatsService;
+        this.datasetGenerator = datasetGenerator;
+        this.interactionService = interactionService;
+    }
+
+    /**
+     * Checks the command line options and runs the requested commands.
+     */
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (args.containsOption("generate-dataset")) {
+            DatasetGenerator.Options options = new DatasetGenerator.Options();
+            String value;
+            if ((value = option(args, "dataset-users")) != null) {
+                options.users(Integer.parseInt(value));
+            }
+            if ((value = option(args, "dataset-posts")) != null) {
+                options.posts(Integer.parseInt(value));
+            }
+            if ((value = option(args, "dataset-follows")) != null) {
+                options.meanFollows(Double.parseDouble(value));
+            }
+            if ((value = option(args, "dataset-hearts")) != null) {
+                options.meanHearts(Double.parseDouble(value));
+            }
+            if ((value = option(args, "dataset-comments")) != null) {
+                options.meanComments(Double.parseDouble(value));
+            }
+            if ((value = option(args, "dataset-hashtags")) != null) {
+                options.hashtags(Integer.parseInt(value));
+            }
+            if ((value = option(args, "dataset-days")) != null) {
+                options.days(Integer.parseInt(value));
+            }
+            if ((value = option(args, "dataset-threads")) != null) {
+                options.threads(Integer.parseInt(value));
+            }
+            if ((value = option(args, "dataset-rows-per-insert")) != null) {
+                options.rowsPerInsert(Integer.parseInt(value));
+            }
+            if ((value = option(args, "dataset-seed")) != null) {
+                options.seed(Long.parseLong(value));
+            }
+            datasetGenerator.generate(options);
+        }
+        if (args.containsOption("rebuild-timelines")) {
+            System.out.println("Rebuilding timelines.");
+            int rows = timelineService.rebuildAll();
+            System.out.println("Rebuilt timelines with " + rows + " entries.");
+        }
+        if (args.containsOption("rebuild-post-stats")) {
+            System.out.println("Rebuilding post stats.");
+            int rows = postStatsService.rebuildAll();
+            System.out.println("Rebuilt stats of " + rows + " posts.");
+        }
+        if (args.containsOption("backfill-bookmark-dates")) {
+            int rows = interactionService.backfillBookmarkDates();
+            System.out.println("Dated " + rows + " bookmarks.");
+        }
+    }
+
+    /**
+     * Returns the value of a command line option, or null if it is not given.
+     */
+    private static String option(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? null : values.get(values.size() - 1);
+    }
+}
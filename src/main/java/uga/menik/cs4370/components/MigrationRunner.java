@@ -0,0 +1,318 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Brings the schema of database_setup.sql up to date by running the
+ * migration scripts in src/main/resources/db/migration when the app starts.
+ *
+ * Scripts are named V{version}__{description}.sql and run in version order.
+ * Each one that succeeds is recorded in the schema_history table with a
+ * checksum of its text, and never runs again. A recorded script whose text
+ * has changed since stops the app from starting, so never edit a script
+ * that may have run somewhere; add a new one instead.
+ *
+ * MySQL commits every schema change as it runs, so a script that fails
+ * half way is not rolled back. Fix the database by hand before restarting.
+ * Since MySQL has no CREATE INDEX IF NOT EXISTS, a CREATE INDEX whose index
+ * already exists on the table is skipped, so a script can add an index
+ * that some databases already have.
+ *
+ * Several instances may start at once. On MySQL the migrations run under
+ * the named lock schema_migrations, taken with GET_LOCK, so only one instance
+ * migrates and the others wait and then find the scripts recorded. Other
+ * databases, such as the embedded one the tests use, are only locked
+ * within this process.
+ */
+@Component
+public class MigrationRunner {
+
+    private static final String LOCATION = "classpath:db/migration/V*__*.sql";
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+(\\w+)\\s+ON\\s+(\\w+)\\b.*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final String LOCK_NAME = "schema_migrations";
+
+    // How long an instance waits for another one to finish migrating.
+    private static final int LOCK_TIMEOUT_SECONDS = 600;
+
+    /**
+     * A migration script found on the class path.
+     */
+    private static final class Migration {
+        final int version;
+        final String description;
+        final String script;
+        final String text;
+
+        Migration(int version, String description, String script, String text) {
+            this.version = version;
+            this.description = description;
+            this.script = script;
+            this.text = text;
+        }
+
+        long checksum() {
+            CRC32 crc = new CRC32();
+            crc.update(text.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+            return crc.getValue();
+        }
+    }
+
+    private final DataSource dataSource;
+    private final boolean isRunOnStartup;
+
+    @Autowired
+    public MigrationRunner(DataSource dataSource,
+            @Value("${app.migrations.run-on-startup:true}") boolean isRunOnStartup) {
+        this.dataSource = dataSource;
+        this.isRunOnStartup = isRunOnStartup;
+    }
+
+    /**
+     * Runs the pending migrations before the app starts serving requests.
+     */
+    @PostConstruct
+    public void migrateOnStartup() throws SQLException, IOException {
+        if (!isRunOnStartup) {
+            return;
+        }
+        try (Connection conn = dataSource.getConnection()) {
+            if (!hasTable(conn, "user")) {
+                System.out.println("Skipping migrations: the database has no tables yet."
+                        + " Run database_setup.sql first.");
+                return;
+            }
+        }
+        migrate();
+    }
+
+    /**
+     * Runs every migration that has not run yet, checking that the ones
+     * that have are unchanged. Returns the number of migrations run.
+     */
+    public synchronized int migrate() throws SQLException, IOException {
+        List<Migration> migrations = findMigrations();
+        int applied;
+        try (Connection conn = dataSource.getConnection()) {
+            boolean isLocked = lock(conn);
+            try {
+                applied = migrate(conn, migrations);
+            } finally {
+                if (isLocked) {
+                    unlock(conn);
+                }
+            }
+        }
+        if (applied == 0) {
+            System.out.println("The schema is up to date.");
+        }
+        return applied;
+    }
+
+    private int migrate(Connection conn, List<Migration> migrations) throws SQLException {
+        final String createHistorySql = "CREATE TABLE IF NOT EXISTS schema_history ("
+                + " version int NOT NULL,"
+                + " description varchar(200) NOT NULL,"
+                + " script varchar(255) NOT NULL,"
+                + " checksum bigint NOT NULL,"
+                + " installedOn datetime NOT NULL,"
+                + " executionMs int NOT NULL,"
+                + " PRIMARY KEY (version))";
+        final String historySql = "SELECT version, script, checksum FROM schema_history";
+        final String recordSql = "INSERT INTO schema_history"
+                + " (version, description, script, checksum, installedOn, executionMs) VALUES (?, ?, ?, ?, ?, ?)";
+
+        // Read under the lock, so an instance that waited sees what the other one ran.
+        Map<Integer, Long> checksums = new HashMap<>();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(createHistorySql);
+            try (ResultSet rs = stmt.executeQuery(historySql)) {
+                while (rs.next()) {
+                    checksums.put(rs.getInt("version"), rs.getLong("checksum"));
+                }
+            }
+        }
+        int applied = 0;
+        for (Migration migration : migrations) {
+            Long checksum = checksums.get(migration.version);
+            if (checksum != null) {
+                if (checksum != migration.checksum()) {
+                    throw new IllegalStateException("Migration " + migration.script
+                            + " was changed after it ran. Add a new migration instead.");
+                }
+                continue;
+            }
+
+            System.out.println("Running migration " + migration.script + ".");
+            long startTime = System.currentTimeMillis();
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : statementsOf(migration.text)) {
+                    if (isExistingIndex(conn, sql)) {
+                        System.out.println("Skipping an index that already exists: " + sql);
+                        continue;
+                    }
+                    stmt.execute(sql);
+                }
+            } catch (SQLException sqle) {
+                throw new SQLException("Migration " + migration.script + " failed: " + sqle.getMessage(), sqle);
+            }
+            int executionMs = (int) (System.currentTimeMillis() - startTime);
+            try (PreparedStatement pstmt = conn.prepareStatement(recordSql)) {
+                pstmt.setInt(1, migration.version);
+                pstmt.setString(2, migration.description);
+                pstmt.setString(3, migration.script);
+                pstmt.setLong(4, migration.checksum());
+                pstmt.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+                pstmt.setInt(6, executionMs);
+                pstmt.executeUpdate();
+            }
+            System.out.println("Ran migration " + migration.script + " in " + executionMs + " ms.");
+            applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * Takes the migration lock on MySQL, waiting for another instance that
+     * holds it. Returns whether a lock was taken, which is only on MySQL.
+     */
+    private static boolean lock(Connection conn) throws SQLException {
+        final String lockSql = "SELECT GET_LOCK(?, ?)";
+
+        if (!isMySql(conn)) {
+            return false;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(lockSql)) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new IllegalStateException("Another instance has been running migrations for more than "
+                            + LOCK_TIMEOUT_SECONDS + " seconds.");
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void unlock(Connection conn) throws SQLException {
+        final String unlockSql = "SELECT RELEASE_LOCK(?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(unlockSql)) {
+            pstmt.setString(1, LOCK_NAME);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                // 1 when released, NULL if the connection had already lost the lock.
+                rs.next();
+            }
+        }
+    }
+
+    private static boolean isMySql(Connection conn) throws SQLException {
+        String product = conn.getMetaData().getDatabaseProductName();
+        return product.contains("MySQL") || product.contains("MariaDB");
+    }
+
+    /**
+     * Returns whether a statement is a CREATE INDEX of an index that the
+     * table already has.
+     */
+    private static boolean isExistingIndex(Connection conn, String sql) throws SQLException {
+        Matcher matcher = CREATE_INDEX.matcher(sql);
+        if (!matcher.matches()) {
+            return false;
+        }
+        try (ResultSet rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, matcher.group(2), false,
+                true)) {
+            while (rs.next()) {
+                if (matcher.group(1).equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits a script into statements at semicolons, leaving out comment
+     * lines and empty statements.
+     */
+    public static List<String> statementsOf(String script) {
+        List<String> statements = new ArrayList<>();
+        for (String sql : script.split(";")) {
+            String withoutComments = sql.replaceAll("(?m)^\\s*--.*$", "").trim();
+            if (!withoutComments.isEmpty()) {
+                statements.add(withoutComments);
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Returns the migration scripts on the class path in version order.
+     */
+    private static List<Migration> findMigrations() throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+            String script = resource.getFilename();
+            Matcher matcher = SCRIPT_NAME.matcher(script);
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Migration " + script + " is not named V{version}__{description}.sql.");
+            }
+            String text;
+            try (InputStream in = resource.getInputStream()) {
+                text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            migrations.add(new Migration(Integer.parseInt(matcher.group(1)),
+                    matcher.group(2).replace('_', ' '), script, text));
+        }
+        migrations.sort((a, b) -> Integer.compare(a.version, b.version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version == migrations.get(i - 1).version) {
+                throw new IllegalStateException("Migrations " + migrations.get(i - 1).script + " and "
+                        + migrations.get(i).script + " have the same version.");
+            }
+        }
+        return migrations;
+    }
+
+    private static boolean hasTable(Connection conn, String table) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getTables(conn.getCatalog(), null, table, null)) {
+            return rs.next();
+        }
+    }
+}
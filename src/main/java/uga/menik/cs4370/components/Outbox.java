@@ -0,0 +1,110 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Records writes in the outbox_event table. The append functions take the
+ * caller's connection so that the event commits or rolls back together
+ * with the write it describes. OutboxRelay publishes the events after that,
+ * reading them back with the read functions.
+ */
+@Component
+public class Outbox {
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_event"
+            + " (eventType, aggregateId, userId, payload, createdAt) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_SQL = "SELECT eventId, eventType, aggregateId, userId, payload, createdAt"
+            + " FROM outbox_event";
+
+    /**
+     * Records one write.
+     */
+    public void append(Connection conn, String eventType, int aggregateId, int userId, String payload,
+            Timestamp createdAt) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+            bind(pstmt, eventType, aggregateId, userId, payload, createdAt);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Records several writes as one batch. The eventIds of the given events
+     * are ignored; the table assigns them.
+     */
+    public void appendAll(Connection conn, List<OutboxEvent> events) throws SQLException {
+        if (events.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+            for (OutboxEvent event : events) {
+                bind(pstmt, event.getEventType(), event.getAggregateId(), event.getUserId(), event.getPayload(),
+                        event.getCreatedAt());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Reads the committed events after an eventId, in eventId order.
+     */
+    public List<OutboxEvent> readAfter(Connection conn, long afterEventId, int limit) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_SQL
+                + " WHERE eventId > ? ORDER BY eventId LIMIT ?")) {
+            pstmt.setLong(1, afterEventId);
+            pstmt.setInt(2, limit);
+            return readAll(pstmt);
+        }
+    }
+
+    /**
+     * Reads those of the given events that are committed, in eventId order.
+     */
+    public List<OutboxEvent> readIds(Connection conn, List<Long> eventIds) throws SQLException {
+        if (eventIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_SQL + " WHERE eventId IN ("
+                + String.join(",", Collections.nCopies(eventIds.size(), "?")) + ") ORDER BY eventId")) {
+            for (int i = 0; i < eventIds.size(); i++) {
+                pstmt.setLong(i + 1, eventIds.get(i));
+            }
+            return readAll(pstmt);
+        }
+    }
+
+    private static List<OutboxEvent> readAll(PreparedStatement pstmt) throws SQLException {
+        List<OutboxEvent> events = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                events.add(new OutboxEvent(rs.getLong("eventId"), rs.getString("eventType"),
+                        rs.getInt("aggregateId"), rs.getInt("userId"), rs.getString("payload"),
+                        rs.getTimestamp("createdAt")));
+            }
+        }
+        return events;
+    }
+
+    private static void bind(PreparedStatement pstmt, String eventType, int aggregateId, int userId,
+            String payload, Timestamp createdAt) throws SQLException {
+        pstmt.setString(1, eventType);
+        pstmt.setInt(2, aggregateId);
+        pstmt.setInt(3, userId);
+        pstmt.setString(4, payload);
+        pstmt.setTimestamp(5, createdAt);
+    }
+}
@@ -0,0 +1,68 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.sql.Timestamp;
+
+/**
+ * A row of the outbox_event table: one committed write.
+ *
+ * The aggregate is the row the write was about, and the user is who made
+ * it. For posts and comments the aggregate is the post;
+ * for follows it is the followed user. Only posts have a payload, their text.
+ */
+public class OutboxEvent {
+
+    public static final String POST_CREATED = "post.created";
+    public static final String COMMENT_CREATED = "comment.created";
+    public static final String FOLLOW_ADDED = "follow.added";
+    public static final String FOLLOW_REMOVED = "follow.removed";
+
+    private final long eventId;
+    private final String eventType;
+    private final int aggregateId;
+    private final int userId;
+    private final String payload;
+    private final Timestamp createdAt;
+
+    public OutboxEvent(long eventId, String eventType, int aggregateId, int userId, String payload,
+            Timestamp createdAt) {
+        this.eventId = eventId;
+        this.eventType = eventType;
+        this.aggregateId = aggregateId;
+        this.userId = userId;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Returns the position of the event in the outbox. Events are published
+     * in this order.
+     */
+    public long getEventId() {
+        return eventId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public int getAggregateId() {
+        return aggregateId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,276 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Reads committed events from the outbox_event table and publishes them on
+ * the EventBus, up to app.outbox.batch-size at a time. When it has caught
+ * up it checks for new events every app.outbox.poll-interval-ms.
+ *
+ * Event IDs are assigned when a row is inserted, not when it commits, so a
+ * transaction that is still open leaves a gap that is filled later, after
+ * higher events are already published. The relay publishes past a gap
+ * right away and remembers the missing IDs, looking for them again on
+ * every poll and publishing each one when it appears. Consumers therefore
+ * see an event that committed late after higher ones. A missing ID that
+ * has not appeared within app.outbox.gap-horizon-ms, far longer than any
+ * transaction runs, is taken to be a write that rolled back.
+ *
+ * The watermark is the highest event up to which every event has been
+ * published or given up; consumer offsets never pass it, so a restart
+ * replays anything still missing. Events that every consumer of every
+ * live instance has handled are deleted every app.outbox.trim-interval-ms.
+ * Each instance runs its own relay and consumers over the shared table, so
+ * one instance's trim must not delete what another has yet to read.
+ */
+@Component
+public class OutboxRelay {
+
+    // More missing IDs than this are given up, lowest first; such gaps come
+    // from IDs the database reserved but never used, not from open transactions.
+    private static final int MAX_MISSING = 10000;
+
+    private final DataSource dataSource;
+    private final Outbox outbox;
+    private final EventBus eventBus;
+    private final boolean isEnabled;
+    private final long pollIntervalMs;
+    private final int batchSize;
+    private final long gapHorizonNanos;
+    private final long trimIntervalNanos;
+
+    private volatile Thread relay;
+
+    /** The highest event read, or -1 before the bus is started. */
+    private volatile long position = -1;
+
+    /** Every event up to this one has been published or given up. */
+    private volatile long watermark = -1;
+
+    /** The IDs below the position that were missing, and since when. */
+    private final TreeMap<Long, Long> missingSinceNanos = new TreeMap<>();
+    private volatile int missingCount;
+
+    private long lastTrimNanos = System.nanoTime();
+
+    @Autowired
+    public OutboxRelay(DataSource dataSource, Outbox outbox, EventBus eventBus,
+            @Value("${app.outbox.relay-enabled:true}") boolean isEnabled,
+            @Value("${app.outbox.poll-interval-ms:100}") long pollIntervalMs,
+            @Value("${app.outbox.batch-size:500}") int batchSize,
+            @Value("${app.outbox.gap-horizon-ms:600000}") long gapHorizonMs,
+            @Value("${app.outbox.trim-interval-ms:60000}") long trimIntervalMs) {
+        this.dataSource = dataSource;
+        this.outbox = outbox;
+        this.eventBus = eventBus;
+        this.isEnabled = isEnabled;
+        this.pollIntervalMs = pollIntervalMs;
+        this.batchSize = batchSize;
+        this.gapHorizonNanos = TimeUnit.MILLISECONDS.toNanos(gapHorizonMs);
+        this.trimIntervalNanos = TimeUnit.MILLISECONDS.toNanos(trimIntervalMs);
+    }
+
+    /**
+     * Starts relaying once the application is up and every consumer has
+     * subscribed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!isEnabled || relay != null) {
+            return;
+        }
+        relay = new Thread(this::run, "outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    /**
+     * Returns the highest event published on the bus, or -1 before the
+     * relay has started.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the position, watermark and missing events as plain text.
+     */
+    public String report() {
+        return "Relayed up to event " + position + "; every event up to " + watermark
+                + " is published; " + missingCount + " missing events.\n";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread thread = relay;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        long retryDelayMs = pollIntervalMs;
+        boolean isFailing = false;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    if (position < 0) {
+                        long startEventId = eventBus.start(oldestRetainedEventId() - 1);
+                        watermark = startEventId;
+                        position = startEventId;
+                    }
+                    int read = relayBatch();
+                    if (System.nanoTime() - lastTrimNanos >= trimIntervalNanos) {
+                        trim();
+                        lastTrimNanos = System.nanoTime();
+                    }
+                    if (isFailing) {
+                        System.out.println("The outbox relay is running again.");
+                        isFailing = false;
+                    }
+                    retryDelayMs = pollIntervalMs;
+                    if (read < batchSize) {
+                        Thread.sleep(pollIntervalMs);
+                    }
+                } catch (SQLException sqle) {
+                    // Logged once per outage, for example while the outbox table does not exist yet.
+                    if (!isFailing) {
+                        System.err.println("The outbox relay cannot read the outbox: " + sqle.getMessage());
+                        isFailing = true;
+                    }
+                    Thread.sleep(retryDelayMs);
+                    retryDelayMs = Math.min(retryDelayMs * 2, 5000);
+                }
+            }
+        } catch (InterruptedException e) {
+            // The application is stopping.
+        }
+    }
+
+    /**
+     * Publishes the next events after the position, and any missing events
+     * that have committed since. Returns the number of new events read.
+     */
+    private int relayBatch() throws SQLException, InterruptedException {
+        List<OutboxEvent> events;
+        List<OutboxEvent> late;
+        try (Connection conn = dataSource.getConnection()) {
+            events = outbox.readAfter(conn, position, batchSize);
+            late = missingSinceNanos.isEmpty() ? List.of()
+                    : outbox.readIds(conn, new ArrayList<>(missingSinceNanos.keySet()).subList(0,
+                            Math.min(batchSize, missingSinceNanos.size())));
+        }
+
+        long now = System.nanoTime();
+        for (OutboxEvent event : late) {
+            missingSinceNanos.remove(event.getEventId());
+        }
+        long nextEventId = position + 1;
+        for (OutboxEvent event : events) {
+            // Beyond MAX_MISSING IDs a jump is reserved IDs; only the highest are waited for.
+            for (long missing = Math.max(nextEventId, event.getEventId() - MAX_MISSING);
+                    missing < event.getEventId(); missing++) {
+                missingSinceNanos.put(missing, now);
+            }
+            nextEventId = event.getEventId() + 1;
+        }
+        giveUpMissing(now);
+
+        List<OutboxEvent> ready = new ArrayList<>(late.size() + events.size());
+        ready.addAll(late);
+        ready.addAll(events);
+        ready.sort(Comparator.comparingLong(OutboxEvent::getEventId));
+        if (!events.isEmpty()) {
+            position = events.get(events.size() - 1).getEventId();
+        }
+        long newWatermark = missingSinceNanos.isEmpty() ? position : missingSinceNanos.firstKey() - 1;
+        if (!ready.isEmpty() || newWatermark != watermark) {
+            eventBus.publish(ready, newWatermark);
+            watermark = newWatermark;
+        }
+        missingCount = missingSinceNanos.size();
+        return events.size();
+    }
+
+    /**
+     * Stops waiting for missing events older than the horizon, and for the
+     * lowest ones when too many are missing.
+     */
+    private void giveUpMissing(long now) {
+        int givenUp = 0;
+        long lowest = 0;
+        long highest = 0;
+        Iterator<Map.Entry<Long, Long>> missing = missingSinceNanos.entrySet().iterator();
+        while (missing.hasNext()) {
+            Map.Entry<Long, Long> entry = missing.next();
+            if (now - entry.getValue() >= gapHorizonNanos || missingSinceNanos.size() > MAX_MISSING) {
+                lowest = givenUp == 0 ? entry.getKey() : lowest;
+                highest = entry.getKey();
+                givenUp++;
+                missing.remove();
+            }
+        }
+        if (givenUp > 0) {
+            System.out.println("Stopped waiting for " + givenUp + " outbox events between " + lowest + " and "
+                    + highest + "; taking them as rolled back.");
+        }
+    }
+
+    /**
+     * Deletes the events that every consumer of every live instance has
+     * handled.
+     */
+    private void trim() throws SQLException {
+        final String deleteSql = "DELETE FROM outbox_event WHERE eventId <= ?";
+
+        long handled = Math.min(Math.min(eventBus.getOldestOffset(), watermark), eventBus.getOldestLiveOffset());
+        if (handled <= 0) {
+            return;
+        }
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(deleteSql)) {
+            pstmt.setLong(1, handled);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Returns the oldest event that is not trimmed yet, or 1 if there are
+     * none. Every event below it has been handled by every consumer.
+     */
+    private long oldestRetainedEventId() throws SQLException {
+        final String oldestSql = "SELECT COALESCE(MIN(eventId), 1) AS oldestEventId FROM outbox_event";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(oldestSql);
+                ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getLong("oldestEventId");
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import jakarta.annotation.PreDestroy;
+import uga.menik.cs4370.utility.VirtualThreads;
+
+/**
+ * Runs the independent queries of one page at the same time.
+ *
+ * A page opens a Scope, forks each query into it, and joins the scope
+ * before using the results. The scope waits at most app.parallel.deadline-ms
+ * from when it was opened; after that, or as soon as one query fails, the
+ * rest are cancelled, as is anything still running when the scope closes.
+ * Interrupting a thread does not stop a statement the database is running,
+ * so a forked query passes its statements to Scope.track: they are
+ * cancelled with Statement.cancel, and time out on their own at the
+ * deadline, rounded up to whole seconds.
+ *
+ * Forked queries see the request of the thread that forked them: the
+ * logged-in user, request scoped services and the JDBC metrics of the
+ * request. At most app.parallel.max-concurrent-queries forked queries run
+ * at once across all requests, so that they cannot take every connection
+ * in the pool; when none is free, a query runs on the forking thread
+ * instead, as it would without this class.
+ * Queries run on virtual threads when Java has them.
+ */
+@Component
+public class ParallelQueries {
+
+    /**
+     * The queries forked for one page.
+     */
+    public final class Scope implements AutoCloseable {
+        private final long deadlineNanos;
+        private final List<Future<?>> forks = new ArrayList<>();
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean isCancelled = false;
+
+        private Scope(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Starts a query. Its result is available from the returned future
+         * once the scope is joined.
+         */
+        public <T> Future<T> fork(Callable<T> query) {
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            Callable<T> task = jdbcMetrics.inCurrentRequest(() -> {
+                RequestContextHolder.setRequestAttributes(attributes);
+                try {
+                    return query.call();
+                } finally {
+                    RequestContextHolder.resetRequestAttributes();
+                }
+            });
+            Future<T> future;
+            if (permits.tryAcquire()) {
+                PermitTask<T> permitTask = new PermitTask<>(task);
+                try {
+                    executor.execute(permitTask);
+                } catch (RuntimeException e) {
+                    permitTask.cancel(false);
+                    throw e;
+                }
+                future = permitTask;
+            } else {
+                // Every permit is taken, so this thread runs the query itself.
+                FutureTask<T> inline = new FutureTask<>(query);
+                inline.run();
+                future = inline;
+            }
+            forks.add(future);
+            return future;
+        }
+
+        /**
+         * Waits for every forked query. Cancels the others and throws if
+         * one fails or the deadline passes first.
+         *
+         * @throws ExecutionException if a query failed, with its exception as the cause
+         * @throws TimeoutException   if the deadline passed
+         */
+        public void join() throws InterruptedException, ExecutionException, TimeoutException {
+            try {
+                for (Future<?> fork : forks) {
+                    long remainingNanos = deadlineNanos - System.nanoTime();
+                    fork.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException | ExecutionException | TimeoutException | CancellationException e) {
+                cancelAll();
+                throw e;
+            }
+        }
+
+        /**
+         * Makes a statement of a forked query stop with the scope. It times
+         * out at the deadline, and is cancelled if the scope cancels its
+         * queries while it runs. Call this before executing the statement.
+         */
+        public void track(Statement statement) throws SQLException {
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            statement.setQueryTimeout((int) Math.max(1, (remainingNanos + 999_999_999L) / 1_000_000_000L));
+            synchronized (statements) {
+                if (isCancelled) {
+                    throw new SQLException("The page stopped waiting for this query.");
+                }
+                statements.add(statement);
+            }
+        }
+
+        @Override
+        public void close() {
+            cancelAll();
+        }
+
+        private void cancelAll() {
+            for (Future<?> fork : forks) {
+                fork.cancel(true);
+            }
+            List<Statement> running;
+            synchronized (statements) {
+                isCancelled = true;
+                running = new ArrayList<>(statements);
+                statements.clear();
+            }
+            for (Statement statement : running) {
+                try {
+                    statement.cancel();
+                } catch (SQLException sqle) {
+                    // The statement had already finished and was closed.
+                }
+            }
+        }
+    }
+
+    /**
+     * A forked query holding a permit. The permit is released when the query
+     * finishes, or when it is cancelled before it started, in which case it
+     * never runs.
+     */
+    private final class PermitTask<T> extends FutureTask<T> {
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int RELEASED = 2;
+
+        private final AtomicInteger state;
+
+        PermitTask(Callable<T> task) {
+            this(task, new AtomicInteger(QUEUED));
+        }
+
+        private PermitTask(Callable<T> task, AtomicInteger state) {
+            super(() -> {
+                if (!state.compareAndSet(QUEUED, RUNNING)) {
+                    throw new CancellationException();
+                }
+                try {
+                    return task.call();
+                } finally {
+                    state.set(RELEASED);
+                    permits.release();
+                }
+            });
+            this.state = state;
+        }
+
+        @Override
+        protected void done() {
+            // Cancelled before it started, so the body will not release it.
+            if (state.compareAndSet(QUEUED, RELEASED)) {
+                permits.release();
+            }
+        }
+    }
+
+    private final JdbcMetrics jdbcMetrics;
+    private final long deadlineMillis;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+
+    @Autowired
+    public ParallelQueries(JdbcMetrics jdbcMetrics,
+            @Value("${app.parallel.deadline-ms:2000}") long deadlineMillis,
+            @Value("${app.parallel.max-concurrent-queries:8}") int maxConcurrentQueries) {
+        this.jdbcMetrics = jdbcMetrics;
+        this.deadlineMillis = deadlineMillis;
+        this.permits = new Semaphore(maxConcurrentQueries);
+        ExecutorService virtualThreads = VirtualThreads.newThreadPerTaskExecutor();
+        // Without virtual threads the permits bound the number of threads.
+        this.executor = virtualThreads != null ? virtualThreads : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "parallel-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a scope whose deadline starts now.
+     */
+    public Scope open() {
+        return new Scope(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,219 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import uga.menik.cs4370.services.UserService;
+import uga.menik.cs4370.utility.TokenBucket;
+
+/**
+ * Limits how fast each logged-in user can post, comment, and heart,
+ * bookmark or follow, so that one script cannot take every database
+ * connection. Requests over the limit are answered with 429 Too Many
+ * Requests and a Retry-After header, without running the handler.
+ *
+ * Each user has one token bucket per policy, and the endpoints of a policy
+ * share it. Buckets are created on a user's first write and thrown away
+ * once they refill, which is the same as keeping them, so only users who
+ * wrote within the last few minutes take memory. If there are still more
+ * than app.rate-limit.max-buckets, buckets are thrown away early, which
+ * only gives their users a full bucket again.
+ * Runs after AuthInterceptor, so every request it sees has a user.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    /**
+     * Endpoints that share a limit.
+     */
+    private static final class Policy {
+        final String name;
+        final int index;
+        final TokenBucket bucket;
+        final LongAdder allowed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+
+        Policy(String name, int index, TokenBucket bucket) {
+            this.name = name;
+            this.index = index;
+            this.bucket = bucket;
+        }
+    }
+
+    private final UserService userService;
+    private final boolean isEnabled;
+    private final int maxBuckets;
+
+    private final List<Policy> policies;
+
+    /** Policy per endpoint, named as in JdbcMetricsInterceptor. */
+    private final Map<String, Policy> policiesByEndpoint = new HashMap<>();
+
+    /** Bucket per (policy, userId) key. */
+    private final ConcurrentHashMap<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder evicted = new LongAdder();
+
+    private final ScheduledExecutorService sweeper;
+
+    /** Prevents queueing more than one early sweep at a time. */
+    private final AtomicBoolean isSweepRequested = new AtomicBoolean(false);
+
+    @Autowired
+    public RateLimitInterceptor(UserService userService,
+            @Value("${app.rate-limit.enabled:true}") boolean isEnabled,
+            @Value("${app.rate-limit.max-buckets:1000000}") int maxBuckets,
+            @Value("${app.rate-limit.sweep-interval-ms:60000}") long sweepIntervalMs,
+            @Value("${app.rate-limit.posts.capacity:10}") int postsCapacity,
+            @Value("${app.rate-limit.posts.per-minute:30}") int postsPerMinute,
+            @Value("${app.rate-limit.comments.capacity:20}") int commentsCapacity,
+            @Value("${app.rate-limit.comments.per-minute:60}") int commentsPerMinute,
+            @Value("${app.rate-limit.interactions.capacity:60}") int interactionsCapacity,
+            @Value("${app.rate-limit.interactions.per-minute:600}") int interactionsPerMinute) {
+        this.userService = userService;
+        this.isEnabled = isEnabled;
+        this.maxBuckets = maxBuckets;
+
+        Policy posts = new Policy("posts", 0, new TokenBucket(postsCapacity, postsPerMinute));
+        Policy comments = new Policy("comments", 1, new TokenBucket(commentsCapacity, commentsPerMinute));
+        Policy interactions = new Policy("interactions", 2,
+                new TokenBucket(interactionsCapacity, interactionsPerMinute));
+        this.policies = List.of(posts, comments, interactions);
+
+        policiesByEndpoint.put("POST /createpost", posts);
+        policiesByEndpoint.put("POST /post/{postId}/comment", comments);
+        policiesByEndpoint.put("GET /post/{postId}/heart/{isAdd}", interactions);
+        policiesByEndpoint.put("GET /post/{postId}/bookmark/{isAdd}", interactions);
+        policiesByEndpoint.put("GET /profile/{postId}/bookmark/{isAdd}", interactions);
+        policiesByEndpoint.put("GET /people/{userId}/follow/{isFollow}", interactions);
+        for (String method : List.of("POST", "DELETE")) {
+            policiesByEndpoint.put(method + " /api/posts/{postId}/heart", interactions);
+            policiesByEndpoint.put(method + " /api/posts/{postId}/bookmark", interactions);
+            policiesByEndpoint.put(method + " /api/users/{userId}/follow", interactions);
+        }
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+            HttpServletResponse response, Object handler) throws Exception {
+        if (!isEnabled || !userService.isAuthenticated()) {
+            return true;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Policy policy = pattern == null ? null : policiesByEndpoint.get(request.getMethod() + " " + pattern);
+        if (policy == null) {
+            return true;
+        }
+
+        long nowNanos = System.nanoTime();
+        long key = ((long) policy.index << 32) | (userService.getLoggedInUser().getUserId() & 0xffffffffL);
+        AtomicLong bucket = buckets.computeIfAbsent(key, k -> policy.bucket.newBucket(nowNanos));
+        long waitNanos = policy.bucket.take(bucket, nowNanos);
+        if (buckets.size() > maxBuckets && isSweepRequested.compareAndSet(false, true)) {
+            sweeper.execute(this::sweep);
+        }
+
+        if (waitNanos == 0) {
+            policy.allowed.increment();
+            return true;
+        }
+        policy.rejected.increment();
+        // Rounded up, so that a retry after this long finds a token.
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests. Try again in " + retryAfterSeconds + " seconds.");
+        return false;
+    }
+
+    /**
+     * Throws away the buckets that are full again, and then, if there are
+     * still too many, as many others as needed.
+     *
+     * A request may take a token from a bucket just as it is thrown away;
+     * that token is lost, so the user gets one extra request at most.
+     */
+    void sweep() {
+        isSweepRequested.set(false);
+        long nowNanos = System.nanoTime();
+        for (Iterator<Map.Entry<Long, AtomicLong>> it = buckets.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Long, AtomicLong> entry = it.next();
+            Policy policy = policies.get((int) (entry.getKey() >>> 32));
+            if (policy.bucket.isFull(entry.getValue(), nowNanos)) {
+                it.remove();
+                evicted.increment();
+            }
+        }
+        if (buckets.size() <= maxBuckets) {
+            return;
+        }
+        // Leave room so that the next few new users do not trigger another sweep.
+        int target = maxBuckets - maxBuckets / 10;
+        for (Iterator<Long> it = buckets.keySet().iterator(); buckets.size() > target && it.hasNext();) {
+            it.next();
+            it.remove();
+            evicted.increment();
+        }
+    }
+
+    /**
+     * Returns the number of buckets currently kept.
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Returns the limits and how many requests each allowed and rejected
+     * as plain text.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append("Rate limiting is ").append(isEnabled ? "on" : "off").append(".\n");
+        report.append("Buckets: ").append(buckets.size()).append(" of at most ").append(maxBuckets)
+                .append(", evicted ").append(evicted.sum()).append("\n\n");
+        report.append("Requests per policy:\n");
+        for (Policy policy : policies) {
+            report.append(String.format(Locale.ROOT, "  %-14s capacity=%d per-minute=%d allowed=%d rejected=%d%n",
+                    policy.name, policy.bucket.getCapacity(), policy.bucket.getRefillsPerMinute(),
+                    policy.allowed.sum(), policy.rejected.sum()));
+        }
+        return report.toString();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
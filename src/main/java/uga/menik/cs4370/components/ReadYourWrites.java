@@ -0,0 +1,54 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Keeps a user's reads on the primary database for a short while after
+ * they change something, so that they see their own change even when the
+ * read replicas have not caught up yet.
+ * The time is kept in the user's session. Work done outside of a request
+ * is never pinned.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final String PINNED_UNTIL_ATTRIBUTE = ReadYourWrites.class.getName() + ".pinnedUntil";
+
+    private final long windowMillis;
+
+    public ReadYourWrites(@Value("${app.datasource.read-your-writes-ms:5000}") long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Sends the reads of the current user to the primary for the next
+     * window. Call after the user's write has been made.
+     */
+    public void pin() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(PINNED_UNTIL_ATTRIBUTE, System.currentTimeMillis() + windowMillis,
+                    RequestAttributes.SCOPE_SESSION);
+        }
+    }
+
+    /**
+     * Returns whether the reads of the current request must go to the primary.
+     */
+    public boolean isPinned() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return false;
+        }
+        Object pinnedUntil = attributes.getAttribute(PINNED_UNTIL_ATTRIBUTE, RequestAttributes.SCOPE_SESSION);
+        return pinnedUntil instanceof Long until && until > System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,113 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * The DataSource of read-only queries. Each connection comes from the next
+ * read replica in turn, or from the primary when there are no replicas,
+ * when the current user has just written something (see ReadYourWrites),
+ * or when no replica can be reached.
+ * A replica that fails to give a connection is skipped for the next
+ * replica-retry-ms, so only the read that found it down waits for it; the
+ * replica pools also give up on a connection sooner than the primary.
+ * Writes must never use this DataSource.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final ReadYourWrites readYourWrites;
+    private final long retryNanos;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /** When each replica may be tried again, in System.nanoTime() terms. */
+    private final AtomicLongArray downUntilNanos;
+
+    /**
+     * @param primary        the primary database, which this does not close
+     * @param replicas       the read replicas, which this closes when it is closed
+     * @param replicaRetryMs how long a replica that failed is skipped
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReadYourWrites readYourWrites,
+            long replicaRetryMs) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.readYourWrites = readYourWrites;
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(replicaRetryMs);
+        this.downUntilNanos = new AtomicLongArray(replicas.size());
+        long now = System.nanoTime();
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+            downUntilNanos.set(i, now);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || readYourWrites.isPinned()) {
+            return PRIMARY;
+        }
+        long now = System.nanoTime();
+        for (int tries = 0; tries < replicas.size(); tries++) {
+            int replica = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+            if (now - downUntilNanos.get(replica) >= 0) {
+                return replica;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (!(key instanceof Integer replica)) {
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(replica).getConnection();
+        } catch (SQLException sqle) {
+            downUntilNanos.set(replica, System.nanoTime() + retryNanos);
+            System.err.println("Read replica " + (replica + 1) + " unavailable, reading from the primary for the next "
+                    + TimeUnit.NANOSECONDS.toMillis(retryNanos) + " ms: " + sqle.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (DataSource replica : replicas) {
+            if (replica instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
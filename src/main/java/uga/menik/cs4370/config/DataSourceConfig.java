@@ -0,0 +1,81 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import uga.menik.cs4370.components.InstrumentedDataSource;
+import uga.menik.cs4370.components.ReadYourWrites;
+import uga.menik.cs4370.components.ReplicaRoutingDataSource;
+
+/**
+ * Creates the DataSource of the primary database from the spring.datasource
+ * properties, as Spring Boot would, and a second one named readDataSource
+ * that spreads read-only queries over the read replicas listed in
+ * app.datasource.replica-urls. Services inject readDataSource with
+ * @Qualifier for the queries that may read slightly stale data; everything
+ * else, and every write, uses the primary.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Replica URLs are separated by spaces, since JDBC URLs may contain
+     * commas. Replicas use the username, password and driver of the primary,
+     * and its spring.datasource.hikari settings, except that they wait at
+     * most app.datasource.replica-connection-timeout-ms for a connection.
+     */
+    @Bean
+    public DataSource readDataSource(@Qualifier("dataSource") DataSource primary, DataSourceProperties properties,
+            Environment environment,
+            @Value("${app.datasource.replica-urls:}") String replicaUrls,
+            @Value("${app.datasource.replica-connection-timeout-ms:1000}") long replicaConnectionTimeoutMs,
+            @Value("${app.datasource.replica-retry-ms:30000}") long replicaRetryMs,
+            ReadYourWrites readYourWrites) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls.trim().split("\\s+")) {
+            if (url.isEmpty()) {
+                continue;
+            }
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replica.setConnectionTimeout(replicaConnectionTimeoutMs);
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        // Statements are already timed by the instrumentation of this DataSource.
+        DataSource target = primary instanceof InstrumentedDataSource instrumented
+                ? instrumented.getDelegate() : primary;
+        return new ReplicaRoutingDataSource(target, replicas, readYourWrites, replicaRetryMs);
+    }
+}
@@ -0,0 +1,41 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import uga.menik.cs4370.components.InstrumentedDataSource;
+import uga.menik.cs4370.components.JdbcMetrics;
+
+/**
+ * Replaces the DataSource that Spring Boot creates with one that records
+ * JdbcMetrics, before it is injected into any service or controller.
+ */
+@Configuration
+public class JdbcInstrumentationConfig {
+
+    /**
+     * Bean post processors are created before other beans, so this one is
+     * static and looks up JdbcMetrics only when the DataSource is created.
+     */
+    @Bean
+    public static BeanPostProcessor dataSourceInstrumenter(ObjectProvider<JdbcMetrics> metrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof InstrumentedDataSource)) {
+                    return new InstrumentedDataSource(dataSource, metrics.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
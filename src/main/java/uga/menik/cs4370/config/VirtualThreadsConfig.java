@@ -0,0 +1,44 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.config;
+
+import java.util.concurrent.ExecutorService;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import uga.menik.cs4370.utility.VirtualThreads;
+
+/**
+ * Lets Tomcat handle each request on its own virtual thread instead of on
+ * its pool of worker threads, when app.execution.virtual-threads is true and
+ * the app runs on Java 21 or later. Requests then wait on the database
+ * without holding a platform thread, and the database pool, not the thread
+ * pool, limits how many queries run at once.
+ */
+@Configuration
+public class VirtualThreadsConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsCustomizer(
+            @Value("${app.execution.virtual-threads:false}") boolean isEnabled) {
+        return protocolHandler -> {
+            if (!isEnabled) {
+                return;
+            }
+            ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor();
+            if (executor == null) {
+                System.out.println("Virtual threads need Java 21 or later."
+                        + " Requests are handled by Tomcat's worker threads.");
+                return;
+            }
+            protocolHandler.setExecutor(executor);
+            System.out.println("Requests are handled on virtual threads.");
+        };
+    }
+}
@@ -11,6 +11,8 @@ import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import uga.menik.cs4370.components.AuthInterceptor;
+import uga.menik.cs4370.components.JdbcMetricsInterceptor;
+import uga.menik.cs4370.components.RateLimitInterceptor;
 
 /**
  * This is a configuration class. See comments in AuthInterceptor.java
@@ -22,13 +24,22 @@ public class WebConfig implements WebMvcConfigurer {
     // This is an object that allows redirection if user is logged in.
     private final AuthInterceptor authInterceptor;
 
+    // This tags database statements with the endpoint that ran them.
+    private final JdbcMetricsInterceptor jdbcMetricsInterceptor;
+
+    // This turns away users who write faster than their limit.
+    private final RateLimitInterceptor rateLimitInterceptor;
+
     /**
      * An AuthInterceptor will be initialized and provided
      * when a WebConfig is initalized by Spring Boot.
      */
     @Autowired
-    public WebConfig(AuthInterceptor authInterceptor) {
+    public WebConfig(AuthInterceptor authInterceptor, JdbcMetricsInterceptor jdbcMetricsInterceptor,
+            RateLimitInterceptor rateLimitInterceptor) {
         this.authInterceptor = authInterceptor;
+        this.jdbcMetricsInterceptor = jdbcMetricsInterceptor;
+        this.rateLimitInterceptor = rateLimitInterceptor;
     }
 
     /**
@@ -37,6 +48,10 @@ public class WebConfig implements WebMvcConfigurer {
      */
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        // Registered first so that it sees every request, including redirected ones.
+        registry.addInterceptor(jdbcMetricsInterceptor)
+                .excludePathPatterns("/css/**")
+                .excludePathPatterns("/js/**");
         registry.addInterceptor(authInterceptor)
                 // Apply to all paths.
                 .addPathPatterns("/**")
@@ -45,6 +60,11 @@ public class WebConfig implements WebMvcConfigurer {
                 .excludePathPatterns("/register")
                 .excludePathPatterns("/css/**")
                 .excludePathPatterns("/js/**");
+        // Registered after authInterceptor so that the user is known.
+        // It only limits the write endpoints it has a policy for.
+        registry.addInterceptor(rateLimitInterceptor)
+                .excludePathPatterns("/css/**")
+                .excludePathPatterns("/js/**");
     }
 
 }
@@ -5,16 +5,22 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.cs4370.controllers;
 
+import java.sql.SQLException;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
+import uga.menik.cs4370.models.Page;
+import uga.menik.cs4370.models.PageCursor;
 import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.models.User;
 import uga.menik.cs4370.services.PostService;
+import uga.menik.cs4370.services.UserService;
 
 /**
  * Handles /bookmarks and its sub URLs.
@@ -30,15 +36,38 @@ public class BookmarksController {
     @Autowired
     private PostService postService;
 
+    @Autowired
+    private UserService userService;
+
     /**
      * /bookmarks URL itself is handled by this.
+     * Bookmarked posts are shown one page at a time, newest post first.
+     * The optional cursor parameter selects which page to show.
      */
     @GetMapping
-    public ModelAndView webpage() {
+    public ModelAndView webpage(@RequestParam(name = "cursor", required = false) String cursor) {
         ModelAndView mv = new ModelAndView("posts_page");
-        List<Post> posts = postService.getBookmarkedPosts();
+        User loggedInUser = userService.getLoggedInUser();
+        if (loggedInUser == null) {
+            return new ModelAndView("redirect:/login");
+        }
+
+        // An invalid cursor simply shows the first page.
+        Page<Post> page;
+        try {
+            page = postService.getBookmarkedPosts(loggedInUser.getUserId(), PageCursor.parse(cursor),
+                    PostService.POSTS_PAGE_SIZE);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            mv.addObject("errorMessage", "Failed to fetch bookmarks. Please try again.");
+            return mv;
+        }
+        List<Post> posts = page.getItems();
 
         mv.addObject("posts", posts);
+        if (page.hasMore()) {
+            mv.addObject("nextPageUrl", "/bookmarks?cursor=" + page.getNextCursor().encode());
+        }
         if (posts.isEmpty()) {
             mv.addObject("isNoContent", true);
         }
@@ -0,0 +1,168 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.controllers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import jakarta.servlet.http.HttpServletRequest;
+import uga.menik.cs4370.services.ExportService;
+
+/**
+ * Handles /api/export/{table}, which streams the posts, comments, hearts,
+ * hashtags or follows as newline-delimited JSON for the analytics dumps.
+ * The response is gzipped when the client accepts it.
+ *
+ * Each response holds at most app.export.max-rows rows, in primary key
+ * order; the X-Export-Key header names the key columns. To continue, or
+ * to resume a dump that was cut off, request again with after set to the
+ * key of the last complete line, its values separated by commas.
+ * At most app.export.max-concurrent exports run at once, since each keeps
+ * a database connection for as long as it runs; others get 429. A permit is
+ * taken before the response starts, so that 429 can still be sent, and is
+ * given back when the export ends, or when the async request completes
+ * without it having run, for example after a timeout.
+ */
+@Controller
+@RequestMapping("/api/export")
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    // States of an export's permit.
+    private static final int HELD = 0;
+    private static final int RUNNING = 1;
+    private static final int RELEASED = 2;
+
+    private final ExportService exportService;
+    private final long maxRows;
+    private final Semaphore running;
+
+    @Autowired
+    public ExportController(ExportService exportService,
+            @Value("${app.export.max-rows:1000000}") long maxRows,
+            @Value("${app.export.max-concurrent:2}") int maxConcurrent) {
+        this.exportService = exportService;
+        this.maxRows = maxRows;
+        this.running = new Semaphore(maxConcurrent);
+    }
+
+    @GetMapping("/{table}")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable("table") String table,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", required = false) Long limit,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request) {
+        if (!exportService.getTables().contains(table)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Exports are " + String.join(", ", exportService.getTables()) + ".");
+        }
+        exportService.checkCheckpoint(table, after);
+        long rows = limit == null ? maxRows : Math.max(0, Math.min(limit, maxRows));
+        boolean isGzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        if (!running.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Too many exports are running. Please try again later.");
+        }
+        // HELD until the body starts, which then releases the permit itself.
+        AtomicInteger permit = new AtomicInteger(HELD);
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ExportController.class,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        if (permit.compareAndSet(HELD, RELEASED)) {
+                            running.release();
+                        }
+                    }
+                });
+        StreamingResponseBody body = out -> {
+            if (!permit.compareAndSet(HELD, RUNNING)) {
+                // The request already ended, and gave the permit back.
+                return;
+            }
+            try {
+                write(table, after, rows, isGzip, out);
+            } finally {
+                permit.set(RELEASED);
+                running.release();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header("X-Export-Key", String.join(",", exportService.getKeyColumns(table)))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (isGzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Answers a malformed checkpoint.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Answers an unknown table, or too many exports at once, before any
+     * row is sent.
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, Object>> refused(ResponseStatusException e) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(e.getStatusCode());
+        if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+            response.header(HttpHeaders.RETRY_AFTER, "60");
+        }
+        return response.body(Map.of("error", e.getReason()));
+    }
+
+    private void write(String table, String after, long rows, boolean isGzip, OutputStream out)
+            throws IOException {
+        try {
+            if (isGzip) {
+                GZIPOutputStream gzip = new GZIPOutputStream(out, 8192);
+                exportService.export(table, after, rows, gzip);
+                gzip.finish();
+            } else {
+                exportService.export(table, after, rows, out);
+            }
+        } catch (SQLException sqle) {
+            // The status is already sent, so the dump is cut off instead; the
+            // client resumes from its last complete line.
+            sqle.printStackTrace();
+            throw new IOException("The export of " + table + " failed.", sqle);
+        }
+    }
+}
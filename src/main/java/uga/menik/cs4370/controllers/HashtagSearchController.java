@@ -10,8 +10,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.sql.DataSource;
 
@@ -23,6 +26,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
 import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.services.HashtagIndexService;
 import uga.menik.cs4370.services.PostService;
 
 /**
@@ -32,13 +36,21 @@ import uga.menik.cs4370.services.PostService;
 @RequestMapping("/hashtagsearch")
 public class HashtagSearchController {
 
+    /**
+     * Maximum number of posts shown for a search.
+     */
+    private static final int SEARCH_LIMIT = 50;
+
     private final DataSource dataSource;
     private final PostService postService;
+    private final HashtagIndexService hashtagIndexService;
 
     @Autowired
-    public HashtagSearchController(DataSource dataSource, PostService postService) {
+    public HashtagSearchController(DataSource dataSource, PostService postService,
+            HashtagIndexService hashtagIndexService) {
         this.dataSource = dataSource;
         this.postService = postService;
+        this.hashtagIndexService = hashtagIndexService;
     }
 
     /**
@@ -47,43 +59,39 @@ public class HashtagSearchController {
      * something like below:
      * http://localhost:8081/hashtagsearch?hashtags=%23amazing+%23fireworks
      * Note: the value of the hashtags is URL encoded.
+     * Shows the newest posts that have every one of the hashtags.
      */
     @GetMapping
     public ModelAndView webpage(@RequestParam(name = "hashtags") String hashtags) {
         System.out.println("User is searching: " + hashtags);
-        final String queryString = "SELECT h.postId"
-                + " FROM hashtag h, post p"
-                + " WHERE h.postId = p.postId"
-                + " AND h.hashTag IN (<PLACEHOLDER>)"
-                + " GROUP BY h.postId"
-                + " HAVING COUNT(h.hashTag) = ?";
 
         // See notes on ModelAndView in BookmarksController.java.
         ModelAndView mv = new ModelAndView("posts_page");
 
-        String[] hashTagsList = hashtags.split(" ");
-        for (int i = 0; i < hashTagsList.length; i++) {
-            if (hashTagsList[i].startsWith("#")) {
-                hashTagsList[i] = hashTagsList[i].substring(1);
+        Set<String> hashTagsList = new LinkedHashSet<>();
+        for (String hashTag : hashtags.trim().split("\\s+")) {
+            if (hashTag.startsWith("#")) {
+                hashTag = hashTag.substring(1);
+            }
+            if (!hashTag.isEmpty()) {
+                hashTagsList.add(hashTag);
             }
         }
+        if (hashTagsList.isEmpty()) {
+            mv.addObject("isNoContent", true);
+            return mv;
+        }
 
-        // ... AND h.hashTag IN (?, ?, ...) GROUP BY ...
-        // Create a string in this format with as many question marks as there are hash tags
-        final String placeholderString = queryString.replace("<PLACEHOLDER>",
-                String.join(",", Collections.nCopies(hashTagsList.length, "?")));
-
-        try (Connection connection = dataSource.getConnection()) {
-            PreparedStatement statement = connection.prepareStatement(placeholderString);
-            for (int i = 0; i < hashTagsList.length; i++) {
-                statement.setString(i + 1, hashTagsList[i]);
-            }
-            statement.setInt(hashTagsList.length + 1, hashTagsList.length);
-			System.out.println(statement.toString());
-            ResultSet results = statement.executeQuery();
+        try {
+            // The in-memory index answers the search unless it is still loading.
+            int[] indexedPostIds = hashtagIndexService.search(hashTagsList, SEARCH_LIMIT);
             List<Integer> postIds = new ArrayList<>();
-            while (results.next()) {
-                postIds.add(results.getInt(1));
+            if (indexedPostIds != null) {
+                for (int postId : indexedPostIds) {
+                    postIds.add(postId);
+                }
+            } else {
+                postIds = searchDatabase(hashTagsList);
             }
 
             List<Post> posts = postService.getPostsFromIds(postIds);
@@ -101,4 +109,40 @@ public class HashtagSearchController {
 
         return mv;
     }
+
+    /**
+     * Finds the newest posts having all of the given hashtags with a query.
+     * Used while the hashtag index is loading.
+     */
+    private List<Integer> searchDatabase(Collection<String> hashTagsList) throws SQLException {
+        final String queryString = "SELECT h.postId"
+                + " FROM hashtag h"
+                + " WHERE h.hashTag IN (<PLACEHOLDER>)"
+                + " GROUP BY h.postId"
+                + " HAVING COUNT(h.hashTag) = ?"
+                + " ORDER BY h.postId DESC"
+                + " LIMIT ?";
+
+        // ... AND h.hashTag IN (?, ?, ...) GROUP BY ...
+        // Create a string in this format with as many question marks as there are hash tags
+        final String placeholderString = queryString.replace("<PLACEHOLDER>",
+                String.join(",", Collections.nCopies(hashTagsList.size(), "?")));
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(placeholderString)) {
+            int index = 1;
+            for (String hashTag : hashTagsList) {
+                statement.setString(index++, hashTag);
+            }
+            statement.setInt(index++, hashTagsList.size());
+            statement.setInt(index, SEARCH_LIMIT);
+            List<Integer> postIds = new ArrayList<>();
+            try (ResultSet results = statement.executeQuery()) {
+                while (results.next()) {
+                    postIds.add(results.getInt(1));
+                }
+            }
+            return postIds;
+        }
+    }
 }
@@ -7,19 +7,8 @@ package uga.menik.cs4370.controllers;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
-import java.sql.Timestamp;
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -29,10 +18,16 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
+import uga.menik.cs4370.components.ReadYourWrites;
+import uga.menik.cs4370.models.Page;
+import uga.menik.cs4370.models.PageCursor;
 import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.models.TrendingHashtag;
 import uga.menik.cs4370.models.User;
+import uga.menik.cs4370.services.FeedService;
+import uga.menik.cs4370.services.PostCreationService;
+import uga.menik.cs4370.services.TrendingService;
 import uga.menik.cs4370.services.UserService;
-import uga.menik.cs4370.utility.Utility;
 
 /**
  * This controller handles the home page and some of it's sub URLs.
@@ -41,19 +36,33 @@ import uga.menik.cs4370.utility.Utility;
 @RequestMapping
 public class HomeController {
 
-    /** A regular expression that matches a valid hashtag */
-    private final Pattern hashTagPattern = Pattern.compile("\\B#([\\w-]+)");
-
-    /** The connector to the database. */
-    private final DataSource dataSource;
+    /** Number of trending hashtags shown for each time window. */
+    private static final int TRENDING_SIZE = 5;
 
     /** For accessing the logged-in user. */
     private final UserService userService;
 
+    /** For building pages of the home feed. */
+    private final FeedService feedService;
+
+    /** For creating posts along with their hashtags. */
+    private final PostCreationService postCreationService;
+
+    /** For showing the trending hashtags. */
+    private final TrendingService trendingService;
+
+    // Keeps the user's reads on the primary after they post.
+    private final ReadYourWrites readYourWrites;
+
     @Autowired
-    public HomeController(DataSource dataSource, UserService userService) {
-        this.dataSource = dataSource;
+    public HomeController(UserService userService, FeedService feedService,
+            PostCreationService postCreationService, TrendingService trendingService,
+            ReadYourWrites readYourWrites) {
         this.userService = userService;
+        this.feedService = feedService;
+        this.postCreationService = postCreationService;
+        this.trendingService = trendingService;
+        this.readYourWrites = readYourWrites;
     }
 
     /**
@@ -62,9 +71,12 @@ public class HomeController {
      * Note that this accepts a URL parameter called error.
      * The value to this parameter can be shown to the user as an error message.
      * See notes in HashtagSearchController.java regarding URL parameters.
+     * The optional cursor parameter selects which page of the feed to show.
+     * It comes from the "load more" link at the bottom of the previous page.
      */
     @GetMapping
-    public ModelAndView webpage(@RequestParam(name = "error", required = false) String error) {
+    public ModelAndView webpage(@RequestParam(name = "error", required = false) String error,
+            @RequestParam(name = "cursor", required = false) String cursor) {
         ModelAndView mv = new ModelAndView("home_page");
 
         // Get the logged-in user's ID
@@ -73,53 +85,35 @@ public class HomeController {
             // Redirect to login if the user is not logged in
             return new ModelAndView("redirect:/login");
         }
-        String loggedInUserId = loggedInUser.getUserId();
-
-        // Fetch posts from users that the logged-in user follows
-        List<Post> posts = new ArrayList<>();
-        String sql = "SELECT p.postId, p.postText, p.postDate, p.userId, "
-                + "u.firstName, u.lastName "
-                + "FROM post p "
-                + "JOIN follow f ON p.userId = f.followeeUserId "
-                + "JOIN user u ON p.userId = u.userId "
-                + "WHERE f.followerUserId = ? "
-                + "ORDER BY p.postDate DESC";
-
-        try (Connection conn = dataSource.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, Integer.parseInt(loggedInUserId));
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String postId = rs.getString("postId");
-                    String postText = rs.getString("postText");
-                    String postDate = Utility.formatDateTime(rs.getTimestamp("postDate"));
-                    String userId = rs.getString("userId");
-                    String firstName = rs.getString("firstName");
-                    String lastName = rs.getString("lastName");
-
-                    // Fetch user details
-                    User user = new User(userId, firstName, lastName);
-
-                    // Fetch additional post details (hearts, comments, etc.)
-                    int heartsCount = getHeartsCount(postId); // Implement this method
-                    int commentsCount = getCommentsCount(postId); // Implement this method
-                    boolean isHearted = isPostHeartedByUser(postId, loggedInUserId); // Implement this method
-                    boolean isBookmarked = isPostBookmarkedByUser(postId, loggedInUserId); // Implement this method
-
-                    // Create a Post object
-                    Post post = new Post(postId, postText, postDate, user, heartsCount, commentsCount, isHearted, isBookmarked);
-                    posts.add(post);
-                }
-            }
+        int loggedInUserId = loggedInUser.getUserId();
+
+        // Fetch one page of posts from users that the logged-in user follows.
+        // An invalid cursor simply shows the first page.
+        Page<Post> page;
+        try {
+            page = feedService.getFeedPage(loggedInUserId, PageCursor.parse(cursor), FeedService.PAGE_SIZE);
         } catch (SQLException e) {
             e.printStackTrace();
             String message = URLEncoder.encode("Failed to fetch posts. Please try again.", StandardCharsets.UTF_8);
             return new ModelAndView("redirect:/?error=" + message);
         }
+        List<Post> posts = page.getItems();
 
         // Add posts to the ModelAndView
         mv.addObject("posts", posts);
 
+        // Link to the next page of the feed if there is one.
+        if (page.hasMore()) {
+            mv.addObject("nextPageUrl", "/?cursor=" + page.getNextCursor().encode());
+        }
+
+        // Show the trending hashtags next to the feed.
+        List<TrendingHashtag> trendingLastHour = trendingService.getTrendingLastHour(TRENDING_SIZE);
+        List<TrendingHashtag> trendingLastDay = trendingService.getTrendingLastDay(TRENDING_SIZE);
+        mv.addObject("trendingLastHour", trendingLastHour);
+        mv.addObject("trendingLastDay", trendingLastDay);
+        mv.addObject("isTrending", !trendingLastHour.isEmpty() || !trendingLastDay.isEmpty());
+
         // Add error message if any
         mv.addObject("errorMessage", error);
 
@@ -142,14 +136,6 @@ public class HomeController {
     @PostMapping("/createpost")
     public String createPost(@RequestParam(name = "posttext") String postText) {
         System.out.println("User is creating post: " + postText);
-        final String createPostStatementString = "INSERT INTO post (userId, postDate, postText) VALUES (?, ?, ?)";
-        final String createHashtagStatementString = "INSERT INTO hashtag (hashTag, postId) VALUES (?, ?)";
-
-        if (postText.isBlank()) {
-            final String blankErrorMessage = URLEncoder.encode("Cannot create blank posts.",
-                    StandardCharsets.UTF_8);
-            return "redirect:/?error=" + blankErrorMessage;
-        }
 
         if (!userService.isAuthenticated()) {
             final String message = URLEncoder.encode("Must be logged in to create posts. Please log in.",
@@ -157,92 +143,20 @@ public class HomeController {
             return "redirect:/?error=" + message;
         }
 
-        final User user = userService.getLoggedInUser();
-        try (final Connection connection = dataSource.getConnection()) {
-            final PreparedStatement createPostStatement = connection.prepareStatement(createPostStatementString, Statement.RETURN_GENERATED_KEYS);
-            createPostStatement.setString(1, user.getUserId());
-            createPostStatement.setTimestamp(2, new Timestamp(new java.util.Date().getTime()));
-            createPostStatement.setString(3, postText);
-            createPostStatement.execute(); // Throws on error
-
-            // Get the ID of the post we just made
-            final ResultSet addedRows = createPostStatement.getGeneratedKeys();
-            if (!addedRows.next()) {
-                // Exit try block
-                throw new Exception();
-            }
-
-            final int postId = addedRows.getInt(1);
-            final Matcher hashTagMatcher = hashTagPattern.matcher(postText);
-            final PreparedStatement createHashtagStatement = connection.prepareStatement(createHashtagStatementString);
-            final HashSet<String> addedHashTags = new HashSet<>();
-            createHashtagStatement.setInt(2, postId);
-            while (hashTagMatcher.find()) {
-                final String hashTagName = hashTagMatcher.group(1);
-                if (addedHashTags.add(hashTagName)) {
-                    createHashtagStatement.setString(1, hashTagName);
-                    createHashtagStatement.executeUpdate();
-                }
-            }
+        try {
+            postCreationService.createPost(userService.getLoggedInUser().getUserId(), postText);
+            readYourWrites.pin();
 
             // Redirect the user if the post creation is a success.
             return "redirect:/";
-
-        } catch (Exception e) {
-            System.out.println("Exception in /createpost: " + e.toString());
-            // Fall out of the try block to the error return.
+        } catch (IllegalArgumentException iae) {
+            return "redirect:/?error=" + URLEncoder.encode(iae.getMessage(), StandardCharsets.UTF_8);
+        } catch (SQLException sqle) {
+            System.out.println("Exception in /createpost: " + sqle.toString());
         }
 
         final String message = URLEncoder.encode("Failed to create the post. Please try again.",
                 StandardCharsets.UTF_8);
         return "redirect:/?error=" + message;
     }
-
-    private int getHeartsCount(String postId) throws SQLException {
-        String sql = "SELECT COUNT(*) AS heartsCount FROM heart WHERE postId = ?";
-        try (Connection conn = dataSource.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, postId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("heartsCount");
-                }
-            }
-        }
-        return 0;
-    }
-
-    private int getCommentsCount(String postId) throws SQLException {
-        String sql = "SELECT COUNT(*) AS commentsCount FROM comment WHERE postId = ?";
-        try (Connection conn = dataSource.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, postId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("commentsCount");
-                }
-            }
-        }
-        return 0;
-    }
-
-    private boolean isPostHeartedByUser(String postId, String userId) throws SQLException {
-        String sql = "SELECT 1 FROM heart WHERE postId = ? AND userId = ?";
-        try (Connection conn = dataSource.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, postId);
-            pstmt.setString(2, userId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next();
-            }
-        }
-    }
-
-    private boolean isPostBookmarkedByUser(String postId, String userId) throws SQLException {
-        String sql = "SELECT 1 FROM bookmark WHERE postId = ? AND userId = ?";
-        try (Connection conn = dataSource.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, postId);
-            pstmt.setString(2, userId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next();
-            }
-        }
-    }
 }
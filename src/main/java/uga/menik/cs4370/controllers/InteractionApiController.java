@@ -0,0 +1,139 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.controllers;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import uga.menik.cs4370.components.ReadYourWrites;
+import uga.menik.cs4370.services.InteractionService;
+import uga.menik.cs4370.services.UserService;
+
+/**
+ * Handles /api URLs, which heart, bookmark and follow without rendering a
+ * page. POST adds the interaction and DELETE removes it, and both answer
+ * with the new state as JSON so that main.js can update the page in place.
+ * Repeating a request leaves the state as it is.
+ */
+@Controller
+@RequestMapping("/api")
+@ResponseBody
+public class InteractionApiController {
+
+    private final UserService userService;
+    private final InteractionService interactionService;
+    private final ReadYourWrites readYourWrites;
+
+    @Autowired
+    public InteractionApiController(UserService userService, InteractionService interactionService,
+            ReadYourWrites readYourWrites) {
+        this.userService = userService;
+        this.interactionService = interactionService;
+        this.readYourWrites = readYourWrites;
+    }
+
+    @PostMapping("/posts/{postId}/heart")
+    public Map<String, Object> heart(@PathVariable("postId") int postId) throws SQLException {
+        return setHeart(postId, true);
+    }
+
+    @DeleteMapping("/posts/{postId}/heart")
+    public Map<String, Object> unheart(@PathVariable("postId") int postId) throws SQLException {
+        return setHeart(postId, false);
+    }
+
+    @PostMapping("/posts/{postId}/bookmark")
+    public Map<String, Object> bookmark(@PathVariable("postId") int postId) throws SQLException {
+        return setBookmark(postId, true);
+    }
+
+    @DeleteMapping("/posts/{postId}/bookmark")
+    public Map<String, Object> unbookmark(@PathVariable("postId") int postId) throws SQLException {
+        return setBookmark(postId, false);
+    }
+
+    @PostMapping("/users/{userId}/follow")
+    public Map<String, Object> follow(@PathVariable("userId") int userId) throws SQLException {
+        return setFollow(userId, true);
+    }
+
+    @DeleteMapping("/users/{userId}/follow")
+    public Map<String, Object> unfollow(@PathVariable("userId") int userId) throws SQLException {
+        return setFollow(userId, false);
+    }
+
+    /**
+     * Answers requests for a post or user that does not exist with the
+     * reason, instead of a state that was never written.
+     */
+    @ExceptionHandler(NoSuchElementException.class)
+    public ResponseEntity<Map<String, Object>> notFound(NoSuchElementException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Answers requests that are not allowed with the reason.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(SQLException.class)
+    public ResponseEntity<Map<String, Object>> databaseError(SQLException e) {
+        e.printStackTrace();
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "The database could not be updated. Please try again."));
+    }
+
+    private Map<String, Object> setHeart(int postId, boolean isHearted) throws SQLException {
+        int heartsCount = interactionService.setHeart(postId, loggedInUserId(), isHearted);
+        readYourWrites.pin();
+
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("postId", postId);
+        state.put("hearted", isHearted);
+        state.put("heartsCount", heartsCount);
+        return state;
+    }
+
+    private Map<String, Object> setBookmark(int postId, boolean isBookmarked) throws SQLException {
+        interactionService.setBookmark(postId, loggedInUserId(), isBookmarked);
+        readYourWrites.pin();
+
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("postId", postId);
+        state.put("bookmarked", isBookmarked);
+        return state;
+    }
+
+    private Map<String, Object> setFollow(int userId, boolean isFollowed) throws SQLException {
+        interactionService.setFollow(loggedInUserId(), userId, isFollowed);
+        readYourWrites.pin();
+
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("userId", userId);
+        state.put("followed", isFollowed);
+        return state;
+    }
+
+    private int loggedInUserId() {
+        return userService.getLoggedInUser().getUserId();
+    }
+}
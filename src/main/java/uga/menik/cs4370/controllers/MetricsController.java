@@ -0,0 +1,102 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.controllers;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.servlet.http.HttpServletRequest;
+import uga.menik.cs4370.components.EventBus;
+import uga.menik.cs4370.components.JdbcMetrics;
+import uga.menik.cs4370.components.OutboxRelay;
+import uga.menik.cs4370.components.RateLimitInterceptor;
+
+/**
+ * Handles /metrics URLs, which show how the application is performing.
+ * They are off unless app.metrics.enabled is set, and even then only
+ * answer requests from the same machine. Any other request gets 404, as
+ * if the URLs did not exist.
+ */
+@Controller
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    private final JdbcMetrics jdbcMetrics;
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final OutboxRelay outboxRelay;
+    private final EventBus eventBus;
+    private final boolean isEnabled;
+
+    @Autowired
+    public MetricsController(JdbcMetrics jdbcMetrics, RateLimitInterceptor rateLimitInterceptor,
+            OutboxRelay outboxRelay, EventBus eventBus,
+            @Value("${app.metrics.enabled:false}") boolean isEnabled) {
+        this.jdbcMetrics = jdbcMetrics;
+        this.rateLimitInterceptor = rateLimitInterceptor;
+        this.outboxRelay = outboxRelay;
+        this.eventBus = eventBus;
+        this.isEnabled = isEnabled;
+    }
+
+    /**
+     * Shows database statement and connection pool metrics as plain text.
+     */
+    @GetMapping(value = "/jdbc", produces = MediaType.TEXT_PLAIN_VALUE)
+    @ResponseBody
+    public String jdbc(HttpServletRequest request) {
+        checkAccess(request);
+        return jdbcMetrics.report();
+    }
+
+    /**
+     * Shows the rate limits and how many requests they turned away as plain text.
+     */
+    @GetMapping(value = "/ratelimit", produces = MediaType.TEXT_PLAIN_VALUE)
+    @ResponseBody
+    public String rateLimit(HttpServletRequest request) {
+        checkAccess(request);
+        return rateLimitInterceptor.report();
+    }
+
+    /**
+     * Shows how far the outbox relay and each event consumer have got as plain text.
+     */
+    @GetMapping(value = "/outbox", produces = MediaType.TEXT_PLAIN_VALUE)
+    @ResponseBody
+    public String outbox(HttpServletRequest request) {
+        checkAccess(request);
+        return outboxRelay.report() + "\n" + eventBus.report();
+    }
+
+    /**
+     * Refuses the request unless metrics are enabled and it comes from the
+     * same machine.
+     */
+    private void checkAccess(HttpServletRequest request) {
+        if (!isEnabled || !isLocal(request.getRemoteAddr())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    private static boolean isLocal(String remoteAddr) {
+        try {
+            // The address is numeric, so this does not look up a host name.
+            return InetAddress.getByName(remoteAddr).isLoopbackAddress();
+        } catch (UnknownHostException uhe) {
+            return false;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -18,7 +19,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
+import uga.menik.cs4370.components.ReadYourWrites;
 import uga.menik.cs4370.models.FollowableUser;
+import uga.menik.cs4370.models.Page;
+import uga.menik.cs4370.services.InteractionService;
 import uga.menik.cs4370.services.PeopleService;
 import uga.menik.cs4370.services.UserService;
 
@@ -31,35 +35,66 @@ public class PeopleController {
 
     private final UserService userService;
     private final PeopleService peopleService;
+    private final InteractionService interactionService;
+    private final ReadYourWrites readYourWrites;
 
     // Inject UserService and PeopleService instances.
     // See LoginController.java to see how to do this.
     // Hint: Add a constructor with @Autowired annotation.
     @Autowired
-    public PeopleController(UserService userService, PeopleService peopleService) {
+    public PeopleController(UserService userService, PeopleService peopleService,
+            InteractionService interactionService, ReadYourWrites readYourWrites) {
         this.userService = userService;
         this.peopleService = peopleService;
+        this.interactionService = interactionService;
+        this.readYourWrites = readYourWrites;
     }
 
+    /**
+     * Number of users shown per page of the directory.
+     */
+    private static final int PAGE_SIZE = 50;
+
     /**
      * Serves the /people web page.
      * 
      * Note that this accepts a URL parameter called error.
      * The value to this parameter can be shown to the user as an error message.
      * See notes in HashtagSearchController.java regarding URL parameters.
+     * The optional q parameter filters the directory to users whose username
+     * or name starts with it, and the optional after parameter selects the
+     * page that starts after the given userId.
      */
     @GetMapping
-    public ModelAndView webpage(@RequestParam(name = "error", required = false) String error) {
+    public ModelAndView webpage(@RequestParam(name = "error", required = false) String error,
+            @RequestParam(name = "q", required = false) String query,
+            @RequestParam(name = "after", required = false, defaultValue = "0") int afterUserId) {
         ModelAndView mv = new ModelAndView("people_page");
 
-        String loggedInUserId = userService.getLoggedInUser() != null ? userService.getLoggedInUser().getUserId() : "-1";
-        List<FollowableUser> followableUsers = peopleService.getFollowableUsers(loggedInUserId);
+        int loggedInUserId = userService.getLoggedInUser() != null ? userService.getLoggedInUser().getUserId() : -1;
+        Page<FollowableUser> page;
+        try {
+            page = peopleService.getFollowableUsers(loggedInUserId, query, afterUserId, PAGE_SIZE);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            page = new Page<>(List.of(), null);
+            error = "Failed to load people. Please try again.";
+        }
+        List<FollowableUser> followableUsers = page.getItems();
 
         mv.addObject("users", followableUsers);
+        mv.addObject("query", query);
         mv.addObject("errorMessage", error);
         if (followableUsers.isEmpty()) {
             mv.addObject("isNoContent", true);
         }
+        if (page.hasMore()) {
+            String nextPageUrl = "/people?after=" + page.getNextCursor().getId();
+            if (query != null && !query.isBlank()) {
+                nextPageUrl += "&q=" + URLEncoder.encode(query, StandardCharsets.UTF_8);
+            }
+            mv.addObject("nextPageUrl", nextPageUrl);
+        }
 
         return mv;
     }
@@ -75,17 +110,18 @@ public class PeopleController {
      * The above URL assigns 1 to userId and false to isFollow.
      */
     @GetMapping("{userId}/follow/{isFollow}")
-    public String followUnfollowUser(@PathVariable("userId") String userId, @PathVariable("isFollow") Boolean isFollow) {
+    public String followUnfollowUser(@PathVariable("userId") int userId, @PathVariable("isFollow") Boolean isFollow) {
         System.out.println("User is attempting to follow/unfollow a user:");
         System.out.println("\tTarget userId: " + userId);
         System.out.println("\tisFollow: " + isFollow);
 
         try {
-            String loggedInUserId = userService.getLoggedInUser().getUserId();
+            int loggedInUserId = userService.getLoggedInUser().getUserId();
             System.out.println("\tLogged-in userId: " + loggedInUserId);
-            userService.toggleFollowUser(loggedInUserId, userId);
+            interactionService.setFollow(loggedInUserId, userId, isFollow);
+            readYourWrites.pin();
             return "redirect:/people";
-        } catch (SQLException e) {
+        } catch (IllegalArgumentException | NoSuchElementException | SQLException e) {
             e.printStackTrace();
 
             String message = URLEncoder.encode("Failed to (un)follow the user. Please try again.", StandardCharsets.UTF_8);
@@ -7,13 +7,9 @@ package uga.menik.cs4370.controllers;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
-
-import javax.sql.DataSource;
+import java.util.NoSuchElementException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -24,7 +20,12 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
+import uga.menik.cs4370.components.ReadYourWrites;
+import uga.menik.cs4370.models.Comment;
 import uga.menik.cs4370.models.ExpandedPost;
+import uga.menik.cs4370.models.Page;
+import uga.menik.cs4370.models.PageCursor;
+import uga.menik.cs4370.services.InteractionService;
 import uga.menik.cs4370.services.PostService;
 import uga.menik.cs4370.services.UserService;
 
@@ -39,10 +40,13 @@ public class PostController {
     private UserService userService;
 
     @Autowired
-    private DataSource dataSource;
+    private PostService postService;
 
     @Autowired
-    private PostService postService;
+    private InteractionService interactionService;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
 
     /**
      * Handles the /post/{postId} URL to display a specific post.
@@ -54,13 +58,45 @@ public class PostController {
         ModelAndView mv = new ModelAndView("posts_page");
 
         Integer postIdInt = Integer.valueOf(postId);
-        List<ExpandedPost> posts = postService.getExpandedPostsByIds(List.of(postIdInt));
+        try {
+            List<ExpandedPost> posts = postService.getExpandedPostsByIds(List.of(postIdInt));
+            mv.addObject("posts", posts);
+        } catch (SQLException sqle) {
+            sqle.printStackTrace();
+            mv.addObject("errorMessage", "Failed to load the post. Please try again.");
+            return mv;
+        }
 
-        mv.addObject("posts", posts);
         mv.addObject("errorMessage", error);
         return mv;
     }
 
+    /**
+     * Handles the /post/{postId}/comments URL.
+     * Renders the next page of comments of a post as a fragment that the
+     * post page appends below the comments it already shows.
+     */
+    @GetMapping("/{postId}/comments")
+    public ModelAndView commentsPage(@PathVariable("postId") String postId,
+            @RequestParam(name = "cursor", required = false) String cursor) {
+        ModelAndView mv = new ModelAndView("fragments/comments_page");
+
+        try {
+            Page<Comment> page = postService.getCommentsPage(Integer.parseInt(postId),
+                    PageCursor.parse(cursor), PostService.COMMENTS_PAGE_SIZE);
+            mv.addObject("comments", page.getItems());
+            if (page.hasMore()) {
+                mv.addObject("nextCommentsUrl",
+                        "/post/" + postId + "/comments?cursor=" + page.getNextCursor().encode());
+            }
+        } catch (NumberFormatException nfe) {
+            System.err.println("Invalid post ID in commentsPage: " + postId);
+        } catch (SQLException sqle) {
+            sqle.printStackTrace();
+        }
+        return mv;
+    }
+
     /**
      * Handles comment creation, mirroring the "Make Post" process.
      */
@@ -73,9 +109,11 @@ public class PostController {
 
         String error = null;
         try {
-            postService.commentOnPost(postId, comment);
+            postService.commentOnPost(Integer.parseInt(postId), comment);
         } catch (UnsupportedOperationException uoe) {
             error = "Must be logged in to comment.";
+        } catch (NumberFormatException nfe) {
+            error = "An error occurred. Please try again.";
         } catch (IllegalArgumentException iae) {
             error = "Cannot create blank comments.";
         } catch (SQLException sqle) {
@@ -83,6 +121,7 @@ public class PostController {
         }
 
         if (error == null) {
+            readYourWrites.pin();
             return "redirect:/post/" + postId;
         } else {
             return "redirect:/post/" + postId + "?error=" + error;
@@ -99,40 +138,15 @@ public class PostController {
         System.out.println("\tpostId: " + postId);
         System.out.println("\tisAdd: " + isAdd);
 
-        try (Connection conn = dataSource.getConnection()) {
-            String loggedInUserId = userService.getLoggedInUser().getUserId();
-
-            if (isAdd) {
-                String checkSql = "SELECT 1 FROM heart WHERE postId = ? AND userId = ?";
-                try (PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-                    checkStmt.setInt(1, Integer.parseInt(postId));
-                    checkStmt.setInt(2, Integer.parseInt(loggedInUserId));
-                    try (ResultSet rs = checkStmt.executeQuery()) {
-                        if (!rs.next()) {
-                            String insertSql = "INSERT INTO heart (postId, userId) VALUES (?, ?)";
-                            try (PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
-                                insertStmt.setInt(1, Integer.parseInt(postId));
-                                insertStmt.setInt(2, Integer.parseInt(loggedInUserId));
-                                insertStmt.executeUpdate();
-                                System.out.println("Successfully liked post with ID: " + postId);
-                            }
-                        } else {
-                            System.out.println("Post already liked; skipping insert.");
-                        }
-                    }
-                }
-            } else {
-                String deleteSql = "DELETE FROM heart WHERE postId = ? AND userId = ?";
-                try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
-                    deleteStmt.setInt(1, Integer.parseInt(postId));
-                    deleteStmt.setInt(2, Integer.parseInt(loggedInUserId));
-                    deleteStmt.executeUpdate();
-                    System.out.println("Successfully unliked post with ID: " + postId);
-                }
-            }
+        try {
+            int loggedInUserId = userService.getLoggedInUser().getUserId();
+            // The heart is written to the database by the next engagement flush.
+            interactionService.setHeart(Integer.parseInt(postId), loggedInUserId, isAdd);
+            readYourWrites.pin();
+            System.out.println("Successfully " + (isAdd ? "liked" : "unliked") + " post with ID: " + postId);
             return "redirect:/post/" + postId;
-        } catch (SQLException e) {
-            System.err.println("SQL Exception in addOrRemoveHeart: " + e.getMessage());
+        } catch (NumberFormatException | NoSuchElementException | SQLException e) {
+            System.err.println("Exception in addOrRemoveHeart: " + e.getMessage());
             return "redirect:/post/" + postId + "?error=" + URLEncoder.encode("Failed to (un)like the post.", StandardCharsets.UTF_8);
         }
     }
@@ -147,44 +161,14 @@ public class PostController {
         System.out.println("\tpostId: " + postId);
         System.out.println("\tisAdd: " + isAdd);
 
-        try (Connection conn = dataSource.getConnection()) {
-            String loggedInUserId = userService.getLoggedInUser().getUserId();
-
-            if (isAdd) {
-
-                String checkSql = "SELECT 1 FROM bookmark WHERE userId = ? AND postId = ?";
-                try (PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-                    checkStmt.setInt(1, Integer.parseInt(loggedInUserId));
-                    checkStmt.setInt(2, Integer.parseInt(postId));
-
-                    try (ResultSet rs = checkStmt.executeQuery()) {
-                        if (!rs.next()) {
-
-                            String insertSql = "INSERT INTO bookmark (userId, postId) VALUES (?, ?)";
-                            try (PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
-                                insertStmt.setInt(1, Integer.parseInt(loggedInUserId));
-                                insertStmt.setInt(2, Integer.parseInt(postId));
-                                insertStmt.executeUpdate();
-                                System.out.println("Successfully added bookmark for post with ID: " + postId);
-                            }
-                        } else {
-                            System.out.println("Bookmark already exists; skipping insert.");
-                        }
-                    }
-                }
-            } else {
-
-                String deleteSql = "DELETE FROM bookmark WHERE userId = ? AND postId = ?";
-                try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
-                    deleteStmt.setInt(1, Integer.parseInt(loggedInUserId));
-                    deleteStmt.setInt(2, Integer.parseInt(postId));
-                    deleteStmt.executeUpdate();
-                    System.out.println("Successfully removed bookmark for post with ID: " + postId);
-                }
-            }
+        try {
+            int loggedInUserId = userService.getLoggedInUser().getUserId();
+            interactionService.setBookmark(Integer.parseInt(postId), loggedInUserId, isAdd);
+            System.out.println("Successfully " + (isAdd ? "added" : "removed") + " bookmark for post with ID: " + postId);
+            readYourWrites.pin();
             return "redirect:/post/" + postId;
-        } catch (SQLException e) {
-            System.err.println("SQL Exception in addOrRemoveBookmark: " + e.getMessage());
+        } catch (NumberFormatException | NoSuchElementException | SQLException e) {
+            System.err.println("Exception in addOrRemoveBookmark: " + e.getMessage());
             return "redirect:/post/" + postId + "?error=" + URLEncoder.encode("Failed to (un)bookmark the post.", StandardCharsets.UTF_8);
         }
     }
@@ -7,24 +7,26 @@ package uga.menik.cs4370.controllers;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
-
-import javax.sql.DataSource;
+import java.util.NoSuchElementException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
+import uga.menik.cs4370.components.ReadYourWrites;
+import uga.menik.cs4370.models.Page;
+import uga.menik.cs4370.models.PageCursor;
 import uga.menik.cs4370.models.Post;
 import uga.menik.cs4370.models.User;
-import uga.menik.cs4370.services.PeopleService;
+import uga.menik.cs4370.services.InteractionService;
 import uga.menik.cs4370.services.PostService;
+import uga.menik.cs4370.services.UserLoader;
 import uga.menik.cs4370.services.UserService;
 
 /**
@@ -34,48 +36,71 @@ import uga.menik.cs4370.services.UserService;
 @RequestMapping("/profile")
 public class ProfileController {
 
-    private final DataSource dataSource;
-    private final PeopleService peopleService;
+    private final UserLoader userLoader;
     private final PostService postService;
     private final UserService userService;
+    private final InteractionService interactionService;
+    private final ReadYourWrites readYourWrites;
 
     @Autowired
-    public ProfileController(UserService userService, DataSource dataSource, PeopleService peopleService, PostService postService) {
+    public ProfileController(UserService userService, InteractionService interactionService, UserLoader userLoader,
+            PostService postService, ReadYourWrites readYourWrites) {
         this.userService = userService;
-        this.dataSource = dataSource;
-        this.peopleService = peopleService;
+        this.interactionService = interactionService;
+        this.userLoader = userLoader;
         this.postService = postService;
+        this.readYourWrites = readYourWrites;
     }
 
     /**
      * This function handles /profile URL itself.
      * This serves the webpage that shows posts of the logged in user.
+     * The optional cursor parameter selects which page of posts to show.
      */
     @GetMapping
-    public ModelAndView profileOfLoggedInUser() {
+    public ModelAndView profileOfLoggedInUser(@RequestParam(name = "cursor", required = false) String cursor) {
         System.out.println("User is attempting to view profile of the logged in user.");
         User loggedInUser = userService.getLoggedInUser();
         if (loggedInUser == null) {
             return new ModelAndView("redirect:/login");
         }
-        return profileOfSpecificUser(loggedInUser.getUserId());
+        return profileOfSpecificUser(loggedInUser.getUserId(), cursor);
     }
 
     /**
      * This function handles /profile/{userId} URL.
-     * This serves the webpage that shows posts of a specific user given by userId.
+     * This serves the webpage that shows posts of a specific user given by userId,
+     * one page at a time, newest first.
+     * The optional cursor parameter selects which page of posts to show.
+     * It comes from the "load more" link at the bottom of the previous page.
      */
     @GetMapping("/{userId}")
-    public ModelAndView profileOfSpecificUser(@PathVariable("userId") String userId) {
+    public ModelAndView profileOfSpecificUser(@PathVariable("userId") int userId,
+            @RequestParam(name = "cursor", required = false) String cursor) {
         System.out.println("User is attempting to view profile: " + userId);
         ModelAndView mv = new ModelAndView("posts_page");
 
-        // Fetch posts for the specific user
-        List<Post> posts = postService.getPostsByUser(userId);
+        // Fetch one page of posts for the specific user.
+        // An invalid cursor simply shows the first page.
+        Page<Post> page;
+        try {
+            page = postService.getPostsByUser(userId, PageCursor.parse(cursor), PostService.POSTS_PAGE_SIZE);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            mv.addObject("errorMessage", "Failed to fetch posts. Please try again.");
+            return mv;
+        }
+        List<Post> posts = page.getItems();
         mv.addObject("posts", posts);
 
+        // Link to the next page of posts if there is one.
+        if (page.hasMore()) {
+            mv.addObject("nextPageUrl", "/profile/" + userId + "?cursor=" + page.getNextCursor().encode());
+        }
+
         // Add user details to display on the profile page (optional)
-        User profileUser = peopleService.getUserById(userId);
+        // The user is usually already known from the author of the posts above.
+        User profileUser = userLoader.get(userId);
         if (profileUser != null) {
             mv.addObject("profileUser", profileUser);
         } else {
@@ -92,46 +117,17 @@ public class ProfileController {
      * Handles bookmarking/unbookmarking a post.
      */
     @GetMapping("/{postId}/bookmark/{isAdd}")
-    public String toggleBookmarkPost(@PathVariable("postId") String postId,
+    public String toggleBookmarkPost(@PathVariable("postId") int postId,
                                      @PathVariable("isAdd") Boolean isAdd) {
         try {
-            String loggedInUserId = userService.getLoggedInUser().getUserId();
-            if (isAdd) {
-                bookmarkPost(postId, loggedInUserId);
-            } else {
-                unbookmarkPost(postId, loggedInUserId);
-            }
+            int loggedInUserId = userService.getLoggedInUser().getUserId();
+            interactionService.setBookmark(postId, loggedInUserId, isAdd);
+            readYourWrites.pin();
             return "redirect:/"; // Redirect back to the home page
-        } catch (SQLException e) {
+        } catch (NoSuchElementException | SQLException e) {
             e.printStackTrace();
             String message = URLEncoder.encode("Failed to (un)bookmark the post. Please try again.", StandardCharsets.UTF_8);
             return "redirect:/?error=" + message;
         }
     }
-
-    /**
-     * Bookmarks a post.
-     */
-    private void bookmarkPost(String postId, String userId) throws SQLException {
-        String sql = "INSERT INTO bookmark (postId, userId) VALUES (?, ?)";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, postId);
-            pstmt.setString(2, userId);
-            pstmt.executeUpdate();
-        }
-    }
-
-    /**
-     * Unbookmarks a post.
-     */
-    private void unbookmarkPost(String postId, String userId) throws SQLException {
-        String sql = "DELETE FROM bookmark WHERE postId = ? AND userId = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, postId);
-            pstmt.setString(2, userId);
-            pstmt.executeUpdate();
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.controllers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.ModelAndView;
+
+import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.services.PostSearchService;
+import uga.menik.cs4370.services.PostService;
+
+/**
+ * Handles /search URL, which searches the text of posts.
+ */
+@Controller
+@RequestMapping("/search")
+public class SearchController {
+
+    /**
+     * Maximum number of posts shown for a search.
+     */
+    private static final int SEARCH_LIMIT = 50;
+
+    private final PostSearchService postSearchService;
+    private final PostService postService;
+
+    @Autowired
+    public SearchController(PostSearchService postSearchService, PostService postService) {
+        this.postSearchService = postSearchService;
+        this.postService = postService;
+    }
+
+    /**
+     * This function handles the /search URL itself. In the browser the URL
+     * will look something like below:
+     * http://localhost:8081/search?q=spring+boot
+     * Posts are shown best match first. Words in double quotes must appear
+     * next to each other in the post.
+     */
+    @GetMapping
+    public ModelAndView webpage(@RequestParam(name = "q", required = false, defaultValue = "") String query) {
+        System.out.println("User is searching posts: " + query);
+        ModelAndView mv = new ModelAndView("posts_page");
+
+        List<Integer> postIds = postSearchService.search(query, SEARCH_LIMIT);
+
+        // getPostsFromIds orders posts by date, so put them back in ranked order.
+        Map<Integer, Post> postsById = new HashMap<>();
+        for (Post post : postService.getPostsFromIds(postIds)) {
+            postsById.put(post.getPostId(), post);
+        }
+        List<Post> posts = new ArrayList<>();
+        for (Integer postId : postIds) {
+            Post post = postsById.get(postId);
+            if (post != null) {
+                posts.add(post);
+            }
+        }
+
+        if (!posts.isEmpty()) {
+            mv.addObject("posts", posts);
+        } else {
+            mv.addObject("isNoContent", true);
+        }
+        if (!postSearchService.isReady()) {
+            mv.addObject("errorMessage", "Older posts are still being indexed, so some results may be missing.");
+        }
+        return mv;
+    }
+}
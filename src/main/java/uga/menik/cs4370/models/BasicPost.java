@@ -5,6 +5,8 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.cs4370.models;
 
+import uga.menik.cs4370.utility.Utility;
+
 /**
  * Represents the basic structure of a post in the micro blogging platform.
  * This class serves as a base for both posts and comments.
@@ -14,7 +16,7 @@ public class BasicPost {
     /**
      * Unique identifier for the post.
      */
-    private final String postId;
+    private final int postId;
 
     /**
      * Text content of the post.
@@ -22,9 +24,10 @@ public class BasicPost {
     private final String content;
 
     /**
-     * Date when the post was created.
+     * Date when the post was created, in milliseconds since the epoch.
+     * It is only formatted for display when a page asks for it.
      */
-    private final String postDate;
+    private final long postDate;
 
     /**
      * User who created the post.
@@ -36,10 +39,10 @@ public class BasicPost {
      *
      * @param postId     the unique identifier of the post
      * @param content    the text content of the post
-     * @param postDate   the creation date of the post
+     * @param postDate   the creation date of the post, in milliseconds since the epoch
      * @param user       the user who created the post
      */
-    public BasicPost(String postId, String content, String postDate, User user) {
+    public BasicPost(int postId, String content, long postDate, User user) {
         this.postId = postId;
         this.content = content;
         this.postDate = postDate;
@@ -51,7 +54,7 @@ public class BasicPost {
      *
      * @return the post ID
      */
-    public String getPostId() {
+    public int getPostId() {
         return postId;
     }
 
@@ -65,11 +68,20 @@ public class BasicPost {
     }
 
     /**
-     * Returns the post creation date.
+     * Returns the post creation date formatted for display.
      *
      * @return the post creation date
      */
     public String getPostDate() {
+        return Utility.formatDateTime(postDate);
+    }
+
+    /**
+     * Returns the post creation date.
+     *
+     * @return the post creation date in milliseconds since the epoch
+     */
+    public long getPostEpochMillis() {
         return postDate;
     }
 
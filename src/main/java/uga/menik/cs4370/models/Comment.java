@@ -16,10 +16,10 @@ public class Comment extends BasicPost {
      *
      * @param postId     the unique identifier of the comment
      * @param content    the text content of the comment
-     * @param postDate   the creation date of the comment
+     * @param postDate   the creation date of the comment, in milliseconds since the epoch
      * @param user       the user who made the comment
      */
-    public Comment(String postId, String content, String postDate, User user) {
+    public Comment(int postId, String content, long postDate, User user) {
         super(postId, content, postDate, user);
     }
 }
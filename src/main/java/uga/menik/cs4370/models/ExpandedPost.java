@@ -18,6 +18,12 @@ public class ExpandedPost extends Post {
      */
     private final List<Comment> comments;
 
+    /**
+     * Cursor pointing at the last shown comment.
+     * Null when every comment of the post is shown.
+     */
+    private final PageCursor nextCommentsCursor;
+
     /**
      * Constructs an ExpandedPost with specified details including a list of comments.
      *
@@ -31,18 +37,50 @@ public class ExpandedPost extends Post {
      * @param isBookmarked  indicates whether the post is bookmarked by the current user
      * @param comments      the list of comments made on the post
      */
-    public ExpandedPost(String postId, String content, String postDate, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, List<Comment> comments) {
+    public ExpandedPost(int postId, String content, long postDate, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, List<Comment> comments) {
+        this(postId, content, postDate, user, heartsCount, commentsCount, isHearted, isBookmarked, comments, null);
+    }
+
+    /**
+     * Constructs an ExpandedPost that shows only the first page of its comments.
+     *
+     * @param postId             the unique identifier of the post
+     * @param content            the text content of the post
+     * @param postDate           the creation date of the post
+     * @param user               the user who created the post
+     * @param heartsCount        the number of hearts (likes) the post has received
+     * @param commentsCount      the number of comments made on the post
+     * @param isHearted          indicates whether the post is hearted by the current user
+     * @param isBookmarked       indicates whether the post is bookmarked by the current user
+     * @param comments           the first page of comments made on the post
+     * @param nextCommentsCursor the cursor for the next page of comments, or null if there is none
+     */
+    public ExpandedPost(int postId, String content, long postDate, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, List<Comment> comments, PageCursor nextCommentsCursor) {
         super(postId, content, postDate, user, heartsCount, commentsCount, isHearted, isBookmarked);
-        this.comments = comments;
+        this.comments = List.copyOf(comments);
+        this.nextCommentsCursor = nextCommentsCursor;
         this.isShowComents = true;
     }
 
     /**
-     * Returns an unmodifiable view of the comments list, to prevent external modifications.
+     * Returns the comments. The list was copied when the post was made,
+     * so it cannot be modified.
      *
      * @return an unmodifiable list of comments
      */
     public List<Comment> getComments() {
-        return List.copyOf(comments);
+        return comments;
+    }
+
+    /**
+     * Returns the URL of the next page of comments.
+     *
+     * @return the URL, or null if every comment is shown
+     */
+    public String getNextCommentsUrl() {
+        if (nextCommentsCursor == null) {
+            return null;
+        }
+        return "/post/" + getPostId() + "/comments?cursor=" + nextCommentsCursor.encode();
     }
 }
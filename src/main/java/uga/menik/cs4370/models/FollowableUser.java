@@ -5,6 +5,8 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.cs4370.models;
 
+import uga.menik.cs4370.utility.Utility;
+
 /**
  * Extends the User class to include a following status,
  * indicating whether the current session user follows this user.
@@ -17,9 +19,10 @@ public class FollowableUser extends User {
     private final boolean isFollowed;
 
     /**
-     * This is the date and time that this user has last made a post.
+     * This is the date and time that this user has last made a post,
+     * in milliseconds since the epoch. Zero if the user has not posted yet.
      */
-    private final String lastActiveDate;
+    private final long lastActiveDate;
 
     /**
      * Constructs a FollowableUser with specified details and follow status.
@@ -30,10 +33,11 @@ public class FollowableUser extends User {
      * @param profileImageName the name of the profile image file for the user
      * @param isFollowed       the follow status of the user by the current session
      *                         user
-     * @param lastActiveDate   the date and time that this user has last made a post.
+     * @param lastActiveDate   the date and time that this user has last made a post,
+     *                         in milliseconds since the epoch, or zero if they have not posted.
      */
-    public FollowableUser(String userId, String firstName, String lastName, String profileImageName,
-            boolean isFollowed, String lastActiveDate) {
+    public FollowableUser(int userId, String firstName, String lastName, String profileImageName,
+            boolean isFollowed, long lastActiveDate) {
         super(userId, firstName, lastName, profileImageName);
         this.isFollowed = isFollowed;
         this.lastActiveDate = lastActiveDate;
@@ -47,10 +51,11 @@ public class FollowableUser extends User {
      * @param lastName         the last name of the user
      * @param isFollowed       the follow status of the user by the current session
      *                         user
-     * @param lastActiveDate   the date and time that this user has last made a post.
+     * @param lastActiveDate   the date and time that this user has last made a post,
+     *                         in milliseconds since the epoch, or zero if they have not posted.
      */
-    public FollowableUser(String userId, String firstName, String lastName,
-            boolean isFollowed, String lastActiveDate) {
+    public FollowableUser(int userId, String firstName, String lastName,
+            boolean isFollowed, long lastActiveDate) {
         super(userId, firstName, lastName);
         this.isFollowed = isFollowed;
         this.lastActiveDate = lastActiveDate;
@@ -69,10 +74,13 @@ public class FollowableUser extends User {
     /**
      * Returns the last active date and time of the user.
      *
-     * @return the date and time that this user has last made a post.
+     * @return the date and time that this user has last made a post, or null if the user has not posted yet.
      */
-    public String isLastActiveDate() {
-        return lastActiveDate;
+    public String getLastActiveDate() {
+        if (lastActiveDate == 0) {
+            return null;
+        }
+        return Utility.formatDateTime(lastActiveDate);
     }
 
 }
@@ -0,0 +1,66 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.models;
+
+import java.util.List;
+
+/**
+ * Represents a single page of items along with the cursor that
+ * fetches the page after it.
+ *
+ * @param <T> the type of the items on the page
+ */
+public class Page<T> {
+
+    /**
+     * Items on this page.
+     */
+    private final List<T> items;
+
+    /**
+     * Cursor pointing at the last item of this page.
+     * Null when there are no more items after this page.
+     */
+    private final PageCursor nextCursor;
+
+    /**
+     * Constructs a Page with specified details.
+     *
+     * @param items      the items on this page
+     * @param nextCursor the cursor for the next page, or null if this is the last page
+     */
+    public Page(List<T> items, PageCursor nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Returns the items on this page.
+     *
+     * @return the items
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Returns the cursor for the next page.
+     *
+     * @return the next cursor or null if this is the last page
+     */
+    public PageCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Returns whether there are more items after this page.
+     *
+     * @return true if another page exists, false otherwise
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
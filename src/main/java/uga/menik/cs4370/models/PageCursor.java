@@ -0,0 +1,90 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.models;
+
+import java.sql.Timestamp;
+
+/**
+ * Represents a position in a list of rows ordered by (date, id).
+ * A cursor points at the last row of a page so that the next page can be
+ * fetched with a keyset condition instead of an OFFSET.
+ */
+public class PageCursor {
+
+    /**
+     * Date of the last row on the page.
+     * Null for lists that are ordered by id alone.
+     */
+    private final Timestamp date;
+
+    /**
+     * Identifier of the last row on the page. Breaks ties between rows
+     * that share the same date.
+     */
+    private final int id;
+
+    /**
+     * Constructs a PageCursor with specified details.
+     *
+     * @param date the date of the last row on the page, or null if the list is ordered by id alone
+     * @param id   the identifier of the last row on the page
+     */
+    public PageCursor(Timestamp date, int id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    /**
+     * Parses a cursor created by encode. Returns null if the value is
+     * missing or malformed so callers can fall back to the first page.
+     *
+     * @param value the encoded cursor
+     * @return the decoded cursor or null
+     */
+    public static PageCursor parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        int separator = value.indexOf('-');
+        if (separator <= 0) {
+            return null;
+        }
+        try {
+            long millis = Long.parseLong(value.substring(0, separator));
+            int id = Integer.parseInt(value.substring(separator + 1));
+            return new PageCursor(new Timestamp(millis), id);
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the cursor in a URL safe form.
+     *
+     * @return the encoded cursor
+     */
+    public String encode() {
+        return date.getTime() + "-" + id;
+    }
+
+    /**
+     * Returns the date of the last row on the page.
+     *
+     * @return the date
+     */
+    public Timestamp getDate() {
+        return date;
+    }
+
+    /**
+     * Returns the identifier of the last row on the page.
+     *
+     * @return the identifier
+     */
+    public int getId() {
+        return id;
+    }
+}
@@ -41,14 +41,14 @@ public class Post extends BasicPost {
      *
      * @param postId         the unique identifier of the post
      * @param content        the text content of the post
-     * @param postDate       the creation date of the post
+     * @param postDate       the creation date of the post, in milliseconds since the epoch
      * @param user           the user who created the post
      * @param heartsCount    the number of hearts (likes) the post has received
      * @param commentsCount  the number of comments the post has received
      * @param isHearted      whether the post is hearted by the current user
      * @param isBookmarked   whether the post is bookmarked by the current user
      */
-    public Post(String postId, String content, String postDate, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked) {
+    public Post(int postId, String content, long postDate, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked) {
         super(postId, content, postDate, user);
         this.heartsCount = heartsCount;
         this.commentsCount = commentsCount;
@@ -0,0 +1,51 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.models;
+
+/**
+ * Represents a hashtag that is used often in recent posts.
+ */
+public class TrendingHashtag {
+
+    /**
+     * The hashtag without the leading #.
+     */
+    private final String hashTag;
+
+    /**
+     * Approximate number of recent posts that used the hashtag.
+     */
+    private final int count;
+
+    /**
+     * Constructs a TrendingHashtag with specified details.
+     *
+     * @param hashTag the hashtag without the leading #
+     * @param count   the approximate number of recent posts that used the hashtag
+     */
+    public TrendingHashtag(String hashTag, int count) {
+        this.hashTag = hashTag;
+        this.count = count;
+    }
+
+    /**
+     * Returns the hashtag without the leading #.
+     *
+     * @return the hashtag
+     */
+    public String getHashTag() {
+        return hashTag;
+    }
+
+    /**
+     * Returns the approximate number of recent posts that used the hashtag.
+     *
+     * @return the count
+     */
+    public int getCount() {
+        return count;
+    }
+}
@@ -13,7 +13,7 @@ public class User {
     /**
      * Unique identifier for the user.
      */
-    private final String userId;
+    private final int userId;
 
     /**
      * First name of the user.
@@ -38,7 +38,7 @@ public class User {
      * @param lastName         the last name of the user
      * @param profileImagePath the path of the profile image file for the user
      */
-    public User(String userId, String firstName, String lastName, String profileImagePath) {
+    public User(int userId, String firstName, String lastName, String profileImagePath) {
         this.userId = userId;
         this.firstName = firstName;
         this.lastName = lastName;
@@ -53,17 +53,54 @@ public class User {
      * @param lastName         the last name of the user
      * @param profileImagePath the path of the profile image file for the user
      */
-    public User(String userId, String firstName, String lastName) {
+    public User(int userId, String firstName, String lastName) {
         this(userId, firstName, lastName, getAvatarPath(userId));
     }
 
+    /**
+     * Avatar paths by file number, so users share the path strings.
+     */
+    private static final String[] AVATAR_PATHS = new String[21];
+
+    static {
+        for (int fileNo = 1; fileNo < AVATAR_PATHS.length; fileNo++) {
+            AVATAR_PATHS[fileNo] = "/avatars/avatar_" + fileNo + ".png";
+        }
+    }
+
     /**
      * Given a userId generate a valid avatar path.
+     * The avatar is picked by the hash code of the userId written in
+     * decimal, which is how it was picked when userIds were strings.
+     */
+    private static String getAvatarPath(int userId) {
+        int fileNo = (decimalHashCode(userId) % 20) + 1;
+        if (fileNo >= 1 && fileNo < AVATAR_PATHS.length) {
+            return AVATAR_PATHS[fileNo];
+        }
+        return "/avatars/avatar_" + fileNo + ".png";
+    }
+
+    /**
+     * Returns String.valueOf(value).hashCode() without making the string.
      */
-    private static String getAvatarPath(String userId) {
-        int fileNo = (userId.hashCode() % 20) + 1;
-        String avatarFileName = String.format("avatar_%d.png", fileNo);
-        return "/avatars/" + avatarFileName;
+    private static int decimalHashCode(int value) {
+        if (value == Integer.MIN_VALUE) {
+            return String.valueOf(value).hashCode();
+        }
+        int hash = 0;
+        if (value < 0) {
+            hash = '-';
+            value = -value;
+        }
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            hash = 31 * hash + ('0' + value / divisor % 10);
+        }
+        return hash;
     }
 
     /**
@@ -71,7 +108,7 @@ public class User {
      *
      * @return the user ID
      */
-    public String getUserId() {
+    public int getUserId() {
         return userId;
     }
 
@@ -0,0 +1,606 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+/**
+ * Fills the database with synthetic data at a realistic scale, so that
+ * latency can be measured against something like production.
+ * Run the app with --generate-dataset; see MaintenanceCommands for the options.
+ *
+ * Follower counts, hashtag use, and hearts and comments per post all
+ * follow power laws: a few users, tags and posts get most of the activity.
+ * Generated users and posts get IDs after the existing ones, and every
+ * generated user has the password GENERATED_PASSWORD. Follows, hearts,
+ * comments and bookmarks are drawn from the users that exist, whose IDs
+ * may have gaps, and the generated ones.
+ *
+ * Rows are written with multi-row INSERT statements by several writer
+ * threads, each with its own connection and its own range of IDs. The
+ * same options and seed always generate the same data.
+ * The post_stats counters of generated posts are written along with them.
+ * Timelines are not; add --rebuild-timelines to build them afterwards.
+ */
+@Service
+public class DatasetGenerator {
+
+    /** Password of every generated user. */
+    public static final String GENERATED_PASSWORD = "password";
+
+    /** Users or posts generated, and committed, per unit of work. */
+    private static final int CHUNK_SIZE = 10_000;
+
+    /** Largest number of users one user follows. */
+    private static final int MAX_FOLLOWS = 5_000;
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static final String[] FIRST_NAMES = { "Ada", "Alan", "Barbara", "Claude", "Donald", "Edsger",
+            "Frances", "Grace", "John", "Ken", "Leslie", "Margaret", "Niklaus", "Radia", "Tony", "Yukihiro" };
+
+    private static final String[] LAST_NAMES = { "Allen", "Backus", "Cerf", "Dijkstra", "Engelbart", "Hopper",
+            "Kahn", "Knuth", "Lamport", "Liskov", "Lovelace", "McCarthy", "Perlman", "Ritchie", "Turing", "Wirth" };
+
+    private static final String[] WORDS = { "today", "coffee", "database", "index", "query", "weekend", "music",
+            "game", "campus", "project", "deadline", "photo", "sunset", "team", "lunch", "idea", "library",
+            "morning", "night", "trip", "movie", "book", "code", "friends", "study", "rain", "city", "news" };
+
+    /**
+     * How much data to generate. The defaults make a small but skewed data set.
+     */
+    public static class Options {
+        private int users = 10_000;
+        private int posts = 200_000;
+        private double meanFollows = 50;
+        private double meanHearts = 5;
+        private double meanComments = 2;
+        private double bookmarkShare = 0.1;
+        private int hashtags = 50_000;
+        private int days = 365;
+        private int threads = 4;
+        private int rowsPerInsert = 1_000;
+        private long seed = 42;
+
+        /** Number of users to add. */
+        public Options users(int users) {
+            this.users = users;
+            return this;
+        }
+
+        /** Number of posts to add. */
+        public Options posts(int posts) {
+            this.posts = posts;
+            return this;
+        }
+
+        /** Average number of users each generated user follows. */
+        public Options meanFollows(double meanFollows) {
+            this.meanFollows = meanFollows;
+            return this;
+        }
+
+        /** Average number of hearts per post. */
+        public Options meanHearts(double meanHearts) {
+            this.meanHearts = meanHearts;
+            return this;
+        }
+
+        /** Average number of comments per post. */
+        public Options meanComments(double meanComments) {
+            this.meanComments = meanComments;
+            return this;
+        }
+
+        /** Bookmarks per post, as a share of its hearts. */
+        public Options bookmarkShare(double bookmarkShare) {
+            this.bookmarkShare = bookmarkShare;
+            return this;
+        }
+
+        /** Number of distinct hashtags that posts draw from. */
+        public Options hashtags(int hashtags) {
+            this.hashtags = hashtags;
+            return this;
+        }
+
+        /** Number of days, ending now, that post dates are spread over. */
+        public Options days(int days) {
+            this.days = days;
+            return this;
+        }
+
+        /** Number of writer threads, each holding a connection. */
+        public Options threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /** Number of rows per INSERT statement. */
+        public Options rowsPerInsert(int rowsPerInsert) {
+            this.rowsPerInsert = rowsPerInsert;
+            return this;
+        }
+
+        /** Seed of the random numbers. */
+        public Options seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+    }
+
+    /**
+     * Draws ranks from 0 to n - 1, where rank r is drawn in proportion to
+     * 1 / (r + 1)^exponent, by binary search over the cumulative weights.
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double total = 0;
+            for (int r = 0; r < n; r++) {
+                total += 1 / Math.pow(r + 1, exponent);
+                cumulative[r] = total;
+            }
+            for (int r = 0; r < n; r++) {
+                cumulative[r] /= total;
+            }
+        }
+
+        int next(SplittableRandom random) {
+            int r = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(r >= 0 ? r : -r - 1, cumulative.length - 1);
+        }
+    }
+
+    /**
+     * Writes rows to one table with INSERT statements of many rows each.
+     * A table whose rows refer to rows of a parent table writes the parent's
+     * buffered rows first, so that foreign keys are satisfied.
+     */
+    private final class BulkInsert implements AutoCloseable {
+        private final Connection conn;
+        private final String prefix;
+        private final int columns;
+        private final AtomicLong counter;
+        private final Object[] values;
+        private final PreparedStatement fullStatement;
+        private final BulkInsert parent;
+        private int rows;
+
+        BulkInsert(Connection conn, String table, String columnList, int columns, AtomicLong counter)
+                throws SQLException {
+            this(conn, table, columnList, columns, counter, null);
+        }
+
+        BulkInsert(Connection conn, String table, String columnList, int columns, AtomicLong counter,
+                BulkInsert parent) throws SQLException {
+            this.conn = conn;
+            this.parent = parent;
+            this.prefix = "INSERT INTO " + table + " (" + columnList + ") VALUES ";
+            this.columns = columns;
+            this.counter = counter;
+            this.values = new Object[rowsPerInsert * columns];
+            this.fullStatement = conn.prepareStatement(sql(rowsPerInsert));
+        }
+
+        void add(Object... row) throws SQLException {
+            System.arraycopy(row, 0, values, rows * columns, columns);
+            rows++;
+            if (rows == rowsPerInsert) {
+                execute(fullStatement);
+            }
+        }
+
+        void flush() throws SQLException {
+            if (rows > 0) {
+                try (PreparedStatement partial = conn.prepareStatement(sql(rows))) {
+                    execute(partial);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            fullStatement.close();
+        }
+
+        private void execute(PreparedStatement pstmt) throws SQLException {
+            if (parent != null) {
+                parent.flush();
+            }
+            for (int i = 0; i < rows * columns; i++) {
+                pstmt.setObject(i + 1, values[i]);
+            }
+            pstmt.executeUpdate();
+            counter.addAndGet(rows);
+            rows = 0;
+        }
+
+        private String sql(int rowCount) {
+            String row = "(" + String.join(", ", Collections.nCopies(columns, "?")) + ")";
+            return prefix + String.join(", ", Collections.nCopies(rowCount, row));
+        }
+    }
+
+    private final DataSource dataSource;
+
+    // Rows written so far, for progress reports.
+    private final AtomicLong usersWritten = new AtomicLong();
+    private final AtomicLong followsWritten = new AtomicLong();
+    private final AtomicLong postsWritten = new AtomicLong();
+    private final AtomicLong hashtagsWritten = new AtomicLong();
+    private final AtomicLong heartsWritten = new AtomicLong();
+    private final AtomicLong commentsWritten = new AtomicLong();
+    private final AtomicLong bookmarksWritten = new AtomicLong();
+    private final AtomicLong statsWritten = new AtomicLong();
+
+    // Set while generating.
+    private int rowsPerInsert;
+
+    @Autowired
+    public DatasetGenerator(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Generates and writes the data. Returns the number of rows written.
+     */
+    public synchronized long generate(Options options) throws SQLException, InterruptedException {
+        rowsPerInsert = options.rowsPerInsert;
+        for (AtomicLong counter : counters()) {
+            counter.set(0);
+        }
+        int[] existingUserIds;
+        int postBase;
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            existingUserIds = userIds(stmt);
+            postBase = maxId(stmt, "SELECT COALESCE(MAX(postId), 0) FROM post");
+        }
+        int userBase = existingUserIds.length == 0 ? 0 : existingUserIds[existingUserIds.length - 1];
+        int allUsers = existingUserIds.length + options.users;
+        // Every user, existing or generated, by index; indexes are drawn instead of IDs.
+        int[] userIds = Arrays.copyOf(existingUserIds, allUsers);
+        for (int i = 0; i < options.users; i++) {
+            userIds[existingUserIds.length + i] = userBase + i + 1;
+        }
+        System.out.println("Generating " + options.users + " users after userId " + userBase + " and "
+                + options.posts + " posts after postId " + postBase + " with " + options.threads + " threads.");
+
+        // Popular users get most follows, active users write most posts, and
+        // a few tags are on most posts. Users are ranked in scrambled order so
+        // that popularity and activity do not just follow the userId.
+        Zipf popularity = new Zipf(allUsers, 1.0);
+        Zipf activity = new Zipf(allUsers, 0.8);
+        Zipf tags = new Zipf(options.hashtags, 1.1);
+        int stride = strideFor(allUsers);
+
+        String passwordHash = new BCryptPasswordEncoder().encode(GENERATED_PASSWORD);
+        long endMillis = System.currentTimeMillis() / 1000 * 1000;
+        long startMillis = endMillis - options.days * DAY_MILLIS;
+
+        long startTime = System.currentTimeMillis();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dataset-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.println(progress(options, startTime)), 5, 5, TimeUnit.SECONDS);
+        ExecutorService writers = Executors.newFixedThreadPool(options.threads);
+        try {
+            runChunks(writers, options.users, (random, from, to) -> {
+                try (Connection conn = openBulkConnection();
+                        BulkInsert users = new BulkInsert(conn, "user",
+                                "userId, username, password, firstName, lastName", 5, usersWritten)) {
+                    for (int i = from; i < to; i++) {
+                        int userId = userBase + i + 1;
+                        users.add(userId, "gen" + userId, passwordHash,
+                                FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                                LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+                    }
+                    users.flush();
+                    commitBulkConnection(conn);
+                }
+            }, options.seed);
+
+            runChunks(writers, options.users, (random, from, to) -> {
+                try (Connection conn = openBulkConnection();
+                        BulkInsert follows = new BulkInsert(conn, "follow",
+                                "followerUserId, followeeUserId", 2, followsWritten)) {
+                    Set<Integer> followees = new HashSet<>();
+                    for (int i = from; i < to; i++) {
+                        int followerId = userBase + i + 1;
+                        int count = (int) Math.min(Math.min(MAX_FOLLOWS, allUsers - 1),
+                                pareto(random, options.meanFollows, 1));
+                        followees.clear();
+                        // Popular users are drawn again and again; give up on a follower after enough misses.
+                        for (int attempt = 0; followees.size() < count && attempt < count * 4; attempt++) {
+                            int followeeId = userIds[indexOfRank(popularity.next(random), stride, allUsers)];
+                            if (followeeId != followerId && followees.add(followeeId)) {
+                                follows.add(followerId, followeeId);
+                            }
+                        }
+                    }
+                    follows.flush();
+                    commitBulkConnection(conn);
+                }
+            }, options.seed + 1);
+
+            runChunks(writers, options.posts, (random, from, to) -> {
+                writePosts(random, from, to, options, postBase, userIds, stride, activity, tags,
+                        startMillis, endMillis);
+            }, options.seed + 2);
+        } finally {
+            writers.shutdownNow();
+            reporter.shutdownNow();
+        }
+        System.out.println(progress(options, startTime));
+        long rows = 0;
+        for (AtomicLong counter : counters()) {
+            rows += counter.get();
+        }
+        System.out.println("Generated " + rows + " rows in " + (System.currentTimeMillis() - startTime) / 1000 + " s.");
+        return rows;
+    }
+
+    /**
+     * Writes posts from index from to to, with their hashtags, hearts,
+     * comments, bookmarks and counters.
+     */
+    private void writePosts(SplittableRandom random, int from, int to, Options options, int postBase,
+            int[] userIds, int stride, Zipf activity, Zipf tags, long startMillis, long endMillis)
+            throws SQLException {
+        int allUsers = userIds.length;
+        try (Connection conn = openBulkConnection();
+                BulkInsert posts = new BulkInsert(conn, "post", "postId, userId, postDate, postText", 4, postsWritten);
+                BulkInsert hashtags = new BulkInsert(conn, "hashtag", "hashTag, postId", 2, hashtagsWritten, posts);
+                BulkInsert hearts = new BulkInsert(conn, "heart", "postId, userId", 2, heartsWritten, posts);
+                BulkInsert comments = new BulkInsert(conn, "comment",
+                        "postId, userId, commentDate, commentText", 4, commentsWritten, posts);
+                BulkInsert bookmarks = new BulkInsert(conn, "bookmark", "postId, userId, postDate", 3,
+                        bookmarksWritten, posts);
+                BulkInsert stats = new BulkInsert(conn, "post_stats",
+                        "postId, heartsCount, commentsCount, lastActivityDate", 4, statsWritten, posts)) {
+            long span = endMillis - startMillis;
+            Set<Integer> seen = new HashSet<>();
+            List<String> postTags = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                int postId = postBase + i + 1;
+                // Later posts get later dates, in whole seconds like the datetime column.
+                long postMillis = (startMillis + span * i / Math.max(1, options.posts)) / 1000 * 1000;
+                Timestamp postDate = new Timestamp(postMillis);
+
+                postTags.clear();
+                int tagCount = random.nextInt(4);
+                for (int t = 0; t < tagCount; t++) {
+                    String tag = "topic" + tags.next(random);
+                    if (!postTags.contains(tag)) {
+                        postTags.add(tag);
+                    }
+                }
+                StringBuilder text = new StringBuilder();
+                int words = 5 + random.nextInt(20);
+                for (int w = 0; w < words; w++) {
+                    text.append(w == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                for (String tag : postTags) {
+                    text.append(" #").append(tag);
+                }
+                posts.add(postId, userIds[indexOfRank(activity.next(random), stride, allUsers)], postDate,
+                        text.toString());
+                for (String tag : postTags) {
+                    hashtags.add(tag, postId);
+                }
+
+                seen.clear();
+                int heartCount = (int) Math.min(allUsers, pareto(random, options.meanHearts, 0));
+                for (int h = 0; h < heartCount; h++) {
+                    int userId = userIds[random.nextInt(allUsers)];
+                    if (seen.add(userId)) {
+                        hearts.add(postId, userId);
+                    }
+                }
+                int heartsCount = seen.size();
+
+                seen.clear();
+                int bookmarkCount = (int) Math.round(heartsCount * options.bookmarkShare * 2 * random.nextDouble());
+                for (int b = 0; b < bookmarkCount; b++) {
+                    int userId = userIds[random.nextInt(allUsers)];
+                    if (seen.add(userId)) {
+                        bookmarks.add(postId, userId, postDate);
+                    }
+                }
+
+                int commentCount = (int) pareto(random, options.meanComments, 0);
+                long lastActivity = postMillis;
+                for (int c = 0; c < commentCount; c++) {
+                    long commentMillis = Math.min(endMillis, postMillis + (long) (random.nextDouble() * DAY_MILLIS))
+                            / 1000 * 1000;
+                    lastActivity = Math.max(lastActivity, commentMillis);
+                    comments.add(postId, userIds[random.nextInt(allUsers)], new Timestamp(commentMillis),
+                            WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]);
+                }
+                stats.add(postId, heartsCount, commentCount, new Timestamp(lastActivity));
+            }
+            posts.flush();
+            hashtags.flush();
+            hearts.flush();
+            comments.flush();
+            bookmarks.flush();
+            stats.flush();
+            commitBulkConnection(conn);
+        }
+    }
+
+    /**
+     * Work on the items from index from up to to.
+     */
+    private interface Chunk {
+        void run(SplittableRandom random, int from, int to) throws SQLException;
+    }
+
+    /**
+     * Splits count items into chunks, runs them on the writer threads and
+     * waits for all of them. Each chunk has its own random numbers, so the
+     * data does not depend on which thread runs which chunk.
+     */
+    private void runChunks(ExecutorService writers, int count, Chunk chunk, long seed)
+            throws SQLException, InterruptedException {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < count; from += CHUNK_SIZE) {
+            int chunkFrom = from;
+            int chunkTo = Math.min(count, from + CHUNK_SIZE);
+            futures.add(writers.submit(() -> {
+                chunk.run(new SplittableRandom(seed * 1_000_003L + chunkFrom), chunkFrom, chunkTo);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ee) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            if (ee.getCause() instanceof SQLException sqle) {
+                throw sqle;
+            }
+            throw new IllegalStateException("Failed to generate data.", ee.getCause());
+        }
+    }
+
+    /**
+     * Returns a connection for writing many rows in one transaction.
+     * On MySQL, foreign key and unique checks are skipped for the session,
+     * since the generator only writes rows that pass them: every userId it
+     * writes was read from the user table or written before.
+     */
+    private Connection openBulkConnection() throws SQLException {
+        Connection conn = dataSource.getConnection();
+        conn.setAutoCommit(false);
+        if (isMySql(conn)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET foreign_key_checks = 0, unique_checks = 0");
+            }
+        }
+        return conn;
+    }
+
+    /**
+     * Commits and restores the connection before it goes back to the pool.
+     */
+    private void commitBulkConnection(Connection conn) throws SQLException {
+        conn.commit();
+        if (isMySql(conn)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET foreign_key_checks = 1, unique_checks = 1");
+            }
+        }
+        conn.setAutoCommit(true);
+    }
+
+    private static boolean isMySql(Connection conn) throws SQLException {
+        return conn.getMetaData().getDatabaseProductName().equalsIgnoreCase("MySQL");
+    }
+
+    /**
+     * Returns the IDs of the existing users, in ascending order.
+     */
+    private static int[] userIds(Statement stmt) throws SQLException {
+        List<Integer> userIds = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery("SELECT userId FROM user ORDER BY userId")) {
+            while (rs.next()) {
+                userIds.add(rs.getInt(1));
+            }
+        }
+        return userIds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int maxId(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * Returns a power law distributed number with the given mean and at
+     * least min, from a Pareto distribution with shape 2.
+     */
+    private static double pareto(SplittableRandom random, double mean, double min) {
+        // A Pareto distribution with shape 2 and scale m has mean 2m.
+        double scale = Math.max(mean - min, 0) / 2;
+        return Math.floor(min + scale / Math.sqrt(1 - random.nextDouble()));
+    }
+
+    /**
+     * Returns a multiplier that spreads ranks over all users: coprime with
+     * the number of users, so that every rank maps to a different user.
+     */
+    private static int strideFor(int users) {
+        int stride = 7_919;
+        while (gcd(stride, users) != 1) {
+            stride += 2;
+        }
+        return stride;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private static int indexOfRank(int rank, int stride, int users) {
+        return (int) ((long) rank * stride % users);
+    }
+
+    private AtomicLong[] counters() {
+        return new AtomicLong[] { usersWritten, followsWritten, postsWritten, hashtagsWritten,
+                heartsWritten, commentsWritten, bookmarksWritten, statsWritten };
+    }
+
+    private String progress(Options options, long startTime) {
+        long seconds = Math.max(1, (System.currentTimeMillis() - startTime) / 1000);
+        long rows = 0;
+        for (AtomicLong counter : counters()) {
+            rows += counter.get();
+        }
+        return "Generated users " + usersWritten.get() + "/" + options.users
+                + ", follows " + followsWritten.get()
+                + ", posts " + postsWritten.get() + "/" + options.posts
+                + ", hashtags " + hashtagsWritten.get()
+                + ", hearts " + heartsWritten.get()
+                + ", comments " + commentsWritten.get()
+                + ", bookmarks " + bookmarksWritten.get()
+                + " (" + rows / seconds + " rows/s)";
+    }
+}
@@ -0,0 +1,309 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Takes heart toggles off the request thread.
+ * A toggle only updates in-memory state: who hearted what, and a striped
+ * counter of the pending change to each post's hearts count. A background
+ * thread periodically writes all pending toggles to the heart table and
+ * the post_stats counters in one transaction, coalescing repeated toggles
+ * of the same heart into a single row change. Hearts are not recorded in
+ * the outbox, since the counters are kept here and nothing else derives
+ * data from them.
+ * Pages overlay the pending state on top of what they read from the
+ * database, so users see their own hearts right away.
+ */
+@Service
+public class EngagementService {
+
+    /**
+     * Pending toggles collected between two flushes.
+     * A generation is swapped out as a whole when it is flushed, so its
+     * maps are never cleared while request threads are writing to them.
+     */
+    private static final class Generation {
+        // Latest hearted state per (postId, userId) key.
+        final ConcurrentHashMap<Long, Boolean> hearts = new ConcurrentHashMap<>();
+        // Pending change to the hearts count per postId.
+        final ConcurrentHashMap<Integer, LongAdder> deltas = new ConcurrentHashMap<>();
+        // Number of request threads currently writing to this generation.
+        final LongAdder writers = new LongAdder();
+    }
+
+    private final DataSource dataSource;
+    private final PostStatsService postStatsService;
+
+    /** Number of pending toggles that triggers a flush before the interval ends. */
+    private final int maxPending;
+
+    private final ScheduledExecutorService flusher;
+
+    /** Prevents queueing more than one early flush at a time. */
+    private final AtomicBoolean isFlushRequested = new AtomicBoolean(false);
+
+    /** Generation that request threads write to. */
+    private volatile Generation current = new Generation();
+
+    /** Generation that is being written to the database, if any. */
+    private volatile Generation flushing = null;
+
+    @Autowired
+    public EngagementService(DataSource dataSource, PostStatsService postStatsService,
+            @Value("${app.engagement.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${app.engagement.max-pending:10000}") int maxPending) {
+        this.dataSource = dataSource;
+        this.postStatsService = postStatsService;
+        this.maxPending = maxPending;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "engagement-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records that a user hearted or unhearted a post.
+     * The change reaches the database with the next flush.
+     */
+    public void setHeart(int postId, int userId, boolean isHearted) {
+        final long key = key(postId, userId);
+        while (true) {
+            Generation generation = current;
+            generation.writers.increment();
+            try {
+                if (generation != current) {
+                    // A flush swapped the generation; write to the new one.
+                    continue;
+                }
+                Boolean previous = generation.hearts.put(key, isHearted);
+                if (previous == null) {
+                    Generation inFlight = flushing;
+                    previous = inFlight == null ? null : inFlight.hearts.get(key);
+                }
+                // When the previous state is unknown the toggle is assumed to
+                // change it. The next flush corrects the count if it did not.
+                if (previous == null || previous != isHearted) {
+                    generation.deltas.computeIfAbsent(postId, id -> new LongAdder()).add(isHearted ? 1 : -1);
+                }
+                break;
+            } finally {
+                generation.writers.decrement();
+            }
+        }
+
+        if (current.hearts.size() >= maxPending && isFlushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * Returns whether a user has hearted a post, given the state read from the database.
+     */
+    public boolean isHearted(int postId, int userId, boolean storedIsHearted) {
+        final long key = key(postId, userId);
+        Boolean pending = current.hearts.get(key);
+        if (pending == null) {
+            Generation inFlight = flushing;
+            pending = inFlight == null ? null : inFlight.hearts.get(key);
+        }
+        return pending != null ? pending : storedIsHearted;
+    }
+
+    /**
+     * Returns the hearts count of a post, given the count read from the database.
+     */
+    public int getHeartsCount(int postId, int storedHeartsCount) {
+        long count = storedHeartsCount + pendingDelta(current, postId) + pendingDelta(flushing, postId);
+        return (int) Math.max(0, count);
+    }
+
+    /**
+     * Writes every pending toggle to the database in one transaction.
+     */
+    public synchronized void flush() {
+        isFlushRequested.set(false);
+        Generation generation = current;
+        if (generation.hearts.isEmpty()) {
+            return;
+        }
+        flushing = generation;
+        current = new Generation();
+        // Wait for request threads that are still writing to the old generation.
+        while (generation.writers.sum() != 0) {
+            Thread.onSpinWait();
+        }
+
+        try {
+            write(generation.hearts);
+        } catch (SQLException sqle) {
+            System.err.println("Failed to flush hearts as a batch: " + sqle.getMessage());
+            writeEach(new ArrayList<>(generation.hearts.entrySet()));
+        } finally {
+            flushing = null;
+        }
+    }
+
+    /**
+     * Writes the remaining toggles before the application stops.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    /**
+     * Applies pending toggles to the heart table and the hearts counters.
+     */
+    private void write(Map<Long, Boolean> hearts) throws SQLException {
+        final String insertSql = "INSERT IGNORE INTO heart (postId, userId) VALUES (?, ?)";
+        final String deleteSql = "DELETE FROM heart WHERE postId = ? AND userId = ?";
+
+        List<Long> added = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        for (Map.Entry<Long, Boolean> entry : hearts.entrySet()) {
+            (entry.getValue() ? added : removed).add(entry.getKey());
+        }
+
+        final Timestamp now = new Timestamp(new java.util.Date().getTime());
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement insertStmt = conn.prepareStatement(insertSql);
+                    PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
+                Map<Integer, Integer> changes = new HashMap<>();
+                Set<Integer> uncounted = new HashSet<>();
+                applyBatch(insertStmt, added, 1, changes, uncounted);
+                applyBatch(deleteStmt, removed, -1, changes, uncounted);
+
+                for (Map.Entry<Integer, Integer> change : changes.entrySet()) {
+                    if (uncounted.contains(change.getKey())) {
+                        postStatsService.recountHearts(conn, change.getKey(), now);
+                    } else if (change.getValue() != 0) {
+                        postStatsService.addHearts(conn, change.getKey(), change.getValue(), now);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Runs a batch of heart inserts or deletes and records how each one
+     * changed the hearts count of its post. When the driver does not report
+     * per-row counts the post is marked to be recounted instead.
+     */
+    private static void applyBatch(PreparedStatement stmt, List<Long> keys, int sign,
+            Map<Integer, Integer> changes, Set<Integer> uncounted) throws SQLException {
+        if (keys.isEmpty()) {
+            return;
+        }
+        for (long key : keys) {
+            stmt.setInt(1, postIdOf(key));
+            stmt.setInt(2, userIdOf(key));
+            stmt.addBatch();
+        }
+        int[] counts = stmt.executeBatch();
+        for (int i = 0; i < keys.size(); i++) {
+            int postId = postIdOf(keys.get(i));
+            if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                uncounted.add(postId);
+            }
+            changes.merge(postId, counts[i] > 0 ? sign : 0, Integer::sum);
+        }
+    }
+
+    /**
+     * Writes toggles one at a time after a batch failed. A toggle that the
+     * database rejects, for example one for a deleted post, is dropped.
+     * If the database cannot be reached the remaining toggles are kept
+     * for the next flush.
+     */
+    private void writeEach(List<Map.Entry<Long, Boolean>> entries) {
+        for (int i = 0; i < entries.size(); i++) {
+            Map.Entry<Long, Boolean> entry = entries.get(i);
+            try {
+                write(Map.of(entry.getKey(), entry.getValue()));
+            } catch (SQLException sqle) {
+                if (sqle instanceof SQLTransientException
+                        || (sqle.getSQLState() != null && sqle.getSQLState().startsWith("08"))) {
+                    requeue(entries.subList(i, entries.size()));
+                    return;
+                }
+                System.err.println("Dropping heart toggle for post " + postIdOf(entry.getKey())
+                        + ": " + sqle.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Moves toggles that could not be written back into the current generation.
+     * Toggles made since the flush started take precedence.
+     */
+    private void requeue(List<Map.Entry<Long, Boolean>> entries) {
+        Generation generation = current;
+        for (Map.Entry<Long, Boolean> entry : entries) {
+            if (generation.hearts.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                generation.deltas.computeIfAbsent(postIdOf(entry.getKey()), id -> new LongAdder())
+                        .add(entry.getValue() ? 1 : -1);
+            }
+        }
+    }
+
+    private static long pendingDelta(Generation generation, int postId) {
+        if (generation == null) {
+            return 0;
+        }
+        LongAdder delta = generation.deltas.get(postId);
+        return delta == null ? 0 : delta.sum();
+    }
+
+    private static long key(int postId, int userId) {
+        return ((long) postId << 32) | (userId & 0xffffffffL);
+    }
+
+    private static int postIdOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int userIdOf(long key) {
+        return (int) key;
+    }
+}
@@ -0,0 +1,270 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes whole tables as newline-delimited JSON, one row per line, for the
+ * analytics dumps. Rows are read in primary key order through a
+ * forward-only cursor and written as they arrive, so memory use does not
+ * depend on the size of the table.
+ *
+ * An export can be resumed: the primary key of the last line received,
+ * its values separated by commas, is the checkpoint from which the next
+ * export continues. Dates are written as epoch milliseconds.
+ */
+@Service
+public class ExportService {
+
+    /**
+     * A table that can be exported, the columns written, and its primary
+     * key, which orders the rows.
+     */
+    private static final class Table {
+        final String name;
+        final List<String> columns;
+        final List<String> keyColumns;
+
+        Table(String name, String columns, String... keyColumns) {
+            this.name = name;
+            this.columns = List.of(columns.split(", "));
+            this.keyColumns = List.of(keyColumns);
+        }
+    }
+
+    private static final Map<String, Table> TABLES = new LinkedHashMap<>();
+    static {
+        TABLES.put("posts", new Table("post", "postId, userId, postDate, postText", "postId"));
+        TABLES.put("comments", new Table("comment", "commentId, postId, userId, commentDate, commentText",
+                "commentId"));
+        TABLES.put("hearts", new Table("heart", "postId, userId", "postId", "userId"));
+        TABLES.put("hashtags", new Table("hashtag", "hashTag, postId", "hashTag", "postId"));
+        TABLES.put("follows", new Table("follow", "followerUserId, followeeUserId",
+                "followerUserId", "followeeUserId"));
+    }
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    // Read replicas; exports only read.
+    private final DataSource dataSource;
+    private final int fetchSize;
+
+    @Autowired
+    public ExportService(@Qualifier("readDataSource") DataSource dataSource,
+            @Value("${app.export.fetch-size:-2147483648}") int fetchSize) {
+        this.dataSource = dataSource;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Returns the names of the tables that can be exported.
+     */
+    public Set<String> getTables() {
+        return TABLES.keySet();
+    }
+
+    /**
+     * Returns the primary key columns of an exported table, in the order
+     * a checkpoint lists their values.
+     *
+     * @param tableName one of getTables()
+     */
+    public List<String> getKeyColumns(String tableName) {
+        return table(tableName).keyColumns;
+    }
+
+    /**
+     * Checks a checkpoint before an export starts, so that a malformed one
+     * is rejected while the response can still say so.
+     *
+     * @throws IllegalArgumentException if the checkpoint does not match the table's key
+     */
+    public void checkCheckpoint(String tableName, String after) {
+        parseCheckpoint(table(tableName), after);
+    }
+
+    /**
+     * Writes the rows of a table that follow a checkpoint, one JSON object
+     * per line. The output is flushed but not closed.
+     *
+     * @param tableName one of getTables()
+     * @param after     the primary key of the last row already exported, or null to start at the first row
+     * @param limit     the maximum number of rows to write
+     * @param out       where the rows are written
+     * @return the number of rows written
+     */
+    public long export(String tableName, String after, long limit, OutputStream out)
+            throws SQLException, IOException {
+        Table table = table(tableName);
+        Object[] checkpoint = parseCheckpoint(table, after);
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", table.columns))
+                .append(" FROM ").append(table.name);
+        if (checkpoint != null) {
+            sql.append(" WHERE ").append(keysetCondition(table.keyColumns));
+        }
+        sql.append(" ORDER BY ").append(String.join(", ", table.keyColumns)).append(" LIMIT ?");
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql.toString(),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // On MySQL a fetch size of Integer.MIN_VALUE streams the rows
+            // instead of reading the whole result into memory.
+            pstmt.setFetchSize(fetchSize);
+            int index = 1;
+            if (checkpoint != null) {
+                index = bindKeyset(pstmt, index, checkpoint);
+            }
+            pstmt.setLong(index, limit);
+
+            long rows = 0;
+            try (ResultSet rs = pstmt.executeQuery();
+                    JsonGenerator json = JSON.createGenerator(out)) {
+                json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                json.setRootValueSeparator(null);
+                // Field names come from the table, since some databases change the case of labels.
+                ResultSetMetaData metaData = rs.getMetaData();
+                while (rs.next()) {
+                    json.writeStartObject();
+                    for (int i = 1; i <= table.columns.size(); i++) {
+                        writeColumn(json, table.columns.get(i - 1), metaData.getColumnType(i), rs, i);
+                    }
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                    rows++;
+                }
+                json.flush();
+            }
+            return rows;
+        }
+    }
+
+    private static Table table(String tableName) {
+        Table table = TABLES.get(tableName);
+        if (table == null) {
+            throw new IllegalArgumentException("There is no export named " + tableName + ".");
+        }
+        return table;
+    }
+
+    /**
+     * Returns the condition that selects the rows after a checkpoint, such
+     * as "(a > ? OR (a = ? AND b > ?))" for the key (a, b). Written out
+     * rather than as a row comparison so that MySQL reads it as a range of
+     * the primary key.
+     */
+    private static String keysetCondition(List<String> keyColumns) {
+        StringBuilder condition = new StringBuilder("(");
+        for (int i = 0; i < keyColumns.size(); i++) {
+            if (i > 0) {
+                condition.append(" OR (");
+                for (int j = 0; j < i; j++) {
+                    condition.append(keyColumns.get(j)).append(" = ? AND ");
+                }
+            }
+            condition.append(keyColumns.get(i)).append(" > ?");
+            if (i > 0) {
+                condition.append(")");
+            }
+        }
+        return condition.append(")").toString();
+    }
+
+    /**
+     * Binds the checkpoint to the parameters of keysetCondition. Returns the
+     * index of the next parameter.
+     */
+    private static int bindKeyset(PreparedStatement pstmt, int index, Object[] checkpoint) throws SQLException {
+        for (int i = 0; i < checkpoint.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                pstmt.setObject(index++, checkpoint[j]);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Parses a checkpoint into the values of the table's key. Key columns
+     * named *Id are numbers; hashTag is text, and may itself hold commas
+     * since it is always the first column.
+     */
+    private static Object[] parseCheckpoint(Table table, String after) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        int keyCount = table.keyColumns.size();
+        Object[] values = new Object[keyCount];
+        String rest = after;
+        for (int i = keyCount - 1; i >= 0; i--) {
+            String value = rest;
+            if (i > 0) {
+                int separator = rest.lastIndexOf(',');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("The checkpoint needs a value for each of "
+                            + String.join(", ", table.keyColumns) + ".");
+                }
+                value = rest.substring(separator + 1);
+                rest = rest.substring(0, separator);
+            }
+            if (table.keyColumns.get(i).endsWith("Id")) {
+                try {
+                    values[i] = Integer.parseInt(value.trim());
+                } catch (NumberFormatException nfe) {
+                    throw new IllegalArgumentException(table.keyColumns.get(i) + " must be a number.");
+                }
+            } else {
+                values[i] = value;
+            }
+        }
+        return values;
+    }
+
+    private static void writeColumn(JsonGenerator json, String name, int type, ResultSet rs, int index)
+            throws SQLException, IOException {
+        json.writeFieldName(name);
+        if (type == Types.TIMESTAMP || type == Types.DATE) {
+            Timestamp value = rs.getTimestamp(index);
+            if (value == null) {
+                json.writeNull();
+            } else {
+                json.writeNumber(value.getTime());
+            }
+        } else if (type == Types.INTEGER || type == Types.BIGINT || type == Types.SMALLINT
+                || type == Types.TINYINT) {
+            long value = rs.getLong(index);
+            if (rs.wasNull()) {
+                json.writeNull();
+            } else {
+                json.writeNumber(value);
+            }
+        } else {
+            json.writeString(rs.getString(index));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import uga.menik.cs4370.models.Page;
+import uga.menik.cs4370.models.PageCursor;
+import uga.menik.cs4370.models.Post;
+
+/**
+ * Builds the home feed of a user one page at a time.
+ * A page is assembled with a single query that selects the page of posts
+ * first and only then reads counters and viewer state for those posts.
+ * Pages are walked newest to oldest using a (postDate, postId) cursor.
+ * The posts of a page come from the user's materialized timeline, either
+ * from memory or from a range scan over the timeline table.
+ */
+@Service
+public class FeedService {
+
+    /** Number of posts shown on one page of the home feed. */
+    public static final int PAGE_SIZE = 20;
+
+    // Read replicas; a feed may lag slightly behind the posts of others.
+    private final DataSource dataSource;
+    private final TimelineService timelineService;
+    private final EngagementService engagementService;
+
+    @Autowired
+    public FeedService(@Qualifier("readDataSource") DataSource dataSource, TimelineService timelineService,
+            EngagementService engagementService) {
+        this.dataSource = dataSource;
+        this.timelineService = timelineService;
+        this.engagementService = engagementService;
+    }
+
+    /**
+     * Returns a page of posts made by users that the given user follows.
+     * Posts are ordered newest to oldest.
+     *
+     * @param userId the user whose feed is being built
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the maximum number of posts on the page
+     */
+    public Page<Post> getFeedPage(int userId, PageCursor cursor, int limit) throws SQLException {
+        final String queryString = "SELECT pg.postId, pg.postText, pg.postDate, pg.userId,"
+                + " u.firstName, u.lastName,"
+                + " COALESCE(s.heartsCount, 0) AS heartsCount,"
+                + " COALESCE(s.commentsCount, 0) AS commentsCount,"
+                + " EXISTS (SELECT 1 FROM heart h WHERE h.postId = pg.postId AND h.userId = ?) AS isHearted,"
+                + " EXISTS (SELECT 1 FROM bookmark b WHERE b.postId = pg.postId AND b.userId = ?) AS isBookmarked"
+                + " FROM (<PAGE>) pg"
+                + " JOIN user u ON u.userId = pg.userId"
+                + " LEFT JOIN post_stats s ON s.postId = pg.postId"
+                + " ORDER BY pg.postDate DESC, pg.postId DESC";
+        // Used when the in-memory timeline already knows the post IDs of the page.
+        final String idsPageString = "SELECT p.postId, p.postText, p.postDate, p.userId"
+                + " FROM post p WHERE p.postId IN (<PLACEHOLDER>)";
+        // Used otherwise. Scans the user's timeline from the cursor onwards.
+        final String timelinePageString = "SELECT p.postId, p.postText, p.postDate, p.userId"
+                + " FROM timeline t"
+                + " JOIN post p ON p.postId = t.postId"
+                + " WHERE t.userId = ?"
+                + " <CURSOR>"
+                + " ORDER BY t.postDate DESC, t.postId DESC"
+                + " LIMIT ?";
+
+        // Ask for one extra post to find out whether another page exists.
+        final List<Integer> postIds = timelineService.getPostIds(userId, cursor, limit + 1);
+        if (postIds != null && postIds.isEmpty()) {
+            return new Page<>(new ArrayList<>(), null);
+        }
+
+        final String pageString;
+        if (postIds != null) {
+            pageString = idsPageString.replace("<PLACEHOLDER>",
+                    String.join(",", Collections.nCopies(postIds.size(), "?")));
+        } else {
+            // Only add the keyset condition when continuing from a previous page.
+            pageString = timelinePageString.replace("<CURSOR>", cursor == null ? ""
+                    : "AND (t.postDate < ? OR (t.postDate = ? AND t.postId < ?))");
+        }
+
+        final List<Post> posts = new ArrayList<>();
+        Timestamp lastPostDate = null;
+        int lastPostId = 0;
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(queryString.replace("<PAGE>", pageString))) {
+            int index = 1;
+            pstmt.setInt(index++, userId);
+            pstmt.setInt(index++, userId);
+            if (postIds != null) {
+                for (Integer postId : postIds) {
+                    pstmt.setInt(index++, postId);
+                }
+            } else {
+                pstmt.setInt(index++, userId);
+                if (cursor != null) {
+                    pstmt.setTimestamp(index++, cursor.getDate());
+                    pstmt.setTimestamp(index++, cursor.getDate());
+                    pstmt.setInt(index++, cursor.getId());
+                }
+                pstmt.setInt(index, limit + 1);
+            }
+
+            RowMapper<Post> postMapper = RowMappers.post(engagementService, userId);
+            boolean hasMore = false;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (posts.size() == limit) {
+                        // The extra row is present so there is at least one more page.
+                        hasMore = true;
+                        break;
+                    }
+                    Post post = postMapper.mapRow(rs, posts.size());
+                    lastPostDate = rs.getTimestamp("postDate");
+                    lastPostId = post.getPostId();
+                    posts.add(post);
+                }
+            }
+            PageCursor nextCursor = hasMore ? new PageCursor(lastPostDate, lastPostId) : null;
+            return new Page<>(posts, nextCursor);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import uga.menik.cs4370.components.EventBus;
+import uga.menik.cs4370.utility.CompressedBitmap;
+
+/**
+ * Keeps an in-memory inverted index from each hashtag to the set of
+ * postIds that use it, so searches for posts having all of several tags
+ * are answered by intersecting bitmaps instead of grouping the hashtag table.
+ * The index is loaded from the hashtag table once the event bus starts,
+ * on the bus's thread for this consumer, and is then updated as posts are
+ * created. Until it is
+ * loaded, search returns null and callers query the database instead.
+ * Tags are matched case-insensitively, like the database collation does.
+ */
+@Service
+public class HashtagIndexService {
+
+    /** Number of rows read from the database before they are added to the index. */
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private final DataSource dataSource;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock.
+    private final Map<String, CompressedBitmap> postIdsByTag = new HashMap<>();
+
+    /** Set once every existing hashtag has been loaded. */
+    private volatile boolean isReady = false;
+
+    @Autowired
+    public HashtagIndexService(DataSource dataSource, EventBus eventBus,
+            @Value("${app.hashtag-index.load-on-startup:true}") boolean isLoadOnStartup) {
+        this.dataSource = dataSource;
+        eventBus.subscribe("hashtag-index", false, PostCreatedEvent.handler(this::onPostCreated),
+                isLoadOnStartup ? this::loadOnStartup : null);
+    }
+
+    /**
+     * Loads the index when the event bus starts, before it hands this
+     * service any new posts.
+     */
+    private void loadOnStartup() {
+        try {
+            load();
+        } catch (SQLException sqle) {
+            System.err.println("Failed to load the hashtag index; searches will use the database.");
+            sqle.printStackTrace();
+        }
+    }
+
+    /**
+     * Streams the hashtag table into the index.
+     * Posts that are also delivered by the event bus are added twice, which
+     * has no effect.
+     */
+    public void load() throws SQLException {
+        final String streamSql = "SELECT hashTag, postId FROM hashtag ORDER BY hashTag, postId";
+
+        long startTime = System.currentTimeMillis();
+        int rows = 0;
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(streamSql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // The MySQL driver only streams rows instead of reading the whole
+            // table into memory when the fetch size is Integer.MIN_VALUE.
+            boolean isMySql = conn.getMetaData().getDatabaseProductName().equalsIgnoreCase("MySQL");
+            pstmt.setFetchSize(isMySql ? Integer.MIN_VALUE : LOAD_BATCH_SIZE);
+
+            String[] tags = new String[LOAD_BATCH_SIZE];
+            int[] postIds = new int[LOAD_BATCH_SIZE];
+            int count = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    tags[count] = rs.getString(1);
+                    postIds[count] = rs.getInt(2);
+                    count++;
+                    if (count == LOAD_BATCH_SIZE) {
+                        addAll(tags, postIds, count);
+                        rows += count;
+                        count = 0;
+                    }
+                }
+            }
+            addAll(tags, postIds, count);
+            rows += count;
+        }
+        isReady = true;
+        System.out.println("Loaded " + rows + " hashtags into the hashtag index in "
+                + (System.currentTimeMillis() - startTime) + " ms.");
+    }
+
+    /**
+     * Adds the hashtags of a newly created post to the index.
+     */
+    public void onPostCreated(PostCreatedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (String tag : event.getHashTags()) {
+                postIdsByTag.computeIfAbsent(normalize(tag), t -> new CompressedBitmap()).add(event.getPostId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the IDs of the newest posts that have every one of the given
+     * tags, newest first. PostIds are assigned in creation order, so the
+     * highest IDs are the newest posts.
+     *
+     * @param tags  the tags without the leading #
+     * @param limit the maximum number of postIds to return
+     * @return the postIds, or null if the index is not loaded yet
+     */
+    public int[] search(Collection<String> tags, int limit) {
+        if (!isReady) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            List<CompressedBitmap> bitmaps = new ArrayList<>();
+            for (String tag : tags) {
+                CompressedBitmap bitmap = postIdsByTag.get(normalize(tag));
+                if (bitmap == null) {
+                    // No post has this tag, so no post has all of them.
+                    return new int[0];
+                }
+                bitmaps.add(bitmap);
+            }
+            return CompressedBitmap.intersectDescending(bitmaps, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addAll(String[] tags, int[] postIds, int count) {
+        lock.writeLock().lock();
+        try {
+            CompressedBitmap bitmap = null;
+            String lastTag = null;
+            for (int i = 0; i < count; i++) {
+                // Rows arrive grouped by tag, so the bitmap is usually the same as the last row's.
+                if (!tags[i].equals(lastTag)) {
+                    lastTag = tags[i];
+                    bitmap = postIdsByTag.computeIfAbsent(normalize(lastTag), t -> new CompressedBitmap());
+                }
+                bitmap.add(postIds[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String normalize(String tag) {
+        return tag.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,197 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.NoSuchElementException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import uga.menik.cs4370.components.Outbox;
+import uga.menik.cs4370.components.OutboxEvent;
+
+/**
+ * Sets hearts, bookmarks and follows to a given state.
+ * Each change is one statement that may run any number of times:
+ * INSERT IGNORE adds a row unless it is already there, and DELETE removes
+ * it if it is. Unlike reading the row first and then writing it, two
+ * clicks at the same time cannot both insert, and a repeated click is
+ * harmless. A follow that took effect is also recorded in the outbox, in
+ * the same transaction, so a repeated click adds no event either. Hearts
+ * and bookmarks are not, since nothing derives data from them.
+ * A change that wrote nothing is checked against the post or user it was
+ * about, since INSERT IGNORE also ignores a row whose post or user does
+ * not exist; in that case a NoSuchElementException is thrown.
+ */
+@Service
+public class InteractionService {
+
+    private final DataSource dataSource;
+    private final EngagementService engagementService;
+    private final Outbox outbox;
+
+    @Autowired
+    public InteractionService(DataSource dataSource, EngagementService engagementService, Outbox outbox) {
+        this.dataSource = dataSource;
+        this.engagementService = engagementService;
+        this.outbox = outbox;
+    }
+
+    /**
+     * Hearts or unhearts a post and returns its hearts count afterwards.
+     * The heart itself is written by the next engagement flush, so the only
+     * statement reads the stored count and state.
+     *
+     * @throws NoSuchElementException if there is no such post
+     */
+    public int setHeart(int postId, int userId, boolean isHearted) throws SQLException {
+        final String stateSql = "SELECT COALESCE(s.heartsCount, 0) AS heartsCount,"
+                + " EXISTS (SELECT 1 FROM heart h WHERE h.postId = p.postId AND h.userId = ?) AS isHearted"
+                + " FROM post p LEFT JOIN post_stats s ON s.postId = p.postId"
+                + " WHERE p.postId = ?";
+
+        final int storedHeartsCount;
+        final boolean storedIsHearted;
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(stateSql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, postId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new NoSuchElementException("No post with ID " + postId + ".");
+                }
+                storedHeartsCount = rs.getInt("heartsCount");
+                storedIsHearted = rs.getBoolean("isHearted");
+            }
+        }
+
+        // A heart that is already in the requested state is left alone, so
+        // that repeating the request does not change the count.
+        if (engagementService.isHearted(postId, userId, storedIsHearted) != isHearted) {
+            engagementService.setHeart(postId, userId, isHearted);
+        }
+        return engagementService.getHeartsCount(postId, storedHeartsCount);
+    }
+
+    /**
+     * Bookmarks or unbookmarks a post. The bookmark copies the date of the
+     * post, which orders the bookmarks page.
+     *
+     * @throws NoSuchElementException if there is no such post
+     */
+    public void setBookmark(int postId, int userId, boolean isBookmarked) throws SQLException {
+        final String insertSql = "INSERT IGNORE INTO bookmark (userId, postId, postDate)"
+                + " SELECT ?, postId, postDate FROM post WHERE postId = ?";
+        final String deleteSql = "DELETE FROM bookmark WHERE userId = ? AND postId = ?";
+        final String postSql = "SELECT 1 FROM post WHERE postId = ?";
+
+        if (apply(isBookmarked ? insertSql : deleteSql, userId, postId, null, postId, userId) == 0
+                && !exists(postSql, postId)) {
+            throw new NoSuchElementException("No post with ID " + postId + ".");
+        }
+    }
+
+    /**
+     * Follows or unfollows a user. The follower's timeline is updated from
+     * the outbox event, and only when the follow actually changed.
+     *
+     * @throws IllegalArgumentException if a user tries to follow themselves
+     * @throws NoSuchElementException   if there is no such user to follow
+     */
+    public void setFollow(int followerId, int followeeId, boolean isFollowed) throws SQLException {
+        final String insertSql = "INSERT IGNORE INTO follow (followerUserId, followeeUserId) VALUES (?, ?)";
+        final String deleteSql = "DELETE FROM follow WHERE followerUserId = ? AND followeeUserId = ?";
+        final String userSql = "SELECT 1 FROM user WHERE userId = ?";
+
+        if (followerId == followeeId) {
+            throw new IllegalArgumentException("Users cannot follow themselves.");
+        }
+        int changedRows;
+        try {
+            changedRows = apply(isFollowed ? insertSql : deleteSql, followerId, followeeId,
+                    isFollowed ? OutboxEvent.FOLLOW_ADDED : OutboxEvent.FOLLOW_REMOVED, followeeId, followerId);
+        } catch (SQLIntegrityConstraintViolationException sqle) {
+            // MySQL ignores the missing followee, but other databases still refuse the row.
+            if (exists(userSql, followeeId)) {
+                throw sqle;
+            }
+            throw new NoSuchElementException("No user with ID " + followeeId + ".");
+        }
+        if (changedRows == 0 && !exists(userSql, followeeId)) {
+            throw new NoSuchElementException("No user with ID " + followeeId + ".");
+        }
+    }
+
+    /**
+     * Copies the date of the post to every bookmark that still has the
+     * default date of migration V3, which the previous version left on the
+     * bookmarks it added during the rollout. Run the app with
+     * --backfill-bookmark-dates once every instance runs this version.
+     */
+    public int backfillBookmarkDates() throws SQLException {
+        final String backfillSql = "UPDATE bookmark SET postDate ="
+                + " (SELECT p.postDate FROM post p WHERE p.postId = bookmark.postId)"
+                + " WHERE postDate = '1970-01-01 00:00:00'";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(backfillSql)) {
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Runs an insert or delete of one row, and if it changed the row and an
+     * event type is given, records the change in the outbox in the same
+     * transaction. A request that changes nothing commits without an event.
+     * Returns the number of rows changed.
+     */
+    private int apply(String sql, int firstId, int secondId, String eventType, int aggregateId, int userId)
+            throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int changedRows;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, firstId);
+                    pstmt.setInt(2, secondId);
+                    changedRows = pstmt.executeUpdate();
+                }
+                if (changedRows > 0 && eventType != null) {
+                    outbox.append(conn, eventType, aggregateId, userId, null,
+                            new Timestamp(System.currentTimeMillis()));
+                }
+                conn.commit();
+                return changedRows;
+            } catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Returns whether a query for one row by its ID finds it.
+     */
+    private boolean exists(String sql, int id) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
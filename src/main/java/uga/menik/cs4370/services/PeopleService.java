@@ -10,95 +10,150 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import uga.menik.cs4370.models.FollowableUser;
+import uga.menik.cs4370.models.Page;
+import uga.menik.cs4370.models.PageCursor;
 import uga.menik.cs4370.models.User;
 
 @Service
 public class PeopleService {
     private final DataSource dataSource;
+    // Read replicas, for the people directory.
+    private final DataSource readDataSource;
 
     @Autowired
-    public PeopleService(DataSource dataSource) {
+    public PeopleService(DataSource dataSource, @Qualifier("readDataSource") DataSource readDataSource) {
         this.dataSource = dataSource;
+        this.readDataSource = readDataSource;
     }
 
-    public boolean checkIfUserIsFollowed(String loggedInUserId, String targetUserId) {
-        String checkSql = "SELECT 1 FROM follow WHERE followerUserId = ? AND followeeUserId = ?";
-
-        try (Connection conn = dataSource.getConnection(); PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-            checkStmt.setInt(1, Integer.parseInt(loggedInUserId));
-            checkStmt.setInt(2, Integer.parseInt(targetUserId));
-
-            try (ResultSet rs = checkStmt.executeQuery()) {
-                return rs.next();
+    /**
+     * Returns one page of the people directory: every user except the viewer,
+     * ordered by userId, with their follow status and the date of their last
+     * post read in the same query.
+     * When a search prefix is given only users whose username, first name, or
+     * last name starts with it are listed. Each of those columns is indexed,
+     * so a search reads only the matching users rather than the whole table.
+     *
+     * @param viewerId    the logged-in user, who is left out of the directory
+     * @param prefix      the search prefix, or null to list everyone
+     * @param afterUserId the last userId of the previous page, or 0 for the first page
+     * @param limit       the maximum number of users on the page
+     * @return the page of users
+     */
+    public Page<FollowableUser> getFollowableUsers(int viewerId, String prefix, int afterUserId, int limit)
+            throws SQLException {
+        final String queryString = "SELECT u.userId, u.firstName, u.lastName,"
+                + " EXISTS (SELECT 1 FROM follow f WHERE f.followerUserId = ? AND f.followeeUserId = u.userId) AS isFollowed,"
+                + " (SELECT MAX(p.postDate) FROM post p WHERE p.userId = u.userId) AS lastPostDate"
+                + " FROM <USERS>"
+                + " WHERE u.userId != ? AND u.userId > ?"
+                + " ORDER BY u.userId ASC LIMIT ?";
+        // Each branch is a range scan on one index; UNION removes users matched twice.
+        final String searchString = "(SELECT userId FROM user WHERE username LIKE ?"
+                + " UNION SELECT userId FROM user WHERE firstName LIKE ?"
+                + " UNION SELECT userId FROM user WHERE lastName LIKE ?) m"
+                + " JOIN user u ON u.userId = m.userId";
+
+        final boolean isSearch = prefix != null && !prefix.isBlank();
+        final String sql = queryString.replace("<USERS>", isSearch ? searchString : "user u");
+        try (Connection conn = readDataSource.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            pstmt.setInt(index++, viewerId);
+            if (isSearch) {
+                String pattern = escapeLike(prefix.trim()) + "%";
+                pstmt.setString(index++, pattern);
+                pstmt.setString(index++, pattern);
+                pstmt.setString(index++, pattern);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        return false;
-    }
-
-
-    public List<FollowableUser> getFollowableUsers(String userIdToExclude) {
-        List<FollowableUser> followableUsers = new ArrayList<>();
-
-        String sql = "SELECT u.userId, u.firstName, u.lastName "
-                + "FROM user u "
-                + "WHERE u.userId != ?";
-
-        try (Connection conn = dataSource.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, userIdToExclude);
+            pstmt.setInt(index++, viewerId);
+            pstmt.setInt(index++, afterUserId);
+            // One extra user tells whether there is another page.
+            pstmt.setInt(index, limit + 1);
 
+            List<FollowableUser> followableUsers = new ArrayList<>();
+            PageCursor nextCursor = null;
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    String userId = rs.getString("userId");
-                    String firstName = rs.getString("firstName");
-                    String lastName = rs.getString("lastName");
+                    if (followableUsers.size() == limit) {
+                        int lastUserId = followableUsers.get(limit - 1).getUserId();
+                        nextCursor = new PageCursor(null, lastUserId);
+                        break;
+                    }
+                    followableUsers.add(RowMappers.FOLLOWABLE_USER.mapRow(rs, followableUsers.size()));
+                }
+            }
+            return new Page<>(followableUsers, nextCursor);
+        }
+    }
 
-                    // Get the follow status for the user
-                    boolean isFollowed = checkIfUserIsFollowed(userIdToExclude, userId);
+    public User getUserById(int userId) {
+        final String queryString = "SELECT userId, firstName, lastName FROM user WHERE userId = ?";
 
-                    // Creating FollowableUser with the correct follow status
-                    FollowableUser user = new FollowableUser(userId, firstName, lastName, isFollowed, "N/A");
-                    followableUsers.add(user);
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement query = connection.prepareStatement(queryString)) {
+            query.setInt(1, userId);
+            try (ResultSet results = query.executeQuery()) {
+                if (results.next()) {
+                    return RowMappers.USER.mapRow(results, 0);
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+
+        } catch (SQLException sqle) {
+            sqle.printStackTrace();
         }
 
-        return followableUsers;
+        return null;
     }
 
-    public User getUserById(String userId) {
-        final String queryString = "SELECT firstName, lastName FROM user WHERE userId = ?";
-
-        try (Connection connection = dataSource.getConnection()) {
-            PreparedStatement query = connection.prepareStatement(queryString);
-            query.setString(1, userId);
-            ResultSet results = query.executeQuery();
-            if (results.next()) {
-                User user = new User(
-                    userId,
-                    results.getString("firstName"),
-                    results.getString("lastName")
-                );
-                return user;
-            }
+    /**
+     * Returns the users with the given IDs keyed by userId, using a single query.
+     * IDs that do not belong to any user are left out of the map.
+     */
+    public Map<Integer, User> getUsersByIds(Collection<Integer> userIds) {
+        final String queryString = "SELECT userId, firstName, lastName FROM user WHERE userId IN (<PLACEHOLDER>)";
+
+        Map<Integer, User> users = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return users;
+        }
 
+        final String placeholderString = queryString.replace("<PLACEHOLDER>",
+                String.join(",", Collections.nCopies(userIds.size(), "?")));
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement query = connection.prepareStatement(placeholderString)) {
+            int index = 1;
+            for (int userId : userIds) {
+                query.setInt(index++, userId);
+            }
+            try (ResultSet results = query.executeQuery()) {
+                for (User user : RowMappers.mapAll(results, RowMappers.USER)) {
+                    users.put(user.getUserId(), user);
+                }
+            }
         } catch (SQLException sqle) {
             sqle.printStackTrace();
         }
 
-        return null;
+        return users;
     }
 
-}
\ No newline at end of file
+    /**
+     * Escapes the LIKE wildcards in user input so it only matches as a literal prefix.
+     */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
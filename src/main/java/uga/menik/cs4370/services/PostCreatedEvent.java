@@ -0,0 +1,81 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.Timestamp;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import uga.menik.cs4370.components.EventBus;
+import uga.menik.cs4370.components.OutboxEvent;
+
+/**
+ * A new post, as read from the post.created events that PostCreationService
+ * writes to the outbox. The outbox only has committed events, so services
+ * that derive data from posts never see a post that was rolled back.
+ */
+public class PostCreatedEvent {
+
+    private final int postId;
+    private final int authorId;
+    private final Timestamp postDate;
+    private final String postText;
+    private final Set<String> hashTags;
+
+    public PostCreatedEvent(int postId, int authorId, Timestamp postDate, String postText, Set<String> hashTags) {
+        this.postId = postId;
+        this.authorId = authorId;
+        this.postDate = postDate;
+        this.postText = postText;
+        this.hashTags = Set.copyOf(hashTags);
+    }
+
+    /**
+     * Reads a post.created event. The hashtags are extracted from the text
+     * again, the same way they were when the post was created.
+     */
+    public static PostCreatedEvent of(OutboxEvent event) {
+        return new PostCreatedEvent(event.getAggregateId(), event.getUserId(), event.getCreatedAt(),
+                event.getPayload(), PostCreationService.extractHashTags(event.getPayload()));
+    }
+
+    /**
+     * Returns an event bus handler that passes the post.created events of
+     * each batch to a listener and ignores the rest.
+     */
+    public static EventBus.Handler handler(Consumer<PostCreatedEvent> listener) {
+        return events -> {
+            for (OutboxEvent event : events) {
+                if (OutboxEvent.POST_CREATED.equals(event.getEventType())) {
+                    listener.accept(of(event));
+                }
+            }
+        };
+    }
+
+    public int getPostId() {
+        return postId;
+    }
+
+    public int getAuthorId() {
+        return authorId;
+    }
+
+    public Timestamp getPostDate() {
+        return postDate;
+    }
+
+    public String getPostText() {
+        return postText;
+    }
+
+    /**
+     * Returns the hashtags of the post, without the leading #.
+     */
+    public Set<String> getHashTags() {
+        return hashTags;
+    }
+}
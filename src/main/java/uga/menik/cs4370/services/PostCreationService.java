@@ -0,0 +1,156 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import uga.menik.cs4370.components.Outbox;
+import uga.menik.cs4370.components.OutboxEvent;
+
+/**
+ * Creates posts. The post, its counters, its hashtags and a post.created
+ * outbox event are written in one transaction, so a failure leaves nothing
+ * behind. The hashtags are inserted as one JDBC batch, which the MySQL
+ * driver sends as a single multi-row insert when the connection URL has
+ * rewriteBatchedStatements=true.
+ *
+ * Once the transaction commits, the outbox relay publishes the event and
+ * the timelines, in-memory indexes and trending counts add the post from
+ * there, off the request thread.
+ */
+@Service
+public class PostCreationService {
+
+    /** Longest post text the post table can store. */
+    public static final int MAX_POST_LENGTH = 500;
+
+    /** Longest hashtag the hashtag table can store. */
+    public static final int MAX_HASHTAG_LENGTH = 50;
+
+    /** A regular expression that matches a valid hashtag */
+    private static final Pattern hashTagPattern = Pattern.compile("\\B#([\\w-]+)");
+
+    private final DataSource dataSource;
+    private final PostStatsService postStatsService;
+    private final Outbox outbox;
+
+    @Autowired
+    public PostCreationService(DataSource dataSource, PostStatsService postStatsService, Outbox outbox) {
+        this.dataSource = dataSource;
+        this.postStatsService = postStatsService;
+        this.outbox = outbox;
+    }
+
+    /**
+     * Creates a post and returns its ID.
+     *
+     * @param authorId the user making the post
+     * @param postText the text of the post, with its hashtags
+     * @throws IllegalArgumentException if the post is blank, too long or has a hashtag that is too long,
+     *                                  with a message that can be shown to the user
+     */
+    public int createPost(int authorId, String postText) throws SQLException {
+        final String createPostSql = "INSERT INTO post (userId, postDate, postText) VALUES (?, ?, ?)";
+        final String createHashtagSql = "INSERT INTO hashtag (hashTag, postId) VALUES (?, ?)";
+
+        final Set<String> hashTags = validate(postText);
+        // The post date is kept to whole seconds since that is what the
+        // datetime column stores. Timelines compare dates with the stored value.
+        final Timestamp postDate = new Timestamp(System.currentTimeMillis() / 1000 * 1000);
+
+        final int postId;
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement pstmt = conn.prepareStatement(createPostSql, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setInt(1, authorId);
+                    pstmt.setTimestamp(2, postDate);
+                    pstmt.setString(3, postText);
+                    pstmt.executeUpdate();
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        if (!keys.next()) {
+                            throw new SQLException("The new post has no ID.");
+                        }
+                        postId = keys.getInt(1);
+                    }
+                }
+                postStatsService.createStats(conn, postId, postDate);
+
+                if (!hashTags.isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(createHashtagSql)) {
+                        for (String hashTag : hashTags) {
+                            pstmt.setString(1, hashTag);
+                            pstmt.setInt(2, postId);
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch();
+                    }
+                }
+
+                outbox.append(conn, OutboxEvent.POST_CREATED, postId, authorId, postText, postDate);
+                conn.commit();
+            } catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return postId;
+    }
+
+    /**
+     * Checks that a post fits in the database and returns its hashtags.
+     */
+    private static Set<String> validate(String postText) {
+        if (postText == null || postText.isBlank()) {
+            throw new IllegalArgumentException("Cannot create blank posts.");
+        }
+        if (postText.length() > MAX_POST_LENGTH) {
+            throw new IllegalArgumentException("Posts can be at most " + MAX_POST_LENGTH + " characters long.");
+        }
+        final Set<String> hashTags = extractHashTags(postText);
+        for (String hashTag : hashTags) {
+            if (hashTag.length() > MAX_HASHTAG_LENGTH) {
+                throw new IllegalArgumentException("Hashtags can be at most " + MAX_HASHTAG_LENGTH
+                        + " characters long.");
+            }
+        }
+        return hashTags;
+    }
+
+    /**
+     * Returns the distinct hashtags in a post's text, without the leading #,
+     * in the order they first appear. Hashtags that differ only in case are
+     * the same hashtag to the database, so only the first spelling is kept.
+     */
+    public static Set<String> extractHashTags(String postText) {
+        final Matcher hashTagMatcher = hashTagPattern.matcher(postText);
+        final Map<String, String> hashTags = new LinkedHashMap<>();
+        while (hashTagMatcher.find()) {
+            String hashTag = hashTagMatcher.group(1);
+            hashTags.putIfAbsent(hashTag.toLowerCase(Locale.ROOT), hashTag);
+        }
+        return new LinkedHashSet<>(hashTags.values());
+    }
+}
@@ -0,0 +1,172 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import uga.menik.cs4370.components.EventBus;
+import uga.menik.cs4370.utility.CompressedBitmap;
+import uga.menik.cs4370.utility.TextIndex;
+
+/**
+ * Searches the text of posts with an in-memory full-text index.
+ * Existing posts are loaded into the index once the event bus starts, on
+ * the bus's thread for this consumer, and new posts are added as they are
+ * created. Until loading finishes, searches only see the posts loaded so far.
+ */
+@Service
+public class PostSearchService {
+
+    /** Number of new posts buffered before they are frozen into a segment. */
+    private static final int FLUSH_THRESHOLD = 1000;
+
+    /** Number of segments that triggers a background merge. */
+    private static final int MERGE_FACTOR = 10;
+
+    /** Number of posts read from the database per segment while loading. */
+    private static final int LOAD_BATCH_SIZE = 50_000;
+
+    private final DataSource dataSource;
+    private final ExecutorService merger;
+    private final TextIndex index;
+
+    // The posts in the index, so that a post both loaded and delivered as an
+    // event, or delivered twice, is added once. One bit per post. Guarded by this.
+    private final CompressedBitmap indexedPostIds = new CompressedBitmap();
+
+    /** Set once every existing post has been loaded. */
+    private volatile boolean isReady;
+
+    @Autowired
+    public PostSearchService(DataSource dataSource, EventBus eventBus,
+            @Value("${app.search.load-on-startup:true}") boolean isLoadOnStartup) {
+        this.dataSource = dataSource;
+        this.merger = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.index = new TextIndex(FLUSH_THRESHOLD, MERGE_FACTOR, merger);
+        this.isReady = !isLoadOnStartup;
+        eventBus.subscribe("search", false, PostCreatedEvent.handler(this::onPostCreated),
+                isLoadOnStartup ? this::loadOnStartup : null);
+    }
+
+    /**
+     * Loads the existing posts when the event bus starts, before it hands
+     * this service any new posts.
+     */
+    private void loadOnStartup() {
+        try {
+            load();
+        } catch (SQLException sqle) {
+            System.err.println("Failed to load posts into the search index; only new posts are searchable.");
+            sqle.printStackTrace();
+        }
+    }
+
+    /**
+     * Streams every existing post into the index.
+     */
+    public void load() throws SQLException {
+        final String streamSql = "SELECT postId, postDate, postText FROM post ORDER BY postId";
+
+        long startTime = System.currentTimeMillis();
+        int rows = 0;
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(streamSql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // See HashtagIndexService.load on streaming rows from MySQL.
+            boolean isMySql = conn.getMetaData().getDatabaseProductName().equalsIgnoreCase("MySQL");
+            pstmt.setFetchSize(isMySql ? Integer.MIN_VALUE : 1000);
+
+            int[] postIds = new int[LOAD_BATCH_SIZE];
+            long[] postTimes = new long[LOAD_BATCH_SIZE];
+            String[] postTexts = new String[LOAD_BATCH_SIZE];
+            int count = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int postId = rs.getInt(1);
+                    if (!markIndexed(postId)) {
+                        continue;
+                    }
+                    postIds[count] = postId;
+                    postTimes[count] = rs.getTimestamp(2).getTime();
+                    postTexts[count] = rs.getString(3);
+                    count++;
+                    if (count == LOAD_BATCH_SIZE) {
+                        index.addAll(postIds, postTimes, postTexts, count);
+                        rows += count;
+                        count = 0;
+                    }
+                }
+            }
+            index.addAll(postIds, postTimes, postTexts, count);
+            rows += count;
+        }
+        isReady = true;
+        System.out.println("Loaded " + rows + " posts into the search index in "
+                + (System.currentTimeMillis() - startTime) + " ms.");
+    }
+
+    /**
+     * Makes a newly created post searchable.
+     */
+    public void onPostCreated(PostCreatedEvent event) {
+        if (!markIndexed(event.getPostId())) {
+            return;
+        }
+        index.add(event.getPostId(), event.getPostDate().getTime(), event.getPostText());
+    }
+
+    /**
+     * Returns the IDs of the posts that best match a search, best first.
+     */
+    public List<Integer> search(String query, int limit) {
+        List<Integer> postIds = new ArrayList<>();
+        for (int postId : index.search(query, limit, System.currentTimeMillis())) {
+            postIds.add(postId);
+        }
+        return postIds;
+    }
+
+    /**
+     * Returns whether every existing post is in the index.
+     */
+    public boolean isReady() {
+        return isReady;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        merger.shutdownNow();
+    }
+
+    /**
+     * Records that a post goes into the index. Returns false if it already has.
+     */
+    private synchronized boolean markIndexed(int postId) {
+        if (indexedPostIds.contains(postId)) {
+            return false;
+        }
+        indexedPostIds.add(postId);
+        return true;
+    }
+}
@@ -9,33 +9,67 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 
 import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 
+import uga.menik.cs4370.components.Outbox;
+import uga.menik.cs4370.components.OutboxEvent;
+import uga.menik.cs4370.components.ParallelQueries;
 import uga.menik.cs4370.models.Comment;
 import uga.menik.cs4370.models.ExpandedPost;
+import uga.menik.cs4370.models.Page;
+import uga.menik.cs4370.models.PageCursor;
 import uga.menik.cs4370.models.Post;
-import uga.menik.cs4370.models.User;
-import uga.menik.cs4370.utility.Utility;
 
 @Service
 public class PostService {
 
+    /**
+     * Number of comments shown per page on the post page.
+     */
+    public static final int COMMENTS_PAGE_SIZE = 50;
+
+    /**
+     * Number of posts shown per page on the profile and bookmarks pages.
+     */
+    public static final int POSTS_PAGE_SIZE = 20;
+
     private final DataSource dataSource;
-    private final PeopleService peopleService;
+    // Read replicas, for the page queries that may lag behind writes slightly.
+    private final DataSource readDataSource;
     private final UserService userService;
+    private final UserLoader userLoader;
+    private final Outbox outbox;
+    private final EngagementService engagementService;
+    private final ParallelQueries parallelQueries;
 
     @Autowired
-    public PostService(DataSource dataSource, PeopleService peopleService, UserService userService) {
+    public PostService(DataSource dataSource, @Qualifier("readDataSource") DataSource readDataSource,
+            UserService userService, UserLoader userLoader,
+            Outbox outbox, EngagementService engagementService,
+            ParallelQueries parallelQueries) {
         this.dataSource = dataSource;
-        this.peopleService = peopleService;
+        this.readDataSource = readDataSource;
         this.userService = userService;
+        this.userLoader = userLoader;
+        this.outbox = outbox;
+        this.engagementService = engagementService;
+        this.parallelQueries = parallelQueries;
     }
 
     /**
@@ -47,16 +81,19 @@ public class PostService {
     public List<Post> getPostsFromIds(List<Integer> postIds) {
         final String queryString = "SELECT"
                 + " p.postId,"
-                + " p.postText AS content,"
+                + " p.postText,"
                 + " p.postDate,"
                 + " u.userId,"
-                + " (SELECT COUNT(userId) FROM heart WHERE postId = p.postId) AS heartsCount,"
-                + " (SELECT COUNT(userId) FROM comment WHERE postId = p.postId) AS commentsCount,"
-                + " ((p.postId, ?) IN (SELECT * FROM heart)) AS isHearted,"
-                + " ((p.postId, ?) IN (SELECT * FROM bookmark)) AS isBookmarked"
-                + " FROM post p, user u"
-                + " WHERE p.userId = u.userId"
-                + " AND p.postId IN (<PLACEHOLDER>)"
+                + " u.firstName,"
+                + " u.lastName,"
+                + " COALESCE(s.heartsCount, 0) AS heartsCount,"
+                + " COALESCE(s.commentsCount, 0) AS commentsCount,"
+                + " EXISTS (SELECT 1 FROM heart h WHERE h.postId = p.postId AND h.userId = ?) AS isHearted,"
+                + " EXISTS (SELECT 1 FROM bookmark b WHERE b.postId = p.postId AND b.userId = ?) AS isBookmarked"
+                + " FROM post p"
+                + " JOIN user u ON u.userId = p.userId"
+                + " LEFT JOIN post_stats s ON s.postId = p.postId"
+                + " WHERE p.postId IN (<PLACEHOLDER>)"
                 + " ORDER BY p.postDate DESC";
 
         List<Post> posts = new ArrayList<>();
@@ -66,34 +103,22 @@ public class PostService {
 
         final String placeholderString = queryString.replace("<PLACEHOLDER>",
                 String.join(",", Collections.nCopies(postIds.size(), "?")));
-        try (final Connection connection = dataSource.getConnection()) {
-            final String userId;
-            if (userService.isAuthenticated()) {
-                userId = userService.getLoggedInUser().getUserId();
-            } else {
-                userId = "-1";
-            }
-            PreparedStatement query = connection.prepareStatement(placeholderString);
-            query.setString(1, userId);
-            query.setString(2, userId);
+        try (final Connection connection = readDataSource.getConnection();
+                PreparedStatement query = connection.prepareStatement(placeholderString)) {
+            final int viewerId = userService.isAuthenticated() ? userService.getLoggedInUser().getUserId() : -1;
+            query.setInt(1, viewerId);
+            query.setInt(2, viewerId);
             for (int i = 0; i < postIds.size(); i++) {
                 query.setInt(3 + i, postIds.get(i));
             }
 
-            ResultSet results = query.executeQuery();
-            while (results.next()) {
-                User user = peopleService.getUserById(results.getString("userId"));
-                Post post = new Post(
-                        results.getString("postId"),
-                        results.getString("content"),
-                        Utility.formatDateTime(results.getTimestamp("postDate")),
-                        user,
-                        results.getInt("heartsCount"),
-                        results.getInt("commentsCount"),
-                        results.getBoolean("isHearted"),
-                        results.getBoolean("isBookmarked")
-                );
-                posts.add(post);
+            try (ResultSet results = query.executeQuery()) {
+                posts = RowMappers.mapAll(results, RowMappers.post(engagementService, viewerId));
+            }
+            // The authors are already joined in, so remember them for later
+            // lookups in this request instead of querying them again.
+            for (Post post : posts) {
+                userLoader.prime(post.getUser());
             }
         } catch (SQLException sqle) {
             sqle.printStackTrace();
@@ -102,100 +127,240 @@ public class PostService {
         return posts;
     }
 
-    public List<ExpandedPost> getExpandedPostsByIds(List<Integer> postIds) {
-        final String commentsQueryString = "SELECT commentId, userId, commentDate, commentText FROM comment WHERE postId = ? ORDER BY commentDate ASC";
-
-        final List<Post> posts = getPostsFromIds(postIds);
+    /**
+     * Get a list of posts from their IDs along with the first page of
+     * comments of each post. The comments of all posts are read with one
+     * query, at the same time as the posts, and their authors with one more.
+     *
+     * @param postIds
+     * @return
+     * @throws SQLException if the comments could not be read in time
+     */
+    public List<ExpandedPost> getExpandedPostsByIds(List<Integer> postIds) throws SQLException {
         final List<ExpandedPost> expandedPosts = new ArrayList<>();
+        if (postIds.isEmpty()) {
+            return expandedPosts;
+        }
 
-        try (Connection connection = dataSource.getConnection()) {
-            PreparedStatement query = connection.prepareStatement(commentsQueryString);
-            for (Post post : posts) {
-                List<Comment> comments = new ArrayList<>();
-                query.setString(1, post.getPostId());
-                ResultSet results = query.executeQuery();
-                while (results.next()) {
-                    Comment comment = new Comment(
-                            results.getString("commentId"),
-                            results.getString("commentText"),
-                            Utility.formatDateTime(results.getTimestamp("commentDate")),
-                            peopleService.getUserById(results.getString("userId"))
-                    );
-
-                    comments.add(comment);
-                }
-                ExpandedPost expandedPost = new ExpandedPost(
-                        post.getPostId(),
-                        post.getContent(),
-                        post.getPostDate(),
-                        post.getUser(),
-                        post.getHeartsCount(),
-                        post.getCommentsCount(),
-                        post.getHearted(),
-                        post.isBookmarked(),
-                        comments
-                );
-                expandedPosts.add(expandedPost);
+        // The comments are read at the same time as the posts. Their query
+        // only needs the post IDs, and leaves the user loader alone.
+        final List<Post> posts;
+        final Map<Integer, List<CommentRow>> rowsPerPost;
+        try (ParallelQueries.Scope scope = parallelQueries.open()) {
+            Future<Map<Integer, List<CommentRow>>> comments = scope.fork(() -> getFirstCommentRows(postIds, scope));
+            posts = getPostsFromIds(postIds);
+            scope.join();
+            rowsPerPost = comments.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqle) {
+                throw sqle;
             }
-        } catch (SQLException sqle) {
-            sqle.printStackTrace();
+            throw new SQLException("Failed to read the comments.", e.getCause());
+        } catch (TimeoutException e) {
+            throw new SQLTimeoutException("The comments took too long to read.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while reading the comments.", e);
+        }
+
+        for (List<CommentRow> rows : rowsPerPost.values()) {
+            for (CommentRow row : rows) {
+                userLoader.enqueue(row.authorId);
+            }
+        }
+        for (Post post : posts) {
+            Page<Comment> comments = toCommentPage(
+                    rowsPerPost.getOrDefault(post.getPostId(), List.of()), COMMENTS_PAGE_SIZE);
+            ExpandedPost expandedPost = new ExpandedPost(
+                    post.getPostId(),
+                    post.getContent(),
+                    post.getPostEpochMillis(),
+                    post.getUser(),
+                    post.getHeartsCount(),
+                    post.getCommentsCount(),
+                    post.getHearted(),
+                    post.isBookmarked(),
+                    comments.getItems(),
+                    comments.getNextCursor()
+            );
+            expandedPosts.add(expandedPost);
         }
 
         return expandedPosts;
     }
 
-    public List<Post> getBookmarkedPosts() {
-        final String bookmarkedPostsQueryString = "SELECT postId FROM bookmark WHERE userId = ?";
-        List<Post> posts = new ArrayList<>();
-        if (!userService.isAuthenticated()) {
-            return posts;
-        }
+    /**
+     * Reads the first page of comments of each post, plus one more comment
+     * per post that tells whether there is another page.
+     */
+    private Map<Integer, List<CommentRow>> getFirstCommentRows(List<Integer> postIds, ParallelQueries.Scope scope)
+            throws SQLException {
+        final String commentsQueryString = "SELECT c.postId, c.commentId, c.userId, c.commentDate, c.commentText"
+                + " FROM (SELECT postId, commentId, userId, commentDate, commentText,"
+                + " ROW_NUMBER() OVER (PARTITION BY postId ORDER BY commentDate ASC, commentId ASC) AS commentNumber"
+                + " FROM comment WHERE postId IN (<PLACEHOLDER>)) c"
+                + " WHERE c.commentNumber <= ?"
+                + " ORDER BY c.postId, c.commentDate ASC, c.commentId ASC";
+
+        final String placeholderString = commentsQueryString.replace("<PLACEHOLDER>",
+                String.join(",", Collections.nCopies(postIds.size(), "?")));
+        try (Connection connection = readDataSource.getConnection();
+                PreparedStatement query = connection.prepareStatement(placeholderString)) {
+            for (int i = 0; i < postIds.size(); i++) {
+                query.setInt(1 + i, postIds.get(i));
+            }
+            query.setInt(1 + postIds.size(), COMMENTS_PAGE_SIZE + 1);
+            scope.track(query);
 
-        try (Connection connection = dataSource.getConnection()) {
-            PreparedStatement statement = connection.prepareCall(bookmarkedPostsQueryString);
-            statement.setString(1, userService.getLoggedInUser().getUserId());
-            ResultSet results = statement.executeQuery();
+            Map<Integer, List<CommentRow>> rowsPerPost = new HashMap<>();
+            try (ResultSet results = query.executeQuery()) {
+                while (results.next()) {
+                    CommentRow row = readCommentRow(results);
+                    rowsPerPost.computeIfAbsent(results.getInt("postId"), id -> new ArrayList<>()).add(row);
+                }
+            }
+            return rowsPerPost;
+        }
+    }
 
-            List<Integer> bookmarkedPostIds = new ArrayList<>();
-            while (results.next()) {
-                bookmarkedPostIds.add(results.getInt("postId"));
+    /**
+     * Get the page of comments of a post that comes after the cursor.
+     * Comments are ordered oldest to newest.
+     *
+     * @param postId the post whose comments are read
+     * @param cursor the last comment of the previous page, or null for the first page
+     * @param limit  the maximum number of comments on the page
+     * @return the page of comments
+     */
+    public Page<Comment> getCommentsPage(int postId, PageCursor cursor, int limit) throws SQLException {
+        final String queryString = "SELECT commentId, userId, commentDate, commentText FROM comment"
+                + " WHERE postId = ? <CURSOR>"
+                + " ORDER BY commentDate ASC, commentId ASC LIMIT ?";
+        final String cursorString = "AND (commentDate > ? OR (commentDate = ? AND commentId > ?))";
+
+        final String sql = queryString.replace("<CURSOR>", cursor == null ? "" : cursorString);
+        try (Connection connection = readDataSource.getConnection();
+                PreparedStatement query = connection.prepareStatement(sql)) {
+            int index = 1;
+            query.setInt(index++, postId);
+            if (cursor != null) {
+                query.setTimestamp(index++, cursor.getDate());
+                query.setTimestamp(index++, cursor.getDate());
+                query.setInt(index++, cursor.getId());
             }
+            query.setInt(index, limit + 1);
 
-            if (!bookmarkedPostIds.isEmpty()) {
-                posts = getPostsFromIds(bookmarkedPostIds);
+            List<CommentRow> rows = new ArrayList<>();
+            try (ResultSet results = query.executeQuery()) {
+                while (results.next()) {
+                    CommentRow row = readCommentRow(results);
+                    userLoader.enqueue(row.authorId);
+                    rows.add(row);
+                }
             }
-        } catch (SQLException sqle) {
-            sqle.printStackTrace();
+            return toCommentPage(rows, limit);
         }
-
-        return posts;
     }
 
-    public List<Post> getPostsByUser(String userId) {
-        final String bookmarkedPostsQueryString = "SELECT postId FROM post WHERE userId = ?";
-        List<Post> posts = new ArrayList<>();
+    /**
+     * Get one page of the posts the user has bookmarked, newest post first.
+     *
+     * @param userId the user whose bookmarks are read, who is also the viewer
+     * @param cursor the last post of the previous page, or null for the first page
+     * @param limit  the maximum number of posts on the page
+     * @return the page of posts
+     */
+    public Page<Post> getBookmarkedPosts(int userId, PageCursor cursor, int limit) throws SQLException {
+        // Reads the page straight from bookmark_user_date; bookmarks keep the post's date.
+        final String pageString = "SELECT p.postId, p.postText, p.postDate, p.userId"
+                + " FROM bookmark b"
+                + " JOIN post p ON p.postId = b.postId"
+                + " WHERE b.userId = ?"
+                + " <CURSOR>"
+                + " ORDER BY b.postDate DESC, b.postId DESC"
+                + " LIMIT ?";
+        final String cursorString = "AND (b.postDate < ? OR (b.postDate = ? AND b.postId < ?))";
+
+        return getPostsPage(pageString.replace("<CURSOR>", cursor == null ? "" : cursorString),
+                userId, userId, cursor, limit);
+    }
 
-        try (Connection connection = dataSource.getConnection()) {
-            PreparedStatement statement = connection.prepareCall(bookmarkedPostsQueryString);
-            statement.setString(1, userId);
-            ResultSet results = statement.executeQuery();
+    /**
+     * Get one page of the posts written by a user, newest first. Only the
+     * page is read, from post_user_date, however many posts the user has.
+     *
+     * @param userId the author of the posts
+     * @param cursor the last post of the previous page, or null for the first page
+     * @param limit  the maximum number of posts on the page
+     * @return the page of posts
+     */
+    public Page<Post> getPostsByUser(int userId, PageCursor cursor, int limit) throws SQLException {
+        final String pageString = "SELECT p.postId, p.postText, p.postDate, p.userId"
+                + " FROM post p"
+                + " WHERE p.userId = ?"
+                + " <CURSOR>"
+                + " ORDER BY p.postDate DESC, p.postId DESC"
+                + " LIMIT ?";
+        final String cursorString = "AND (p.postDate < ? OR (p.postDate = ? AND p.postId < ?))";
+
+        final int viewerId = userService.isAuthenticated() ? userService.getLoggedInUser().getUserId() : -1;
+        return getPostsPage(pageString.replace("<CURSOR>", cursor == null ? "" : cursorString),
+                userId, viewerId, cursor, limit);
+    }
 
-            List<Integer> userPostIds = new ArrayList<>();
-            while (results.next()) {
-                userPostIds.add(results.getInt("postId"));
+    /**
+     * Reads a page of posts selected by pageString, which takes the owner
+     * of the list, the cursor if there is one, and the limit, and adds the
+     * author, the counters and the viewer's heart and bookmark in the same
+     * query. One extra post tells whether there is another page.
+     */
+    private Page<Post> getPostsPage(String pageString, int ownerId, int viewerId, PageCursor cursor, int limit)
+            throws SQLException {
+        final String queryString = "SELECT pg.postId, pg.postText, pg.postDate, pg.userId,"
+                + " u.firstName, u.lastName,"
+                + " COALESCE(s.heartsCount, 0) AS heartsCount,"
+                + " COALESCE(s.commentsCount, 0) AS commentsCount,"
+                + " EXISTS (SELECT 1 FROM heart h WHERE h.postId = pg.postId AND h.userId = ?) AS isHearted,"
+                + " EXISTS (SELECT 1 FROM bookmark b WHERE b.postId = pg.postId AND b.userId = ?) AS isBookmarked"
+                + " FROM (<PAGE>) pg"
+                + " JOIN user u ON u.userId = pg.userId"
+                + " LEFT JOIN post_stats s ON s.postId = pg.postId"
+                + " ORDER BY pg.postDate DESC, pg.postId DESC";
+
+        try (Connection connection = readDataSource.getConnection();
+                PreparedStatement query = connection.prepareStatement(queryString.replace("<PAGE>", pageString))) {
+            int index = 1;
+            query.setInt(index++, viewerId);
+            query.setInt(index++, viewerId);
+            query.setInt(index++, ownerId);
+            if (cursor != null) {
+                query.setTimestamp(index++, cursor.getDate());
+                query.setTimestamp(index++, cursor.getDate());
+                query.setInt(index++, cursor.getId());
             }
+            query.setInt(index, limit + 1);
 
-            if (!userPostIds.isEmpty()) {
-                posts = getPostsFromIds(userPostIds);
+            RowMapper<Post> postMapper = RowMappers.post(engagementService, viewerId);
+            List<Post> posts = new ArrayList<>();
+            PageCursor nextCursor = null;
+            try (ResultSet results = query.executeQuery()) {
+                while (results.next()) {
+                    if (posts.size() == limit) {
+                        Post last = posts.get(limit - 1);
+                        nextCursor = new PageCursor(new Timestamp(last.getPostEpochMillis()), last.getPostId());
+                        break;
+                    }
+                    posts.add(postMapper.mapRow(results, posts.size()));
+                }
             }
-        } catch (SQLException sqle) {
-            sqle.printStackTrace();
+            for (Post post : posts) {
+                userLoader.prime(post.getUser());
+            }
+            return new Page<>(posts, nextCursor);
         }
-
-        return posts;
     }
 
-    public void commentOnPost(String postId, String commentText)
+    public void commentOnPost(int postId, String commentText)
             throws UnsupportedOperationException, IllegalArgumentException, SQLException {
 
         final String insertString = "INSERT INTO comment (postId, userId, commentDate, commentText) VALUES (?, ?, ?, ?)";
@@ -209,13 +374,76 @@ public class PostService {
         }
 
         try (Connection connection = dataSource.getConnection()) {
-            PreparedStatement statement = connection.prepareStatement(insertString);
-            statement.setString(1, postId);
-            statement.setString(2, userService.getLoggedInUser().getUserId());
-            statement.setTimestamp(3, new java.sql.Timestamp(new java.util.Date().getTime()));
-            statement.setString(4, commentText);
-            statement.executeUpdate();
+            final java.sql.Timestamp commentDate = new java.sql.Timestamp(new java.util.Date().getTime());
+            final int userId = userService.getLoggedInUser().getUserId();
+            // The comment and its outbox event commit together; the post's
+            // counters are updated from the event.
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(insertString)) {
+                statement.setInt(1, postId);
+                statement.setInt(2, userId);
+                statement.setTimestamp(3, commentDate);
+                statement.setString(4, commentText);
+                statement.executeUpdate();
+                outbox.append(connection, OutboxEvent.COMMENT_CREATED, postId, userId, null, commentDate);
+                connection.commit();
+            } catch (SQLException sqle) {
+                connection.rollback();
+                throw sqle;
+            } finally {
+                connection.setAutoCommit(true);
+            }
             System.out.println("Successfully created a comment for post with ID: " + postId);
         }
     }
+
+    /**
+     * A comment as read from the database, before its author is resolved.
+     */
+    private static final class CommentRow {
+        final int commentId;
+        final int authorId;
+        final Timestamp commentDate;
+        final String commentText;
+
+        CommentRow(int commentId, int authorId, Timestamp commentDate, String commentText) {
+            this.commentId = commentId;
+            this.authorId = authorId;
+            this.commentDate = commentDate;
+            this.commentText = commentText;
+        }
+    }
+
+    private CommentRow readCommentRow(ResultSet results) throws SQLException {
+        CommentRow row = new CommentRow(
+                results.getInt("commentId"),
+                results.getInt("userId"),
+                results.getTimestamp("commentDate"),
+                results.getString("commentText"));
+        return row;
+    }
+
+    /**
+     * Builds a page from up to limit + 1 comment rows. The extra row only
+     * signals that another page exists. Authors queued after reading the
+     * rows are resolved here with one query.
+     */
+    private Page<Comment> toCommentPage(List<CommentRow> rows, int limit) {
+        userLoader.dispatch();
+        List<Comment> comments = new ArrayList<>();
+        for (int i = 0; i < rows.size() && i < limit; i++) {
+            CommentRow row = rows.get(i);
+            comments.add(new Comment(
+                    row.commentId,
+                    row.commentText,
+                    row.commentDate.getTime(),
+                    userLoader.get(row.authorId)));
+        }
+        PageCursor nextCursor = null;
+        if (rows.size() > limit) {
+            CommentRow last = rows.get(limit - 1);
+            nextCursor = new PageCursor(last.commentDate, last.commentId);
+        }
+        return new Page<>(comments, nextCursor);
+    }
 }
@@ -0,0 +1,209 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import uga.menik.cs4370.components.EventBus;
+import uga.menik.cs4370.components.OutboxEvent;
+
+/**
+ * Maintains the post_stats table, which keeps the number of hearts and
+ * comments of every post so that pages can read them with a primary key
+ * join instead of counting the heart and comment tables.
+ * The update functions take the caller's connection so the counters
+ * change in the same transaction as the heart itself.
+ * Comments are counted from the outbox by the durable "post-stats"
+ * consumer of the EventBus, off the request thread.
+ */
+@Service
+public class PostStatsService {
+
+    private final DataSource dataSource;
+
+    @Autowired
+    public PostStatsService(DataSource dataSource, EventBus eventBus) {
+        this.dataSource = dataSource;
+        eventBus.subscribe("post-stats", true, this::onEvents);
+    }
+
+    /**
+     * Recounts the comments of every post commented on in a batch of outbox
+     * events, in one transaction. Counting instead of adding means that a
+     * batch delivered twice is still counted once.
+     */
+    void onEvents(List<OutboxEvent> events) throws SQLException {
+        Map<Integer, Timestamp> commentedPosts = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            if (OutboxEvent.COMMENT_CREATED.equals(event.getEventType())) {
+                commentedPosts.put(event.getAggregateId(), event.getCreatedAt());
+            }
+        }
+        if (commentedPosts.isEmpty()) {
+            return;
+        }
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Map.Entry<Integer, Timestamp> post : commentedPosts.entrySet()) {
+                    recountComments(conn, post.getKey(), post.getValue());
+                }
+                conn.commit();
+            } catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Creates the counters of a newly created post.
+     */
+    public void createStats(Connection conn, int postId, Timestamp postDate) throws SQLException {
+        final String insertSql = "INSERT INTO post_stats (postId, heartsCount, commentsCount, lastActivityDate)"
+                + " VALUES (?, 0, 0, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+            pstmt.setInt(1, postId);
+            pstmt.setTimestamp(2, postDate);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Adds delta to the hearts count of a post.
+     */
+    public void addHearts(Connection conn, int postId, int delta, Timestamp activityDate) throws SQLException {
+        final String updateSql = "UPDATE post_stats SET heartsCount = heartsCount + ?,"
+                + " lastActivityDate = GREATEST(lastActivityDate, ?) WHERE postId = ?";
+        update(conn, updateSql, postId, delta, activityDate);
+    }
+
+    /**
+     * Adds delta to the comments count of a post.
+     */
+    public void addComments(Connection conn, int postId, int delta, Timestamp activityDate) throws SQLException {
+        final String updateSql = "UPDATE post_stats SET commentsCount = commentsCount + ?,"
+                + " lastActivityDate = GREATEST(lastActivityDate, ?) WHERE postId = ?";
+        update(conn, updateSql, postId, delta, activityDate);
+    }
+
+    /**
+     * Recounts the hearts of a post from the heart table.
+     * Used when the number of changed heart rows is not known.
+     */
+    public void recountHearts(Connection conn, int postId, Timestamp activityDate) throws SQLException {
+        final String updateSql = "UPDATE post_stats SET heartsCount = (SELECT COUNT(*) FROM heart h WHERE h.postId = ?),"
+                + " lastActivityDate = GREATEST(lastActivityDate, ?) WHERE postId = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(updateSql)) {
+            pstmt.setInt(1, postId);
+            pstmt.setTimestamp(2, activityDate);
+            pstmt.setInt(3, postId);
+            if (pstmt.executeUpdate() == 0) {
+                // The post has no counters yet; create them from the heart and comment tables.
+                addHearts(conn, postId, 0, activityDate);
+            }
+        }
+    }
+
+    /**
+     * Recounts the comments of a post from the comment table.
+     */
+    public void recountComments(Connection conn, int postId, Timestamp activityDate) throws SQLException {
+        final String updateSql = "UPDATE post_stats SET commentsCount = (SELECT COUNT(*) FROM comment c WHERE c.postId = ?),"
+                + " lastActivityDate = GREATEST(lastActivityDate, ?) WHERE postId = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(updateSql)) {
+            pstmt.setInt(1, postId);
+            pstmt.setTimestamp(2, activityDate);
+            pstmt.setInt(3, postId);
+            if (pstmt.executeUpdate() == 0) {
+                // The post has no counters yet; create them from the heart and comment tables.
+                addComments(conn, postId, 0, activityDate);
+            }
+        }
+    }
+
+    /**
+     * Recomputes the counters of every post from the heart and comment tables.
+     * Migration V6 fills the table once for existing data. Run the app with
+     * --rebuild-post-stats to recount after writes that skipped the counters.
+     */
+    public int rebuildAll() throws SQLException {
+        final String deleteSql = "DELETE FROM post_stats";
+        final String rebuildSql = "INSERT INTO post_stats (postId, heartsCount, commentsCount, lastActivityDate)"
+                + " SELECT p.postId,"
+                + " (SELECT COUNT(*) FROM heart h WHERE h.postId = p.postId),"
+                + " (SELECT COUNT(*) FROM comment c WHERE c.postId = p.postId),"
+                + " COALESCE((SELECT MAX(c.commentDate) FROM comment c WHERE c.postId = p.postId), p.postDate)"
+                + " FROM post p";
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(deleteSql);
+                int rows = stmt.executeUpdate(rebuildSql);
+                conn.commit();
+                return rows;
+            } catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Applies an update to the counters of one post. If the post has no
+     * counters yet, they are computed from the heart and comment tables,
+     * which already include the caller's change.
+     */
+    private void update(Connection conn, String updateSql, int postId, int delta, Timestamp activityDate)
+            throws SQLException {
+        final String insertSql = "INSERT IGNORE INTO post_stats (postId, heartsCount, commentsCount, lastActivityDate)"
+                + " SELECT p.postId,"
+                + " (SELECT COUNT(*) FROM heart h WHERE h.postId = p.postId),"
+                + " (SELECT COUNT(*) FROM comment c WHERE c.postId = p.postId),"
+                + " ?"
+                + " FROM post p WHERE p.postId = ?";
+
+        try (PreparedStatement update = conn.prepareStatement(updateSql)) {
+            update.setInt(1, delta);
+            update.setTimestamp(2, activityDate);
+            update.setInt(3, postId);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+
+            try (PreparedStatement insert = conn.prepareStatement(insertSql)) {
+                insert.setTimestamp(1, activityDate);
+                insert.setInt(2, postId);
+                if (insert.executeUpdate() > 0) {
+                    return;
+                }
+            }
+            // Another transaction created the counters first, so apply the delta to them.
+            update.executeUpdate();
+        }
+    }
+}
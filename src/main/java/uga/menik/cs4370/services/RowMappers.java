@@ -0,0 +1,84 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import uga.menik.cs4370.models.FollowableUser;
+import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.models.User;
+import uga.menik.cs4370.utility.Utility;
+
+/**
+ * Turns the rows of the queries that list users and posts into models.
+ * Each mapper reads its columns by name, so a query only has to select
+ * them, in any order, to share the mapper.
+ */
+public final class RowMappers {
+
+    /**
+     * Maps the userId, firstName and lastName columns.
+     */
+    public static final RowMapper<User> USER = (rs, rowNum) -> new User(
+            rs.getInt("userId"),
+            rs.getString("firstName"),
+            rs.getString("lastName"));
+
+    /**
+     * Maps the columns of USER along with isFollowed and lastPostDate,
+     * which is null for users who have not posted.
+     */
+    public static final RowMapper<FollowableUser> FOLLOWABLE_USER = (rs, rowNum) -> new FollowableUser(
+            rs.getInt("userId"),
+            rs.getString("firstName"),
+            rs.getString("lastName"),
+            rs.getBoolean("isFollowed"),
+            Utility.getEpochMillis(rs, "lastPostDate"));
+
+    private RowMappers() {
+    }
+
+    /**
+     * Returns a mapper for the postId, postText, postDate, heartsCount,
+     * commentsCount, isHearted and isBookmarked columns, along with the
+     * columns of USER for the author. Hearts that are not flushed yet are
+     * overlaid on the stored state as seen by the viewer.
+     *
+     * @param engagementService the hearts that are not flushed yet
+     * @param viewerId          the logged-in user, or -1 if nobody is logged in
+     */
+    public static RowMapper<Post> post(EngagementService engagementService, int viewerId) {
+        return (rs, rowNum) -> {
+            int postId = rs.getInt("postId");
+            return new Post(
+                    postId,
+                    rs.getString("postText"),
+                    Utility.getEpochMillis(rs, "postDate"),
+                    USER.mapRow(rs, rowNum),
+                    engagementService.getHeartsCount(postId, rs.getInt("heartsCount")),
+                    rs.getInt("commentsCount"),
+                    engagementService.isHearted(postId, viewerId, rs.getBoolean("isHearted")),
+                    rs.getBoolean("isBookmarked"));
+        };
+    }
+
+    /**
+     * Maps every remaining row of a result set.
+     */
+    public static <T> List<T> mapAll(ResultSet rs, RowMapper<T> mapper) throws SQLException {
+        List<T> items = new ArrayList<>();
+        int rowNum = 0;
+        while (rs.next()) {
+            items.add(mapper.mapRow(rs, rowNum++));
+        }
+        return items;
+    }
+}
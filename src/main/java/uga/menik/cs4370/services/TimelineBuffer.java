@@ -0,0 +1,114 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uga.menik.cs4370.models.PageCursor;
+
+/**
+ * A bounded ring buffer holding the newest entries of one user's timeline.
+ * Entries are kept newest first. When the buffer is full the oldest entry
+ * is dropped and the buffer no longer holds the complete timeline.
+ */
+class TimelineBuffer {
+
+    /** Post dates in epoch milliseconds. */
+    private final long[] dates;
+
+    /** Post identifiers matching the dates array. */
+    private final int[] postIds;
+
+    /** Slot that the next pushed entry is written to. */
+    private int head = 0;
+
+    /** Number of entries currently held. */
+    private int size = 0;
+
+    /** True while the buffer holds every entry of the timeline. */
+    private boolean complete = true;
+
+    TimelineBuffer(int capacity) {
+        this.dates = new long[capacity];
+        this.postIds = new int[capacity];
+    }
+
+    /**
+     * Appends entries that are given oldest to newest.
+     * Used to seed the buffer from the timeline table.
+     */
+    synchronized void seed(List<long[]> entriesOldestFirst, boolean isComplete) {
+        for (long[] entry : entriesOldestFirst) {
+            append(entry[0], (int) entry[1]);
+        }
+        complete = complete && isComplete;
+    }
+
+    /**
+     * Pushes a new entry. Pushing a post that the buffer already holds, as
+     * happens when its event is delivered again or the buffer was loaded
+     * after the post reached the timeline table, changes nothing. Returns
+     * false if the entry is older than the newest entry in the buffer, in
+     * which case the buffer should be discarded since it can no longer keep
+     * the timeline in order.
+     */
+    synchronized boolean push(long date, int postId) {
+        // The held entries fill the first size slots, in ring order.
+        for (int slot = 0; slot < size; slot++) {
+            if (postIds[slot] == postId) {
+                return true;
+            }
+        }
+        if (size > 0) {
+            int newest = (head - 1 + dates.length) % dates.length;
+            if (isOlder(date, postId, dates[newest], postIds[newest])) {
+                return false;
+            }
+        }
+        append(date, postId);
+        return true;
+    }
+
+    /**
+     * Returns up to count post IDs that come after the cursor, newest first.
+     * Returns null if the buffer does not hold enough entries to answer.
+     */
+    synchronized List<Integer> read(PageCursor cursor, int count) {
+        List<Integer> result = new ArrayList<>(count);
+        for (int i = 0; i < size && result.size() < count; i++) {
+            int slot = (head - 1 - i + dates.length) % dates.length;
+            if (cursor == null || isOlder(dates[slot], postIds[slot],
+                    cursor.getDate().getTime(), cursor.getId())) {
+                result.add(postIds[slot]);
+            }
+        }
+        if (result.size() < count && !complete) {
+            return null;
+        }
+        return result;
+    }
+
+    private void append(long date, int postId) {
+        if (size == dates.length) {
+            // The oldest entry is overwritten below.
+            complete = false;
+        } else {
+            size++;
+        }
+        dates[head] = date;
+        postIds[head] = postId;
+        head = (head + 1) % dates.length;
+    }
+
+    /**
+     * Returns whether the first entry comes after the second one in
+     * (postDate, postId) descending order.
+     */
+    private static boolean isOlder(long date, int postId, long otherDate, int otherPostId) {
+        return date < otherDate || (date == otherDate && postId < otherPostId);
+    }
+}
@@ -0,0 +1,265 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import uga.menik.cs4370.components.EventBus;
+import uga.menik.cs4370.components.OutboxEvent;
+import uga.menik.cs4370.models.PageCursor;
+
+/**
+ * Maintains materialized home timelines.
+ * When a post is created its ID is pushed into the timeline of every
+ * follower of the author, so reading a feed is a range scan over the
+ * timeline table instead of a join of post against follow.
+ * The newest entries of recently active users are also kept in memory.
+ *
+ * Timelines are updated from the outbox by the durable "timeline"
+ * consumer of the EventBus, after the post or follow has committed and
+ * off the request thread. Events can be delivered twice, so every update
+ * leaves the timeline the same when it is applied again.
+ */
+@Service
+public class TimelineService {
+
+    /** Number of timeline entries kept in memory per active user. */
+    static final int BUFFER_CAPACITY = 200;
+
+    /** Maximum number of users whose timelines are kept in memory. */
+    static final int MAX_ACTIVE_USERS = 10_000;
+
+    /** Number of stripes used to detect writes racing with buffer loads. */
+    private static final int STRIPES = 64;
+
+    private final DataSource dataSource;
+
+    /** In-memory timelines of recently active users, least recently used first. */
+    private final Map<Integer, TimelineBuffer> buffers = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, TimelineBuffer> eldest) {
+                    return size() > MAX_ACTIVE_USERS;
+                }
+            });
+
+    /** Bumped whenever a timeline changes so that stale loads are not cached. */
+    private final AtomicLongArray writeStamps = new AtomicLongArray(STRIPES);
+
+    @Autowired
+    public TimelineService(DataSource dataSource, EventBus eventBus) {
+        this.dataSource = dataSource;
+        eventBus.subscribe("timeline", true, this::onEvents);
+    }
+
+    /**
+     * Applies the posts and follows of a batch of outbox events, in order.
+     */
+    void onEvents(List<OutboxEvent> events) throws SQLException {
+        for (OutboxEvent event : events) {
+            String eventType = event.getEventType();
+            if (OutboxEvent.POST_CREATED.equals(eventType)) {
+                PostCreatedEvent post = PostCreatedEvent.of(event);
+                fanOut(post.getPostId(), post.getAuthorId(), post.getPostDate());
+                onPostCreated(post);
+            } else if (OutboxEvent.FOLLOW_ADDED.equals(eventType)) {
+                backfill(event.getUserId(), event.getAggregateId());
+            } else if (OutboxEvent.FOLLOW_REMOVED.equals(eventType)) {
+                removeFollowee(event.getUserId(), event.getAggregateId());
+            }
+        }
+    }
+
+    /**
+     * Returns up to count post IDs from the user's timeline that come after
+     * the cursor, newest first. Returns null if the in-memory timeline cannot
+     * answer, in which case the caller should scan the timeline table.
+     */
+    public List<Integer> getPostIds(int userId, PageCursor cursor, int count) throws SQLException {
+        TimelineBuffer buffer = buffers.get(userId);
+        if (buffer == null) {
+            buffer = loadBuffer(userId);
+        }
+        return buffer.read(cursor, count);
+    }
+
+    /**
+     * Pushes a newly created post into the timeline table rows of the
+     * author's followers.
+     */
+    public void fanOut(int postId, int authorId, Timestamp postDate) throws SQLException {
+        final String fanOutSql = "INSERT IGNORE INTO timeline (userId, postId, postDate)"
+                + " SELECT f.followerUserId, ?, ? FROM follow f WHERE f.followeeUserId = ?";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(fanOutSql)) {
+            pstmt.setInt(1, postId);
+            pstmt.setTimestamp(2, postDate);
+            pstmt.setInt(3, authorId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Pushes a committed post into the in-memory timelines of the author's
+     * followers that have one. Every follower's stamp is bumped so that a
+     * concurrent load that missed this post is not cached.
+     */
+    public void onPostCreated(PostCreatedEvent event) {
+        final String followersSql = "SELECT followerUserId FROM follow WHERE followeeUserId = ?";
+
+        final int postId = event.getPostId();
+        final Timestamp postDate = event.getPostDate();
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(followersSql)) {
+                pstmt.setInt(1, event.getAuthorId());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int followerId = rs.getInt("followerUserId");
+                        bumpStamp(followerId);
+                        TimelineBuffer buffer = buffers.get(followerId);
+                        if (buffer != null && !buffer.push(postDate.getTime(), postId)) {
+                            buffers.remove(followerId);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException sqle) {
+            // The followers are unknown, so no in-memory timeline can be
+            // trusted to have the post. They are loaded again from the table.
+            sqle.printStackTrace();
+            for (int i = 0; i < STRIPES; i++) {
+                writeStamps.incrementAndGet(i);
+            }
+            buffers.clear();
+        }
+    }
+
+    /**
+     * Adds the posts of a newly followed user to the follower's timeline.
+     */
+    public void backfill(int followerId, int followeeId) throws SQLException {
+        final String backfillSql = "INSERT IGNORE INTO timeline (userId, postId, postDate)"
+                + " SELECT ?, p.postId, p.postDate FROM post p WHERE p.userId = ?";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(backfillSql)) {
+            pstmt.setInt(1, followerId);
+            pstmt.setInt(2, followeeId);
+            pstmt.executeUpdate();
+        }
+        invalidate(followerId);
+    }
+
+    /**
+     * Removes the posts of an unfollowed user from the follower's timeline.
+     */
+    public void removeFollowee(int followerId, int followeeId) throws SQLException {
+        final String removeSql = "DELETE FROM timeline WHERE userId = ?"
+                + " AND postId IN (SELECT p.postId FROM post p WHERE p.userId = ?)";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(removeSql)) {
+            pstmt.setInt(1, followerId);
+            pstmt.setInt(2, followeeId);
+            pstmt.executeUpdate();
+        }
+        invalidate(followerId);
+    }
+
+    /**
+     * Rebuilds every timeline from the follow and post tables.
+     * Migration V6 fills the table once for existing data. This repairs it
+     * after writes that skipped the timelines.
+     */
+    public int rebuildAll() throws SQLException {
+        final String deleteSql = "DELETE FROM timeline";
+        final String rebuildSql = "INSERT INTO timeline (userId, postId, postDate)"
+                + " SELECT f.followerUserId, p.postId, p.postDate"
+                + " FROM follow f JOIN post p ON p.userId = f.followeeUserId";
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(deleteSql);
+                int rows = stmt.executeUpdate(rebuildSql);
+                conn.commit();
+                return rows;
+            } catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            } finally {
+                conn.setAutoCommit(true);
+                buffers.clear();
+            }
+        }
+    }
+
+    /**
+     * Loads the newest entries of a timeline into memory.
+     * The buffer is only cached if no write to the timeline raced with the load.
+     */
+    private TimelineBuffer loadBuffer(int userId) throws SQLException {
+        final String loadSql = "SELECT postId, postDate FROM timeline WHERE userId = ?"
+                + " ORDER BY postDate DESC, postId DESC LIMIT ?";
+
+        final long stamp = writeStamps.get(stripe(userId));
+        final List<long[]> entries = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(loadSql)) {
+            pstmt.setInt(1, userId);
+            // One extra row tells whether the whole timeline fits in memory.
+            pstmt.setInt(2, BUFFER_CAPACITY + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(new long[] { rs.getTimestamp("postDate").getTime(), rs.getInt("postId") });
+                }
+            }
+        }
+
+        boolean isComplete = entries.size() <= BUFFER_CAPACITY;
+        if (!isComplete) {
+            entries.remove(entries.size() - 1);
+        }
+        Collections.reverse(entries);
+        TimelineBuffer buffer = new TimelineBuffer(BUFFER_CAPACITY);
+        buffer.seed(entries, isComplete);
+
+        if (writeStamps.get(stripe(userId)) == stamp) {
+            buffers.putIfAbsent(userId, buffer);
+        }
+        return buffer;
+    }
+
+    private void invalidate(int userId) {
+        bumpStamp(userId);
+        buffers.remove(userId);
+    }
+
+    private void bumpStamp(int userId) {
+        writeStamps.incrementAndGet(stripe(userId));
+    }
+
+    private static int stripe(int userId) {
+        return Math.floorMod(userId, STRIPES);
+    }
+}
@@ -0,0 +1,157 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import uga.menik.cs4370.components.EventBus;
+import uga.menik.cs4370.models.TrendingHashtag;
+import uga.menik.cs4370.utility.CompressedBitmap;
+
+/**
+ * Keeps track of the most used hashtags in the last hour and the last day.
+ * Hashtags are counted in memory as posts are created, with fixed size
+ * sketches per time bucket, so reading the trending tags never queries
+ * the hashtag table. Counts are approximate and may be slightly high.
+ * Once the event bus starts, the hashtags of the last day are replayed
+ * from the database on the bus's thread for this consumer, before it
+ * hands over any new posts.
+ */
+@Service
+public class TrendingService {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    /** Number of tags tracked per window as possible top tags. */
+    private static final int TRACKED_TAGS = 100;
+
+    private final DataSource dataSource;
+
+    // The posts counted so far, so that a post both replayed and delivered as
+    // an event, or delivered twice, is counted once. One bit per post. Guarded by this.
+    private final CompressedBitmap countedPostIds = new CompressedBitmap();
+
+    // The last hour in 5 minute buckets.
+    private final TrendingWindow lastHour = new TrendingWindow(5 * MINUTE_MILLIS, 12, TRACKED_TAGS);
+
+    // The last day in 1 hour buckets.
+    private final TrendingWindow lastDay = new TrendingWindow(60 * MINUTE_MILLIS, 24, TRACKED_TAGS);
+
+    @Autowired
+    public TrendingService(DataSource dataSource, EventBus eventBus,
+            @Value("${app.trending.load-on-startup:true}") boolean isLoadOnStartup) {
+        this.dataSource = dataSource;
+        eventBus.subscribe("trending", false, PostCreatedEvent.handler(this::onPostCreated),
+                isLoadOnStartup ? this::loadOnStartup : null);
+    }
+
+    /**
+     * Replays recent hashtags when the event bus starts, before it hands
+     * this service any new posts.
+     */
+    private void loadOnStartup() {
+        try {
+            load();
+        } catch (SQLException sqle) {
+            System.err.println("Failed to load recent hashtags; trending starts empty.");
+            sqle.printStackTrace();
+        }
+    }
+
+    /**
+     * Counts the hashtags of posts from the last day that are not counted yet.
+     */
+    public void load() throws SQLException {
+        final String recentSql = "SELECT p.postId, h.hashTag, p.postDate FROM post p"
+                + " JOIN hashtag h ON h.postId = p.postId"
+                + " WHERE p.postDate >= ? ORDER BY p.postId";
+
+        Timestamp since = new Timestamp(System.currentTimeMillis() - 24 * 60 * MINUTE_MILLIS);
+        int rows = 0;
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(recentSql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // See HashtagIndexService.load on streaming rows from MySQL.
+            boolean isMySql = conn.getMetaData().getDatabaseProductName().equalsIgnoreCase("MySQL");
+            pstmt.setFetchSize(isMySql ? Integer.MIN_VALUE : 1000);
+            pstmt.setTimestamp(1, since);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int lastPostId = -1;
+                boolean isCounted = false;
+                while (rs.next()) {
+                    // The rows of a post arrive together, and the first one decides for all of them.
+                    int postId = rs.getInt(1);
+                    if (postId != lastPostId) {
+                        lastPostId = postId;
+                        isCounted = !markCounted(postId);
+                    }
+                    if (!isCounted) {
+                        record(rs.getString(2), rs.getTimestamp(3).getTime());
+                        rows++;
+                    }
+                }
+            }
+        }
+        System.out.println("Replayed " + rows + " recent hashtags into trending.");
+    }
+
+    /**
+     * Counts the hashtags of a newly created post.
+     */
+    public void onPostCreated(PostCreatedEvent event) {
+        if (!markCounted(event.getPostId())) {
+            return;
+        }
+        for (String hashTag : event.getHashTags()) {
+            record(hashTag, event.getPostDate().getTime());
+        }
+    }
+
+    /**
+     * Returns up to n of the most used hashtags in the last hour, most used first.
+     */
+    public List<TrendingHashtag> getTrendingLastHour(int n) {
+        return lastHour.top(n, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns up to n of the most used hashtags in the last day, most used first.
+     */
+    public List<TrendingHashtag> getTrendingLastDay(int n) {
+        return lastDay.top(n, System.currentTimeMillis());
+    }
+
+    /**
+     * Records that a post is being counted. Returns false if it already was.
+     */
+    private synchronized boolean markCounted(int postId) {
+        if (countedPostIds.contains(postId)) {
+            return false;
+        }
+        countedPostIds.add(postId);
+        return true;
+    }
+
+    private void record(String hashTag, long timeMillis) {
+        // Tags are counted case-insensitively, like hashtag search matches them.
+        String normalized = hashTag.toLowerCase(Locale.ROOT);
+        lastHour.record(normalized, timeMillis);
+        lastDay.record(normalized, timeMillis);
+    }
+}
@@ -0,0 +1,171 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import uga.menik.cs4370.models.TrendingHashtag;
+import uga.menik.cs4370.utility.CountMinSketch;
+
+/**
+ * Approximate hashtag counts over a sliding window of time.
+ * The window is split into equal buckets, each with its own sketch, and a
+ * running sketch holds the sum of all buckets. When the window slides, the
+ * oldest bucket is subtracted from the running sketch and reused.
+ * The tags with the highest counts are tracked in a bounded min-heap, so
+ * the top tags can be read without scanning every tag seen.
+ */
+final class TrendingWindow {
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 2048;
+
+    /**
+     * A tracked tag and its count when it was last estimated.
+     */
+    private static final class Candidate {
+        final String hashTag;
+        final int count;
+
+        Candidate(String hashTag, int count) {
+            this.hashTag = hashTag;
+            this.count = count;
+        }
+    }
+
+    private final long bucketMillis;
+
+    // Ring of per-bucket sketches, indexed by bucket number modulo its length.
+    private final CountMinSketch[] buckets;
+
+    // Sum of all buckets in the window.
+    private final CountMinSketch total = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+
+    // Number of tags tracked as possible top tags.
+    private final int capacity;
+
+    // Tracked tags, with the lowest count at the head of the heap.
+    private final PriorityQueue<Candidate> heap = new PriorityQueue<>(Comparator.comparingInt(c -> c.count));
+    private final Map<String, Candidate> candidates = new HashMap<>();
+
+    // Newest bucket number in the window.
+    private long latestBucket = Long.MIN_VALUE;
+
+    /**
+     * Constructs an empty window.
+     *
+     * @param bucketMillis the length of each bucket in milliseconds
+     * @param bucketCount  the number of buckets in the window
+     * @param capacity     the number of tags tracked as possible top tags
+     */
+    TrendingWindow(long bucketMillis, int bucketCount, int capacity) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = new CountMinSketch[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Counts one use of a tag at the given time. Uses that are older than
+     * the window are ignored.
+     */
+    synchronized void record(String hashTag, long timeMillis) {
+        long bucket = Math.floorDiv(timeMillis, bucketMillis);
+        slideTo(bucket);
+        if (bucket <= latestBucket - buckets.length) {
+            return;
+        }
+        buckets[slot(bucket)].add(hashTag, 1);
+        total.add(hashTag, 1);
+        offer(hashTag, total.estimate(hashTag));
+    }
+
+    /**
+     * Returns up to n tags with the highest counts in the window ending now.
+     */
+    synchronized List<TrendingHashtag> top(int n, long nowMillis) {
+        slideTo(Math.floorDiv(nowMillis, bucketMillis));
+        List<Candidate> sorted = new ArrayList<>(heap);
+        sorted.sort(Comparator.comparingInt((Candidate c) -> c.count).reversed()
+                .thenComparing(c -> c.hashTag));
+        List<TrendingHashtag> top = new ArrayList<>();
+        for (int i = 0; i < sorted.size() && i < n; i++) {
+            top.add(new TrendingHashtag(sorted.get(i).hashTag, sorted.get(i).count));
+        }
+        return top;
+    }
+
+    /**
+     * Moves the window forward so that its newest bucket is the given one,
+     * dropping the buckets that fall out of it.
+     */
+    private void slideTo(long bucket) {
+        if (bucket <= latestBucket) {
+            return;
+        }
+        boolean isFirst = latestBucket == Long.MIN_VALUE;
+        long from = isFirst ? bucket : Math.max(latestBucket + 1, bucket - buckets.length + 1);
+        latestBucket = bucket;
+        if (isFirst) {
+            return;
+        }
+        for (long b = from; b <= bucket; b++) {
+            int slot = slot(b);
+            total.subtract(buckets[slot]);
+            buckets[slot].clear();
+        }
+        refreshCandidates();
+    }
+
+    /**
+     * Re-estimates every tracked tag after old buckets were dropped, and
+     * stops tracking tags that no longer occur in the window.
+     */
+    private void refreshCandidates() {
+        List<Candidate> refreshed = new ArrayList<>();
+        for (Candidate candidate : heap) {
+            int count = total.estimate(candidate.hashTag);
+            if (count > 0) {
+                refreshed.add(new Candidate(candidate.hashTag, count));
+            }
+        }
+        heap.clear();
+        candidates.clear();
+        for (Candidate candidate : refreshed) {
+            heap.add(candidate);
+            candidates.put(candidate.hashTag, candidate);
+        }
+    }
+
+    /**
+     * Tracks a tag if its count is among the highest seen.
+     */
+    private void offer(String hashTag, int count) {
+        Candidate existing = candidates.get(hashTag);
+        if (existing != null) {
+            heap.remove(existing);
+        } else if (heap.size() >= capacity) {
+            if (heap.peek().count >= count) {
+                return;
+            }
+            candidates.remove(heap.poll().hashTag);
+        }
+        Candidate candidate = new Candidate(hashTag, count);
+        heap.add(candidate);
+        candidates.put(hashTag, candidate);
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) buckets.length);
+    }
+}
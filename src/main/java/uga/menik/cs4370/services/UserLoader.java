@@ -0,0 +1,85 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.annotation.RequestScope;
+
+import uga.menik.cs4370.models.User;
+
+/**
+ * Batches user lookups made while assembling a page.
+ * Callers enqueue every userId they will need and then dispatch once,
+ * which resolves all of them with a single query. Users are remembered for
+ * the rest of the request so repeated authors are only looked up once.
+ * This service lives for a single request.
+ */
+@Service
+@RequestScope
+public class UserLoader {
+
+    private final PeopleService peopleService;
+
+    // Users resolved so far. A null value means the user does not exist.
+    private final Map<Integer, User> loaded = new HashMap<>();
+
+    // User IDs waiting for the next dispatch.
+    private final Set<Integer> queued = new LinkedHashSet<>();
+
+    @Autowired
+    public UserLoader(PeopleService peopleService) {
+        this.peopleService = peopleService;
+    }
+
+    /**
+     * Remembers a user that was already read as part of another query.
+     */
+    public void prime(User user) {
+        loaded.put(user.getUserId(), user);
+        queued.remove(user.getUserId());
+    }
+
+    /**
+     * Marks a user as needed by the next dispatch.
+     */
+    public void enqueue(int userId) {
+        if (!loaded.containsKey(userId)) {
+            queued.add(userId);
+        }
+    }
+
+    /**
+     * Resolves every queued user with one query.
+     */
+    public void dispatch() {
+        if (queued.isEmpty()) {
+            return;
+        }
+        Map<Integer, User> users = peopleService.getUsersByIds(queued);
+        for (Integer userId : queued) {
+            loaded.put(userId, users.get(userId));
+        }
+        queued.clear();
+    }
+
+    /**
+     * Returns a user, dispatching any queued lookups first if the user
+     * has not been resolved yet.
+     */
+    public User get(int userId) {
+        if (!loaded.containsKey(userId)) {
+            queued.add(userId);
+            dispatch();
+        }
+        return loaded.get(userId);
+    }
+}
@@ -72,7 +72,7 @@ public class UserService {
                     boolean isPassMatch = passwordEncoder.matches(password, storedPasswordHash);
                     // Note: 
                     if (isPassMatch) {
-                        String userId = rs.getString("userId");
+                        int userId = rs.getInt("userId");
                         String firstName = rs.getString("firstName");
                         String lastName = rs.getString("lastName");
 
@@ -131,71 +131,4 @@ public class UserService {
             return rowsAffected > 0;
         }
     }
-
-    public void toggleFollowUser(String followerId, String followeeId) throws SQLException {
-
-        String checkSql = "SELECT 1 FROM follow WHERE followerUserId = ? AND followeeUserId = ?";
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-            checkStmt.setInt(1, Integer.parseInt(followerId));
-            checkStmt.setInt(2, Integer.parseInt(followeeId));
-
-            try (ResultSet rs = checkStmt.executeQuery()) {
-                if (!rs.next()) {
-
-                    String insertSql = "INSERT INTO follow (followerUserId, followeeUserId) VALUES (?, ?)";
-                    try (PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
-                        insertStmt.setInt(1, Integer.parseInt(followerId));
-                        insertStmt.setInt(2, Integer.parseInt(followeeId));
-                        insertStmt.executeUpdate();
-                        System.out.println("Successfully followed user with ID: " + followeeId);
-                    }
-                } else {
-
-                    String deleteSql = "DELETE FROM follow WHERE followerUserId = ? AND followeeUserId = ?";
-                    try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
-                        deleteStmt.setInt(1, Integer.parseInt(followerId));
-                        deleteStmt.setInt(2, Integer.parseInt(followeeId));
-                        deleteStmt.executeUpdate();
-                        System.out.println("Successfully unfollowed user with ID: " + followeeId);
-                    }
-                }
-            }
-        }
-    }
-
-    public void toggleBookmark(String postId, String userId) throws SQLException {
-
-        String checkSql = "SELECT 1 FROM bookmark WHERE postId = ? AND userId = ?";
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-            checkStmt.setString(1, postId);
-            checkStmt.setString(2, userId);
-
-            try (ResultSet rs = checkStmt.executeQuery()) {
-                if (!rs.next()) {
-
-                    String insertSql = "INSERT INTO bookmark (postId, userId) VALUES (?, ?)";
-                    try (PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
-                        insertStmt.setString(1, postId);
-                        insertStmt.setString(2, userId);
-                        insertStmt.executeUpdate();
-                        System.out.println("Successfully added bookmark for post ID: " + postId);
-                    }
-                } else {
-
-                    String deleteSql = "DELETE FROM bookmark WHERE postId = ? AND userId = ?";
-                    try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
-                        deleteStmt.setString(1, postId);
-                        deleteStmt.setString(2, userId);
-                        deleteStmt.executeUpdate();
-                        System.out.println("Successfully removed bookmark for post ID: " + postId);
-                    }
-                }
-            }
-        }
-
-    }
 }
@@ -0,0 +1,333 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A compressed set of non-negative ints laid out like a roaring bitmap.
+ * Values are grouped by their high 16 bits into containers. A container
+ * keeps the low 16 bits as a sorted array while it holds at most 4096
+ * values and as a 65536 bit bitmap after that, so no container takes more
+ * than 8 KB and sets of nearby ids stay small.
+ * This class is not thread safe. Callers guard it with their own lock.
+ */
+public class CompressedBitmap {
+
+    /**
+     * Largest number of values an array container holds before it becomes a bitmap.
+     */
+    private static final int ARRAY_MAX = 4096;
+
+    // High 16 bits of each container, in ascending order.
+    private char[] keys = new char[4];
+
+    // Containers matching keys.
+    private Container[] containers = new Container[4];
+
+    // Number of containers in use.
+    private int size = 0;
+
+    // Number of values in the set.
+    private int cardinality = 0;
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value a non-negative int
+     */
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        int index = findKey(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new ArrayContainer());
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        container = container.add((char) value);
+        containers[index] = container;
+        cardinality += container.cardinality() - before;
+    }
+
+    /**
+     * Returns whether the set contains a value.
+     */
+    public boolean contains(int value) {
+        int index = findKey((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * Returns the number of values in the set.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Returns the largest values that are in every one of the given sets,
+     * in descending order.
+     * The sets are intersected one container at a time, starting from the
+     * highest values and from the smallest set, and the intersection stops
+     * as soon as enough values are found.
+     *
+     * @param bitmaps the sets to intersect
+     * @param limit   the maximum number of values to return
+     * @return the values in descending order
+     */
+    public static int[] intersectDescending(List<CompressedBitmap> bitmaps, int limit) {
+        if (bitmaps.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        List<CompressedBitmap> bySize = new ArrayList<>(bitmaps);
+        bySize.sort(Comparator.comparingInt(CompressedBitmap::cardinality));
+        CompressedBitmap smallest = bySize.get(0);
+
+        int[] result = new int[Math.min(limit, smallest.cardinality)];
+        int count = 0;
+        for (int i = smallest.size - 1; i >= 0 && count < result.length; i--) {
+            char key = smallest.keys[i];
+            Container container = smallest.containers[i];
+            for (int j = 1; j < bySize.size() && container != null; j++) {
+                CompressedBitmap other = bySize.get(j);
+                int index = other.findKey(key);
+                container = index < 0 ? null : container.and(other.containers[index]);
+                if (container != null && container.cardinality() == 0) {
+                    container = null;
+                }
+            }
+            if (container != null) {
+                count = container.fillDescending(key << 16, result, count);
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private int findKey(char key) {
+        // Values mostly arrive in ascending order, so check the last container first.
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * Holds the low 16 bits of the values that share the same high 16 bits.
+     */
+    private interface Container {
+
+        int cardinality();
+
+        boolean contains(char value);
+
+        /**
+         * Adds a value, returning the container that now holds the set.
+         * This is a new container if the set outgrew this one.
+         */
+        Container add(char value);
+
+        /**
+         * Returns a new container with the values in both this and other.
+         */
+        Container and(Container other);
+
+        /**
+         * Writes values in descending order, combined with high, into out
+         * starting at position until out is full. Returns the next position.
+         */
+        int fillDescending(int high, int[] out, int position);
+    }
+
+    /**
+     * A container that keeps its values in a sorted array.
+     */
+    private static final class ArrayContainer implements Container {
+
+        private char[] values;
+        private int size;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        public int cardinality() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        @Override
+        public Container add(char value) {
+            int index;
+            if (size == 0 || values[size - 1] < value) {
+                index = size;
+            } else {
+                index = Arrays.binarySearch(values, 0, size, value);
+                if (index >= 0) {
+                    return this;
+                }
+                index = -index - 1;
+            }
+            if (size == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        public Container and(Container other) {
+            char[] result = new char[size];
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int i = 0;
+                int j = 0;
+                while (i < size && j < array.size) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        public int fillDescending(int high, int[] out, int position) {
+            for (int i = size - 1; i >= 0 && position < out.length; i--) {
+                out[position++] = high | values[i];
+            }
+            return position;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < size; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * A container that keeps one bit for each of the 65536 possible values.
+     */
+    private static final class BitmapContainer implements Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[1024], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public Container add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[words.length];
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            if (count > ARRAY_MAX) {
+                return new BitmapContainer(result, count);
+            }
+            char[] values = new char[count];
+            int index = 0;
+            for (int i = 0; i < result.length; i++) {
+                long word = result[i];
+                while (word != 0) {
+                    values[index++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+
+        @Override
+        public int fillDescending(int high, int[] out, int position) {
+            for (int i = words.length - 1; i >= 0 && position < out.length; i--) {
+                long word = words[i];
+                while (word != 0 && position < out.length) {
+                    int bit = 63 - Long.numberOfLeadingZeros(word);
+                    out[position++] = high | (i << 6) | bit;
+                    word &= ~(1L << bit);
+                }
+            }
+            return position;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import java.util.Arrays;
+
+/**
+ * Counts how often strings occur using a fixed amount of memory.
+ * Each string is counted in one cell of every row, and its estimate is the
+ * smallest of those cells. Estimates are never below the true count and
+ * exceed it only when other strings share all of its cells.
+ * This class is not thread safe. Callers guard it with their own lock.
+ */
+public class CountMinSketch {
+
+    private final int depth;
+
+    // Width of a row. Always a power of two so a hash can be masked into it.
+    private final int width;
+
+    // depth rows of width cells each.
+    private final int[] cells;
+
+    /**
+     * Constructs an empty sketch.
+     *
+     * @param depth the number of rows; more rows make large overestimates less likely
+     * @param width the number of cells per row, rounded up to a power of two;
+     *              wider rows make overestimates smaller
+     */
+    public CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        this.width = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.cells = new int[depth * this.width];
+    }
+
+    /**
+     * Adds count occurrences of a key.
+     */
+    public void add(String key, int count) {
+        int hash1 = mix(key.hashCode());
+        int hash2 = mix(hash1 ^ 0x5bd1e995);
+        for (int row = 0; row < depth; row++) {
+            cells[row * width + ((hash1 + row * hash2) & (width - 1))] += count;
+        }
+    }
+
+    /**
+     * Returns the estimated number of occurrences of a key.
+     */
+    public int estimate(String key) {
+        int hash1 = mix(key.hashCode());
+        int hash2 = mix(hash1 ^ 0x5bd1e995);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, cells[row * width + ((hash1 + row * hash2) & (width - 1))]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Removes the counts of another sketch of the same size from this one.
+     * The other sketch must only hold counts that were also added to this one.
+     */
+    public void subtract(CountMinSketch other) {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] -= other.cells[i];
+        }
+    }
+
+    /**
+     * Resets every count to zero.
+     */
+    public void clear() {
+        Arrays.fill(cells, 0);
+    }
+
+    /**
+     * Spreads the bits of a hash code so nearby hash codes land in distant cells.
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
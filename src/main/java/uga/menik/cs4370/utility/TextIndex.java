@@ -0,0 +1,640 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An in-memory full-text index over short documents.
+ * Each term maps to the documents containing it and the positions of the
+ * term in each document, so both ranked term queries and exact phrase
+ * queries can be answered.
+ *
+ * New documents go into a small mutable buffer. When the buffer is full it
+ * is frozen into an immutable segment. Segments are merged on a background
+ * executor once there are too many of them, which keeps the number of
+ * segments a search visits small.
+ *
+ * Results are ranked with BM25 and boosted for recent documents.
+ * Documents are identified by a non-negative int and are never removed.
+ */
+public class TextIndex {
+
+    /** BM25 term frequency saturation. */
+    private static final double K1 = 1.2;
+
+    /** BM25 document length normalization. */
+    private static final double B = 0.75;
+
+    /** How much a brand new document's score is boosted, relative to its text score. */
+    private static final double RECENCY_BOOST = 0.5;
+
+    /** Age at which the recency boost is halved. */
+    private static final long RECENCY_HALF_LIFE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    /** Tokens longer than this are not indexed. */
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private final int flushThreshold;
+    private final int mergeFactor;
+    private final Executor merger;
+    private final AtomicBoolean isMergeScheduled = new AtomicBoolean(false);
+
+    // Documents added since the last flush. Guarded by this.
+    private SegmentBuilder buffer = new SegmentBuilder();
+
+    // Frozen copy of the buffer for searches, rebuilt after the buffer changes. Guarded by this.
+    private Segment bufferSegment = null;
+
+    // Immutable segments. Replaced as a whole while holding this.
+    private volatile List<Segment> segments = List.of();
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param flushThreshold the number of buffered documents that are frozen into a segment
+     * @param mergeFactor    the number of segments that triggers a merge, and how many are merged at once
+     * @param merger         the executor that merges segments
+     */
+    public TextIndex(int flushThreshold, int mergeFactor, Executor merger) {
+        this.flushThreshold = flushThreshold;
+        this.mergeFactor = mergeFactor;
+        this.merger = merger;
+    }
+
+    /**
+     * Splits text into lower case words. Anything other than letters and
+     * digits separates words, so "#Spring-Boot!" becomes "spring" and "boot".
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isWordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                if (i - start <= MAX_TOKEN_LENGTH) {
+                    tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Adds a document to the index. It is searchable as soon as this returns.
+     */
+    public void add(int docId, long timeMillis, String text) {
+        List<String> tokens = tokenize(text);
+        synchronized (this) {
+            buffer.addDocument(docId, timeMillis, tokens);
+            bufferSegment = null;
+            if (buffer.docCount() >= flushThreshold) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Adds many documents at once as a new segment. Used for bulk loading.
+     */
+    public void addAll(int[] docIds, long[] timesMillis, String[] texts, int count) {
+        if (count == 0) {
+            return;
+        }
+        SegmentBuilder builder = new SegmentBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.addDocument(docIds[i], timesMillis[i], tokenize(texts[i]));
+        }
+        Segment segment = builder.build();
+        synchronized (this) {
+            addSegment(segment);
+        }
+    }
+
+    /**
+     * Freezes the buffered documents into a segment.
+     */
+    public synchronized void flush() {
+        if (buffer.docCount() == 0) {
+            return;
+        }
+        Segment segment = buffer.build();
+        buffer = new SegmentBuilder();
+        bufferSegment = null;
+        addSegment(segment);
+    }
+
+    /**
+     * Returns the number of documents in the index.
+     */
+    public synchronized int docCount() {
+        int count = buffer.docCount();
+        for (Segment segment : segments) {
+            count += segment.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of immutable segments.
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Returns the IDs of the best matching documents, best first.
+     * Words in the query match documents containing any of them. Words in
+     * double quotes must appear in the document next to each other.
+     *
+     * @param query     the search text
+     * @param limit     the maximum number of results
+     * @param nowMillis the current time, for the recency boost
+     * @return the document IDs
+     */
+    public int[] search(String query, int limit, long nowMillis) {
+        Query parsed = Query.parse(query);
+        if (parsed.terms.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+
+        List<Segment> snapshot = new ArrayList<>();
+        synchronized (this) {
+            snapshot.addAll(segments);
+            if (buffer.docCount() > 0) {
+                if (bufferSegment == null) {
+                    bufferSegment = buffer.build();
+                }
+                snapshot.add(bufferSegment);
+            }
+        }
+
+        // Collection statistics for BM25.
+        long docCount = 0;
+        long totalLength = 0;
+        int[] docFreqs = new int[parsed.terms.size()];
+        for (Segment segment : snapshot) {
+            docCount += segment.size();
+            totalLength += segment.totalLength;
+            for (int t = 0; t < docFreqs.length; t++) {
+                Postings postings = segment.postings.get(parsed.terms.get(t));
+                docFreqs[t] += postings == null ? 0 : postings.docs.length;
+            }
+        }
+        if (docCount == 0) {
+            return new int[0];
+        }
+        double avgLength = Math.max(1.0, (double) totalLength / docCount);
+        double[] idfs = new double[docFreqs.length];
+        for (int t = 0; t < idfs.length; t++) {
+            idfs[t] = Math.log(1 + (docCount - docFreqs[t] + 0.5) / (docFreqs[t] + 0.5));
+        }
+
+        // Lowest scoring result at the head, so it is the one replaced.
+        PriorityQueue<ScoredDoc> top = new PriorityQueue<>(ScoredDoc.WORST_FIRST);
+        for (Segment segment : snapshot) {
+            segment.score(parsed, idfs, avgLength, nowMillis, top, limit);
+        }
+
+        List<ScoredDoc> results = new ArrayList<>(top);
+        results.sort(ScoredDoc.WORST_FIRST.reversed());
+        int[] docIds = new int[results.size()];
+        for (int i = 0; i < docIds.length; i++) {
+            docIds[i] = results.get(i).docId;
+        }
+        return docIds;
+    }
+
+    // Must hold this.
+    private void addSegment(Segment segment) {
+        List<Segment> next = new ArrayList<>(segments);
+        next.add(segment);
+        segments = Collections.unmodifiableList(next);
+        if (next.size() > mergeFactor && isMergeScheduled.compareAndSet(false, true)) {
+            merger.execute(this::mergeSegments);
+        }
+    }
+
+    /**
+     * Merges the smallest segments together until there are at most
+     * mergeFactor segments. Searches keep using the old segments until
+     * the merged one replaces them.
+     */
+    private void mergeSegments() {
+        try {
+            while (segments.size() > mergeFactor) {
+                List<Segment> smallest = new ArrayList<>(segments);
+                smallest.sort(Comparator.comparingInt(Segment::size));
+                smallest = smallest.subList(0, mergeFactor);
+                Segment merged = Segment.merge(smallest);
+
+                synchronized (this) {
+                    // Only this method removes segments, so all of them are still present.
+                    Set<Segment> replaced = Collections.newSetFromMap(new IdentityHashMap<>());
+                    replaced.addAll(smallest);
+                    List<Segment> next = new ArrayList<>();
+                    for (Segment segment : segments) {
+                        if (!replaced.contains(segment)) {
+                            next.add(segment);
+                        }
+                    }
+                    next.add(merged);
+                    segments = Collections.unmodifiableList(next);
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            isMergeScheduled.set(false);
+        }
+        // Segments may have been added after the last check.
+        if (segments.size() > mergeFactor && isMergeScheduled.compareAndSet(false, true)) {
+            merger.execute(this::mergeSegments);
+        }
+    }
+
+    private static double recencyBoost(long timeMillis, long nowMillis) {
+        double age = Math.max(0, nowMillis - timeMillis);
+        return 1 + RECENCY_BOOST * Math.pow(0.5, age / RECENCY_HALF_LIFE_MILLIS);
+    }
+
+    /**
+     * A parsed search: the distinct terms, and the phrases made of them.
+     */
+    private static final class Query {
+        final List<String> terms = new ArrayList<>();
+
+        // Each phrase lists the indexes of its terms in order.
+        final List<int[]> phrases = new ArrayList<>();
+
+        static Query parse(String text) {
+            Query query = new Query();
+            String[] parts = text.split("\"", -1);
+            for (int i = 0; i < parts.length; i++) {
+                List<String> tokens = tokenize(parts[i]);
+                // Odd parts were between quotes.
+                boolean isPhrase = i % 2 == 1 && i < parts.length - 1;
+                int[] phrase = new int[tokens.size()];
+                for (int j = 0; j < tokens.size(); j++) {
+                    int index = query.terms.indexOf(tokens.get(j));
+                    if (index < 0) {
+                        index = query.terms.size();
+                        query.terms.add(tokens.get(j));
+                    }
+                    phrase[j] = index;
+                }
+                if (isPhrase && phrase.length > 0) {
+                    query.phrases.add(phrase);
+                }
+            }
+            return query;
+        }
+    }
+
+    private static final class ScoredDoc {
+        /**
+         * Lower scores first, and older documents first among equal
+         * scores, so ties are kept the same way however the documents
+         * are split into segments.
+         */
+        static final Comparator<ScoredDoc> WORST_FIRST = Comparator.comparingDouble((ScoredDoc d) -> d.score)
+                .thenComparingInt(d -> d.docId);
+
+        final int docId;
+        final double score;
+
+        ScoredDoc(int docId, double score) {
+            this.docId = docId;
+            this.score = score;
+        }
+    }
+
+    /**
+     * The documents containing one term, in document order.
+     */
+    private static final class Postings {
+        // Document ordinals within the segment.
+        final int[] docs;
+        final int[] freqs;
+        // Positions of the term in docs[i] are positions[positionStarts[i]] up to positions[positionStarts[i + 1]].
+        final int[] positionStarts;
+        final int[] positions;
+
+        Postings(int[] docs, int[] freqs, int[] positionStarts, int[] positions) {
+            this.docs = docs;
+            this.freqs = freqs;
+            this.positionStarts = positionStarts;
+            this.positions = positions;
+        }
+    }
+
+    /**
+     * An immutable part of the index. Documents are ordered by ID and
+     * referred to by their ordinal in that order.
+     */
+    private static final class Segment {
+        final int[] docIds;
+        final int[] lengths;
+        final long[] times;
+        final long totalLength;
+        final Map<String, Postings> postings;
+
+        Segment(int[] docIds, int[] lengths, long[] times, Map<String, Postings> postings) {
+            this.docIds = docIds;
+            this.lengths = lengths;
+            this.times = times;
+            long total = 0;
+            for (int length : lengths) {
+                total += length;
+            }
+            this.totalLength = total;
+            this.postings = postings;
+        }
+
+        int size() {
+            return docIds.length;
+        }
+
+        /**
+         * Scores every matching document of this segment one document at
+         * a time, walking the postings of all query terms together, and
+         * offers each to the top results.
+         */
+        void score(Query query, double[] idfs, double avgLength, long nowMillis,
+                PriorityQueue<ScoredDoc> top, int limit) {
+            int termCount = query.terms.size();
+            Postings[] lists = new Postings[termCount];
+            int[] cursors = new int[termCount];
+            for (int t = 0; t < termCount; t++) {
+                lists[t] = postings.get(query.terms.get(t));
+            }
+            for (int[] phrase : query.phrases) {
+                for (int t : phrase) {
+                    if (lists[t] == null) {
+                        // A required term is missing, so nothing here matches.
+                        return;
+                    }
+                }
+            }
+
+            while (true) {
+                int doc = Integer.MAX_VALUE;
+                for (int t = 0; t < termCount; t++) {
+                    if (lists[t] != null && cursors[t] < lists[t].docs.length) {
+                        doc = Math.min(doc, lists[t].docs[cursors[t]]);
+                    }
+                }
+                if (doc == Integer.MAX_VALUE) {
+                    return;
+                }
+
+                double score = 0;
+                double lengthNorm = K1 * (1 - B + B * lengths[doc] / avgLength);
+                for (int t = 0; t < termCount; t++) {
+                    if (isAt(lists[t], cursors[t], doc)) {
+                        int freq = lists[t].freqs[cursors[t]];
+                        score += idfs[t] * freq * (K1 + 1) / (freq + lengthNorm);
+                    }
+                }
+
+                if (matchesPhrases(query, lists, cursors, doc)) {
+                    score *= recencyBoost(times[doc], nowMillis);
+                    ScoredDoc scored = new ScoredDoc(docIds[doc], score);
+                    if (top.size() < limit) {
+                        top.add(scored);
+                    } else if (ScoredDoc.WORST_FIRST.compare(top.peek(), scored) < 0) {
+                        top.poll();
+                        top.add(scored);
+                    }
+                }
+
+                for (int t = 0; t < termCount; t++) {
+                    if (isAt(lists[t], cursors[t], doc)) {
+                        cursors[t]++;
+                    }
+                }
+            }
+        }
+
+        private static boolean isAt(Postings list, int cursor, int doc) {
+            return list != null && cursor < list.docs.length && list.docs[cursor] == doc;
+        }
+
+        /**
+         * Checks that every phrase of the query appears in the document,
+         * using the positions of its terms.
+         */
+        private static boolean matchesPhrases(Query query, Postings[] lists, int[] cursors, int doc) {
+            for (int[] phrase : query.phrases) {
+                for (int t : phrase) {
+                    if (!isAt(lists[t], cursors[t], doc)) {
+                        return false;
+                    }
+                }
+                Postings first = lists[phrase[0]];
+                int from = first.positionStarts[cursors[phrase[0]]];
+                int to = first.positionStarts[cursors[phrase[0]] + 1];
+                boolean isFound = false;
+                for (int p = from; p < to && !isFound; p++) {
+                    int start = first.positions[p];
+                    isFound = true;
+                    for (int k = 1; k < phrase.length && isFound; k++) {
+                        Postings next = lists[phrase[k]];
+                        int c = cursors[phrase[k]];
+                        isFound = Arrays.binarySearch(next.positions, next.positionStarts[c],
+                                next.positionStarts[c + 1], start + k) >= 0;
+                    }
+                }
+                if (!isFound) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Combines segments into one.
+         */
+        static Segment merge(List<Segment> segments) {
+            SegmentBuilder builder = new SegmentBuilder();
+            for (Segment segment : segments) {
+                for (int doc = 0; doc < segment.size(); doc++) {
+                    builder.addDocumentInfo(segment.docIds[doc], segment.lengths[doc], segment.times[doc]);
+                }
+                for (Map.Entry<String, Postings> entry : segment.postings.entrySet()) {
+                    Postings list = entry.getValue();
+                    for (int i = 0; i < list.docs.length; i++) {
+                        builder.addPosting(entry.getKey(), segment.docIds[list.docs[i]], list.positions,
+                                list.positionStarts[i], list.positionStarts[i + 1]);
+                    }
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Collects documents and postings in any order and builds a segment
+     * from them. A document added more than once is kept once.
+     */
+    private static final class SegmentBuilder {
+
+        private static final class TermPostings {
+            final IntList docIds = new IntList();
+            final IntList positions = new IntList();
+            // Number of positions of each posting, in the order they were added.
+            final IntList freqs = new IntList();
+        }
+
+        private final IntList docIds = new IntList();
+        private final IntList lengths = new IntList();
+        private long[] times = new long[4];
+        private final Map<String, TermPostings> terms = new HashMap<>();
+
+        int docCount() {
+            return docIds.size;
+        }
+
+        void addDocument(int docId, long timeMillis, List<String> tokens) {
+            addDocumentInfo(docId, tokens.size(), timeMillis);
+            Map<String, IntList> positionsByTerm = new LinkedHashMap<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                positionsByTerm.computeIfAbsent(tokens.get(i), t -> new IntList()).add(i);
+            }
+            for (Map.Entry<String, IntList> entry : positionsByTerm.entrySet()) {
+                IntList positions = entry.getValue();
+                addPosting(entry.getKey(), docId, positions.values, 0, positions.size);
+            }
+        }
+
+        void addDocumentInfo(int docId, int length, long timeMillis) {
+            if (docIds.size == times.length) {
+                times = Arrays.copyOf(times, times.length * 2);
+            }
+            times[docIds.size] = timeMillis;
+            docIds.add(docId);
+            lengths.add(length);
+        }
+
+        void addPosting(String term, int docId, int[] positions, int from, int to) {
+            TermPostings postings = terms.computeIfAbsent(term, t -> new TermPostings());
+            postings.docIds.add(docId);
+            postings.freqs.add(to - from);
+            postings.positions.addAll(positions, from, to);
+        }
+
+        Segment build() {
+            // Order documents by ID, keeping the first copy of any duplicate.
+            int[] order = sortedOrder(docIds);
+            IntList sortedIds = new IntList();
+            IntList sortedLengths = new IntList();
+            long[] sortedTimes = new long[order.length];
+            for (int index : order) {
+                int docId = docIds.values[index];
+                if (sortedIds.size > 0 && sortedIds.values[sortedIds.size - 1] == docId) {
+                    continue;
+                }
+                sortedTimes[sortedIds.size] = times[index];
+                sortedIds.add(docId);
+                sortedLengths.add(lengths.values[index]);
+            }
+            int[] segmentDocIds = sortedIds.toArray();
+
+            Map<String, Postings> postings = new HashMap<>();
+            for (Map.Entry<String, TermPostings> entry : terms.entrySet()) {
+                TermPostings term = entry.getValue();
+                // Where the positions of each posting start, in the order they were added.
+                int[] starts = new int[term.freqs.size + 1];
+                for (int i = 0; i < term.freqs.size; i++) {
+                    starts[i + 1] = starts[i] + term.freqs.values[i];
+                }
+
+                IntList docs = new IntList();
+                IntList freqs = new IntList();
+                IntList positionStarts = new IntList();
+                IntList positions = new IntList();
+                int lastDocId = -1;
+                for (int index : sortedOrder(term.docIds)) {
+                    int docId = term.docIds.values[index];
+                    if (docId == lastDocId) {
+                        continue;
+                    }
+                    lastDocId = docId;
+                    docs.add(Arrays.binarySearch(segmentDocIds, docId));
+                    freqs.add(term.freqs.values[index]);
+                    positionStarts.add(positions.size);
+                    positions.addAll(term.positions.values, starts[index], starts[index + 1]);
+                }
+                positionStarts.add(positions.size);
+                postings.put(entry.getKey(), new Postings(docs.toArray(), freqs.toArray(),
+                        positionStarts.toArray(), positions.toArray()));
+            }
+            return new Segment(segmentDocIds, sortedLengths.toArray(),
+                    Arrays.copyOf(sortedTimes, sortedIds.size), postings);
+        }
+
+        /**
+         * Returns the indexes of the values in ascending order of value,
+         * with equal values in the order they were added.
+         */
+        private static int[] sortedOrder(IntList values) {
+            long[] keys = new long[values.size];
+            for (int i = 0; i < values.size; i++) {
+                keys[i] = ((long) values.values[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] order = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                order[i] = (int) keys[i];
+            }
+            return order;
+        }
+    }
+
+    /**
+     * A growable array of ints.
+     */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(int[] source, int from, int to) {
+            int count = to - from;
+            if (size + count > values.length) {
+                values = Arrays.copyOf(values, Math.max(size * 2, size + count));
+            }
+            System.arraycopy(source, from, values, size, count);
+            size += count;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
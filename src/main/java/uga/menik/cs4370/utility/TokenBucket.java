@@ -0,0 +1,81 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The rules of a token bucket: it holds at most capacity tokens, gains one
+ * every refill interval, and each request takes one.
+ *
+ * The state of one bucket is a single long, the time on the System.nanoTime
+ * clock at which it is full again, so a bucket is just an AtomicLong and
+ * taking a token is one compare-and-set. A bucket that is full is the same
+ * as a new one, so it can be thrown away and created again without anyone
+ * noticing.
+ */
+public class TokenBucket {
+
+    private final int capacity;
+    private final long refillIntervalNanos;
+
+    /**
+     * @param capacity        the number of requests allowed at once
+     * @param refillsPerMinute the number of requests allowed per minute after that
+     */
+    public TokenBucket(int capacity, int refillsPerMinute) {
+        if (capacity < 1 || refillsPerMinute < 1) {
+            throw new IllegalArgumentException("A token bucket needs a capacity and refill rate of at least 1.");
+        }
+        this.capacity = capacity;
+        this.refillIntervalNanos = TimeUnit.MINUTES.toNanos(1) / refillsPerMinute;
+    }
+
+    /**
+     * Returns the state of a full bucket.
+     */
+    public AtomicLong newBucket(long nowNanos) {
+        return new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token from a bucket if it has one.
+     *
+     * @return 0 if a token was taken, or else how many nanoseconds until the
+     *         bucket has one
+     */
+    public long take(AtomicLong bucket, long nowNanos) {
+        while (true) {
+            long fullAtNanos = bucket.get();
+            // A bucket that is already full gains nothing more by waiting.
+            long start = fullAtNanos - nowNanos < 0 ? nowNanos : fullAtNanos;
+            long nextFullAtNanos = start + refillIntervalNanos;
+            long waitNanos = nextFullAtNanos - nowNanos - capacity * refillIntervalNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(fullAtNanos, nextFullAtNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns whether a bucket is full, in which case it can be discarded.
+     */
+    public boolean isFull(AtomicLong bucket, long nowNanos) {
+        return bucket.get() - nowNanos <= 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getRefillsPerMinute() {
+        return (int) (TimeUnit.MINUTES.toNanos(1) / refillIntervalNanos);
+    }
+}
@@ -0,0 +1,16 @@
+-- Indexes for the lookups that database_setup.sql only covered with the
+-- single column indexes MySQL creates for foreign keys. Each one starts with
+-- the column the query filters on and ends with the column it reads, so the
+-- query is answered from the index without reading the table rows.
+-- The profile and feed (post_user_date) and comment thread (comment_post_date)
+-- indexes are already in database_setup.sql.
+
+-- Followers of a user, for fanning out new posts to their timelines.
+CREATE INDEX follow_followee ON follow (followeeUserId, followerUserId);
+
+-- Hearts given by a user, for per-viewer lookups and for removing a deleted
+-- user's hearts.
+CREATE INDEX heart_user ON heart (userId, postId);
+
+-- Posts bookmarked by a user, for the bookmarks page.
+CREATE INDEX bookmark_user ON bookmark (userId, postId);
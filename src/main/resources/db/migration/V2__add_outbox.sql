@@ -0,0 +1,21 @@
+-- Transactional outbox. Every write that other parts of the app derive
+-- data from also inserts a row here, in the same transaction, and
+-- OutboxRelay publishes the rows in eventId order on the EventBus.
+-- Rows that every consumer has handled are deleted by the relay.
+CREATE TABLE IF NOT EXISTS outbox_event (
+    eventId bigint NOT NULL AUTO_INCREMENT,
+    eventType varchar(40) NOT NULL,
+    aggregateId int NOT NULL,
+    userId int NOT NULL,
+    payload varchar(500),
+    createdAt datetime NOT NULL,
+    PRIMARY KEY (eventId)
+);
+
+-- The last event each durable consumer has handled, so that it picks up
+-- where it left off after a restart.
+CREATE TABLE IF NOT EXISTS outbox_offset (
+    consumer varchar(100) NOT NULL,
+    lastEventId bigint NOT NULL,
+    PRIMARY KEY (consumer)
+);
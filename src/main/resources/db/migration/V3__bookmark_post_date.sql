@@ -0,0 +1,20 @@
+-- Bookmarks keep the date of the post they point to, as the timeline does,
+-- so that the bookmarks page reads one page of a user's bookmarks, newest
+-- post first, straight from bookmark_user_date instead of sorting all of
+-- them. The date of a post never changes after it is created.
+--
+-- The column gets a default rather than being made NOT NULL after the
+-- backfill, so that instances still running the previous version, which
+-- add bookmarks without a date, keep working while this one rolls out.
+-- Deploy order: the first new instance runs this migration, then every
+-- instance is replaced, then the app is run once with
+-- --backfill-bookmark-dates to date the bookmarks that the old instances
+-- added in between. Until then those sort last on the bookmarks page.
+ALTER TABLE bookmark ADD COLUMN postDate datetime NOT NULL DEFAULT '1970-01-01 00:00:00';
+
+UPDATE bookmark SET postDate = (SELECT p.postDate FROM post p WHERE p.postId = bookmark.postId);
+
+CREATE INDEX bookmark_user_date ON bookmark (userId, postDate, postId);
+
+-- Replaced by bookmark_user_date, which also starts with userId.
+DROP INDEX bookmark_user ON bookmark;
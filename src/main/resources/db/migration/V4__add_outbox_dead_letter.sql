@@ -0,0 +1,15 @@
+-- Events a consumer gave up on after app.events.max-attempts failed
+-- attempts, with the error, so they can be looked into and replayed by
+-- hand. The consumer moves on without them.
+CREATE TABLE IF NOT EXISTS outbox_dead_letter (
+    consumer varchar(100) NOT NULL,
+    eventId bigint NOT NULL,
+    eventType varchar(40) NOT NULL,
+    aggregateId int NOT NULL,
+    userId int NOT NULL,
+    payload varchar(500),
+    createdAt datetime NOT NULL,
+    error varchar(500),
+    failedAt datetime NOT NULL,
+    PRIMARY KEY (consumer, eventId)
+);
@@ -0,0 +1,17 @@
+-- Indexes that used to be declared in the CREATE TABLE statements of
+-- database_setup.sql, where a database created before them never got them.
+-- A database created while they were there already has them, and MigrationRunner
+-- skips a CREATE INDEX whose index already exists on the table.
+
+-- Finds the latest posts of a user without reading all of their posts.
+CREATE INDEX post_user_date ON post (userId, postDate);
+
+-- Finds the posts of the last day when trending hashtags are replayed at startup.
+CREATE INDEX post_date ON post (postDate);
+
+-- Comments are read one page at a time in (commentDate, commentId) order per post.
+CREATE INDEX comment_post_date ON comment (postId, commentDate, commentId);
+
+-- The people directory searches users by username, first name, or last name prefix.
+CREATE INDEX user_first_name ON user (firstName);
+CREATE INDEX user_last_name ON user (lastName);
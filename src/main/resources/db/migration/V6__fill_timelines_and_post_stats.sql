@@ -0,0 +1,42 @@
+-- Fills the materialized timelines and the post_stats counters from the
+-- existing posts, follows, hearts and comments, so that feeds and counts
+-- are right as soon as the first instance with them starts, without
+-- running --rebuild-timelines and --rebuild-post-stats by hand.
+-- The tables are created here too, for databases set up before they were
+-- added to database_setup.sql. Rows that are already there are kept, so
+-- this is harmless after a manual rebuild.
+-- Instances of the previous version that keep running during the rollout
+-- do not write either table, so if they took writes the two rebuild
+-- commands can be run once the rollout is done.
+CREATE TABLE IF NOT EXISTS timeline (
+    userId int NOT NULL,
+    postId int NOT NULL,
+    postDate datetime NOT NULL,
+    PRIMARY KEY (userId, postDate, postId),
+    FOREIGN KEY (userId) REFERENCES user(userId)
+        ON UPDATE CASCADE
+        ON DELETE CASCADE,
+    FOREIGN KEY (postId) REFERENCES post(postId)
+        ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS post_stats (
+    postId int NOT NULL,
+    heartsCount int NOT NULL DEFAULT 0,
+    commentsCount int NOT NULL DEFAULT 0,
+    lastActivityDate datetime NOT NULL,
+    PRIMARY KEY (postId),
+    FOREIGN KEY (postId) REFERENCES post(postId)
+        ON DELETE CASCADE
+);
+
+INSERT IGNORE INTO timeline (userId, postId, postDate)
+SELECT f.followerUserId, p.postId, p.postDate
+FROM follow f JOIN post p ON p.userId = f.followeeUserId;
+
+INSERT IGNORE INTO post_stats (postId, heartsCount, commentsCount, lastActivityDate)
+SELECT p.postId,
+    (SELECT COUNT(*) FROM heart h WHERE h.postId = p.postId),
+    (SELECT COUNT(*) FROM comment c WHERE c.postId = p.postId),
+    COALESCE((SELECT MAX(c.commentDate) FROM comment c WHERE c.postId = p.postId), p.postDate)
+FROM post p;
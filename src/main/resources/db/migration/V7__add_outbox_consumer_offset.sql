@@ -0,0 +1,13 @@
+-- The last event each consumer has handled, per application instance.
+-- Every instance runs every consumer, so outbox_offset, keyed by consumer
+-- alone, let instances overwrite each other's offsets. The relay only
+-- deletes events up to the oldest offset of any instance that has updated
+-- its rows recently. outbox_offset is left for instances still running
+-- the previous version during an upgrade and is no longer read.
+CREATE TABLE IF NOT EXISTS outbox_consumer_offset (
+    instanceId varchar(100) NOT NULL,
+    consumer varchar(100) NOT NULL,
+    lastEventId bigint NOT NULL,
+    updatedAt datetime NOT NULL,
+    PRIMARY KEY (instanceId, consumer)
+);
@@ -20,4 +20,87 @@ document.addEventListener('DOMContentLoaded', function () {
             }
         });
     }
+
+    // Load the next page of comments in place instead of leaving the post page.
+    document.addEventListener('click', function (e) {
+        var link = e.target.closest('.load-more-comments a');
+        if (!link) {
+            return;
+        }
+        e.preventDefault();
+        var container = link.closest('.load-more-comments');
+        fetch(link.href)
+            .then(function (response) {
+                if (!response.ok) {
+                    throw new Error('Failed to load comments: ' + response.status);
+                }
+                return response.text();
+            })
+            .then(function (html) {
+                // The fragment holds the comments and the link to the page after them.
+                container.insertAdjacentHTML('afterend', html);
+                container.remove();
+            })
+            .catch(function (error) {
+                console.log(error);
+            });
+    });
+
+    // Heart, bookmark and follow through the API and update the button in place.
+    // The forms still work without this, by loading the page again.
+    var interactionPattern = /^\/(post|people)\/(\d+)\/(heart|bookmark|follow)\/(true|false)$/;
+    var interactionIcons = {
+        heart: ['far', 'fa'],
+        bookmark: ['far', 'fa'],
+        follow: ['fa-user-plus', 'fa-user-minus']
+    };
+
+    document.addEventListener('submit', function (e) {
+        var form = e.target;
+        var match = interactionPattern.exec(new URL(form.action, window.location.href).pathname);
+        if (!match) {
+            return;
+        }
+        e.preventDefault();
+        var id = match[2];
+        var kind = match[3];
+        var isAdd = match[4] === 'true';
+        var url = kind === 'follow'
+            ? '/api/users/' + id + '/follow'
+            : '/api/posts/' + id + '/' + kind;
+
+        fetch(url, { method: isAdd ? 'POST' : 'DELETE' })
+            .then(function (response) {
+                if (response.status === 429) {
+                    // Submitting the form would be turned away too.
+                    throw { isRateLimited: true, retryAfter: response.headers.get('Retry-After') };
+                }
+                if (!response.ok) {
+                    throw new Error('Failed to update ' + kind + ': ' + response.status);
+                }
+                return response.json();
+            })
+            .then(function (state) {
+                // The next click undoes this one.
+                form.setAttribute('action', form.getAttribute('action').replace(/(true|false)$/, String(!isAdd)));
+                var button = form.querySelector('button');
+                var icons = interactionIcons[kind];
+                button.classList.remove(icons[isAdd ? 0 : 1]);
+                button.classList.add(icons[isAdd ? 1 : 0]);
+                if (kind === 'heart') {
+                    var count = form.parentElement.querySelector('.hearts-count');
+                    if (count) {
+                        count.textContent = state.heartsCount;
+                    }
+                }
+            })
+            .catch(function (error) {
+                if (error.isRateLimited) {
+                    alert('You are doing that too often. Try again in ' + error.retryAfter + ' seconds.');
+                    return;
+                }
+                console.log(error);
+                form.submit();
+            });
+    });
 });
@@ -0,0 +1,98 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Runs an event bus with a tiny queue against a database of its own, and
+ * checks that a slow consumer catches up from the outbox table without
+ * holding back the others, and that an event that keeps failing is
+ * dead-lettered instead of retried forever.
+ */
+class EventBusTest {
+
+    private static final int EVENTS = 40;
+    private static final int BAD_EVENT = 7;
+
+    @Test
+    void slowAndFailingConsumersDoNotHoldBackTheOthers() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(String.format(TestDatabase.URL_TEMPLATE, "eventbus"));
+        TestDatabase.ensureSeeded(dataSource, 3, 1);
+        Outbox outbox = new Outbox();
+        // One batch per queue, no waiting for room, and two attempts per batch.
+        EventBus eventBus = new EventBus(dataSource, outbox, "test", 3600000, 1, 0, 2, 100);
+
+        Set<Long> fast = new ConcurrentSkipListSet<>();
+        Set<Long> slow = new ConcurrentSkipListSet<>();
+        Set<Long> failing = new ConcurrentSkipListSet<>();
+        eventBus.subscribe("fast", false, events -> events.forEach(event -> fast.add(event.getEventId())));
+        eventBus.subscribe("slow", true, events -> {
+            Thread.sleep(20);
+            events.forEach(event -> slow.add(event.getEventId()));
+        });
+        eventBus.subscribe("failing", true, events -> {
+            for (OutboxEvent event : events) {
+                if (event.getAggregateId() == BAD_EVENT) {
+                    throw new IllegalStateException("Cannot handle event " + event.getEventId() + ".");
+                }
+            }
+            events.forEach(event -> failing.add(event.getEventId()));
+        });
+
+        try {
+            long startEventId = eventBus.start(0);
+            TreeSet<Long> all = new TreeSet<>();
+            try (Connection conn = dataSource.getConnection()) {
+                for (int i = 1; i <= EVENTS; i++) {
+                    outbox.append(conn, OutboxEvent.COMMENT_CREATED, i, 1, null,
+                            new Timestamp(System.currentTimeMillis()));
+                }
+                for (OutboxEvent event : outbox.readAfter(conn, startEventId, EVENTS)) {
+                    all.add(event.getEventId());
+                    eventBus.publish(List.of(event), event.getEventId());
+                }
+            }
+            long newest = all.last();
+
+            long deadline = System.currentTimeMillis() + 20000;
+            while (!eventBus.isHandled(newest)) {
+                assertTrue(System.currentTimeMillis() < deadline,
+                        "The events were not handled.\n" + eventBus.report());
+                Thread.sleep(20);
+            }
+            assertEquals(all, fast);
+            assertEquals(all, slow);
+            assertEquals(EVENTS - 1, failing.size());
+            assertTrue(eventBus.report().contains("dead-lettered=1"), eventBus.report());
+            try (Connection conn = dataSource.getConnection();
+                    PreparedStatement pstmt = conn.prepareStatement(
+                            "SELECT aggregateId FROM outbox_dead_letter WHERE consumer = 'failing'");
+                    ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(BAD_EVENT, rs.getInt(1));
+            }
+        } finally {
+            eventBus.shutdown();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Upgrades a database that has posts but no timelines or post_stats yet,
+ * and checks that the migrations fill both the same way a rebuild does.
+ */
+class MigrationRunnerTest {
+
+    private static final String TIMELINE_SQL = "SELECT userId, postId, postDate FROM timeline"
+            + " ORDER BY userId, postDate, postId";
+    private static final String POST_STATS_SQL = "SELECT postId, heartsCount, commentsCount, lastActivityDate"
+            + " FROM post_stats ORDER BY postId";
+
+    @Test
+    void upgradeFillsTimelinesAndPostStats() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(String.format(TestDatabase.URL_TEMPLATE, "upgrade"));
+        TestDatabase.ensureSeeded(dataSource, 20, 3);
+
+        List<String> timeline;
+        List<String> postStats;
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            // What the sample data's rebuild wrote.
+            timeline = rows(stmt, TIMELINE_SQL);
+            postStats = rows(stmt, POST_STATS_SQL);
+            assertFalse(timeline.isEmpty());
+
+            // As before the tables were added.
+            stmt.executeUpdate("DROP TABLE timeline");
+            stmt.executeUpdate("DROP TABLE post_stats");
+            stmt.executeUpdate("DELETE FROM schema_history WHERE version = 6");
+        }
+
+        MigrationRunner migrationRunner = new MigrationRunner(dataSource, false);
+        assertEquals(1, migrationRunner.migrate());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            assertEquals(timeline, rows(stmt, TIMELINE_SQL));
+            assertEquals(postStats, rows(stmt, POST_STATS_SQL));
+        }
+        assertEquals(0, migrationRunner.migrate());
+    }
+
+    private static List<String> rows(Statement stmt, String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 1; i <= columns; i++) {
+                    row.append(i > 1 ? ", " : "").append(rs.getString(i));
+                }
+                rows.add(row.toString());
+            }
+        }
+        return rows;
+    }
+}
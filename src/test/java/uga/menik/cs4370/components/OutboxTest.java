@@ -0,0 +1,173 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Runs the app with the outbox relay on, against a database of its own so
+ * the relay's statements are not counted by the other tests, and checks
+ * that writes reach the consumers that keep the derived tables.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "app.outbox.relay-enabled=true",
+        "app.outbox.poll-interval-ms=20" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OutboxTest {
+
+    private static final int USERS = 60;
+    private static final int POSTS_PER_USER = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private Outbox outbox;
+
+    @BeforeAll
+    void seed() throws Exception {
+        TestDatabase.ensureSeeded(dataSource, USERS, POSTS_PER_USER);
+        // The relay retries until the tables exist; consumers seen for the
+        // first time start from the oldest event still in the outbox.
+        long deadline = System.currentTimeMillis() + 20000;
+        while (outboxRelay.getPosition() < 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "The outbox relay did not start.");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void writesReachTheConsumers() throws Exception {
+        // Users 5 to 19 follow user 20, who follows users 21 to 35.
+        MockHttpSession session = logIn(20);
+
+        mockMvc.perform(post("/createpost").session(session).param("posttext", "Outbox check #outboxtag"));
+        awaitHandled();
+        int postId = queryInt("SELECT MAX(postId) FROM post WHERE userId = 20");
+        assertEquals(1, queryInt("SELECT COUNT(*) FROM timeline WHERE userId = 5 AND postId = " + postId));
+
+        mockMvc.perform(post("/post/" + postId + "/comment").session(session).param("comment", "Outbox check"));
+        awaitHandled();
+        assertEquals(1, queryInt("SELECT commentsCount FROM post_stats WHERE postId = " + postId));
+
+        mockMvc.perform(get("/people/50/follow/true").session(session));
+        awaitHandled();
+        assertEquals(POSTS_PER_USER,
+                queryInt("SELECT COUNT(*) FROM timeline t JOIN post p ON p.postId = t.postId"
+                        + " WHERE t.userId = 20 AND p.userId = 50"));
+
+        mockMvc.perform(get("/people/50/follow/false").session(session));
+        awaitHandled();
+        assertEquals(0,
+                queryInt("SELECT COUNT(*) FROM timeline t JOIN post p ON p.postId = t.postId"
+                        + " WHERE t.userId = 20 AND p.userId = 50"));
+
+        // Durable consumers saved how far they got.
+        int newest = queryInt("SELECT MAX(eventId) FROM outbox_event");
+        assertEquals(newest, queryInt("SELECT lastEventId FROM outbox_consumer_offset WHERE consumer = 'timeline'"));
+        assertTrue(eventBus.report().contains("failed-attempts=0"), eventBus.report());
+    }
+
+    @Test
+    void eventsThatCommitLateAreStillDelivered() throws Exception {
+        MockHttpSession session = logIn(30);
+        int postId = queryInt("SELECT MIN(postId) FROM post WHERE userId = 30");
+        int comments = queryInt("SELECT COUNT(*) FROM comment WHERE postId = " + postId);
+
+        try (Connection conn = dataSource.getConnection()) {
+            // The comment's event gets the lower eventId but commits last.
+            conn.setAutoCommit(false);
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO comment (postId, userId, commentDate, commentText) VALUES (?, ?, ?, ?)")) {
+                pstmt.setInt(1, postId);
+                pstmt.setInt(2, 30);
+                pstmt.setTimestamp(3, now);
+                pstmt.setString(4, "Committed late");
+                pstmt.executeUpdate();
+            }
+            outbox.append(conn, OutboxEvent.COMMENT_CREATED, postId, 30, null, now);
+
+            // The later post is delivered while the comment is still open.
+            mockMvc.perform(post("/createpost").session(session).param("posttext", "Outbox gap check"));
+            int newPostId = queryInt("SELECT MAX(postId) FROM post WHERE userId = 30");
+            long deadline = System.currentTimeMillis() + 20000;
+            while (queryInt("SELECT COUNT(*) FROM timeline WHERE userId = 15 AND postId = " + newPostId) == 0) {
+                assertTrue(System.currentTimeMillis() < deadline, "A gap held back the later event.");
+                Thread.sleep(20);
+            }
+            conn.commit();
+        }
+
+        awaitHandled();
+        assertEquals(comments + 1, queryInt("SELECT commentsCount FROM post_stats WHERE postId = " + postId));
+        assertTrue(outboxRelay.report().contains(" 0 missing events"), outboxRelay.report());
+    }
+
+    /**
+     * Waits until every consumer has handled the newest event.
+     */
+    private void awaitHandled() throws Exception {
+        int newest = queryInt("SELECT COALESCE(MAX(eventId), 0) FROM outbox_event");
+        long deadline = System.currentTimeMillis() + 20000;
+        while (!eventBus.isHandled(newest)) {
+            assertTrue(System.currentTimeMillis() < deadline,
+                    "Event " + newest + " was not handled in time.\n" + eventBus.report());
+            Thread.sleep(20);
+        }
+    }
+
+    private int queryInt(String sql) throws Exception {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql);
+                ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private MockHttpSession logIn(int userIndex) throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        mockMvc.perform(post("/login").session(session)
+                .param("username", TestDatabase.username(userIndex))
+                .param("password", TestDatabase.PASSWORD));
+        return session;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Runs the app with a small interaction limit and checks that a user who
+ * goes over it is turned away without affecting anyone else.
+ */
+@SpringBootTest(properties = {
+        "app.rate-limit.interactions.capacity=3",
+        "app.rate-limit.interactions.per-minute=1" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RateLimitTest {
+
+    // The same sample data as the other tests, which may share the database.
+    private static final int USERS = 60;
+    private static final int POSTS_PER_USER = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @BeforeAll
+    void seed() throws Exception {
+        TestDatabase.ensureSeeded(dataSource, USERS, POSTS_PER_USER);
+    }
+
+    @Test
+    void requestsOverTheLimitAreTurnedAway() throws Exception {
+        MockHttpSession session = logIn(30);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, mockMvc.perform(post("/api/posts/10/bookmark").session(session))
+                    .andReturn().getResponse().getStatus());
+        }
+
+        // The page form shares the limit with the API.
+        MockHttpServletResponse rejected = mockMvc.perform(get("/post/10/bookmark/false").session(session))
+                .andReturn().getResponse();
+        assertEquals(429, rejected.getStatus());
+        assertNotNull(rejected.getHeader("Retry-After"));
+        assertTrue(Integer.parseInt(rejected.getHeader("Retry-After")) >= 1);
+
+        // Pages are not limited, and neither are other users.
+        assertEquals(200, mockMvc.perform(get("/people").session(session)).andReturn().getResponse().getStatus());
+        assertEquals(200, mockMvc.perform(post("/api/posts/10/bookmark").session(logIn(31)))
+                .andReturn().getResponse().getStatus());
+        assertTrue(rateLimitInterceptor.report().contains("rejected=1"), rateLimitInterceptor.report());
+    }
+
+    private MockHttpSession logIn(int userIndex) throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        mockMvc.perform(post("/login").session(session)
+                .param("username", TestDatabase.username(userIndex))
+                .param("password", TestDatabase.PASSWORD));
+        return session;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Runs the app with a second embedded database standing in for a read
+ * replica. The replica starts as a copy of the primary, and then every post
+ * text on it is changed, so a page shows which database its posts came from.
+ */
+@SpringBootTest(properties = {
+        "app.datasource.replica-urls=" + ReplicaRoutingTest.REPLICA_URL,
+        "app.datasource.read-your-writes-ms=" + ReplicaRoutingTest.WINDOW_MS })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReplicaRoutingTest {
+
+    static final String REPLICA_URL =
+            "jdbc:h2:mem:replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1";
+
+    static final int WINDOW_MS = 500;
+
+    private static final String REPLICA_TEXT = "Read from the replica";
+
+    // The same sample data as the other tests, which may share the primary.
+    private static final int USERS = 60;
+    private static final int POSTS_PER_USER = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeAll
+    void seed() throws Exception {
+        TestDatabase.ensureSeeded(dataSource, USERS, POSTS_PER_USER);
+        JdbcDataSource replica = new JdbcDataSource();
+        replica.setURL(REPLICA_URL);
+        replica.setUser("sa");
+        TestDatabase.ensureSeeded(replica, USERS, POSTS_PER_USER);
+        try (Connection conn = replica.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE post SET postText = '" + REPLICA_TEXT + "'");
+        }
+    }
+
+    @Test
+    void feedIsReadFromReplica() throws Exception {
+        MockHttpSession session = logIn(50);
+        List<String> contents = contents(mockMvc.perform(get("/").session(session)).andReturn());
+        assertFalse(contents.isEmpty());
+        for (String content : contents) {
+            assertEquals(REPLICA_TEXT, content);
+        }
+    }
+
+    @Test
+    void ownPostIsReadFromPrimaryUntilWindowEnds() throws Exception {
+        MockHttpSession session = logIn(51);
+        mockMvc.perform(post("/createpost").session(session).param("posttext", "Replica check"));
+
+        // The new post is only on the primary, and the profile shows it right away.
+        List<String> pinned = contents(mockMvc.perform(get("/profile").session(session)).andReturn());
+        assertTrue(pinned.contains("Replica check"), "The user's own post is missing: " + pinned);
+        assertFalse(pinned.contains(REPLICA_TEXT), "Posts were read from the replica: " + pinned);
+
+        Thread.sleep(WINDOW_MS + 100);
+        List<String> unpinned = contents(mockMvc.perform(get("/profile").session(session)).andReturn());
+        assertFalse(unpinned.contains("Replica check"), "Posts were read from the primary: " + unpinned);
+        assertTrue(unpinned.contains(REPLICA_TEXT));
+    }
+
+    @Test
+    void replicaThatIsDownIsSkipped() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        DriverManagerDataSource down = new DriverManagerDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                attempts.incrementAndGet();
+                throw new SQLException("Connection refused");
+            }
+        };
+        try (ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(dataSource, List.of(down),
+                new ReadYourWrites(WINDOW_MS), 60000)) {
+            for (int i = 0; i < 3; i++) {
+                try (Connection conn = routing.getConnection()) {
+                    assertTrue(conn.isValid(1));
+                }
+            }
+        }
+        // Only the first read waited for the replica; the others went straight to the primary.
+        assertEquals(1, attempts.get());
+    }
+
+    private MockHttpSession logIn(int userIndex) throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        mockMvc.perform(post("/login").session(session)
+                .param("username", TestDatabase.username(userIndex))
+                .param("password", TestDatabase.PASSWORD));
+        return session;
+    }
+
+    private static List<String> contents(MvcResult result) {
+        List<String> contents = new ArrayList<>();
+        for (Object post : (List<?>) result.getModelAndView().getModel().get("posts")) {
+            contents.add(((Post) post).getContent());
+        }
+        return contents;
+    }
+}
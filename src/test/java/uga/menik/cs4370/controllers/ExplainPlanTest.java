@@ -0,0 +1,160 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import uga.menik.cs4370.components.JdbcMetrics;
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Requests the pages backed by PostService, PeopleService, HomeController
+ * and HashtagSearchController, and fails when a statement they run would
+ * read a whole table instead of using an index.
+ *
+ * The statements are taken from what the JDBC metrics recorded during each
+ * request, and their plans come from EXPLAIN on the embedded H2 database,
+ * which has the same tables and indexes as MySQL after the migrations.
+ * H2 plans are not MySQL plans, but a query that H2 cannot answer from an
+ * index almost always lacks one on MySQL too.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ExplainPlanTest {
+
+    // The same sample data as QueryBudgetTest, which may share this database.
+    private static final int USERS = 60;
+    private static final int POSTS_PER_USER = 10;
+
+    // A cursor after every sample post, for the statements of later pages.
+    private static final String LATER_PAGE = "4102444800000-" + Integer.MAX_VALUE;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcMetrics jdbcMetrics;
+
+    private MockHttpSession session;
+
+    @BeforeAll
+    void seedAndLogIn() throws Exception {
+        TestDatabase.ensureSeeded(dataSource, USERS, POSTS_PER_USER);
+        session = new MockHttpSession();
+        mockMvc.perform(post("/login").session(session)
+                .param("username", TestDatabase.username(1))
+                .param("password", TestDatabase.PASSWORD));
+    }
+
+    @Test
+    void homeController() throws Exception {
+        assertUsesIndexes(get("/"),
+                post("/createpost").param("posttext", "Explain check #tag1 #tag2"));
+    }
+
+    @Test
+    void postService() throws Exception {
+        assertUsesIndexes(get("/post/1"), get("/post/1/comments"), post("/post/2/comment").param("comment", "Explain"),
+                get("/profile"), get("/profile/2"), get("/profile/2").param("cursor", LATER_PAGE),
+                get("/bookmarks"), get("/bookmarks").param("cursor", LATER_PAGE));
+    }
+
+    @Test
+    void peopleService() throws Exception {
+        assertUsesIndexes(get("/people"), get("/people").param("q", "First1"));
+    }
+
+    @Test
+    void hashtagSearchController() throws Exception {
+        assertUsesIndexes(get("/hashtagsearch").param("hashtags", "#tag1 #tag2"));
+    }
+
+    /**
+     * Performs the requests as user1 and checks the plan of every statement
+     * they ran, other than inserts of plain values.
+     */
+    private void assertUsesIndexes(MockHttpServletRequestBuilder... requests) throws Exception {
+        Set<String> shapes = new LinkedHashSet<>();
+        for (MockHttpServletRequestBuilder request : requests) {
+            Map<String, Long> before = executionsByShape();
+            mockMvc.perform(request.session(session));
+            for (Map.Entry<String, Long> entry : executionsByShape().entrySet()) {
+                if (entry.getValue() > before.getOrDefault(entry.getKey(), 0L)) {
+                    shapes.add(entry.getKey());
+                }
+            }
+        }
+        assertFalse(shapes.isEmpty(), "The requests ran no statements.");
+
+        List<String> fullScans = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection()) {
+            for (String shape : shapes) {
+                if (shape.matches("(?is)INSERT INTO .* VALUES .*")) {
+                    continue;
+                }
+                String plan = explain(conn, shape);
+                if (plan.contains(".tableScan")) {
+                    fullScans.add(shape + "\n    " + plan.replaceAll("\\s+", " "));
+                }
+            }
+        }
+        assertTrue(fullScans.isEmpty(), "Statements that read a whole table:\n" + String.join("\n", fullScans));
+    }
+
+    /**
+     * Returns the H2 plan of a statement shape. Literals are already
+     * parameters in a shape, and a list of parameters stands for any list.
+     */
+    private static String explain(Connection conn, String shape) throws Exception {
+        String sql = "EXPLAIN " + shape.replace("IN (?, ...)", "IN (?, ?)");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql); ResultSet rs = pstmt.executeQuery()) {
+            StringBuilder plan = new StringBuilder();
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+            return plan.toString();
+        }
+    }
+
+    private Map<String, Long> executionsByShape() {
+        Map<String, Long> executions = new HashMap<>();
+        for (JdbcMetrics.StatementStats stats : jdbcMetrics.getStatementStats()) {
+            executions.put(stats.getShape(), stats.getLatency().getCount());
+        }
+        return executions;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Exports tables in parts and checks that resuming from the key of the
+ * last line continues exactly where the previous part stopped.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ExportTest {
+
+    // The same sample data as the other tests, which may share this database.
+    private static final int USERS = 60;
+    private static final int POSTS_PER_USER = 10;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private MockHttpSession session;
+
+    @BeforeAll
+    void seedAndLogIn() throws Exception {
+        TestDatabase.ensureSeeded(dataSource, USERS, POSTS_PER_USER);
+        session = new MockHttpSession();
+        mockMvc.perform(post("/login").session(session)
+                .param("username", TestDatabase.username(1))
+                .param("password", TestDatabase.PASSWORD));
+    }
+
+    @Test
+    void postsResumeAfterTheLastKey() throws Exception {
+        MockHttpServletResponse first = export(get("/api/export/posts").param("limit", "5"));
+        assertEquals("postId", first.getHeader("X-Export-Key"));
+        List<JsonNode> rows = lines(first.getContentAsString());
+        assertEquals(5, rows.size());
+        assertTrue(rows.get(0).get("postDate").isNumber());
+
+        List<JsonNode> next = lines(export(get("/api/export/posts").param("limit", "3")
+                .param("after", rows.get(4).get("postId").asText())).getContentAsString());
+        assertEquals(3, next.size());
+        assertEquals(rows.get(4).get("postId").asInt() + 1, next.get(0).get("postId").asInt());
+    }
+
+    @Test
+    void compositeKeysResumeAfterTheLastKey() throws Exception {
+        List<JsonNode> whole = lines(export(get("/api/export/follows").param("limit", "40")).getContentAsString());
+        assertEquals(40, whole.size());
+
+        List<JsonNode> parts = new ArrayList<>();
+        String after = null;
+        while (parts.size() < whole.size()) {
+            MockHttpServletRequestBuilder request = get("/api/export/follows").param("limit", "7");
+            if (after != null) {
+                request.param("after", after);
+            }
+            List<JsonNode> part = lines(export(request).getContentAsString());
+            parts.addAll(part);
+            JsonNode last = part.get(part.size() - 1);
+            after = last.get("followerUserId").asText() + "," + last.get("followeeUserId").asText();
+        }
+        assertEquals(whole, parts.subList(0, whole.size()));
+    }
+
+    @Test
+    void gzipHasTheSameLines() throws Exception {
+        String plain = export(get("/api/export/hashtags").param("limit", "50")).getContentAsString();
+        MockHttpServletResponse gzipped = export(get("/api/export/hashtags").param("limit", "50")
+                .header("Accept-Encoding", "gzip"));
+        assertEquals("gzip", gzipped.getHeader("Content-Encoding"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getContentAsByteArray()))) {
+            assertEquals(plain, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void badRequestsAreRejected() throws Exception {
+        assertEquals(404, mockMvc.perform(get("/api/export/user").session(session)).andReturn().getResponse()
+                .getStatus());
+        assertEquals(400, mockMvc.perform(get("/api/export/hearts").param("after", "12").session(session))
+                .andReturn().getResponse().getStatus());
+        assertEquals(401, mockMvc.perform(get("/api/export/posts")).andReturn().getResponse().getStatus());
+    }
+
+    private MockHttpServletResponse export(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request.session(session)).andReturn();
+        assertTrue(started.getRequest().isAsyncStarted(), "The export did not stream.");
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(started)).andReturn().getResponse();
+        assertEquals(200, response.getStatus());
+        return response;
+    }
+
+    private static List<JsonNode> lines(String ndjson) throws Exception {
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            if (!line.isEmpty()) {
+                rows.add(JSON.readTree(line));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Checks that the interaction API only answers with a state that was
+ * actually stored: repeating a request keeps the state, and a post or user
+ * that does not exist is a 404 rather than a bookmark or follow that was
+ * silently ignored.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class InteractionApiTest {
+
+    // The same sample data as the other tests, which may share this database.
+    private static final int USERS = 60;
+    private static final int POSTS_PER_USER = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private MockHttpSession session;
+
+    @BeforeAll
+    void seedAndLogIn() throws Exception {
+        TestDatabase.ensureSeeded(dataSource, USERS, POSTS_PER_USER);
+        session = new MockHttpSession();
+        mockMvc.perform(post("/login").session(session)
+                .param("username", TestDatabase.username(2))
+                .param("password", TestDatabase.PASSWORD));
+    }
+
+    @Test
+    void repeatedRequestsKeepTheState() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletResponse response = perform(post("/api/posts/12/bookmark"));
+            assertEquals(200, response.getStatus());
+            assertTrue(response.getContentAsString().contains("\"bookmarked\":true"));
+        }
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletResponse response = perform(delete("/api/posts/12/bookmark"));
+            assertEquals(200, response.getStatus());
+            assertTrue(response.getContentAsString().contains("\"bookmarked\":false"));
+        }
+    }
+
+    @Test
+    void missingPostsAndUsersAreNotFound() throws Exception {
+        int missing = USERS * POSTS_PER_USER * 10;
+        assertEquals(404, perform(post("/api/posts/" + missing + "/bookmark")).getStatus());
+        assertEquals(404, perform(delete("/api/posts/" + missing + "/bookmark")).getStatus());
+        assertEquals(404, perform(post("/api/posts/" + missing + "/heart")).getStatus());
+        // The page's GET fallback reports the missing post instead of queueing a heart for it.
+        assertTrue(perform(get("/post/" + missing + "/heart/true")).getRedirectedUrl().contains("?error="));
+        assertEquals(404, perform(post("/api/users/" + missing + "/follow")).getStatus());
+        assertEquals(404, perform(delete("/api/users/" + missing + "/follow")).getStatus());
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request.session(session)).andReturn().getResponse();
+    }
+}
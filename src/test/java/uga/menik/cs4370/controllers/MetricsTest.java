@@ -0,0 +1,83 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.server.ResponseStatusException;
+
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Checks that the metrics pages are off unless enabled, and that once
+ * enabled they only answer requests from the same machine.
+ */
+@SpringBootTest(properties = "app.metrics.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MetricsTest {
+
+    // The same sample data as the other tests, which may share this database.
+    private static final int USERS = 60;
+    private static final int POSTS_PER_USER = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MetricsController metricsController;
+
+    private MockHttpSession session;
+
+    @BeforeAll
+    void seedAndLogIn() throws Exception {
+        TestDatabase.ensureSeeded(dataSource, USERS, POSTS_PER_USER);
+        session = new MockHttpSession();
+        mockMvc.perform(post("/login").session(session)
+                .param("username", TestDatabase.username(1))
+                .param("password", TestDatabase.PASSWORD));
+    }
+
+    @Test
+    void onlyLocalRequestsAreAnswered() throws Exception {
+        for (String page : new String[] { "/metrics/jdbc", "/metrics/ratelimit", "/metrics/outbox" }) {
+            assertEquals(200, mockMvc.perform(get(page).session(session)).andReturn().getResponse().getStatus(),
+                    page);
+            assertEquals(404, mockMvc.perform(get(page).session(session).with(request -> {
+                request.setRemoteAddr("203.0.113.7");
+                return request;
+            })).andReturn().getResponse().getStatus(), page);
+        }
+    }
+
+    @Test
+    void disabledMetricsAreNotFound() {
+        MetricsController disabled = new MetricsController(null, null, null, null, false);
+        MockHttpServletRequest local = new MockHttpServletRequest("GET", "/metrics/jdbc");
+        assertThrows(ResponseStatusException.class, () -> disabled.jdbc(local));
+        // The enabled controller answers the same request.
+        metricsController.jdbc(local);
+    }
+}
@@ -0,0 +1,241 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import uga.menik.cs4370.components.JdbcMetrics;
+import uga.menik.cs4370.models.PageCursor;
+import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.services.PostSearchService;
+import uga.menik.cs4370.testsupport.TestDatabase;
+import uga.menik.cs4370.utility.LatencyHistogram;
+
+/**
+ * Requests every page and action through MockMvc and fails when one runs
+ * more JDBC statements or checks out more connections than its budget.
+ * The sample data has more rows than fit on any page, so a query per post,
+ * comment or user on a page blows the budget right away.
+ * When a change legitimately needs another query, raise the budget of the
+ * endpoint in the same change.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryBudgetTest {
+
+    private static final int USERS = 60;
+    private static final int POSTS_PER_USER = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcMetrics jdbcMetrics;
+
+    @Autowired
+    private PostSearchService postSearchService;
+
+    // Session of user1, who is logged in for every test.
+    private MockHttpSession session;
+
+    @BeforeAll
+    void seedAndLogIn() throws Exception {
+        TestDatabase.ensureSeeded(dataSource, USERS, POSTS_PER_USER);
+        // Hashtag search is left to fall back to the database, which is the path that queries.
+        postSearchService.load();
+        session = new MockHttpSession();
+        assertWithinBudget("POST /login", 1, 1, post("/login")
+                .param("username", TestDatabase.username(1))
+                .param("password", TestDatabase.PASSWORD));
+    }
+
+    @Test
+    void homeFeed() throws Exception {
+        // The first page also loads the viewer's timeline into memory.
+        MvcResult first = assertWithinBudget("GET /", 2, 2, get("/"));
+        assertEquals(20, ((List<?>) model(first).get("posts")).size());
+
+        String nextPageUrl = (String) model(first).get("nextPageUrl");
+        assertNotNull(nextPageUrl);
+        assertWithinBudget("GET /", 1, 1, get(nextPageUrl));
+    }
+
+    @Test
+    void ownProfile() throws Exception {
+        // One page of posts, with their authors joined in.
+        assertWithinBudget("GET /profile", 1, 1, get("/profile"));
+    }
+
+    @Test
+    void otherProfile() throws Exception {
+        MvcResult result = assertWithinBudget("GET /profile/{userId}", 1, 1, get("/profile/2"));
+        List<?> posts = (List<?>) model(result).get("posts");
+        assertEquals(POSTS_PER_USER, posts.size());
+
+        // A later page starts right after the cursor.
+        Post third = (Post) posts.get(2);
+        String cursor = new PageCursor(new Timestamp(third.getPostEpochMillis()), third.getPostId()).encode();
+        MvcResult next = assertWithinBudget("GET /profile/{userId}", 1, 1, get("/profile/2").param("cursor", cursor));
+        assertEquals(POSTS_PER_USER - 3, ((List<?>) model(next).get("posts")).size());
+    }
+
+    @Test
+    void postWithComments() throws Exception {
+        assertWithinBudget("GET /post/{postId}", 3, 3, get("/post/1"));
+    }
+
+    @Test
+    void moreComments() throws Exception {
+        MvcResult first = assertWithinBudget("GET /post/{postId}/comments", 2, 2, get("/post/1/comments"));
+        String nextCommentsUrl = (String) model(first).get("nextCommentsUrl");
+        assertNotNull(nextCommentsUrl);
+        assertWithinBudget("GET /post/{postId}/comments", 2, 2, get(nextCommentsUrl));
+    }
+
+    @Test
+    void people() throws Exception {
+        MvcResult first = assertWithinBudget("GET /people", 1, 1, get("/people"));
+        assertEquals(50, ((List<?>) model(first).get("users")).size());
+        assertWithinBudget("GET /people", 1, 1, get("/people").param("q", "First1"));
+    }
+
+    @Test
+    void hashtagSearch() throws Exception {
+        MvcResult result = assertWithinBudget("GET /hashtagsearch", 2, 2,
+                get("/hashtagsearch").param("hashtags", "#tag1 #tag2"));
+        assertFalse(((List<?>) model(result).get("posts")).isEmpty());
+    }
+
+    @Test
+    void textSearch() throws Exception {
+        MvcResult result = assertWithinBudget("GET /search", 1, 1, get("/search").param("q", "sample"));
+        assertFalse(((List<?>) model(result).get("posts")).isEmpty());
+    }
+
+    @Test
+    void bookmarks() throws Exception {
+        assertWithinBudget("GET /bookmarks", 1, 1, get("/bookmarks"));
+    }
+
+    @Test
+    void createPost() throws Exception {
+        // The post, its counters, one batch for every hashtag and the outbox event
+        // in one transaction. Timelines are updated from the event.
+        assertWithinBudget("POST /createpost", 4, 1,
+                post("/createpost").param("posttext", "Budget check #tag1 #tag2 #tag3"));
+    }
+
+    @Test
+    void comment() throws Exception {
+        assertWithinBudget("POST /post/{postId}/comment", 2, 1,
+                post("/post/3/comment").param("comment", "Budget check"));
+    }
+
+    @Test
+    void heart() throws Exception {
+        // Hearts are written in batches by EngagementService, off the request.
+        // The one statement reads the stored state, like the interaction API.
+        assertWithinBudget("GET /post/{postId}/heart/{isAdd}", 1, 1, get("/post/4/heart/true"));
+    }
+
+    @Test
+    void bookmark() throws Exception {
+        // The bookmark and, if it changed, its outbox event.
+        assertWithinBudget("GET /post/{postId}/bookmark/{isAdd}", 2, 1, get("/post/5/bookmark/true"));
+    }
+
+    @Test
+    void follow() throws Exception {
+        // The follow and its outbox event. The timeline is updated from the event.
+        assertWithinBudget("GET /people/{userId}/follow/{isFollow}", 2, 1, get("/people/40/follow/true"));
+    }
+
+    @Test
+    void interactionApi() throws Exception {
+        assertWithinBudget("POST /api/posts/{postId}/heart", 1, 1, post("/api/posts/6/heart"));
+        assertWithinBudget("DELETE /api/posts/{postId}/heart", 1, 1, delete("/api/posts/6/heart"));
+        assertWithinBudget("POST /api/posts/{postId}/bookmark", 2, 1, post("/api/posts/7/bookmark"));
+        assertWithinBudget("DELETE /api/posts/{postId}/bookmark", 2, 1, delete("/api/posts/7/bookmark"));
+        assertWithinBudget("POST /api/users/{userId}/follow", 2, 1, post("/api/users/41/follow"));
+        assertWithinBudget("DELETE /api/users/{userId}/follow", 2, 1, delete("/api/users/41/follow"));
+    }
+
+    /**
+     * Performs a request as user1 and checks that it succeeded within the
+     * statement and connection checkout budget of its endpoint.
+     *
+     * @param endpoint the method and URL pattern the request is counted under
+     */
+    private MvcResult assertWithinBudget(String endpoint, int maxStatements, int maxCheckouts,
+            MockHttpServletRequestBuilder request) throws Exception {
+        long requestsBefore = count(jdbcMetrics.getStatementsPerRequest(endpoint));
+        long statementsBefore = sum(jdbcMetrics.getStatementsPerRequest(endpoint));
+        long checkoutsBefore = sum(jdbcMetrics.getCheckoutsPerRequest(endpoint));
+
+        MvcResult result = mockMvc.perform(request.session(session)).andReturn();
+
+        assertEquals(requestsBefore + 1, count(jdbcMetrics.getStatementsPerRequest(endpoint)),
+                "The request was not counted under " + endpoint + ".");
+        int status = result.getResponse().getStatus();
+        assertTrue(status < 400, endpoint + " failed with status " + status + ".");
+        String redirect = result.getResponse().getRedirectedUrl();
+        assertTrue(redirect == null || !redirect.contains("error="), endpoint + " redirected to " + redirect + ".");
+        if (result.getModelAndView() != null) {
+            assertNull(model(result).get("errorMessage"), endpoint + " showed an error.");
+        }
+
+        long statements = sum(jdbcMetrics.getStatementsPerRequest(endpoint)) - statementsBefore;
+        long checkouts = sum(jdbcMetrics.getCheckoutsPerRequest(endpoint)) - checkoutsBefore;
+        System.out.println(endpoint + ": " + statements + " statements, " + checkouts + " checkouts.");
+        assertTrue(statements <= maxStatements, endpoint + " ran " + statements
+                + " statements; its budget is " + maxStatements + ".");
+        assertTrue(checkouts <= maxCheckouts, endpoint + " checked out " + checkouts
+                + " connections; its budget is " + maxCheckouts + ".");
+        return result;
+    }
+
+    private static Map<String, Object> model(MvcResult result) {
+        return result.getModelAndView().getModel();
+    }
+
+    private static long count(LatencyHistogram histogram) {
+        return histogram == null ? 0 : histogram.getCount();
+    }
+
+    private static long sum(LatencyHistogram histogram) {
+        return histogram == null ? 0 : histogram.getSum();
+    }
+}
@@ -0,0 +1,76 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Generates a tiny data set on top of sample users whose IDs have a gap,
+ * and checks the row counts, that every row refers to rows that exist,
+ * and that the generated counters match the rows they count.
+ */
+class DatasetGeneratorTest {
+
+    private static final int SAMPLE_USERS = 5;
+    private static final int GAP_USER_ID = 100;
+
+    @Test
+    void generatedRowsReferToRowsThatExist() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(String.format(TestDatabase.URL_TEMPLATE, "dataset"));
+        TestDatabase.ensureSeeded(dataSource, SAMPLE_USERS, 1);
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO user (userId, username, password, firstName, lastName)"
+                    + " VALUES (" + GAP_USER_ID + ", 'gap', 'x', 'Gap', 'User')");
+        }
+
+        DatasetGenerator generator = new DatasetGenerator(dataSource);
+        generator.generate(new DatasetGenerator.Options().users(20).posts(50).meanFollows(4)
+                .hashtags(10).days(3).threads(2).rowsPerInsert(7));
+
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            assertEquals(SAMPLE_USERS + 1 + 20, count(stmt, "SELECT COUNT(*) FROM user"));
+            assertEquals(SAMPLE_USERS + 50, count(stmt, "SELECT COUNT(*) FROM post"));
+            assertEquals(GAP_USER_ID + 20, count(stmt, "SELECT MAX(userId) FROM user"));
+
+            String[][] references = {
+                    { "post", "userId" },
+                    { "follow", "followerUserId" },
+                    { "follow", "followeeUserId" },
+                    { "heart", "userId" },
+                    { "comment", "userId" },
+                    { "bookmark", "userId" },
+            };
+            for (String[] reference : references) {
+                assertEquals(0, count(stmt, "SELECT COUNT(*) FROM " + reference[0] + " r"
+                        + " LEFT JOIN user u ON u.userId = r." + reference[1] + " WHERE u.userId IS NULL"),
+                        reference[0] + "." + reference[1] + " refers to a missing user.");
+            }
+            assertEquals(0, count(stmt, "SELECT COUNT(*) FROM post_stats s"
+                    + " WHERE s.heartsCount <> (SELECT COUNT(*) FROM heart h WHERE h.postId = s.postId)"
+                    + " OR s.commentsCount <> (SELECT COUNT(*) FROM comment c WHERE c.postId = s.postId)"));
+            assertEquals(0, count(stmt, "SELECT COUNT(*) FROM post p"
+                    + " LEFT JOIN post_stats s ON s.postId = p.postId WHERE s.postId IS NULL"));
+        }
+    }
+
+    private static long count(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import uga.menik.cs4370.components.EventBus;
+import uga.menik.cs4370.components.Outbox;
+import uga.menik.cs4370.components.OutboxEvent;
+import uga.menik.cs4370.testsupport.TestDatabase;
+
+/**
+ * Delivers the same post.created event twice to a follower whose timeline
+ * is in memory, and checks that the post shows up in it once.
+ */
+class TimelineServiceTest {
+
+    private static final int AUTHOR_ID = 2;
+    private static final int FOLLOWER_ID = 1;
+
+    @Test
+    void redeliveredPostIsInTheTimelineOnce() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(String.format(TestDatabase.URL_TEMPLATE, "timeline"));
+        TestDatabase.ensureSeeded(dataSource, 20, 3);
+        TimelineService timelineService = new TimelineService(dataSource,
+                new EventBus(dataSource, new Outbox(), "test", 3600000, 1, 0, 2, 100));
+
+        // Newer than every sample post, in whole seconds like the post table keeps them.
+        Timestamp postDate = new Timestamp((System.currentTimeMillis() / 1000 + 60) * 1000);
+        int postId;
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO post (userId, postDate, postText) VALUES (?, ?, ?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, AUTHOR_ID);
+            pstmt.setTimestamp(2, postDate);
+            pstmt.setString(3, "Delivered twice");
+            pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                rs.next();
+                postId = rs.getInt(1);
+            }
+        }
+
+        // Loads the follower's timeline into memory before the post reaches it.
+        int before = timelineService.getPostIds(FOLLOWER_ID, null, TimelineService.BUFFER_CAPACITY).size();
+        OutboxEvent event = new OutboxEvent(1, OutboxEvent.POST_CREATED, postId, AUTHOR_ID, "Delivered twice",
+                postDate);
+        timelineService.onEvents(List.of(event));
+        timelineService.onEvents(List.of(event));
+
+        List<Integer> postIds = timelineService.getPostIds(FOLLOWER_ID, null, TimelineService.BUFFER_CAPACITY);
+        assertEquals(postId, postIds.get(0));
+        assertEquals(1, Collections.frequency(postIds, postId));
+        assertEquals(before + 1, postIds.size());
+        try (Connection conn = dataSource.getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM timeline WHERE userId = " + FOLLOWER_ID
+                        + " AND postId = " + postId)) {
+            rs.next();
+            assertEquals(1, rs.getInt(1));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import uga.menik.cs4370.models.TrendingHashtag;
+
+/**
+ * Slides a window of three one-second buckets and checks which tags and
+ * counts it reports as buckets fall out of it.
+ */
+class TrendingWindowTest {
+
+    @Test
+    void oldBucketsFallOutOfTheWindow() {
+        TrendingWindow window = new TrendingWindow(1000, 3, 10);
+        record(window, "a", 5, 0);
+        record(window, "b", 3, 1000);
+        record(window, "c", 1, 2999);
+        assertEquals(List.of("a=5", "b=3", "c=1"), top(window, 10, 2999));
+
+        // Bucket 0 drops out when bucket 3 starts.
+        assertEquals(List.of("b=3", "c=1"), top(window, 10, 3000));
+        record(window, "c", 4, 3500);
+        assertEquals(List.of("c=5", "b=3"), top(window, 10, 3500));
+
+        // A jump past the whole window empties it.
+        assertEquals(List.of(), top(window, 10, 60_000));
+    }
+
+    @Test
+    void usesOlderThanTheWindowAreIgnored() {
+        TrendingWindow window = new TrendingWindow(1000, 3, 10);
+        record(window, "new", 1, 10_000);
+        record(window, "old", 7, 7_999);
+        record(window, "late", 2, 8_000);
+        assertEquals(List.of("late=2", "new=1"), top(window, 10, 10_000));
+    }
+
+    @Test
+    void onlyTheHighestCountsAreTracked() {
+        TrendingWindow window = new TrendingWindow(1000, 3, 2);
+        record(window, "first", 4, 0);
+        record(window, "second", 3, 0);
+        record(window, "third", 1, 0);
+        assertEquals(List.of("first=4", "second=3"), top(window, 10, 0));
+        // A tag that overtakes a tracked one replaces it.
+        record(window, "third", 4, 0);
+        assertEquals(List.of("third=5", "first=4"), top(window, 10, 0));
+        assertEquals(List.of("third=5"), top(window, 1, 0));
+    }
+
+    private static void record(TrendingWindow window, String hashTag, int times, long timeMillis) {
+        for (int i = 0; i < times; i++) {
+            window.record(hashTag, timeMillis);
+        }
+    }
+
+    private static List<String> top(TrendingWindow window, int n, long nowMillis) {
+        List<String> top = new ArrayList<>();
+        for (TrendingHashtag hashtag : window.top(n, nowMillis)) {
+            top.add(hashtag.getHashTag() + "=" + hashtag.getCount());
+        }
+        return top;
+    }
+}
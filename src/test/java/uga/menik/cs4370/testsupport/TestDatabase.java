@@ -0,0 +1,260 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.testsupport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import javax.sql.DataSource;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import uga.menik.cs4370.components.MigrationRunner;
+
+/**
+ * Creates the schema of database_setup.sql and its migrations in an
+ * embedded H2 database running in MySQL mode, and fills it with
+ * predictable sample data.
+ * Used by tests and benchmarks so that they do not need a MySQL server.
+ *
+ * The database must be empty, so that the generated IDs of users and posts
+ * count up from 1 in the order they are inserted.
+ * The sample data has users user1 to userN, all with the password
+ * PASSWORD. User i follows the next FOLLOWS_PER_USER users, wrapping
+ * around, and every post has two hashtags out of HASHTAG_COUNT.
+ * The first post has more comments than fit on one page.
+ */
+public final class TestDatabase {
+
+    /** JDBC URL of a named in-memory database that lives until the JVM exits. */
+    public static final String URL_TEMPLATE =
+            "jdbc:h2:mem:%s;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1";
+
+    /** Password of every sample user. */
+    public static final String PASSWORD = "password";
+
+    /** Number of users each user follows. */
+    public static final int FOLLOWS_PER_USER = 15;
+
+    /** Number of distinct hashtags, named tag0 to tag9. */
+    public static final int HASHTAG_COUNT = 10;
+
+    /** Number of comments on the first post. */
+    public static final int FIRST_POST_COMMENTS = 120;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Returns the username of the i-th sample user, counting from 1.
+     */
+    public static String username(int i) {
+        return "user" + i;
+    }
+
+    /**
+     * Creates the schema and sample data unless the database already has them.
+     * Several test classes can share one Spring context and its database.
+     */
+    public static synchronized void ensureSeeded(DataSource dataSource, int users, int postsPerUser)
+            throws SQLException, IOException {
+        try (Connection conn = dataSource.getConnection()) {
+            if (hasSchema(conn)) {
+                return;
+            }
+            createSchema(conn);
+        }
+        // The app skipped migrations at startup, since the tables did not exist yet.
+        new MigrationRunner(dataSource, false).migrate();
+        try (Connection conn = dataSource.getConnection()) {
+            seed(conn, users, postsPerUser);
+        }
+    }
+
+    /**
+     * Runs every statement of database_setup.sql except those creating and
+     * selecting the database itself.
+     */
+    public static void createSchema(Connection conn) throws SQLException, IOException {
+        String setup;
+        try (InputStream in = TestDatabase.class.getResourceAsStream("/database_setup.sql")) {
+            if (in == null) {
+                throw new IOException("database_setup.sql is not on the test classpath.");
+            }
+            setup = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : setup.split(";")) {
+                String withoutComments = sql.replaceAll("(?m)^\\s*--.*$", "").trim();
+                String lower = withoutComments.toLowerCase();
+                if (withoutComments.isEmpty() || lower.startsWith("create database") || lower.startsWith("use ")) {
+                    continue;
+                }
+                stmt.execute(withoutComments);
+            }
+        }
+    }
+
+    /**
+     * Inserts the sample data, then fills the derived timeline and
+     * post_stats tables the same way the maintenance commands rebuild them.
+     */
+    public static void seed(Connection conn, int users, int postsPerUser) throws SQLException {
+        boolean isAutoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            insertUsers(conn, users);
+            insertFollows(conn, users);
+            insertPosts(conn, users, postsPerUser);
+            insertEngagement(conn, users, postsPerUser);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO timeline (userId, postId, postDate)"
+                        + " SELECT f.followerUserId, p.postId, p.postDate FROM follow f"
+                        + " JOIN post p ON p.userId = f.followeeUserId");
+                stmt.executeUpdate("INSERT INTO post_stats (postId, heartsCount, commentsCount, lastActivityDate)"
+                        + " SELECT p.postId, (SELECT COUNT(*) FROM heart h WHERE h.postId = p.postId),"
+                        + " (SELECT COUNT(*) FROM comment c WHERE c.postId = p.postId),"
+                        + " COALESCE((SELECT MAX(c.commentDate) FROM comment c WHERE c.postId = p.postId), p.postDate)"
+                        + " FROM post p");
+            }
+            conn.commit();
+        } catch (SQLException sqle) {
+            conn.rollback();
+            throw sqle;
+        } finally {
+            conn.setAutoCommit(isAutoCommit);
+        }
+    }
+
+    private static boolean hasSchema(Connection conn) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getTables(null, null, "user", null)) {
+            return rs.next();
+        }
+    }
+
+    private static void insertUsers(Connection conn, int users) throws SQLException {
+        // Hashing is slow on purpose, and every user has the same password.
+        String passwordHash = new BCryptPasswordEncoder().encode(PASSWORD);
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO user (username, password, firstName, lastName) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= users; i++) {
+                pstmt.setString(1, username(i));
+                pstmt.setString(2, passwordHash);
+                pstmt.setString(3, "First" + i);
+                pstmt.setString(4, "Last" + i);
+                addToBatch(pstmt, i);
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void insertFollows(Connection conn, int users) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO follow (followerUserId, followeeUserId) VALUES (?, ?)")) {
+            int rows = 0;
+            for (int i = 1; i <= users; i++) {
+                for (int k = 1; k <= Math.min(FOLLOWS_PER_USER, users - 1); k++) {
+                    pstmt.setInt(1, i);
+                    pstmt.setInt(2, (i - 1 + k) % users + 1);
+                    addToBatch(pstmt, ++rows);
+                }
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void insertPosts(Connection conn, int users, int postsPerUser) throws SQLException {
+        // Posts are a minute apart, newest last, ending now.
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        int total = users * postsPerUser;
+        try (PreparedStatement postStmt = conn.prepareStatement(
+                "INSERT INTO post (userId, postDate, postText) VALUES (?, ?, ?)");
+                PreparedStatement tagStmt = conn.prepareStatement(
+                        "INSERT INTO hashtag (hashTag, postId) VALUES (?, ?)")) {
+            for (int postId = 1; postId <= total; postId++) {
+                int userId = (postId - 1) % users + 1;
+                String firstTag = "tag" + postId % HASHTAG_COUNT;
+                String secondTag = "tag" + (postId / HASHTAG_COUNT) % HASHTAG_COUNT;
+                postStmt.setInt(1, userId);
+                postStmt.setTimestamp(2, new Timestamp(now - (total - postId) * 60_000L));
+                postStmt.setString(3, "Sample post " + postId + " about #" + firstTag + " and #" + secondTag);
+                postStmt.addBatch();
+
+                tagStmt.setString(1, firstTag);
+                tagStmt.setInt(2, postId);
+                tagStmt.addBatch();
+                if (!secondTag.equals(firstTag)) {
+                    tagStmt.setString(1, secondTag);
+                    tagStmt.setInt(2, postId);
+                    tagStmt.addBatch();
+                }
+                if (postId % BATCH_SIZE == 0) {
+                    // Hashtags reference the posts of the batch.
+                    postStmt.executeBatch();
+                    tagStmt.executeBatch();
+                }
+            }
+            postStmt.executeBatch();
+            tagStmt.executeBatch();
+        }
+    }
+
+    private static void insertEngagement(Connection conn, int users, int postsPerUser) throws SQLException {
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        int total = users * postsPerUser;
+        try (PreparedStatement commentStmt = conn.prepareStatement(
+                "INSERT INTO comment (postId, userId, commentDate, commentText) VALUES (?, ?, ?, ?)");
+                PreparedStatement heartStmt = conn.prepareStatement(
+                        "INSERT INTO heart (postId, userId) VALUES (?, ?)");
+                PreparedStatement bookmarkStmt = conn.prepareStatement(
+                        "INSERT INTO bookmark (postId, userId, postDate) SELECT postId, ?, postDate FROM post"
+                                + " WHERE postId = ?")) {
+            int comments = 0;
+            for (int postId = 1; postId <= total; postId++) {
+                int commentCount = postId == 1 ? FIRST_POST_COMMENTS : postId % 4;
+                for (int c = 0; c < commentCount; c++) {
+                    commentStmt.setInt(1, postId);
+                    commentStmt.setInt(2, (postId + c) % users + 1);
+                    commentStmt.setTimestamp(3, new Timestamp(now - (commentCount - c) * 1000L));
+                    commentStmt.setString(4, "Comment " + c + " on post " + postId);
+                    addToBatch(commentStmt, ++comments);
+                }
+                // A few users heart and bookmark each post.
+                for (int k = 0; k < postId % 3 + 1 && k < users; k++) {
+                    heartStmt.setInt(1, postId);
+                    heartStmt.setInt(2, (postId + k) % users + 1);
+                    heartStmt.addBatch();
+                }
+                bookmarkStmt.setInt(1, postId % users + 1);
+                bookmarkStmt.setInt(2, postId);
+                bookmarkStmt.addBatch();
+                if (postId % BATCH_SIZE == 0) {
+                    heartStmt.executeBatch();
+                    bookmarkStmt.executeBatch();
+                }
+            }
+            commentStmt.executeBatch();
+            heartStmt.executeBatch();
+            bookmarkStmt.executeBatch();
+        }
+    }
+
+    private static void addToBatch(PreparedStatement pstmt, int rows) throws SQLException {
+        pstmt.addBatch();
+        if (rows % BATCH_SIZE == 0) {
+            pstmt.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the bitmap against a TreeSet across its encodings: containers
+ * that stay sorted arrays, containers that turn into bitmaps past 4096
+ * values, and intersections of every pairing of the two.
+ */
+class CompressedBitmapTest {
+
+    @Test
+    void containerBecomesABitmapWithoutLosingValues() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        // Every other value, in descending order, so each add goes into the middle of the array.
+        for (int value = 2 * 5000; value > 0; value -= 2) {
+            bitmap.add(value);
+            bitmap.add(value);
+        }
+        assertEquals(5000, bitmap.cardinality());
+        for (int value = 0; value <= 2 * 5000 + 1; value++) {
+            assertEquals(value > 0 && value % 2 == 0, bitmap.contains(value), "value " + value);
+        }
+    }
+
+    @Test
+    void valuesKeepTheirContainer() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        int[] values = { 0, 65535, 65536, 131071, 3 << 16 | 7, Integer.MAX_VALUE };
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        assertEquals(values.length, bitmap.cardinality());
+        for (int value : values) {
+            assertTrue(bitmap.contains(value), "value " + value);
+        }
+        assertFalse(bitmap.contains(1));
+        assertFalse(bitmap.contains(2 << 16 | 7));
+        assertArrayEquals(new int[] { Integer.MAX_VALUE, 3 << 16 | 7, 131071, 65536, 65535, 0 },
+                CompressedBitmap.intersectDescending(List.of(bitmap), 10));
+    }
+
+    @Test
+    void intersectionsMatchATreeSet() {
+        Random random = new Random(8);
+        // Dense sets become bitmaps in the lower containers, sparse ones stay arrays.
+        double[] densities = { 0.9, 0.3, 0.05, 0.001 };
+        CompressedBitmap[] bitmaps = new CompressedBitmap[densities.length];
+        List<NavigableSet<Integer>> sets = new ArrayList<>();
+        for (int b = 0; b < densities.length; b++) {
+            bitmaps[b] = new CompressedBitmap();
+            NavigableSet<Integer> set = new TreeSet<>();
+            for (int value = 0; value < 3 * 65536; value++) {
+                // The top container is sparse in every set.
+                double density = value >= 2 * 65536 ? densities[b] / 100 : densities[b];
+                if (random.nextDouble() < density) {
+                    bitmaps[b].add(value);
+                    set.add(value);
+                }
+            }
+            sets.add(set);
+            assertEquals(set.size(), bitmaps[b].cardinality());
+        }
+
+        for (int first = 0; first < bitmaps.length; first++) {
+            for (int second = first; second < bitmaps.length; second++) {
+                NavigableSet<Integer> expected = new TreeSet<>(sets.get(first));
+                expected.retainAll(sets.get(second));
+                int[] all = expected.descendingSet().stream().mapToInt(Integer::intValue).toArray();
+                List<CompressedBitmap> pair = List.of(bitmaps[first], bitmaps[second]);
+
+                assertArrayEquals(all, CompressedBitmap.intersectDescending(pair, Integer.MAX_VALUE),
+                        "sets " + first + " and " + second);
+                int limit = Math.min(50, all.length);
+                assertArrayEquals(Arrays.copyOf(all, limit),
+                        CompressedBitmap.intersectDescending(pair, 50), "sets " + first + " and " + second);
+            }
+        }
+
+        NavigableSet<Integer> expected = new TreeSet<>(sets.get(0));
+        for (NavigableSet<Integer> set : sets) {
+            expected.retainAll(set);
+        }
+        assertArrayEquals(expected.descendingSet().stream().mapToInt(Integer::intValue).toArray(),
+                CompressedBitmap.intersectDescending(List.of(bitmaps), Integer.MAX_VALUE));
+    }
+
+    @Test
+    void emptyInputsGiveNoValues() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        bitmap.add(5);
+        assertEquals(0, CompressedBitmap.intersectDescending(List.of(), 10).length);
+        assertEquals(0, CompressedBitmap.intersectDescending(List.of(bitmap), 0).length);
+        assertEquals(0, CompressedBitmap.intersectDescending(List.of(bitmap, new CompressedBitmap()), 10).length);
+    }
+}
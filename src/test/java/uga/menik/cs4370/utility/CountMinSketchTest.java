@@ -0,0 +1,83 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the sketch's guarantees: estimates are never below the true
+ * count, and are rarely more than e / width of the total count above it.
+ */
+class CountMinSketchTest {
+
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 1024;
+
+    @Test
+    void estimatesStayWithinTheErrorBound() {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+        Map<String, Integer> counts = new HashMap<>();
+        Random random = new Random(9);
+        long total = 0;
+        // Skewed like hashtags: a few keys get most of the counts.
+        for (int i = 0; i < 200_000; i++) {
+            String key = "topic" + (int) Math.floor(Math.pow(random.nextDouble(), 3) * 20_000);
+            sketch.add(key, 1);
+            counts.merge(key, 1, Integer::sum);
+            total++;
+        }
+
+        // Each key is within the bound with probability at least 1 - e^-depth, about 98%.
+        double bound = Math.E / WIDTH * total;
+        int outside = 0;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            int estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue(), entry.getKey() + " is underestimated.");
+            if (estimate - entry.getValue() > bound) {
+                outside++;
+            }
+        }
+        assertTrue(outside <= counts.size() * 0.02, outside + " of " + counts.size() + " keys are outside the bound.");
+    }
+
+    @Test
+    void subtractingABucketRemovesOnlyItsCounts() {
+        CountMinSketch total = new CountMinSketch(DEPTH, WIDTH);
+        CountMinSketch bucket = new CountMinSketch(DEPTH, WIDTH);
+        total.add("kept", 5);
+        total.add("dropped", 3);
+        bucket.add("dropped", 3);
+
+        total.subtract(bucket);
+        assertEquals(5, total.estimate("kept"));
+        assertEquals(0, total.estimate("dropped"));
+
+        total.clear();
+        assertEquals(0, total.estimate("kept"));
+    }
+
+    @Test
+    void widthIsRoundedUpToAPowerOfTwo() {
+        // Rounded up to 1024 cells a row, 100 keys share a cell in every row
+        // only by chance, so nearly all are estimated exactly.
+        CountMinSketch sketch = new CountMinSketch(DEPTH, 1000);
+        for (int i = 0; i < 100; i++) {
+            sketch.add("key" + i, 1);
+        }
+        int exact = 0;
+        for (int i = 0; i < 100; i++) {
+            exact += sketch.estimate("key" + i) == 1 ? 1 : 0;
+        }
+        assertTrue(exact >= 95, exact + " of 100 keys are exact.");
+    }
+}
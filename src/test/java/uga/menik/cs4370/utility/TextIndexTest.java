@@ -0,0 +1,115 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the BM25 ranking through the order of results: rare terms weigh
+ * more than common ones, repeated terms more than single ones, and short
+ * documents more than long ones with the same matches. Every document has
+ * the same time unless a test is about recency, so the boost is equal.
+ */
+class TextIndexTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void rareTermsOutweighCommonOnes() {
+        TextIndex index = index(
+                "common words here",
+                "common words rare",
+                "common words there",
+                "common words again");
+        // Both match one query term in a document of the same length.
+        assertArrayEquals(new int[] { 2, 1 }, index.search("rare here", 10, NOW));
+        assertEquals(2, index.search("common rare", 10, NOW)[0]);
+    }
+
+    @Test
+    void repeatedTermsRankHigherButSaturate() {
+        TextIndex index = index(
+                "kiwi one two three four five",
+                "kiwi kiwi two three four five",
+                "kiwi kiwi kiwi kiwi kiwi five");
+        assertArrayEquals(new int[] { 3, 2, 1 }, index.search("kiwi", 10, NOW));
+
+        // Both have six matches, but further matches of one term add less and less.
+        TextIndex mixed = index(
+                "kiwi kiwi kiwi kiwi kiwi lime",
+                "kiwi kiwi kiwi lime lime lime");
+        assertArrayEquals(new int[] { 2, 1 }, mixed.search("kiwi lime", 10, NOW));
+    }
+
+    @Test
+    void shortDocumentsRankAboveLongOnes() {
+        TextIndex index = index(
+                "mango with a lot of other words around it",
+                "mango alone",
+                "mango with some words");
+        assertArrayEquals(new int[] { 2, 3, 1 }, index.search("mango", 10, NOW));
+    }
+
+    @Test
+    void recentDocumentsBreakTies() {
+        TextIndex index = new TextIndex(100, 4, Runnable::run);
+        index.add(1, NOW - 30L * 24 * 60 * 60 * 1000, "same text");
+        index.add(2, NOW, "same text");
+        index.add(3, NOW - 24 * 60 * 60 * 1000, "same text");
+        assertArrayEquals(new int[] { 2, 3, 1 }, index.search("text", 10, NOW));
+    }
+
+    @Test
+    void phrasesNeedAdjacentTerms() {
+        TextIndex index = index(
+                "red apple pie",
+                "apple red pie",
+                "red and apple");
+        assertArrayEquals(new int[] { 1 }, index.search("\"red apple\"", 10, NOW));
+        assertEquals(3, index.search("red apple", 10, NOW).length);
+    }
+
+    @Test
+    void segmentsRankLikeOneIndex() {
+        String[] texts = new String[40];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = "post " + i + (i % 3 == 0 ? " fox" : "") + (i % 5 == 0 ? " fox jumps" : "")
+                    + (i % 7 == 0 ? " lazy dog dog" : " dog");
+        }
+        TextIndex whole = new TextIndex(1000, 100, Runnable::run);
+        // Flushed every three documents and merged whenever there are more than two segments.
+        TextIndex segmented = new TextIndex(3, 2, Runnable::run);
+        for (int i = 0; i < texts.length; i++) {
+            whole.add(i, NOW, texts[i]);
+            segmented.add(i, NOW, texts[i]);
+        }
+        assertEquals(texts.length, segmented.docCount());
+        for (String query : List.of("fox", "dog lazy", "fox jumps dog", "\"fox jumps\"")) {
+            assertArrayEquals(whole.search(query, 15, NOW), segmented.search(query, 15, NOW), query);
+        }
+    }
+
+    @Test
+    void tokenizeSplitsOnAnythingButLettersAndDigits() {
+        assertEquals(List.of("spring", "boot", "2024"), TextIndex.tokenize("#Spring-Boot! 2024"));
+    }
+
+    /**
+     * Returns an index of the given texts, numbered from 1.
+     */
+    private static TextIndex index(String... texts) {
+        TextIndex index = new TextIndex(100, 4, Runnable::run);
+        for (int i = 0; i < texts.length; i++) {
+            index.add(i + 1, NOW, texts[i]);
+        }
+        return index;
+    }
+}